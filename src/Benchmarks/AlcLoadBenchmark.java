@@ -0,0 +1,88 @@
+package Benchmarks;
+
+import java.io.File;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+
+/**
+ * Compares load throughput (notes per second) between the BufferedReader-based AlcReaderWriter#loadAlcFile,
+ * the memory-mapped AlcReaderWriter#loadAlcFileMapped, and the binary AlcReaderWriter#loadAlcbFile (using an .alcb copy of the same song).
+ *
+ * usage: {optional: filepath to an .alc file to load}
+ * If no .alc file is supplied, a large one is generated into the temp directory and deleted afterwards.
+ */
+public class AlcLoadBenchmark {
+
+	private static final int GENERATED_NUM_SLICES = 500000; // 2 notes per slice, so 1M notes
+	private static final int NUM_RUNS = 5;
+
+	public static void main(String[] args) {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		String alcPath;
+		File generatedFile = null;
+		File alcbFile = null;
+
+		try {
+			if (args.length > 0) {
+				alcPath = args[0];
+			} else {
+				generatedFile = File.createTempFile("AlcLoadBenchmark", ".alc");
+				alcPath = generatedFile.getAbsolutePath();
+				if (!arw.writeAlcFile(MusicSheetBenchmark.buildSheet(GENERATED_NUM_SLICES), alcPath)) {
+					System.out.println("AlcLoadBenchmark#main - error - failed to write the generated .alc file to: " + alcPath);
+					return;
+				}
+			}
+
+			MusicSheet sheet = arw.loadAlcFile(alcPath);
+			if (sheet == null) {
+				System.out.println("AlcLoadBenchmark#main - error - failed to load .alc file: " + alcPath);
+				return;
+			}
+			int noteCount = sheet.getNoteCount();
+			long fileSize = new File(alcPath).length();
+			
+			alcbFile = File.createTempFile("AlcLoadBenchmark", ".alcb");
+			String alcbPath = alcbFile.getAbsolutePath();
+			arw.writeAlcbFile(sheet, alcbPath);
+			long alcbFileSize = alcbFile.length();
+
+			long readerBest = Long.MAX_VALUE;
+			long mappedBest = Long.MAX_VALUE;
+			long binaryBest = Long.MAX_VALUE;
+			for (int run = 0; run < NUM_RUNS; ++run) {
+				long start = System.nanoTime();
+				arw.loadAlcFile(alcPath);
+				readerBest = Math.min(readerBest, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				arw.loadAlcFileMapped(alcPath);
+				mappedBest = Math.min(mappedBest, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				arw.loadAlcbFile(alcbPath);
+				binaryBest = Math.min(binaryBest, System.nanoTime() - start);
+			}
+
+			System.out.println("AlcLoadBenchmark - file: " + alcPath + " (" + fileSize + " bytes, " + noteCount + " notes)");
+			System.out.println("AlcLoadBenchmark - loadAlcFile:       " + (readerBest / 1000000) + "ms, " + perSecond(noteCount, readerBest) + " notes/s");
+			System.out.println("AlcLoadBenchmark - loadAlcFileMapped: " + (mappedBest / 1000000) + "ms, " + perSecond(noteCount, mappedBest) + " notes/s");
+			System.out.println("AlcLoadBenchmark - loadAlcbFile:      " + (binaryBest / 1000000) + "ms, " + perSecond(noteCount, binaryBest) + " notes/s (.alcb is " + alcbFileSize + " bytes)");
+		} catch (Exception e) {
+			System.out.println("AlcLoadBenchmark#main - exception caught: " + e.getMessage());
+			e.printStackTrace();
+		} finally {
+			if (generatedFile != null) {
+				generatedFile.delete();
+			}
+			if (alcbFile != null) {
+				alcbFile.delete();
+			}
+		}
+	}
+
+	static long perSecond(long count, long elapsedNs) {
+		return (long)(count / (elapsedNs / 1000000000.0));
+	}
+}
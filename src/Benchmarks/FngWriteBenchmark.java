@@ -0,0 +1,136 @@
+package Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import DataObjs.Finger;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import DataObjs.PianoProperties;
+import Processors.FngWriter;
+import Processors.Hand;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Measures how long FngWriter takes to write the .fng file for a long song, on a FULL finger implementation with 88 fingers (one per key, A1 to C9).
+ * Compares merging packed events against building every instruction as a zero-padded string and sorting them all, which is how FngWriter used to do it,
+ * and checks that both write the same bytes.
+ *
+ * usage: no arguments. A generated sheet is used (see MusicSheetBenchmark#buildSheet, whose bass chords are held over the melody, so releases land out of order with the hits),
+ * and a temporary piano properties file is written for the 88 key piano.
+ */
+public class FngWriteBenchmark {
+
+	private static final int GENERATED_NUM_SLICES = 200000;
+	private static final int GENERATED_SLICE_MS = 50;
+	private static final int NUM_RUNS = 5;
+
+	public static void main(String[] args) {
+		File propertiesFile = null;
+		File eventFng = null;
+		File stringFng = null;
+		try {
+			propertiesFile = File.createTempFile("FngWriteBenchmark", ".txt");
+			FileWriter fw = new FileWriter(propertiesFile);
+			fw.write("TOTAL_NUM_KEYS [88]\nFIRST_NOTE [A]\nFIRST_OCTAVE [1]\nVOICE [GRAND]\nNUM_SLIDING_FINGERS [0]\nNUM_STATIC_FINGERS [88]\nDISPLAY_PIANO_LETTERS [0]\n");
+			fw.close();
+			eventFng = File.createTempFile("FngWriteBenchmark", ".fng");
+			stringFng = File.createTempFile("FngWriteBenchmark", ".fng");
+		} catch (Exception e) {
+			System.out.println("FngWriteBenchmark#main - error - could not create temporary files: " + e.getMessage());
+			return;
+		}
+		PianoProperties properties = new PianoProperties(propertiesFile.getAbsolutePath());
+		propertiesFile.delete();
+		if (!properties.didLoad()) {
+			System.out.println("FngWriteBenchmark#main - error - failed to load the generated piano properties");
+			return;
+		}
+
+		MusicSheet sheet = MusicSheetBenchmark.buildSheet("FngWriteBenchmark generated sheet", GENERATED_NUM_SLICES, GENERATED_SLICE_MS);
+		Hand hand = new Hand(properties, sheet);
+		FngWriter writer = new FngWriter();
+
+		long bestEvents = Long.MAX_VALUE;
+		long bestStrings = Long.MAX_VALUE;
+		// the first run warms up the jit, and isn't recorded
+		for (int run = 0; run <= NUM_RUNS; ++run) {
+			long start = System.nanoTime();
+			if (!writer.writeFngFromSheet(hand, sheet, eventFng.getAbsolutePath())) {
+				System.out.println("FngWriteBenchmark#main - error - failed to write the .fng file");
+				return;
+			}
+			long elapsed = System.nanoTime() - start;
+			bestEvents = (run == 0) ? bestEvents : Math.min(bestEvents, elapsed);
+
+			start = System.nanoTime();
+			if (!writeSortedStrings(hand, sheet, stringFng.getAbsolutePath())) {
+				return;
+			}
+			elapsed = System.nanoTime() - start;
+			bestStrings = (run == 0) ? bestStrings : Math.min(bestStrings, elapsed);
+		}
+
+		boolean isSame = false;
+		try {
+			isSame = Arrays.equals(Files.readAllBytes(eventFng.toPath()), Files.readAllBytes(stringFng.toPath()));
+		} catch (Exception e) {
+			System.out.println("FngWriteBenchmark#main - error - could not read back the .fng files: " + e.getMessage());
+		}
+		int numInstructions = sheet.getNoteCount() * 2; // every generated note is on the piano, so each is a hit and a release
+		eventFng.delete();
+		stringFng.delete();
+
+		System.out.println("FngWriteBenchmark - " + hand.getNumFingers() + " fingers, " + sheet.getNoteCount() + " notes, " + numInstructions + " instructions, identical output: " + isSame);
+		System.out.println("FngWriteBenchmark - generation | ns/instruction | ms total");
+		System.out.println("FngWriteBenchmark - merged events | " + String.format("%.1f", (double)bestEvents / numInstructions) + " | " + String.format("%.2f", bestEvents / 1000000.0));
+		System.out.println("FngWriteBenchmark - sorted strings | " + String.format("%.1f", (double)bestStrings / numInstructions) + " | " + String.format("%.2f", bestStrings / 1000000.0));
+	}
+
+	/**
+	 * The old way of writing a .fng file: every instruction as a string with a zero-padded timestamp, sorted all at once
+	 */
+	private static boolean writeSortedStrings(Hand hand, MusicSheet sheet, String fngFilePath) {
+		ArrayList<String> instructions = new ArrayList<String>();
+		int numDigitsForTimestamp = (sheet.getEndTime()+"").length();
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			MusicSlice slice = sheet.getSlice(x);
+			String strStartTime = slice.getStartTime() + "";
+			while (strStartTime.length() < numDigitsForTimestamp) {
+				strStartTime = "0" + strStartTime;
+			}
+			// keys are read straight from the slice, so neither way of writing the file has to build the slice's MusicNotes
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				Finger finger = hand.getFingerForKeyAtTime(keyIndex, slice.getStartTime());
+				if (finger != null) {
+					double compareValue = NoteUtils.getCompareValueForKeyIndex(keyIndex);
+					instructions.add(strStartTime + " FINGER " + finger.getFingerSequence() + " CV " + compareValue + " " + Constants.INSTRUCT_HIT);
+					String strEndTime = hand.getReleaseTimeForKeyAtTime(keyIndex, slice.getStartTime(), slice.getDurationForKey(keyIndex)) + "";
+					while (strEndTime.length() < numDigitsForTimestamp) {
+						strEndTime = "0" + strEndTime;
+					}
+					instructions.add(strEndTime + " FINGER " + finger.getFingerSequence() + " CV " + compareValue + " " + Constants.INSTRUCT_RELEASE);
+				}
+			}
+		}
+		Collections.sort(instructions);
+		try {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(new File(fngFilePath)));
+			for (int x = 0; x < instructions.size(); ++x) {
+				bw.write(instructions.get(x));
+				bw.newLine();
+			}
+			bw.close();
+		} catch (Exception e) {
+			System.out.println("FngWriteBenchmark#writeSortedStrings - error - failed to write to .fng file at path: " + fngFilePath);
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,91 @@
+package Benchmarks;
+
+import java.io.OutputStream;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.KeyboardFrameRenderer;
+import Processors.KeyboardLayout;
+import Processors.PlaybackSchedule;
+
+/**
+ * Measures KeyboardFrameRenderer throughput, in frames per second, for a long song on an 88 key piano.
+ * Compares only redrawing the keys that changed (renderFrame) against redrawing the whole keyboard for every frame (renderFullFrame),
+ * both on their own and with every frame also converted to raw rgb (which is thrown away rather than written anywhere).
+ *
+ * usage: {optional: filepath to an .alc file to draw}
+ * If no .alc file is supplied, a generated sheet is drawn.
+ */
+public class FrameRenderBenchmark {
+
+	private static final int GENERATED_NUM_SLICES = 20000; // ~6.5 minutes of song
+	private static final int FPS = 60;
+	private static final int NUM_RUNS = 3;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		MusicSheet sheet;
+		if (args.length > 0) {
+			sheet = new AlcReaderWriter().loadAlcFile(args[0]);
+			if (sheet == null) {
+				System.out.println("FrameRenderBenchmark#main - error - failed to load .alc file: " + args[0]);
+				return;
+			}
+		} else {
+			sheet = MusicSheetBenchmark.buildSheet(GENERATED_NUM_SLICES);
+		}
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		KeyboardLayout layout = new KeyboardLayout(52, 36, "A", 0); // a full size 88 key piano, A0 to C8
+		int numFrames = new KeyboardFrameRenderer(layout, schedule).getNumFrames(FPS);
+
+		// warm up the jit before we record anything
+		runPass(layout, schedule, false, true);
+		runPass(layout, schedule, true, true);
+
+		System.out.println("FrameRenderBenchmark - " + numFrames + " frames at " + FPS + " fps, " + layout.getKeyboardWidth() + "x" + layout.getKeyboardHeight());
+		System.out.println("FrameRenderBenchmark - mode | frames/s (draw only) | frames/s (draw + raw rgb)");
+		System.out.println("FrameRenderBenchmark - changed keys only | " + best(layout, schedule, false, false, numFrames) + " | " + best(layout, schedule, false, true, numFrames));
+		System.out.println("FrameRenderBenchmark - full redraw | " + best(layout, schedule, true, false, numFrames) + " | " + best(layout, schedule, true, true, numFrames));
+	}
+
+	private static String best(KeyboardLayout layout, PlaybackSchedule schedule, boolean fullRedraw, boolean writeRgb, int numFrames) {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < NUM_RUNS; ++run) {
+			best = Math.min(best, runPass(layout, schedule, fullRedraw, writeRgb));
+		}
+		return String.format("%.0f", numFrames / (best / 1000000000.0));
+	}
+
+	/**
+	 * @return how long it took to draw every frame of the song, in nanoseconds
+	 */
+	private static long runPass(KeyboardLayout layout, PlaybackSchedule schedule, boolean fullRedraw, boolean writeRgb) {
+		KeyboardFrameRenderer renderer = new KeyboardFrameRenderer(layout, schedule);
+		OutputStream discard = new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		};
+		long start = System.nanoTime();
+		try {
+			for (int frame = 0; frame < renderer.getNumFrames(FPS); ++frame) {
+				int time = KeyboardFrameRenderer.getFrameTime(frame, FPS);
+				if (fullRedraw) {
+					renderer.renderFullFrame(time);
+				} else {
+					renderer.renderFrame(time);
+				}
+				if (writeRgb) {
+					renderer.writeRgbFrame(discard);
+				}
+			}
+		} catch (Exception e) {
+			System.out.println("FrameRenderBenchmark#runPass - error - exception caught: " + e.getMessage());
+		}
+		return System.nanoTime() - start;
+	}
+}
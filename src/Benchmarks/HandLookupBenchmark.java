@@ -0,0 +1,101 @@
+package Benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import DataObjs.Finger;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import DataObjs.PianoProperties;
+import Processors.Hand;
+
+/**
+ * Measures how long it takes Hand to find the finger for every note in a song, on a FULL finger implementation with 88 fingers (one per key, A1 to C9).
+ * Compares the Hand's key index table against scanning every finger for the one over the note, which is how Hand used to find them.
+ *
+ * usage: no arguments. A generated sheet is used, and a temporary piano properties file is written for the 88 key piano.
+ */
+public class HandLookupBenchmark {
+
+	private static final int GENERATED_NUM_SLICES = 200000;
+	private static final int NUM_RUNS = 5;
+
+	public static void main(String[] args) {
+		File propertiesFile = null;
+		try {
+			propertiesFile = File.createTempFile("HandLookupBenchmark", ".txt");
+			FileWriter fw = new FileWriter(propertiesFile);
+			fw.write("TOTAL_NUM_KEYS [88]\nFIRST_NOTE [A]\nFIRST_OCTAVE [1]\nVOICE [GRAND]\nNUM_SLIDING_FINGERS [0]\nNUM_STATIC_FINGERS [88]\nDISPLAY_PIANO_LETTERS [0]\n");
+			fw.close();
+		} catch (Exception e) {
+			System.out.println("HandLookupBenchmark#main - error - could not write the piano properties file: " + e.getMessage());
+			return;
+		}
+		PianoProperties properties = new PianoProperties(propertiesFile.getAbsolutePath());
+		propertiesFile.delete();
+		if (!properties.didLoad()) {
+			System.out.println("HandLookupBenchmark#main - error - failed to load the generated piano properties");
+			return;
+		}
+
+		// notes spread over the keys, so scanning has to walk a different distance into the fingers for each note
+		MusicSheet sheet = MusicSheetBenchmark.buildSheet("HandLookupBenchmark generated sheet", GENERATED_NUM_SLICES, 100);
+		Hand hand = new Hand(properties, sheet);
+		int[] noteKeys = new int[sheet.getNoteCount()];
+		int[] noteTimes = new int[sheet.getNoteCount()];
+		int numNotes = 0;
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			MusicSlice slice = sheet.getSlice(x);
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				noteKeys[numNotes] = keyIndex;
+				noteTimes[numNotes] = slice.getStartTime();
+				++numNotes;
+			}
+		}
+
+		// warm up the jit before we record anything
+		runPass(hand, noteKeys, noteTimes, numNotes, true);
+		runPass(hand, noteKeys, noteTimes, numNotes, false);
+
+		long bestTable = Long.MAX_VALUE;
+		long bestScan = Long.MAX_VALUE;
+		for (int run = 0; run < NUM_RUNS; ++run) {
+			bestTable = Math.min(bestTable, runPass(hand, noteKeys, noteTimes, numNotes, true));
+			bestScan = Math.min(bestScan, runPass(hand, noteKeys, noteTimes, numNotes, false));
+		}
+
+		System.out.println("HandLookupBenchmark - " + hand.getNumFingers() + " fingers, " + numNotes + " notes");
+		System.out.println("HandLookupBenchmark - lookup | ns/note | ms total");
+		System.out.println("HandLookupBenchmark - key index table | " + String.format("%.1f", (double)bestTable / numNotes) + " | " + String.format("%.2f", bestTable / 1000000.0));
+		System.out.println("HandLookupBenchmark - scan every finger | " + String.format("%.1f", (double)bestScan / numNotes) + " | " + String.format("%.2f", bestScan / 1000000.0));
+	}
+
+	/**
+	 * @return how long it took to find the finger for every note, in nanoseconds
+	 */
+	private static long runPass(Hand hand, int[] noteKeys, int[] noteTimes, int numNotes, boolean useTable) {
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int note = 0; note < numNotes; ++note) {
+			Finger finger = null;
+			if (useTable) {
+				finger = hand.getFingerForKeyAtTime(noteKeys[note], noteTimes[note]);
+			} else {
+				for (int x = 0; x < hand.getNumFingers(); ++x) {
+					if (hand.getFinger(x).getKeyIndexAtTime(noteTimes[note]) == noteKeys[note]) {
+						finger = hand.getFinger(x);
+						break;
+					}
+				}
+			}
+			if (finger != null) {
+				checksum += finger.getFingerSequence();
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checksum == 0) {
+			System.out.println("HandLookupBenchmark#runPass - warning - no fingers were found");
+		}
+		return elapsed;
+	}
+}
@@ -0,0 +1,167 @@
+package Benchmarks;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Utils.NoteUtils;
+
+/**
+ * Simple timing harness for walking MusicSheets of increasing size.
+ * Every pass that walks the sheet (index lookups, iterators, recalculating the cached values) should scale linearly with the number of slices,
+ * so the "ns per slice" columns should stay roughly flat going from 1k slices up to 1M slices.
+ * If they climb with the song length, then something has regressed into a linear lookup per slice (like LinkedList.get(x) used to be).
+ *
+ * Once calculated, getEndTime / getGCD / getMaxSimulHits / getMaxSimulHitsAndHolds are cached by the sheet, so the "ns per call" columns should stay flat no matter how long the song is.
+ * If they climb with the song length, then something is throwing out the cached values when it shouldn't.
+ */
+public class MusicSheetBenchmark {
+
+	private static final int[] SHEET_SIZES = { 1000, 10000, 100000, 1000000 };
+	private static final int NUM_RUNS = 5;
+	private static final int NUM_CACHED_CALLS = 100000;
+
+	public static void main(String[] args) {
+		// warm up the jit before we record anything
+		runPasses(buildSheet(100000));
+
+		System.out.println("MusicSheetBenchmark - slices | index walk (ns/slice) | iterator walk (ns/slice) | recalculate cached values (ns/slice)" +
+						   " | cached getEndTime (ns/call) | cached getGCD (ns/call) | cached getMaxSimulHits (ns/call) | cached getMaxSimulHitsAndHolds (ns/call)");
+		for (int x = 0; x < SHEET_SIZES.length; ++x) {
+			MusicSheet sheet = buildSheet(SHEET_SIZES[x]);
+			long[] best = runPasses(sheet);
+			System.out.println("MusicSheetBenchmark - " + SHEET_SIZES[x] +
+							   " | " + nsPer(best[0], SHEET_SIZES[x]) +
+							   " | " + nsPer(best[1], SHEET_SIZES[x]) +
+							   " | " + nsPer(best[2], SHEET_SIZES[x]) +
+							   " | " + nsPer(best[3], NUM_CACHED_CALLS) +
+							   " | " + nsPer(best[4], NUM_CACHED_CALLS) +
+							   " | " + nsPer(best[5], NUM_CACHED_CALLS) +
+							   " | " + nsPer(best[6], NUM_CACHED_CALLS));
+		}
+	}
+
+	/**
+	 * Builds a sheet with the given number of slices, each holding a small chord, with start times spaced out by multiples of 10ms
+	 * @param numSlices number of slices to put in the sheet
+	 * @return the generated MusicSheet
+	 */
+	public static MusicSheet buildSheet(int numSlices) {
+		MusicSheet sheet = new MusicSheet("MusicSheetBenchmark generated sheet", numSlices * 2);
+		int startTime = 0;
+		for (int x = 0; x < numSlices; ++x) {
+			MusicSlice slice = new MusicSlice(startTime);
+			slice.addMusicNote(new MusicNote(20.0 + (x % 7), 100));
+			slice.addMusicNote(new MusicNote(34.0 + (x % 5), 200));
+			sheet.addSlice(slice);
+			startTime += 10 * (1 + (x % 3));
+		}
+		return sheet;
+	}
+
+	/**
+	 * Builds a song for the 88 key piano (A1 to C9), for the benchmarks that need notes spread over the keys: a wandering melody over the right hand,
+	 * and chords of up to 3 notes in the left hand. The chords are held over the next few melody notes, so releases land out of order with the hits.
+	 * The notes are random, but seeded, so every run generates the same song.
+	 * @param name the sheet's info line
+	 * @param numSlices number of slices to put in the sheet
+	 * @param sliceMs time between slices, in milliseconds
+	 * @return the generated MusicSheet
+	 */
+	public static MusicSheet buildSheet(String name, int numSlices, int sliceMs) {
+		Random random = new Random(42);
+		double[] compVals = new double[88];
+		compVals[0] = 13.0; // A1
+		for (int x = 1; x < compVals.length; ++x) {
+			compVals[x] = NoteUtils.getNextNoteCV(compVals[x - 1]);
+		}
+		MusicSheet sheet = new MusicSheet(name, 0);
+		int noteCount = 0;
+		int melody = 55;
+		int bass = 25;
+		for (int x = 0; x < numSlices; ++x) {
+			MusicSlice slice = new MusicSlice(x * sliceMs);
+			melody = Math.max(44, Math.min(80, melody + random.nextInt(7) - 3));
+			slice.addMusicNote(new MusicNote(compVals[melody], sliceMs * (1 + random.nextInt(2))));
+			if (x % 4 == 0) {
+				bass = Math.max(5, Math.min(35, bass + random.nextInt(9) - 4));
+				int chordSize = 1 + random.nextInt(3);
+				for (int note = 0; note < chordSize; ++note) {
+					slice.addMusicNote(new MusicNote(compVals[bass + note * 4], sliceMs * 4));
+				}
+			}
+			noteCount += slice.getNumNotes();
+			sheet.addSlice(slice);
+		}
+		sheet.setNoteCount(noteCount);
+		return sheet;
+	}
+
+	/**
+	 * Times each pass over the sheet NUM_RUNS times and keeps the fastest run of each
+	 * @return the best time in nanoseconds for {index walk, iterator walk, recalculating the cached values,
+	 *         NUM_CACHED_CALLS calls to getEndTime, NUM_CACHED_CALLS calls to getGCD, NUM_CACHED_CALLS calls to getMaxSimulHits,
+	 *         NUM_CACHED_CALLS calls to getMaxSimulHitsAndHolds}
+	 */
+	private static long[] runPasses(MusicSheet sheet) {
+		long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+		long checksum = 0; // consumed below so the jit can't throw the walks away
+
+		for (int run = 0; run < NUM_RUNS; ++run) {
+			long start = System.nanoTime();
+			for (int x = 0; x < sheet.getNumSlices(); ++x) {
+				checksum += sheet.getSlice(x).getStartTime();
+			}
+			best[0] = Math.min(best[0], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			Iterator<MusicSlice> iter = sheet.sliceIterator();
+			while (iter.hasNext()) {
+				checksum += iter.next().getNumNotes();
+			}
+			best[1] = Math.min(best[1], System.nanoTime() - start);
+
+			// the first call after the sheet changes recalculates everything in one walk
+			sheet.invalidateCachedValues();
+			start = System.nanoTime();
+			checksum += sheet.getEndTime();
+			best[2] = Math.min(best[2], System.nanoTime() - start);
+
+			// every call after that is just a lookup
+			start = System.nanoTime();
+			for (int x = 0; x < NUM_CACHED_CALLS; ++x) {
+				checksum += sheet.getEndTime();
+			}
+			best[3] = Math.min(best[3], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int x = 0; x < NUM_CACHED_CALLS; ++x) {
+				checksum += sheet.getGCD();
+			}
+			best[4] = Math.min(best[4], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int x = 0; x < NUM_CACHED_CALLS; ++x) {
+				checksum += sheet.getMaxSimulHits();
+			}
+			best[5] = Math.min(best[5], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int x = 0; x < NUM_CACHED_CALLS; ++x) {
+				checksum += sheet.getMaxSimulHitsAndHolds();
+			}
+			best[6] = Math.min(best[6], System.nanoTime() - start);
+		}
+
+		if (checksum == 42) {
+			System.out.println("MusicSheetBenchmark - (checksum) " + checksum);
+		}
+		return best;
+	}
+
+	private static String nsPer(long totalNs, int count) {
+		return String.format("%.2f", (double)totalNs / count);
+	}
+}
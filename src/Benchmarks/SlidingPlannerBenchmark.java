@@ -0,0 +1,54 @@
+package Benchmarks;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.SlidingFingerPlanner;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Measures how long SlidingFingerPlanner takes to plan a long song, for a few different numbers of fingers, on an 88 key piano (A1 to C9).
+ *
+ * usage: {optional: filepath to an .alc file to plan}
+ * If no .alc file is supplied, a generated 30 minute song is planned: a wandering melody over the right hand, and chords of up to 3 notes in the left hand.
+ */
+public class SlidingPlannerBenchmark {
+
+	private static final int GENERATED_MINUTES = 30;
+	private static final int GENERATED_SLICE_MS = 125;
+	private static final int[] FINGER_COUNTS = { 2, 4, 6, 8, 10 };
+	private static final int NUM_RUNS = 3;
+
+	public static void main(String[] args) {
+		MusicSheet sheet;
+		if (args.length > 0) {
+			sheet = new AlcReaderWriter().loadAlcFile(args[0]);
+			if (sheet == null) {
+				System.out.println("SlidingPlannerBenchmark#main - error - failed to load .alc file: " + args[0]);
+				return;
+			}
+		} else {
+			sheet = MusicSheetBenchmark.buildSheet("SlidingPlannerBenchmark generated sheet", GENERATED_MINUTES * 60 * 1000 / GENERATED_SLICE_MS, GENERATED_SLICE_MS);
+		}
+		int minKeyIndex = NoteUtils.getKeyIndexForCompareValue(13.0); // A1
+		int maxKeyIndex = minKeyIndex + 87;
+
+		// warm up the jit before we record anything
+		SlidingFingerPlanner warmup = new SlidingFingerPlanner(sheet, 4, minKeyIndex, maxKeyIndex, Constants.SLIDING_FINGER_KEYS_PER_MS);
+
+		System.out.println("SlidingPlannerBenchmark - " + sheet.getNumSlices() + " slices, " + warmup.getNumNotes() + " notes, " + (sheet.getEndTime() / 60000) + " minutes, " +
+			Constants.SLIDING_FINGER_KEYS_PER_MS + " keys/ms, beam width " + SlidingFingerPlanner.DEFAULT_BEAM_WIDTH);
+		System.out.println("SlidingPlannerBenchmark - fingers | ms to plan | unplayable notes | lost hold ms | keys slid");
+		for (int x = 0; x < FINGER_COUNTS.length; ++x) {
+			long best = Long.MAX_VALUE;
+			SlidingFingerPlanner planner = null;
+			for (int run = 0; run < NUM_RUNS; ++run) {
+				long start = System.nanoTime();
+				planner = new SlidingFingerPlanner(sheet, FINGER_COUNTS[x], minKeyIndex, maxKeyIndex, Constants.SLIDING_FINGER_KEYS_PER_MS);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.println("SlidingPlannerBenchmark - " + FINGER_COUNTS[x] + " | " + (best / 1000000) + " | " + planner.getNumUnplayable() + " | " +
+				planner.getLostHoldTime() + " | " + planner.getTravel());
+		}
+	}
+}
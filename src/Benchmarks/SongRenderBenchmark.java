@@ -0,0 +1,69 @@
+package Benchmarks;
+
+import java.io.OutputStream;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.SampleBank;
+import Processors.SongRenderer;
+import Utils.Constants;
+
+/**
+ * Measures SongRenderer throughput (output samples per second, one sample per channel) with an increasing number of threads.
+ * The output is thrown away rather than written to disk, so this only measures mixing.
+ * Segments don't share anything while they're mixed, so throughput should scale close to linearly until it runs out of cores.
+ *
+ * usage: {optional: filepath to an .alc file to render}
+ * If no .alc file is supplied, a generated sheet is rendered.
+ */
+public class SongRenderBenchmark {
+
+	private static final int GENERATED_NUM_SLICES = 20000; // ~6.5 minutes of song
+	private static final int NUM_RUNS = 3;
+
+	public static void main(String[] args) {
+		MusicSheet sheet;
+		if (args.length > 0) {
+			sheet = new AlcReaderWriter().loadAlcFile(args[0]);
+			if (sheet == null) {
+				System.out.println("SongRenderBenchmark#main - error - failed to load .alc file: " + args[0]);
+				return;
+			}
+		} else {
+			sheet = MusicSheetBenchmark.buildSheet(GENERATED_NUM_SLICES);
+		}
+		SampleBank bank = SampleBank.getBank(Constants.VOICE_GRAND);
+		SongRenderer renderer = new SongRenderer(sheet, bank);
+		long numSamples = (long)renderer.getNumFrames() * SampleBank.CHANNELS;
+
+		// warm up the jit before we record anything
+		renderer.render(new DiscardingOutputStream(), 1);
+
+		System.out.println("SongRenderBenchmark - " + renderer.getNumNotes() + " notes, " + String.format("%.1f", renderer.getNumFrames() / SampleBank.SAMPLE_RATE) + "s of audio");
+		System.out.println("SongRenderBenchmark - threads | best time (ms) | samples/s | x real time");
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+			long best = Long.MAX_VALUE;
+			for (int run = 0; run < NUM_RUNS; ++run) {
+				long start = System.nanoTime();
+				renderer.render(new DiscardingOutputStream(), numThreads);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			double seconds = best / 1000000000.0;
+			System.out.println("SongRenderBenchmark - " + numThreads +
+							   " | " + String.format("%.1f", best / 1000000.0) +
+							   " | " + String.format("%.0f", numSamples / seconds) +
+							   " | " + String.format("%.1f", renderer.getNumFrames() / SampleBank.SAMPLE_RATE / seconds));
+		}
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
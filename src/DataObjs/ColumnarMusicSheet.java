@@ -0,0 +1,144 @@
+package DataObjs;
+
+/**
+ * A read-only, column-oriented version of a MusicSheet, intended for analysis (stats generation, batch processing of a whole library of songs, ...)
+ * rather than for playback or editing.
+ *
+ * Rather than a collection of MusicSlices each holding a collection of MusicNotes, the whole song is held in a handful of primitive arrays:
+ *   startTimes[s]      - the start time (in milliseconds) of slice s
+ *   sliceOffsets[s]    - the index of the first note of slice s in the note arrays. The notes of slice s are [sliceOffsets[s], sliceOffsets[s+1]),
+ *                        so sliceOffsets has one more entry than there are slices.
+ *   keyIndices[n]      - the half-step key index of note n (see NoteUtils#getKeyIndexForCompareValue)
+ *   durations[n]       - the duration (in milliseconds) of note n
+ * Notes within a slice are ordered by key index, the same as they would be in a MusicSlice.
+ *
+ * This works out to roughly 6 bytes per note plus 8 bytes per slice, compared to 100+ bytes per note for a MusicSheet of MusicNotes,
+ * and walking the song is a tight loop over arrays instead of chasing references through collections.
+ *
+ * ColumnarMusicSheets are created by AlcReaderWriter#loadAlcFileColumnar. Only hittable keys can be stored, so .alc files with rests in them can't be loaded this way.
+ */
+public class ColumnarMusicSheet {
+	private String infoLine; // the informational line from the .alc file
+	private int[] startTimes;
+	private int[] sliceOffsets;
+	private short[] keyIndices;
+	private int[] durations;
+
+	/**
+	 * The sheet takes ownership of the given arrays - they shouldn't be modified by the caller afterwards.
+	 * @param infoLine the informational line from the .alc file
+	 * @param startTimes start time of each slice, in increasing order
+	 * @param sliceOffsets index of each slice's first note, plus a final entry equal to the total number of notes
+	 * @param keyIndices key index of each note
+	 * @param durations duration of each note
+	 */
+	public ColumnarMusicSheet(String infoLine, int[] startTimes, int[] sliceOffsets, short[] keyIndices, int[] durations) {
+		this.infoLine = infoLine;
+		this.startTimes = startTimes;
+		this.sliceOffsets = sliceOffsets;
+		this.keyIndices = keyIndices;
+		this.durations = durations;
+	}
+
+	/**
+	 * @return the number of slices (distinct points in time that notes are hit at) in the song
+	 */
+	public int getNumSlices() {
+		return startTimes.length;
+	}
+
+	/**
+	 * @param slice index of the slice
+	 * @return start time of the slice, in milliseconds
+	 */
+	public int getStartTime(int slice) {
+		return startTimes[slice];
+	}
+
+	/**
+	 * @param slice index of the slice
+	 * @return index of the slice's first note
+	 */
+	public int getFirstNote(int slice) {
+		return sliceOffsets[slice];
+	}
+
+	/**
+	 * @param slice index of the slice
+	 * @return index one past the slice's last note
+	 */
+	public int getEndNote(int slice) {
+		return sliceOffsets[slice + 1];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return half-step key index of the note
+	 */
+	public int getKeyIndex(int note) {
+		return keyIndices[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return duration of the note, in milliseconds
+	 */
+	public int getDuration(int note) {
+		return durations[note];
+	}
+
+	/**
+	 * Same as MusicSheet#getGCD - the greatest common divisor of the gaps between the slices' start times.
+	 * @return greatest-common-divisor of the gaps between slices, in milliseconds, or -1 if there are fewer than 2 slices
+	 */
+	public int getGCD() {
+		if (startTimes.length < 2) {
+			System.out.println("ColumnarMusicSheet#getGCD - error - there are note enough slices in this ColumnarMusicSheet (minimum required: 2). A GCD can't be determined. Slices available: " + startTimes.length);
+			return -1;
+		}
+
+		int gcd = 0;
+		for (int s = 1; s < startTimes.length; ++s) {
+			int gap = startTimes[s] - startTimes[s-1];
+			while (gap != 0) {
+				int temp = gcd % gap;
+				gcd = gap;
+				gap = temp;
+			}
+		}
+		return gcd;
+	}
+
+	/**
+	 * Same as MusicSheet#getEndTime - the time that the last note in the song stops playing (which isn't necessarily a note from the last slice).
+	 * @return the end time in milliseconds, or -1 if the sheet is empty
+	 */
+	public int getEndTime() {
+		int highestEndTime = -1;
+		for (int s = 0; s < startTimes.length; ++s) {
+			int startTime = startTimes[s];
+			for (int n = sliceOffsets[s]; n < sliceOffsets[s + 1]; ++n) {
+				if (startTime + durations[n] > highestEndTime) {
+					highestEndTime = startTime + durations[n];
+				}
+			}
+		}
+		return highestEndTime;
+	}
+
+	/**
+	 * Simple getter for infoLine
+	 * @return
+	 */
+	public String getInfoLine() {
+		return infoLine;
+	}
+
+	/**
+	 * Same as MusicSheet#getNoteCount - the note count line, minus any duplicate notes that were thrown out while loading
+	 * @return the number of notes in the sheet
+	 */
+	public int getNoteCount() {
+		return keyIndices.length;
+	}
+}
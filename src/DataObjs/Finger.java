@@ -1,6 +1,8 @@
 package DataObjs;
 
-import java.util.HashMap;
+import java.util.Arrays;
+
+import Utils.NoteUtils;
 
 public class Finger {
 
@@ -16,23 +18,72 @@ public class Finger {
 	// TODO how much time will sliding fingers require to move from one key to the next? And does this differ for coming to / from sharps?
 	//      will we need to account for this incrementally in the time/cv collection? Like estimates of its location per greatestCommonDivisor?
 	
+	// The time/note relation is stored as parallel arrays sorted by time (changeTimes[x] is when the finger arrives over compVals[x]),
+	// so the position at any time is a binary search away, rather than a walk over every change the finger has made.
+	
 	int fingerSequence;
-	HashMap<Integer, Double> timesToCompVals;
+	int[] changeTimes;
+	double[] compVals;
+	int[] keyIndices; // key index of each compareValue, so fingers can be matched against notes with a single int compare
+	int numChanges;
 	
 	public Finger(int sequence, double startCompareValue) {
 		fingerSequence = sequence;
-		timesToCompVals = new HashMap<Integer, Double>();
-		timesToCompVals.put(0, startCompareValue);
+		changeTimes = new int[4];
+		compVals = new double[4];
+		keyIndices = new int[4];
+		changeTimes[0] = 0;
+		compVals[0] = startCompareValue;
+		keyIndices[0] = NoteUtils.getKeyIndexForCompareValue(startCompareValue);
+		numChanges = 1;
 	}
 	
 	
+	/**
+	 * Records the finger as hovering over a new compareValue from the given time onwards.
+	 * Hand should check if it is possible to slide first - this only records the move.
+	 * Slides are expected to be added in time order, but one added out of order is still inserted where it belongs, and a slide at a time that already has one replaces it.
+	 * @param time time in the song, in milliseconds, that the finger arrives over the new compareValue
+	 * @param destCompareValue compareValue the finger slides to
+	 */
 	public void slide(int time, double destCompareValue) {
-		// TODO NYI
-		// Hand should check if it is possible to slide first. If it is, "slide" by adding a new entry to the collection
-		// with the new compare value at the given timestamp.
-		// The hashmap will need to stay ordered by the Timestamp (integer) key
+		int pos = Arrays.binarySearch(changeTimes, 0, numChanges, time);
+		if (pos < 0) {
+			pos = -pos - 1;
+			if (numChanges == changeTimes.length) {
+				changeTimes = Arrays.copyOf(changeTimes, numChanges * 2);
+				compVals = Arrays.copyOf(compVals, numChanges * 2);
+				keyIndices = Arrays.copyOf(keyIndices, numChanges * 2);
+			}
+			System.arraycopy(changeTimes, pos, changeTimes, pos + 1, numChanges - pos);
+			System.arraycopy(compVals, pos, compVals, pos + 1, numChanges - pos);
+			System.arraycopy(keyIndices, pos, keyIndices, pos + 1, numChanges - pos);
+			++numChanges;
+		}
+		changeTimes[pos] = time;
+		compVals[pos] = destCompareValue;
+		keyIndices[pos] = NoteUtils.getKeyIndexForCompareValue(destCompareValue);
 	}
 	
+	/**
+	 * @return the position of the last change made at or before the given time (the one the finger is still on), or 0 if the time is before every change
+	 */
+	private int getChangeAtTime(int timeInMs) {
+		if (numChanges == 1) {
+			return 0;
+		}
+		int low = 0;
+		int high = numChanges;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (changeTimes[mid] <= timeInMs) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return Math.max(low - 1, 0);
+	}
 	
 	/**
 	 * Given a timestamp within the song (in milliseconds), return which compareValue this Finger is hovering over at that time.
@@ -40,19 +91,39 @@ public class Finger {
 	 * @return
 	 */
 	public double getCompValAtTime(int timeInMs) {
-		double compVal;
-		
-		if (timesToCompVals.size() == 1) {
-			compVal = timesToCompVals.get(0);
-		} else {
-			// Interate through the ordered collection until you come to a timestamp that is GREATER than the desired timestamp.
-			// Once you find that one, you know you use the note it was hovering over prior to that change.
-			// If there is no timestamp greater than the desired timeInMs, then that means the last note hovered over is the one we want.
-			// TODO NYI
-			compVal = -1;
-		}
-		
-		return compVal;
+		return compVals[getChangeAtTime(timeInMs)];
+	}
+	
+	/**
+	 * Given a timestamp within the song (in milliseconds), return the half-step key index (see NoteUtils#getKeyIndexForCompareValue) this Finger is hovering over at that time.
+	 * @param timeInMs
+	 * @return key index, or -1 if it can't be determined
+	 */
+	public int getKeyIndexAtTime(int timeInMs) {
+		return keyIndices[getChangeAtTime(timeInMs)];
+	}
+	
+	/**
+	 * @return the number of positions the finger has over the song (1 for a finger that never slides)
+	 */
+	public int getNumPositions() {
+		return numChanges;
+	}
+	
+	/**
+	 * @param position index of the position, in time order
+	 * @return the time the finger arrives at the position, in milliseconds
+	 */
+	public int getPositionTime(int position) {
+		return changeTimes[position];
+	}
+	
+	/**
+	 * @param position index of the position, in time order
+	 * @return the key index of the position
+	 */
+	public int getPositionKeyIndex(int position) {
+		return keyIndices[position];
 	}
 	
 	@Override
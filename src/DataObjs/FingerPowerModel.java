@@ -0,0 +1,175 @@
+package DataObjs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import Utils.Constants;
+
+public class FingerPowerModel {
+
+	// How much current a finger draws as it plays, for the FingerPowerSimulator. Every finger is assumed to be the same hardware.
+	// A hit draws hitCurrentMa for hitPulseMs (pulling the finger in), then holdCurrentMa for as long as the key is held.
+	// A release draws releaseCurrentMa for releasePulseMs (0 for a finger that springs back on its own), and a slide draws slideCurrentMa for slidePulseMs.
+	// The pulse currents replace the hold current while they last, rather than adding to it.
+	//
+	// Heat builds up in a finger with the square of its current, and bleeds off with the given thermal time constant (a first order model, like a coil's datasheet gives).
+	// ratedCurrentMa is the current the finger can carry forever without overheating, so a finger's thermal load is 1.0 once it has settled at that current.
+	// Anything above 1.0 is hotter than the finger is rated for.
+	//
+	// The model can be loaded from a file in the same "SETTING [value]" form as the piano properties file (see the POWER_ settings in Constants).
+	// Any settings the file leaves out keep their defaults.
+
+	private int hitCurrentMa;
+	private int hitPulseMs;
+	private int holdCurrentMa;
+	private int releaseCurrentMa;
+	private int releasePulseMs;
+	private int slideCurrentMa;
+	private int slidePulseMs;
+	private int ratedCurrentMa;
+	private int thermalTimeConstantMs;
+	private boolean didLoad;
+
+	/**
+	 * A model with every setting at its default (see the DEFAULT_ power settings in Constants)
+	 */
+	public FingerPowerModel() {
+		this(Constants.DEFAULT_HIT_CURRENT_MA, Constants.DEFAULT_HIT_PULSE_MS, Constants.DEFAULT_HOLD_CURRENT_MA, Constants.DEFAULT_RELEASE_CURRENT_MA, Constants.DEFAULT_RELEASE_PULSE_MS,
+			 Constants.DEFAULT_RATED_CURRENT_MA, Constants.DEFAULT_THERMAL_TIME_CONSTANT_MS);
+	}
+
+	/**
+	 * A model for fingers that don't slide
+	 */
+	public FingerPowerModel(int hitCurrentMa, int hitPulseMs, int holdCurrentMa, int releaseCurrentMa, int releasePulseMs, int ratedCurrentMa, int thermalTimeConstantMs) {
+		this.hitCurrentMa = hitCurrentMa;
+		this.hitPulseMs = hitPulseMs;
+		this.holdCurrentMa = holdCurrentMa;
+		this.releaseCurrentMa = releaseCurrentMa;
+		this.releasePulseMs = releasePulseMs;
+		this.slideCurrentMa = Constants.DEFAULT_SLIDE_CURRENT_MA;
+		this.slidePulseMs = Constants.DEFAULT_SLIDE_PULSE_MS;
+		this.ratedCurrentMa = ratedCurrentMa;
+		this.thermalTimeConstantMs = thermalTimeConstantMs;
+		this.didLoad = validate();
+	}
+
+	/**
+	 * Loads a model from a power model file. Check didLoad() afterwards - any errors are written out.
+	 * @param modelPath filepath to the power model file
+	 */
+	public FingerPowerModel(String modelPath) {
+		this();
+		didLoad = loadModelFile(modelPath) && validate();
+	}
+
+	private boolean loadModelFile(String modelPath) {
+		String setting = "";
+		String value = "";
+		try {
+			BufferedReader br = new BufferedReader(new FileReader(new File(modelPath)));
+			String lineContents;
+			while ((lineContents = br.readLine()) != null) {
+				if (lineContents.trim().isEmpty()) {
+					continue;
+				}
+				setting = lineContents.substring(0, lineContents.indexOf(" "));
+				value = lineContents.substring(lineContents.indexOf("[")+1, lineContents.indexOf("]"));
+				int intVal = Integer.parseInt(value.trim());
+
+				if (setting.equalsIgnoreCase(Constants.POWER_HIT_CURRENT_MA)) {
+					hitCurrentMa = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_HIT_PULSE_MS)) {
+					hitPulseMs = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_HOLD_CURRENT_MA)) {
+					holdCurrentMa = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_RELEASE_CURRENT_MA)) {
+					releaseCurrentMa = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_RELEASE_PULSE_MS)) {
+					releasePulseMs = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_SLIDE_CURRENT_MA)) {
+					slideCurrentMa = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_SLIDE_PULSE_MS)) {
+					slidePulseMs = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_RATED_CURRENT_MA)) {
+					ratedCurrentMa = intVal;
+				} else if (setting.equalsIgnoreCase(Constants.POWER_THERMAL_TIME_CONSTANT_MS)) {
+					thermalTimeConstantMs = intVal;
+				} else {
+					System.out.println("FingerPowerModel#loadModelFile - warning - ignoring unknown setting: " + setting);
+				}
+			}
+			br.close();
+		} catch (NumberFormatException e) {
+			System.out.println("FingerPowerModel#loadModelFile - error - a number value is needed for the following setting:\n" + setting + "\nValue was: " + value);
+			return false;
+		} catch (FileNotFoundException e) {
+			System.out.println("FingerPowerModel#loadModelFile - error - the power model file could not be found at: " + modelPath);
+			return false;
+		} catch (Exception e) {
+			System.out.println("FingerPowerModel#loadModelFile - error - unknown error reading in power model file. Exception was: " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	private boolean validate() {
+		if (hitCurrentMa < 0 || hitPulseMs < 0 || holdCurrentMa < 0 || releaseCurrentMa < 0 || releasePulseMs < 0 || slideCurrentMa < 0 || slidePulseMs < 0) {
+			System.out.println("FingerPowerModel#validate - error - currents and pulse lengths can't be negative");
+			return false;
+		}
+		if (ratedCurrentMa <= 0 || thermalTimeConstantMs <= 0) {
+			System.out.println("FingerPowerModel#validate - error - the rated current and thermal time constant must be greater than 0");
+			return false;
+		}
+		return true;
+	}
+
+	public boolean didLoad() {
+		return didLoad;
+	}
+
+	public int getHitCurrentMa() {
+		return hitCurrentMa;
+	}
+
+	public int getHitPulseMs() {
+		return hitPulseMs;
+	}
+
+	public int getHoldCurrentMa() {
+		return holdCurrentMa;
+	}
+
+	public int getReleaseCurrentMa() {
+		return releaseCurrentMa;
+	}
+
+	public int getReleasePulseMs() {
+		return releasePulseMs;
+	}
+
+	public int getSlideCurrentMa() {
+		return slideCurrentMa;
+	}
+
+	public int getSlidePulseMs() {
+		return slidePulseMs;
+	}
+
+	public int getRatedCurrentMa() {
+		return ratedCurrentMa;
+	}
+
+	public int getThermalTimeConstantMs() {
+		return thermalTimeConstantMs;
+	}
+
+	@Override
+	public String toString() {
+		return "hit " + hitCurrentMa + "mA for " + hitPulseMs + "ms | hold " + holdCurrentMa + "mA | release " + releaseCurrentMa + "mA for " + releasePulseMs + "ms | slide " +
+			   slideCurrentMa + "mA for " + slidePulseMs + "ms | rated " + ratedCurrentMa + "mA | thermal time constant " + thermalTimeConstantMs + "ms";
+	}
+}
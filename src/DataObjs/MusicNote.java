@@ -120,6 +120,19 @@ public class MusicNote implements Comparable<MusicNote> {
 	 */
 	public MusicNote(double compVal, int duration) {
 		
+		// Fast path for the common case (every note line of an .alc file goes through here): a valid key with a valid duration.
+		// The note letter, octave and sharp flag can be looked up straight from the key index tables, rather than being worked out and re-validated via Strings.
+		int keyIndex = NoteUtils.getKeyIndexForCompareValue(compVal);
+		if (keyIndex != -1 && duration > 0) {
+			note = NoteUtils.getNoteForKeyIndex(keyIndex);
+			octave = NoteUtils.getOctaveForKeyIndex(keyIndex);
+			isSharp = NoteUtils.isSharpKeyIndex(keyIndex);
+			isFlat = false;
+			this.duration = duration;
+			compareValue = compVal;
+			return;
+		}
+		
 		// If it is a rest note, use the rest constants
 		if (compVal == Constants.REST_COMP_VALUE) {
 			isSharp = false;
@@ -281,6 +294,14 @@ public class MusicNote implements Comparable<MusicNote> {
 		return compareValue;
 	}
 	
+	/**
+	 * Half-step key index of the note (see NoteUtils#getKeyIndexForCompareValue), for code that wants to index arrays by key rather than look up doubles
+	 * @return key index 0-131, or -1 for rests / invalid notes
+	 */
+	public int getKeyIndex() {
+		return NoteUtils.getKeyIndexForCompareValue(compareValue);
+	}
+	
 	/**
 	 * Simple getter for octave
 	 * @return
@@ -1,40 +1,62 @@
 package DataObjs;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+import Utils.Constants;
 
 /**
  * MusicSheet.java
  * 
  * On a high level, the purpose of a MusicSheet is to contain the individual music notes that need to be played, in the order they should be hit. It is allowed for notes to be hit simultaneously.
- * On a low level, a MusicSheet is effectively a 2-dimension collection (a linkedlist with each index referring to a specific point in time to play notes at)
+ * On a low level, a MusicSheet is effectively a 2-dimension collection (an arraylist with each index referring to a specific point in time to play notes at)
  *  of collections (sets containing all the notes that need to be played simultaneously at the given point in time).
  *  This is slightly obscured, as the sets are wrapped by a "MusicSlice" object, containing all notes that are intended to be hit simultaneously at the given point in time.
  * 
- * The outer collection is a linear linkedlist of Instructions, and each index represents a different period in time, with [0] being the start of the song,
+ * The outer collection is a linear arraylist of Instructions, and each index represents a different period in time, with [0] being the start of the song,
  *  and the last index [list size-1] being the end of the song. Thus, when going from the front of the collection to the back,
  *  you move through time from the first notes of the piece to the last notes of the piece, in order. Due to different durations notes may be held, it is NOT expected
  *  that the difference in time between all indices will be the same (for example, the time difference between indices [0] and [1] could be 1 second,
  *  but the time difference between indices [1] and [2] could be 2 seconds. As long as instructions are read and performed in the correct order and notes are held for the
  *  intended durations, then the size of the gaps between different instructions is ultimately irrelevant)
  * 
- * Thus, as one moves down the linkedlist collection (from index 0, to 1, to 2, ...),
+ * Thus, as one moves down the arraylist collection (from index 0, to 1, to 2, ...),
  *  one will move across the song in order from start to finish, containing all the notes that need to be hit and when.
  * 
+ * The collection used to be a linkedlist, but nearly every consumer (getGCD, getEndTime, the AlcReaderWriter, FngWriter, AlcStatsUtils, PianoFeigner, ...)
+ *  walks it with get(x), which is a linear lookup on a linkedlist and made each of those passes quadratic on long songs.
+ *  An arraylist gives us constant time lookups by index, while still supporting iterators and cheap appends at the end of the song.
+ * 
  * Processing of an .alc file is performed by the AlcReader.
  * 
  * @author smartel
  *
  */
 public class MusicSheet {
-	LinkedList<MusicSlice> slices;
+	ArrayList<MusicSlice> slices;
 	String infoLine; // the informational line from the .alc file
 	int noteCount; // the note count from the .alc file
 	
+	// Values derived from the slices are cached, so asking for them doesn't walk the whole song every time (the PianoFeigner asks for the end time on every timer tick).
+	// They're updated as slices are added to the end of the song, and thrown out whenever one of the sheet's slices is changed (see MusicSlice#markChanged),
+	// to be recalculated in a single pass the next time one of them is asked for.
+	boolean hasCachedValues;
+	int cachedGCD; // gcd of every gap between slices seen so far, or 0 if there haven't been any non-zero gaps yet
+	int cachedEndTime;
+	int cachedMaxSimulHits;
+	int cachedMaxSimulHitsAndHolds; // the song's max polyphony: the most keys held down at once
+	// what's still held down as of the last slice folded in, so the max polyphony can keep being updated as slices are added to the end of the song
+	int[] heldUntil; // per key index, the time it is released
+	PriorityQueue<Integer> heldReleaseTimes; // release time of every note still held down
+	
 	public MusicSheet(String infoLine, int noteCount) {
-		slices = new LinkedList<MusicSlice>();
+		slices = new ArrayList<MusicSlice>();
 		this.infoLine = infoLine;
 		this.noteCount = noteCount;
+		invalidateCachedValues();
+		ensureCachedValues(); // an empty sheet's values are known up front, so they can be kept up to date as slices are added
 	}
 	
 	/**
@@ -42,51 +64,34 @@ public class MusicSheet {
 	 * @param other
 	 */
 	public MusicSheet(MusicSheet other) {
-		slices = new LinkedList<MusicSlice>();
+		slices = new ArrayList<MusicSlice>(other.slices.size());
 		this.infoLine = other.infoLine;
 		this.noteCount = other.noteCount;
 		
-		for (int x = 0; x < other.slices.size(); ++x) {
-			slices.add(new MusicSlice(other.slices.get(x)));
+		Iterator<MusicSlice> iter = other.slices.iterator();
+		while (iter.hasNext()) {
+			MusicSlice sliceCopy = new MusicSlice(iter.next());
+			sliceCopy.sheet = this;
+			slices.add(sliceCopy);
 		}
+		invalidateCachedValues();
+		ensureCachedValues();
 	}
 	
 	/**
-	 * Generates and returns the greatest-common-divisor for all of the MusicSlice's start durations.
+	 * Returns the greatest-common-divisor for all of the gaps between the MusicSlice's start times.
 	 * The PianoFeigner will rely on this duration for looping over the MusicSlices and repainting and playing sound files at appropriate times.
+	 * This is a constant time lookup, unless the sheet has changed since the last time it was asked for (see hasCachedValues).
 	 * @return greatest-common-divisor of all the MusicSlice's start durations, in milliseconds, or -1 if it fails for any reason (empty collection, ...)
 	 */
 	public int getGCD() {
 		int gcd = -1;
-		int highestGap = -1;
 		
 		if (slices.size() > 1) {
-			// Slices are stored in increasing order of startTimes.
-			// Scroll through all the Slices, comparing the previous slice's startDuration and the next slice's startDuration, to get the gap between slices.
-			// We'll store the maximum gap we see.
-			// If that maximum gap works as the gcd, great. If it doesn't, we'll keep subtracting 1 from it until we determine the gcd, then break out of the loop and return it.
-			for (int n = 0; n < slices.size()-1; ++n) {
-				int currentGap = slices.get(n+1).getStartTime() - slices.get(n).getStartTime();
-				if (currentGap > highestGap) {
-					highestGap = currentGap;
-				}
+			ensureCachedValues();
+			if (cachedGCD > 0) { // every slice starting at the same time leaves no gap to divide
+				gcd = cachedGCD;
 			}
-			
-			// find the highest value, starting from highestGap, that can fit into all startDurations
-			for (int x = highestGap; x > 0; --x) {
-				for (int n = 0; n < slices.size()-1; ++n) {
-					int currentGap = slices.get(n+1).getStartTime() - slices.get(n).getStartTime();
-					if (currentGap % x == 0) {
-						gcd = x;
-						if (n == slices.size()-2) { // if we are at the end of the collection, then it means it was a valid gcd for all of them, so we can stop looking now
-							x = 0;
-						}
-					} else {
-						break;
-					}
-				}
-			}
-			
 		} else {
 			System.out.println("MusicSheet#getGCD - error - there are note enough MusicSlices in this MusicSheet (minimum required: 2). A GCD for gui playback can't be determined. MusicSlices available: " + slices.size());
 		}
@@ -95,46 +100,171 @@ public class MusicSheet {
 	}
 	
 	/**
-	 * Looks through every note, taking count of each note's start value and start time, and determines when this song "ends" (aka, when the note with the last playing duration expires).
+	 * Determines when this song "ends" (aka, when the note with the last playing duration expires).
 	 * Need to be careful, because the last note to expire may not be from the last MusicSlice. It could be from a prior MusicSlice by having a note with a very long duration.
-	 * This is why we must check every single MusicSlice, and not just the last one.
+	 * This is why every single MusicSlice is taken into account, and not just the last one.
+	 * This is a constant time lookup, unless the sheet has changed since the last time it was asked for (see hasCachedValues).
 	 * @return the time (in milliseconds) that the last note in this song stops playing. -1 if there are any errors.
 	 */
 	public int getEndTime() {
-		int highestEndTime = -1;
+		ensureCachedValues();
+		return cachedEndTime;
+	}
+	
+	/**
+	 * Gets the maximum number of notes that are hit simultaneously (in the same MusicSlice) throughout the course of the song.
+	 * This is a constant time lookup, unless the sheet has changed since the last time it was asked for (see hasCachedValues).
+	 * @return the highest number of notes in any one MusicSlice, or 0 if the sheet is empty
+	 */
+	public int getMaxSimulHits() {
+		ensureCachedValues();
+		return cachedMaxSimulHits;
+	}
+	
+	/**
+	 * Gets the maximum number of notes held down at the same time (hit in the same MusicSlice, or hit earlier and still being held) throughout the course of the song.
+	 * Notes are held the same way the PianoFeigner holds them (see NoteIntervalIndex), so this matches AlcStatsUtils' PolyphonyProfile of the song.
+	 * This is a constant time lookup, unless the sheet has changed since the last time it was asked for (see hasCachedValues).
+	 * @return the most notes held down at once, or 0 if the sheet is empty
+	 */
+	public int getMaxSimulHitsAndHolds() {
+		ensureCachedValues();
+		return cachedMaxSimulHitsAndHolds;
+	}
+	
+	/**
+	 * Throws out the cached gcd / end time / max simultaneous hits / max simultaneous hits and holds, so they are recalculated the next time they are asked for.
+	 * The sheet's own slices call this whenever they change, so it only needs to be called directly after modifying a MusicNote
+	 * that was pulled out of one of the sheet's slices BEFORE the sheet's values were last asked for.
+	 */
+	public void invalidateCachedValues() {
+		hasCachedValues = false;
+	}
+	
+	/**
+	 * Recalculates the cached values with a single walk over the slices, if they've been thrown out since they were last calculated
+	 */
+	private void ensureCachedValues() {
+		if (!hasCachedValues) {
+			cachedGCD = 0;
+			cachedEndTime = -1;
+			cachedMaxSimulHits = 0;
+			cachedMaxSimulHitsAndHolds = 0;
+			heldUntil = new int[Constants.NUM_KEY_INDICES];
+			heldReleaseTimes = new PriorityQueue<Integer>();
+			for (int x = 0; x < slices.size(); ++x) {
+				addToCachedValues(x == 0 ? null : slices.get(x-1), slices.get(x));
+			}
+			hasCachedValues = true;
+		}
+	}
+	
+	/**
+	 * Folds a slice into the cached values
+	 * @param prevSlice the slice before it in the song, or null if it is the first slice
+	 * @param slice the slice to take into account
+	 */
+	private void addToCachedValues(MusicSlice prevSlice, MusicSlice slice) {
+		if (prevSlice != null) {
+			// euclid's algorithm, with the running gcd and this gap
+			int gap = Math.abs(slice.getStartTime() - prevSlice.getStartTime());
+			while (gap != 0) {
+				int remainder = cachedGCD % gap;
+				cachedGCD = gap;
+				gap = remainder;
+			}
+		}
 		
-		for (int x = 0; x < slices.size(); ++x) {
-			MusicSlice currSlice = slices.get(x);
-
-			Iterator<MusicNote> iter = currSlice.getNotes().iterator();
-			while (iter.hasNext()) {
-				MusicNote currNote = iter.next();
-				// The note's duration, in addition to the timestamp it starts, will show the ultimate timestamp the note ends at.
-				int currEndTime = currNote.getDuration() + currSlice.getStartTime();
-				// If this is the latest note we have so far, set the song's endDuration to it.
-				if (currEndTime > highestEndTime) {
-					highestEndTime = currEndTime;
-				}
+		int numNotes = slice.getNumNotes();
+		if (numNotes > 0) {
+			// The longest note's duration, in addition to the timestamp it starts, will show the ultimate timestamp the slice's notes end at.
+			int sliceEndTime = slice.getLongestDuration() + slice.getStartTime();
+			if (sliceEndTime > cachedEndTime) {
+				cachedEndTime = sliceEndTime;
+			}
+			if (numNotes > cachedMaxSimulHits) {
+				cachedMaxSimulHits = numNotes;
 			}
 		}
 		
-		return highestEndTime;
+		// release everything whose duration is up by the time this slice is hit, then hold down its notes.
+		// a key released at the same time it is struck again is struck again, but striking a key that is still held down doesn't hold anything new
+		int startTime = slice.getStartTime();
+		while (!heldReleaseTimes.isEmpty() && heldReleaseTimes.peek() <= startTime) {
+			heldReleaseTimes.poll();
+		}
+		for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+			int duration = slice.getDurationForKey(keyIndex);
+			if (startTime >= heldUntil[keyIndex] && duration > 0) {
+				heldUntil[keyIndex] = startTime + duration;
+				heldReleaseTimes.add(heldUntil[keyIndex]);
+			}
+		}
+		if (heldReleaseTimes.size() > cachedMaxSimulHitsAndHolds) {
+			cachedMaxSimulHitsAndHolds = heldReleaseTimes.size();
+		}
 	}
 	
 	/**
-	 * Adds the given MusicSlice to the collection
+	 * Adds the given MusicSlice to the end of the collection. The slice will report any changes made to it back to this sheet from then on.
+	 * A slice can only report back to one sheet, so it shouldn't be added to more than one sheet at a time (copy it instead).
 	 * @param slice
 	 */
 	public void addSlice(MusicSlice slice) {
+		slice.sheet = this;
+		if (hasCachedValues) {
+			addToCachedValues(slices.isEmpty() ? null : slices.get(slices.size()-1), slice);
+		}
 		slices.add(slice);
 	}
 	
 	/**
-	 * Simple getter for MusicSlice collection
+	 * Simple getter for MusicSlice collection, as the linkedlist it has always been handed out as.
+	 * The sheet keeps its slices in an arraylist now, so this is a copy of the slice order: the MusicSlices in it are the sheet's own, and changes made to them
+	 *  are seen by the sheet, but adding or removing slices from the returned list doesn't change the sheet (use addSlice).
+	 * Walking the song through getSlice / getNumSlices / sliceIterator avoids the copy.
 	 * @return
 	 */
 	public LinkedList<MusicSlice> getSlices() {
-		return slices;
+		return new LinkedList<MusicSlice>(slices);
+	}
+	
+	/**
+	 * Returns the MusicSlice at the given index (0 being the start of the song). This is a constant time lookup.
+	 * @param index position of the slice within the song
+	 * @return the MusicSlice at the given index
+	 */
+	public MusicSlice getSlice(int index) {
+		return slices.get(index);
+	}
+	
+	/**
+	 * @return the number of MusicSlices (distinct points in time that notes are hit at) in this MusicSheet
+	 */
+	public int getNumSlices() {
+		return slices.size();
+	}
+	
+	/**
+	 * @return an iterator that walks the MusicSlices in order from the start of the song to the end. Removing a slice through it takes the slice out of the song.
+	 */
+	public Iterator<MusicSlice> sliceIterator() {
+		final Iterator<MusicSlice> iter = slices.iterator();
+		return new Iterator<MusicSlice>() {
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
+			
+			public MusicSlice next() {
+				return iter.next();
+			}
+			
+			// taking a slice out of the song changes the cached values, just like changing one does
+			public void remove() {
+				iter.remove();
+				invalidateCachedValues();
+			}
+		};
 	}
 	
 	/**
@@ -4,6 +4,7 @@ import java.util.Iterator;
 import java.util.TreeSet;
 
 import Utils.Constants;
+import Utils.NoteUtils;
 
 /**
  * A MusicSlice is a representation of a single, very specific point in time,
@@ -14,13 +15,29 @@ import Utils.Constants;
  * Slices exist on an as-needed basic, rather than for every 0.01 seconds of a music piece (or some other arbitrary unit of time)
  * 
  * MusicNotes within a MusicSlice are stored in a set and ordered by the compareValue, from the low notes to the high notes (left side of the piano to the right side).
+ * (Slices loaded from .alc files hold their notes as a compact key bitmask until MusicNote objects are actually asked for - see the fields below.)
  * 
  * @author smartel
  */
 public class MusicSlice {
 
+	// Number of longs needed for a bit per key index
+	private static final int KEY_MASK_WORDS = (Constants.NUM_KEY_INDICES + 63) / 64;
+	private static final int[] NO_DURATIONS = new int[0];
+
+	// A slice starts out in "compact" form: which keys are hit is a bitmask indexed by key index (see NoteUtils#getKeyIndexForCompareValue),
+	// and their durations are a parallel int array, ordered by increasing key index (so durations[n] belongs to the nth set bit of keyMask).
+	// This is how slices loaded from an .alc file stay, as long as nobody needs actual MusicNote objects - it costs a fraction of a TreeSet of MusicNotes,
+	// and membership tests, duplicate detection, chord comparisons and ordered iteration are all just bit operations.
+	//
+	// Once MusicNote objects are needed (getNotes() is called, or a MusicNote object is added via addMusicNote), the slice switches over to being backed by the TreeSet for good.
+	// This is because callers hold onto and modify those MusicNotes (the PianoFeigner tracks remaining durations on them, the AlcAlterer shifts them, ...),
+	// so from that point on, the TreeSet is the only accurate copy. keyMask and durations are null in that form.
+	long[] keyMask;
+	int[] durations;
 	TreeSet<MusicNote> notes;
 	int startTime;
+	MusicSheet sheet; // the sheet this slice was added to (if any), which needs to hear about changes so it can throw out its cached values
 	
 	/**
 	 * Constructs a MusicSlice, which holds a collection of MusicNotes that need to be hit simultaneously, at the supplied "start time" (in milliseconds) within the song.
@@ -28,7 +45,8 @@ public class MusicSlice {
 	 * @param startTime the time, in milliseconds, after which the notes should play
 	 */
 	public MusicSlice(int startValue) {
-		notes = new TreeSet<MusicNote>();
+		keyMask = new long[KEY_MASK_WORDS];
+		durations = NO_DURATIONS;
 		startTime = startValue;
 		if (startTime < 0) {
 			startTime = 0;
@@ -41,14 +59,19 @@ public class MusicSlice {
 	 * @param other
 	 */
 	public MusicSlice(MusicSlice other) {
-		notes = new TreeSet<MusicNote>();
 		this.startTime = other.startTime;
 		
-		Iterator<MusicNote> iter = other.notes.iterator();
-		while (iter.hasNext()) {
-			MusicNote note = iter.next();
-			MusicNote noteCopy = new MusicNote(note);
-			notes.add(noteCopy);
+		if (other.notes == null) {
+			keyMask = other.keyMask.clone();
+			durations = other.durations.clone();
+		} else {
+			notes = new TreeSet<MusicNote>();
+			Iterator<MusicNote> iter = other.notes.iterator();
+			while (iter.hasNext()) {
+				MusicNote note = iter.next();
+				MusicNote noteCopy = new MusicNote(note);
+				notes.add(noteCopy);
+			}
 		}
 	}
 	
@@ -56,7 +79,15 @@ public class MusicSlice {
 	public boolean addMusicNote(MusicNote note) {
 		boolean isSuccessful;
 		
-		isSuccessful = notes.add(note);
+		// a compact slice can reject duplicates without having to build its MusicNotes
+		if (notes == null && containsKey(note.getKeyIndex())) {
+			isSuccessful = false;
+		} else {
+			// the caller may keep using this MusicNote object, so it has to be stored as-is
+			switchToNotes();
+			isSuccessful = notes.add(note);
+			markChanged();
+		}
 		
 		if (!isSuccessful) {
 			// Presumably, this is a "duplicate entry."
@@ -73,6 +104,35 @@ public class MusicSlice {
 		return isSuccessful;
 	}
 	
+	/**
+	 * Adds a note by key index and duration, without a MusicNote object. This is what the .alc loaders use, and it keeps the slice in its compact form.
+	 * Behaves the same as addMusicNote(new MusicNote(compareValue, duration)), including rejecting (and logging) duplicates.
+	 * @param keyIndex half-step key index of the note (0 - 131)
+	 * @param duration duration of the note, in milliseconds
+	 * @return true if the note was added, false if it was a duplicate of a note already in the slice
+	 */
+	public boolean addNote(int keyIndex, int duration) {
+		// anything that can't be stored compactly (bad key or duration, or the slice already switched over) goes through a real MusicNote, so it fails the same way it always has
+		if (notes != null || keyIndex < 0 || keyIndex >= Constants.NUM_KEY_INDICES || duration <= 0) {
+			return addMusicNote(new MusicNote(NoteUtils.getCompareValueForKeyIndex(keyIndex), duration));
+		}
+		
+		if (containsKey(keyIndex)) {
+			return addMusicNote(new MusicNote(NoteUtils.getCompareValueForKeyIndex(keyIndex), duration)); // logs the duplicate and returns false
+		}
+		
+		// slot the duration in at the note's position in key order
+		int rank = rankOf(keyIndex);
+		int[] newDurations = new int[durations.length + 1];
+		System.arraycopy(durations, 0, newDurations, 0, rank);
+		newDurations[rank] = duration;
+		System.arraycopy(durations, rank, newDurations, rank + 1, durations.length - rank);
+		durations = newDurations;
+		keyMask[keyIndex >>> 6] |= 1L << (keyIndex & 63);
+		markChanged();
+		return true;
+	}
+	
 	// We shouldn't ever need a method to remove music notes? Since we're just transcribing xml / sheet music to a new format, and not editing the piece.
 	
 	/**
@@ -88,14 +148,21 @@ public class MusicSlice {
 		} else {
 			// adjust the slice's start time
 			startTime *= bpmMult;
+			markChanged();
 			
 			// adjust all of the slice's notes' durations
-			Iterator<MusicNote> iter = notes.iterator();
-			while (iter.hasNext()) {
-				MusicNote note = iter.next();
-				isSuccessful = note.applyBpmMultiplier(bpmMult);
-				if (isSuccessful == false) {
-					break;
+			if (notes == null) {
+				for (int x = 0; x < durations.length; ++x) {
+					durations[x] *= bpmMult;
+				}
+			} else {
+				Iterator<MusicNote> iter = notes.iterator();
+				while (iter.hasNext()) {
+					MusicNote note = iter.next();
+					isSuccessful = note.applyBpmMultiplier(bpmMult);
+					if (isSuccessful == false) {
+						break;
+					}
 				}
 			}
 		}
@@ -109,6 +176,10 @@ public class MusicSlice {
 	 * @return true if this MusicSlice contains a MusicNote with the given compare value
 	 */
 	public boolean containsNote(double compareValue) {
+		if (notes == null) {
+			return containsKey(NoteUtils.getKeyIndexForCompareValue(compareValue));
+		}
+		
 		boolean doesContain = false;
 		
 		Iterator<MusicNote> iter = notes.iterator();
@@ -124,13 +195,211 @@ public class MusicSlice {
 	}
 	
 	/**
-	 * Getter for notes collection
+	 * @param keyIndex half-step key index of a note
+	 * @return true if this MusicSlice contains a note for the given key
+	 */
+	public boolean containsKey(int keyIndex) {
+		if (keyIndex < 0 || keyIndex >= Constants.NUM_KEY_INDICES) {
+			return false;
+		}
+		if (notes == null) {
+			return (keyMask[keyIndex >>> 6] & (1L << (keyIndex & 63))) != 0;
+		}
+		return getDurationForKey(keyIndex) != -1;
+	}
+	
+	/**
+	 * Ordered iteration over the keys hit in this slice, without creating any MusicNotes. Rests (which have no key) are never returned.
+	 * Usage: for (int key = slice.nextKeyIndex(0); key != -1; key = slice.nextKeyIndex(key + 1))
+	 * @param fromKeyIndex key index to start searching from (inclusive)
+	 * @return the lowest key index hit in this slice that is >= fromKeyIndex, or -1 if there are none
+	 */
+	public int nextKeyIndex(int fromKeyIndex) {
+		if (fromKeyIndex < 0) {
+			fromKeyIndex = 0;
+		}
+		if (fromKeyIndex >= Constants.NUM_KEY_INDICES) {
+			return -1;
+		}
+		
+		if (notes == null) {
+			int word = fromKeyIndex >>> 6;
+			long bits = keyMask[word] & (-1L << (fromKeyIndex & 63));
+			while (true) {
+				if (bits != 0) {
+					return (word << 6) + Long.numberOfTrailingZeros(bits);
+				}
+				if (++word == KEY_MASK_WORDS) {
+					return -1;
+				}
+				bits = keyMask[word];
+			}
+		}
+		
+		// notes are ordered by compareValue, which is the same order as key index
+		Iterator<MusicNote> iter = notes.iterator();
+		while (iter.hasNext()) {
+			int keyIndex = iter.next().getKeyIndex();
+			if (keyIndex >= fromKeyIndex) {
+				return keyIndex;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * @param keyIndex half-step key index of a note
+	 * @return the duration (in milliseconds) of the note for the given key, or -1 if this slice doesn't hit that key
+	 */
+	public int getDurationForKey(int keyIndex) {
+		if (notes == null) {
+			return containsKey(keyIndex) ? durations[rankOf(keyIndex)] : -1;
+		}
+		
+		Iterator<MusicNote> iter = notes.iterator();
+		while (iter.hasNext()) {
+			MusicNote note = iter.next();
+			if (note.getKeyIndex() == keyIndex) {
+				return note.getDuration();
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return true if every note in this slice is a key on the piano, so nextKeyIndex / getDurationForKey see all of them. false if it holds a rest (or a note with no key).
+	 */
+	public boolean hasOnlyKeys() {
+		if (notes == null) {
+			return true;
+		}
+		Iterator<MusicNote> iter = notes.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().getKeyIndex() == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the number of notes in this slice
+	 */
+	public int getNumNotes() {
+		return (notes == null) ? durations.length : notes.size();
+	}
+	
+	/**
+	 * @return the longest duration of any note in this slice (in milliseconds), or -1 if the slice is empty
+	 */
+	public int getLongestDuration() {
+		int longest = -1;
+		if (notes == null) {
+			for (int x = 0; x < durations.length; ++x) {
+				if (durations[x] > longest) {
+					longest = durations[x];
+				}
+			}
+		} else {
+			Iterator<MusicNote> iter = notes.iterator();
+			while (iter.hasNext()) {
+				int duration = iter.next().getDuration();
+				if (duration > longest) {
+					longest = duration;
+				}
+			}
+		}
+		return longest;
+	}
+	
+	/**
+	 * Chord comparison - durations and start times are ignored.
+	 * @param other MusicSlice to compare against
+	 * @return true if both slices hit exactly the same keys
+	 */
+	public boolean hasSameKeys(MusicSlice other) {
+		if (getNumNotes() != other.getNumNotes()) {
+			return false;
+		}
+		long[] mask = getKeyMask();
+		long[] otherMask = other.getKeyMask();
+		for (int x = 0; x < KEY_MASK_WORDS; ++x) {
+			if (mask[x] != otherMask[x]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return a copy of the bitmask of keys hit in this slice (bit n of word n/64 is set if key index n is hit)
+	 */
+	public long[] getKeyMask() {
+		if (notes == null) {
+			return keyMask.clone();
+		}
+		long[] mask = new long[KEY_MASK_WORDS];
+		Iterator<MusicNote> iter = notes.iterator();
+		while (iter.hasNext()) {
+			int keyIndex = iter.next().getKeyIndex();
+			if (keyIndex != -1) {
+				mask[keyIndex >>> 6] |= 1L << (keyIndex & 63);
+			}
+		}
+		return mask;
+	}
+	
+	/**
+	 * Getter for notes collection.
+	 * If the slice is still in its compact form, the MusicNotes are built the first time this is called, and the slice is backed by them from then on.
+	 * Code that only needs to read keys and durations should prefer nextKeyIndex / getDurationForKey / getNumNotes, which don't need any MusicNotes.
+	 * Since the caller is free to modify the MusicNotes, the slice's sheet is told to throw out its cached values.
 	 * @return notes collection
 	 */
 	public TreeSet<MusicNote> getNotes() {
+		switchToNotes();
+		markChanged();
 		return notes;
 	}
 	
+	/**
+	 * Builds the MusicNotes for a compact slice, and switches the slice over to being backed by them
+	 */
+	private void switchToNotes() {
+		if (notes == null) {
+			TreeSet<MusicNote> builtNotes = new TreeSet<MusicNote>();
+			int rank = 0;
+			for (int keyIndex = nextKeyIndex(0); keyIndex != -1; keyIndex = nextKeyIndex(keyIndex + 1)) {
+				builtNotes.add(new MusicNote(NoteUtils.getCompareValueForKeyIndex(keyIndex), durations[rank]));
+				++rank;
+			}
+			notes = builtNotes;
+			keyMask = null;
+			durations = null;
+		}
+	}
+	
+	/**
+	 * Lets the slice's sheet know that its cached values (end time, gcd, ...) may no longer be accurate
+	 */
+	private void markChanged() {
+		if (sheet != null) {
+			sheet.invalidateCachedValues();
+		}
+	}
+	
+	/**
+	 * @return the number of keys set in keyMask below the given key index, which is the key's position in the durations array
+	 */
+	private int rankOf(int keyIndex) {
+		int word = keyIndex >>> 6;
+		int rank = 0;
+		for (int x = 0; x < word; ++x) {
+			rank += Long.bitCount(keyMask[x]);
+		}
+		return rank + Long.bitCount(keyMask[word] & ((1L << (keyIndex & 63)) - 1));
+	}
+	
 	/**
 	 * Getter for "start time" in milliseconds (how far into the song until the notes are hit)
 	 * @return startTime
@@ -145,5 +414,6 @@ public class MusicSlice {
 	 */
 	public void setStartTime(int start) {
 		startTime = start;
+		markChanged();
 	}
 }
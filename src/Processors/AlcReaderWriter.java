@@ -1,26 +1,50 @@
 package Processors;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.StringTokenizer;
+import java.util.zip.CRC32;
 
+import DataObjs.ColumnarMusicSheet;
 import DataObjs.MusicNote;
 import DataObjs.MusicSheet;
 import DataObjs.MusicSlice;
+import Utils.Constants;
+import Utils.NoteUtils;
 
 /**
  * Given the filepath to an .alc file, this will read its contents into memory (MusicSheet/Slice/Note)
  * while also performing minor error + integrity checking.
+ * It can also read and write .alcb files, the compact binary version of the .alc format.
  * 
  * @author smartel
  */
 public class AlcReaderWriter {
 	
+	// the note count line comes from the file, so it only sizes the columns up to this many notes. Past that, the columns grow as the notes are actually read in.
+	private static final int MAX_INITIAL_COLUMN_CAPACITY = 1 << 16;
+	
+	private boolean didColumnarLoadFindRest; // true if the last loadAlcFileColumnar call failed only because the song contains a rest
+	
 	public AlcReaderWriter() {
 	}
 	
@@ -34,20 +58,16 @@ public class AlcReaderWriter {
 	/**
 	 * Given the file path to an .alc file, attempts to import it and create a MusicSheet object comprised of MusicSlices and MusicNotes.
 	 * If the data load fails for any reason, an error will be written out and a null MusicSheet object will be returned instead.
+	 * Binary .alcb files are detected by their magic bytes and loaded via loadAlcbFile, so callers don't need to care which format they were given.
 	 * @param alcFilePath filepath to the desired .alc file to load
 	 * @return created MusicSheet object for the .alc file, or null if there were any errors
 	 */
 	public MusicSheet loadAlcFile(String alcFilePath) {
-		MusicSheet sheet = null;
-		MusicSlice slice = null;
-		
-		String headerLine = null;
-		String countLine = null;
-		int noteCount = -1;
-		int noteLinesReadIn = 0;
-		int duplicatesCaught = 0;
-
-		int prevStartTime = -1;
+		if (isAlcbFile(alcFilePath)) {
+			return loadAlcbFile(alcFilePath);
+		}
+		
+		AlcSheetBuilder builder = new AlcSheetBuilder("AlcReader#loadAlcFile");
 		StringTokenizer st;
 		
 		int currStartTime;
@@ -68,15 +88,13 @@ public class AlcReaderWriter {
 			while (br.ready()) {
 				String line = br.readLine();
 				
-				if (headerLine == null) {
+				if (!builder.hasHeaderLine()) {
 					// first line is informational only
-					headerLine = line;
+					builder.setHeaderLine(line);
 				}
-				else if (countLine == null) {
+				else if (!builder.hasCountLine()) {
 					// second line is an integrity check line - it holds the count of notes (the number of following lines) in the song
-					countLine = line;
-					noteCount = Integer.parseInt(countLine); // if this fails, we throw an exception and return a null MusicSheet. Checking for nullness is how we determine if a file loaded successfully.
-					sheet = new MusicSheet(headerLine, noteCount);
+					builder.setNoteCount(Integer.parseInt(line)); // if this fails, we throw an exception and return a null MusicSheet. Checking for nullness is how we determine if a file loaded successfully.
 				} else {
 					// all lines after the first 2 contain note information.
 					// if there are not enough tokens in a line, or bad data (such as non-numeric characters), an exception will be thrown and the load aborted.
@@ -85,80 +103,249 @@ public class AlcReaderWriter {
 					compareValue = Double.parseDouble(st.nextToken());
 					noteDuration = Integer.parseInt(st.nextToken());
 
-					MusicNote note = new MusicNote(compareValue, noteDuration);
-					
-					if (slice == null) {
-						slice = new MusicSlice(currStartTime);
-					}
-					
-					// initializing prevStartTime if it hasn't already.
-					// we initialize here, so the first line in an .alc file doesn't HAVE to start on a 0.
-					if (prevStartTime == -1) {
-						prevStartTime = currStartTime;
-					}
-
-					// if the currStartTime is greater than prevStartTime, this means we're in a new time slice.
-					// we need to add the old slice to the music sheet object and construct a new slice to put this music note into.
-					// otherwise, the start times are the same, so just add it to the existing slice.
-					if (prevStartTime != currStartTime) {
-						
-						// data integrity check: if the current line's start time occurs EARLIER than the previous line's, then we have bad data, most likely due to hand-editing of the file.
-						if (prevStartTime > currStartTime) {
-							System.out.println("AlcReader#loadAlcFile - error - note data is out of order. Aborting load. Confirm - prevStartTime: " + prevStartTime + ", currStartTime: " + currStartTime);
-							sheet = null;
-							break;
-						}
-						
-						sheet.addSlice(slice);
-						slice = new MusicSlice(currStartTime);
-						slice.addMusicNote(note);
-						prevStartTime = currStartTime;
-					} else {
-						// if we fail to add a note (such as a duplicate), then we need to decrement the valid note count
-						if (!slice.addMusicNote(note)) {
-							--noteCount;
-							++duplicatesCaught;
-							sheet.setNoteCount(noteCount);
-						}
+					if (!builder.addNoteLine(currStartTime, compareValue, noteDuration)) {
+						break;
 					}
-					
-					// counter for our file integrity check
-					++noteLinesReadIn;
 				}
 			}
-			if (sheet != null) {
-				sheet.addSlice(slice); // this is necessary because the newest slice hasn't been added to the musicsheet yet, due to how the while-loop handles old/new slices.
-			}
 			br.close();
 		} catch (Exception e) {
 			System.out.println("AlcReader#loadAlcFile - error - exception occurred while reading .alc file at path: [" + alcFilePath + "]. Exception: " + e.getMessage());
 			e.printStackTrace();
-			sheet = null; // just ensuring we return null on an exception, although depending on when the failure occurred, it may have still been null.
+			builder.abort(); // just ensuring we return null on an exception
 		}
 
-		if (headerLine == null || countLine == null) { // if the file was incomplete (only 1 or 2 lines in length), then there isn't enough data to play a song
-			System.out.println("AlcReader#loadAlcFile - error - .alc file did not have at least 3 lines (1 informational, 1 counter, at least 1 note). File is too small to process.");
-			sheet = null; // the object may not be null if the file was 2 lines long, so this ensures we return null
-		} else if (noteCount != (noteLinesReadIn-duplicatesCaught)) { // if we fail the integrity check, report an error and return a null object
-			System.out.println("AlcReader#loadAlcFile - error - .alc file failed the file integrity check. The number of notes read in does not match the expected note count." +
-						       " Read in: " + noteLinesReadIn + ", Expected: " + noteCount);
-			sheet = null;
-		} else if (noteCount == 0) { // if there was a note count of 0, then it is an (intentionally?) empty alc file
-			System.out.println("AlcReader#loadAlcFile - error - .alc file had a value of 0 in the note count line. File integrity can't be validated. File will not be processed.");
-			sheet = null;
-		} else if (noteLinesReadIn == 0) { // if there were no notes read in, we can't play a song. Although I don't think this conditional is capable of being hit.
-			System.out.println("AlcReader#loadAlcFile - error - .alc file contains 0 note lines. File will not be processed.");
-			sheet = null;
+		return builder.finish();
+	}
+	
+	/**
+	 * Alternate loader mode for loadAlcFile, intended for very large .alc files / bulk loading of a library.
+	 * Rather than going through a BufferedReader, readLine, a StringTokenizer, and Integer/Double.parseInt for every note line (which creates several objects per note),
+	 * the file is memory-mapped and the start time, compareValue, and duration are parsed straight out of the mapped bytes.
+	 * The only objects created per note are the MusicNotes / MusicSlices that end up in the MusicSheet.
+	 * 
+	 * The resulting MusicSheet is identical to the one produced by loadAlcFile, and the same integrity checks are applied (see AlcSheetBuilder).
+	 * Note that compareValues are expected to be in the form the AlcReaderWriter writes them (whole numbers, or halves for sharps, such as 34.0 or 34.5).
+	 * Files larger than 2GB can't be mapped in a single buffer and should use loadAlcFile instead.
+	 * Like loadAlcFile, binary .alcb files are detected and handed off to loadAlcbFile.
+	 * 
+	 * @param alcFilePath filepath to the desired .alc file to load
+	 * @return created MusicSheet object for the .alc file, or null if there were any errors
+	 */
+	public MusicSheet loadAlcFileMapped(String alcFilePath) {
+		if (isAlcbFile(alcFilePath)) {
+			return loadAlcbFile(alcFilePath);
 		}
-
-		return sheet;
+		
+		AlcSheetBuilder builder = new AlcSheetBuilder("AlcReaderWriter#loadAlcFileMapped");
+		
+		try {
+			FileChannel channel = FileChannel.open(Paths.get(alcFilePath), StandardOpenOption.READ);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			channel.close(); // the mapping stays valid after the channel is closed
+			
+			AlcByteParser parser = new AlcByteParser(buffer);
+			
+			if (parser.hasMoreLines()) {
+				// first line is informational only
+				builder.setHeaderLine(parser.readLineAsString());
+			}
+			if (parser.hasMoreLines()) {
+				// second line is an integrity check line - it holds the count of notes (the number of following lines) in the song
+				builder.setNoteCount(parser.parseCountLine());
+			}
+			while (parser.hasMoreLines()) {
+				// all lines after the first 2 contain note information.
+				// if there are not enough tokens in a line, or bad data (such as non-numeric characters), an exception will be thrown and the load aborted.
+				int currStartTime = parser.parseInt();
+				double compareValue = parser.parseCompareValue();
+				int noteDuration = parser.parseInt();
+				parser.skipToNextLine();
+				
+				if (!builder.addNoteLine(currStartTime, compareValue, noteDuration)) {
+					break;
+				}
+			}
+		} catch (Exception e) {
+			System.out.println("AlcReaderWriter#loadAlcFileMapped - error - exception occurred while reading .alc file at path: [" + alcFilePath + "]. Exception: " + e.getMessage());
+			e.printStackTrace();
+			builder.abort(); // just ensuring we return null on an exception
+		}
+		
+		return builder.finish();
 	}
 
+	/**
+	 * Hand-rolled parser that walks the bytes of a (memory-mapped) .alc file, pulling out whitespace-delimited numeric tokens
+	 * without creating Strings or tokenizers along the way.
+	 * Whitespace is treated the same way the StringTokenizer treats it (spaces, tabs, form feeds, and carriage returns separate tokens, newlines end lines).
+	 */
+	static class AlcByteParser {
+		private ByteBuffer buffer;
+		private int pos;
+		private int limit;
+		
+		AlcByteParser(ByteBuffer buffer) {
+			this.buffer = buffer;
+			pos = 0;
+			limit = buffer.limit();
+		}
+		
+		/**
+		 * Matches BufferedReader#readLine semantics: there is another line as long as there are bytes left in the file.
+		 * @return true if there is at least one more line to read
+		 */
+		boolean hasMoreLines() {
+			return pos < limit;
+		}
+		
+		/**
+		 * Reads the remainder of the current line as a String (without the line terminator). Only used for the informational line.
+		 */
+		String readLineAsString() {
+			int start = pos;
+			while (pos < limit && buffer.get(pos) != '\n' && buffer.get(pos) != '\r') {
+				++pos;
+			}
+			byte[] bytes = new byte[pos - start];
+			for (int x = 0; x < bytes.length; ++x) {
+				bytes[x] = buffer.get(start + x);
+			}
+			consumeLineTerminator();
+			return new String(bytes);
+		}
+		
+		/**
+		 * Parses the note count line, which must contain nothing but the integer (like Integer.parseInt on the full line)
+		 */
+		int parseCountLine() {
+			int count = parseIntAt(false);
+			if (pos < limit && buffer.get(pos) != '\n' && buffer.get(pos) != '\r') {
+				throw new NumberFormatException("unexpected character in note count line at byte: " + pos);
+			}
+			consumeLineTerminator();
+			return count;
+		}
+		
+		/**
+		 * Skips leading token whitespace on the current line and parses an integer token
+		 */
+		int parseInt() {
+			skipTokenWhitespace();
+			return parseIntAt(true);
+		}
+		
+		/**
+		 * Skips leading token whitespace on the current line and parses a compareValue token in the form {digits}[.{digits}]
+		 */
+		double parseCompareValue() {
+			skipTokenWhitespace();
+			boolean isNegative = false;
+			if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+				isNegative = buffer.get(pos) == '-';
+				++pos;
+			}
+			long whole = 0;
+			int numDigits = 0;
+			while (pos < limit && isDigit(buffer.get(pos))) {
+				whole = (whole * 10) + (buffer.get(pos) - '0');
+				++pos;
+				++numDigits;
+			}
+			long fraction = 0;
+			long fractionScale = 1;
+			if (pos < limit && buffer.get(pos) == '.') {
+				++pos;
+				while (pos < limit && isDigit(buffer.get(pos))) {
+					// anything past 18 decimal places can't change a compareValue, and would overflow the long
+					if (fractionScale < 1000000000000000000L) {
+						fraction = (fraction * 10) + (buffer.get(pos) - '0');
+						fractionScale *= 10;
+					}
+					++pos;
+					++numDigits;
+				}
+			}
+			if (numDigits == 0 || !isTokenEnd()) {
+				throw new NumberFormatException("malformed compare value at byte: " + pos);
+			}
+			double value = whole + ((double)fraction / fractionScale);
+			return isNegative ? -value : value;
+		}
+		
+		/**
+		 * Ignores any remaining tokens on the current line (StringTokenizer-based loading ignores them too) and moves to the start of the next line
+		 */
+		void skipToNextLine() {
+			while (pos < limit && buffer.get(pos) != '\n') {
+				++pos;
+			}
+			if (pos < limit) {
+				++pos;
+			}
+		}
+		
+		private int parseIntAt(boolean requireTokenEnd) {
+			boolean isNegative = false;
+			if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+				isNegative = buffer.get(pos) == '-';
+				++pos;
+			}
+			long value = 0;
+			int numDigits = 0;
+			while (pos < limit && isDigit(buffer.get(pos))) {
+				value = (value * 10) + (buffer.get(pos) - '0');
+				if (value > Integer.MAX_VALUE + 1L) {
+					throw new NumberFormatException("integer value out of range at byte: " + pos);
+				}
+				++pos;
+				++numDigits;
+			}
+			if (numDigits == 0 || (requireTokenEnd && !isTokenEnd())) {
+				throw new NumberFormatException("malformed integer at byte: " + pos);
+			}
+			value = isNegative ? -value : value;
+			if (value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("integer value out of range at byte: " + pos);
+			}
+			return (int)value;
+		}
+		
+		private void skipTokenWhitespace() {
+			while (pos < limit && isTokenWhitespace(buffer.get(pos))) {
+				++pos;
+			}
+			if (pos >= limit || buffer.get(pos) == '\n') {
+				// same as StringTokenizer#nextToken running out of tokens on the line
+				throw new NumberFormatException("missing token on note line at byte: " + pos);
+			}
+		}
+		
+		private void consumeLineTerminator() {
+			if (pos < limit && buffer.get(pos) == '\r') {
+				++pos;
+			}
+			if (pos < limit && buffer.get(pos) == '\n') {
+				++pos;
+			}
+		}
+		
+		private boolean isTokenEnd() {
+			return pos >= limit || isTokenWhitespace(buffer.get(pos)) || buffer.get(pos) == '\n';
+		}
+		
+		private static boolean isTokenWhitespace(byte b) {
+			return b == ' ' || b == '\t' || b == '\r' || b == '\f';
+		}
+		
+		private static boolean isDigit(byte b) {
+			return b >= '0' && b <= '9';
+		}
+	}
 
 
 	public boolean writeAlcFile(MusicSheet sheet, String outputPath) {
 		boolean isSuccessful = true;
-		LinkedList<MusicSlice> slices;
 		MusicSlice slice;
 		String line;
 		
@@ -169,17 +356,25 @@ public class AlcReaderWriter {
 			bw.write(sheet.getNoteCount() + "");
 			bw.newLine();
 			
-			slices = sheet.getSlices();
-			for (int x = 0; x < slices.size(); ++x) {
-				slice = slices.get(x);
-				Iterator<MusicNote> iter = slice.getNotes().iterator();
-				while (iter.hasNext()) {
-					MusicNote note = iter.next();
-					// Generate the line for this MusicNote as it would appear in an .alc file, ie:
-					// {start time in ms} {compareValue} {duration}
-					line = slice.getStartTime() + " " + note.getCompareValue() + " " + note.getDuration();
-					bw.write(line);
-					bw.newLine();
+			for (int x = 0; x < sheet.getNumSlices(); ++x) {
+				slice = sheet.getSlice(x);
+				// Generate the line for each note as it would appear in an .alc file, ie:
+				// {start time in ms} {compareValue} {duration}
+				// Slices of nothing but keys are read without building their MusicNotes. Only slices with rests need them.
+				if (slice.hasOnlyKeys()) {
+					for (int key = slice.nextKeyIndex(0); key != -1; key = slice.nextKeyIndex(key + 1)) {
+						line = slice.getStartTime() + " " + NoteUtils.getCompareValueForKeyIndex(key) + " " + slice.getDurationForKey(key);
+						bw.write(line);
+						bw.newLine();
+					}
+				} else {
+					Iterator<MusicNote> iter = slice.getNotes().iterator();
+					while (iter.hasNext()) {
+						MusicNote note = iter.next();
+						line = slice.getStartTime() + " " + note.getCompareValue() + " " + note.getDuration();
+						bw.write(line);
+						bw.newLine();
+					}
 				}
 			}
 			bw.flush();
@@ -191,4 +386,299 @@ public class AlcReaderWriter {
 		}
 		return isSuccessful;
 	}
-}
\ No newline at end of file
+	
+	
+	// .alcb - the binary sibling of the .alc format.
+	// Text .alc files need to be re-tokenized and re-parsed every time any program loads them. An .alcb file holds exactly the same data, but is far smaller and faster to decode.
+	// Layout:
+	//   magic bytes "ALCB" (see Constants.ALCB_MAGIC), then 1 byte format version
+	//   info line: 4 byte length, followed by that many bytes of UTF-8 text
+	//   note count: 4 bytes (the same integrity check value as the second line of an .alc file)
+	//   checksum: 4 bytes, the CRC32 of every byte that follows it (the note data)
+	//   note data, one entry per note, in the same order as an .alc file's note lines:
+	//     varint start time, stored as the (zigzag signed) difference from the previous note's start time, so chords cost a single 0 byte
+	//     1 byte half-step key index for the compareValue (see NoteUtils#getKeyIndexForCompareValue, or Constants.ALCB_REST_KEY_INDEX for a rest)
+	//     varint duration, stored as the (zigzag signed) difference from the previous note's duration, so chords and runs of same-length notes cost a single 0 byte
+	//       (being signed also means even bad data round-trips faithfully, and fails the same integrity checks as the text format would)
+	// All multi-byte fixed width values are big-endian.
+	
+	/**
+	 * Checks the first bytes of the given file for the .alcb magic bytes
+	 * @param filePath filepath to check
+	 * @return true if the file exists and begins with the .alcb magic bytes, false otherwise
+	 */
+	public boolean isAlcbFile(String filePath) {
+		boolean isAlcb = false;
+		
+		try {
+			FileInputStream fis = new FileInputStream(new File(filePath));
+			byte[] magic = new byte[Constants.ALCB_MAGIC.length];
+			int numRead = fis.read(magic);
+			fis.close();
+			isAlcb = (numRead == magic.length) && Arrays.equals(magic, Constants.ALCB_MAGIC);
+		} catch (Exception e) {
+			// if the file can't even be opened, it isn't an .alcb file. the regular loaders will report the error.
+			isAlcb = false;
+		}
+		
+		return isAlcb;
+	}
+	
+	/**
+	 * Given the file path to a binary .alcb file, attempts to import it and create a MusicSheet object comprised of MusicSlices and MusicNotes.
+	 * The same integrity checks as the text .alc loaders are applied (see AlcSheetBuilder), in addition to verifying the checksum of the note data.
+	 * @param alcbFilePath filepath to the desired .alcb file to load
+	 * @return created MusicSheet object for the .alcb file, or null if there were any errors
+	 */
+	public MusicSheet loadAlcbFile(String alcbFilePath) {
+		AlcSheetBuilder builder = new AlcSheetBuilder("AlcReaderWriter#loadAlcbFile");
+		
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(alcbFilePath)));
+			
+			for (int x = 0; x < Constants.ALCB_MAGIC.length; ++x) {
+				if (buffer.get() != Constants.ALCB_MAGIC[x]) {
+					throw new Exception("file does not start with the .alcb magic bytes");
+				}
+			}
+			int version = buffer.get();
+			if (version != Constants.ALCB_VERSION) {
+				throw new Exception("unsupported .alcb version: " + version + ", expected: " + Constants.ALCB_VERSION);
+			}
+			
+			byte[] infoBytes = new byte[buffer.getInt()];
+			buffer.get(infoBytes);
+			builder.setHeaderLine(new String(infoBytes, StandardCharsets.UTF_8));
+			builder.setNoteCount(buffer.getInt());
+			
+			int expectedChecksum = buffer.getInt();
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), buffer.position(), buffer.remaining());
+			if ((int)crc.getValue() != expectedChecksum) {
+				throw new Exception("checksum mismatch - the note data is damaged. Expected: " + expectedChecksum + ", calculated: " + (int)crc.getValue());
+			}
+			
+			int currStartTime = 0;
+			int noteDuration = 0;
+			while (buffer.hasRemaining()) {
+				currStartTime += readZigZagVarint(buffer);
+				int keyIndex = buffer.get() & 0xFF;
+				noteDuration += readZigZagVarint(buffer);
+				
+				double compareValue;
+				if (keyIndex == Constants.ALCB_REST_KEY_INDEX) {
+					compareValue = Constants.REST_COMP_VALUE;
+				} else {
+					compareValue = NoteUtils.getCompareValueForKeyIndex(keyIndex);
+					if (compareValue == -1) {
+						throw new Exception("invalid key index in note data: " + keyIndex);
+					}
+				}
+				
+				if (!builder.addNoteLine(currStartTime, compareValue, noteDuration)) {
+					break;
+				}
+			}
+		} catch (Exception e) {
+			System.out.println("AlcReaderWriter#loadAlcbFile - error - exception occurred while reading .alcb file at path: [" + alcbFilePath + "]. Exception: " + e.getMessage());
+			e.printStackTrace();
+			builder.abort(); // just ensuring we return null on an exception
+		}
+		
+		return builder.finish();
+	}
+	
+	/**
+	 * Given the file path to an .alc (or .alcb) file, loads it as a read-only ColumnarMusicSheet, for stats generation and other analysis.
+	 * The file is streamed in via AlcSliceStream (so the same integrity checks as the other loaders apply), and each slice is copied into the columns
+	 * as soon as it is read in, so a full MusicSheet is never built. The columns are sized from the note count line up front, and only grow if that count was wrong.
+	 * @param alcFilePath filepath to the desired .alc or .alcb file to load
+	 * @return created ColumnarMusicSheet for the file, or null if there were any errors, or if the song contains a rest (which can't be stored as a key index - see didColumnarLoadFindRest)
+	 */
+	public ColumnarMusicSheet loadAlcFileColumnar(String alcFilePath) {
+		didColumnarLoadFindRest = false;
+		AlcSliceStream stream = new AlcSliceStream(alcFilePath);
+		int capacity = Math.min(Math.max(stream.getNoteCount(), 16), MAX_INITIAL_COLUMN_CAPACITY);
+		int[] startTimes = new int[capacity];
+		int[] sliceOffsets = new int[capacity + 1];
+		short[] keyIndices = new short[capacity];
+		int[] durations = new int[capacity];
+		int numSlices = 0;
+		int numNotes = 0;
+		
+		while (stream.hasNext()) {
+			MusicSlice slice = stream.next();
+			if (numSlices == startTimes.length) {
+				startTimes = Arrays.copyOf(startTimes, numSlices * 2);
+				sliceOffsets = Arrays.copyOf(sliceOffsets, numSlices * 2 + 1);
+			}
+			if (numNotes + slice.getNumNotes() > keyIndices.length) {
+				int newCapacity = Math.max(keyIndices.length * 2, numNotes + slice.getNumNotes());
+				keyIndices = Arrays.copyOf(keyIndices, newCapacity);
+				durations = Arrays.copyOf(durations, newCapacity);
+			}
+			
+			startTimes[numSlices] = slice.getStartTime();
+			sliceOffsets[numSlices] = numNotes;
+			int numKeysInSlice = 0;
+			for (int key = slice.nextKeyIndex(0); key != -1; key = slice.nextKeyIndex(key + 1)) {
+				keyIndices[numNotes] = (short)key;
+				durations[numNotes] = slice.getDurationForKey(key);
+				++numNotes;
+				++numKeysInSlice;
+			}
+			// anything that isn't a hittable key (such as a rest) doesn't show up in the key iteration
+			if (numKeysInSlice != slice.getNumNotes()) {
+				System.out.println("AlcReaderWriter#loadAlcFileColumnar - error - slice contains notes that can't be stored as a key index (such as rests). Aborting load. MusicSlice startTime: " + slice.getStartTime());
+				stream.close();
+				didColumnarLoadFindRest = true;
+				return null;
+			}
+			++numSlices;
+		}
+		
+		if (!stream.isValid()) {
+			return null;
+		}
+		sliceOffsets[numSlices] = numNotes;
+		
+		return new ColumnarMusicSheet(stream.getInfoLine(), Arrays.copyOf(startTimes, numSlices), Arrays.copyOf(sliceOffsets, numSlices + 1),
+									  Arrays.copyOf(keyIndices, numNotes), Arrays.copyOf(durations, numNotes));
+	}
+	
+	/**
+	 * @return true if the last loadAlcFileColumnar call failed because the song contains a rest, so it could still be loaded as a full MusicSheet.
+	 * false if it succeeded, or failed for any other reason (missing file, failed integrity checks, ...), which loading it another way won't fix.
+	 */
+	public boolean didColumnarLoadFindRest() {
+		return didColumnarLoadFindRest;
+	}
+	
+	/**
+	 * Writes the given MusicSheet out to the binary .alcb format (see the layout above)
+	 * @param sheet MusicSheet to write out
+	 * @param outputPath filepath to write the .alcb file to
+	 * @return true if successful, false otherwise (such as a note with a compareValue that can't be stored as a key index)
+	 */
+	public boolean writeAlcbFile(MusicSheet sheet, String outputPath) {
+		boolean isSuccessful = true;
+		
+		try {
+			// the checksum is written before the note data, so the note data is encoded into memory first
+			ByteArrayOutputStream noteData = new ByteArrayOutputStream();
+			int prevStartTime = 0;
+			int prevDuration = 0;
+			
+			Iterator<MusicSlice> sliceIter = sheet.sliceIterator();
+			while (sliceIter.hasNext()) {
+				MusicSlice slice = sliceIter.next();
+				// slices of nothing but keys are read without building their MusicNotes. only slices with rests need them.
+				if (slice.hasOnlyKeys()) {
+					for (int key = slice.nextKeyIndex(0); key != -1; key = slice.nextKeyIndex(key + 1)) {
+						int duration = slice.getDurationForKey(key);
+						writeZigZagVarint(noteData, slice.getStartTime() - prevStartTime);
+						noteData.write(key);
+						writeZigZagVarint(noteData, duration - prevDuration);
+						prevStartTime = slice.getStartTime();
+						prevDuration = duration;
+					}
+					continue;
+				}
+				Iterator<MusicNote> iter = slice.getNotes().iterator();
+				while (iter.hasNext()) {
+					MusicNote note = iter.next();
+					int keyIndex;
+					if (note.getCompareValue() == Constants.REST_COMP_VALUE) {
+						keyIndex = Constants.ALCB_REST_KEY_INDEX;
+					} else {
+						keyIndex = NoteUtils.getKeyIndexForCompareValue(note.getCompareValue());
+						if (keyIndex == -1) {
+							throw new Exception("note can't be stored as a key index. MusicSlice startTime: " + slice.getStartTime() + " | Note details: " + note.toString());
+						}
+					}
+					writeZigZagVarint(noteData, slice.getStartTime() - prevStartTime);
+					noteData.write(keyIndex);
+					writeZigZagVarint(noteData, note.getDuration() - prevDuration);
+					prevStartTime = slice.getStartTime();
+					prevDuration = note.getDuration();
+				}
+			}
+			
+			byte[] noteBytes = noteData.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(noteBytes, 0, noteBytes.length);
+			byte[] infoBytes = sheet.getInfoLine().getBytes(StandardCharsets.UTF_8);
+			
+			DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(outputPath))));
+			dos.write(Constants.ALCB_MAGIC);
+			dos.writeByte(Constants.ALCB_VERSION);
+			dos.writeInt(infoBytes.length);
+			dos.write(infoBytes);
+			dos.writeInt(sheet.getNoteCount());
+			dos.writeInt((int)crc.getValue());
+			dos.write(noteBytes);
+			dos.flush();
+			dos.close();
+		} catch (Exception e) {
+			System.out.println("AlcReaderWriter#writeAlcbFile - error - exception caught attempting to write .alcb file: " + e.getMessage());
+			e.printStackTrace();
+			isSuccessful = false;
+		}
+		return isSuccessful;
+	}
+	
+	/**
+	 * Writes a signed integer as a zigzag-encoded varint (7 bits per byte, high bit set on every byte except the last)
+	 */
+	private static void writeZigZagVarint(ByteArrayOutputStream out, int value) {
+		int zigZag = (value << 1) ^ (value >> 31);
+		while ((zigZag & ~0x7F) != 0) {
+			out.write((zigZag & 0x7F) | 0x80);
+			zigZag >>>= 7;
+		}
+		out.write(zigZag);
+	}
+	
+	/**
+	 * Reads a zigzag-encoded varint written by writeZigZagVarint
+	 */
+	private static int readZigZagVarint(ByteBuffer buffer) throws Exception {
+		int zigZag = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (shift > 28) {
+				throw new Exception("malformed varint in note data");
+			}
+			b = buffer.get();
+			zigZag |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+	
+	/**
+	 * Reads a zigzag-encoded varint written by writeZigZagVarint from a stream (used by AlcSliceStream).
+	 * The first byte is passed in separately, since the caller reads it on its own to detect the end of the note data.
+	 */
+	static int readZigZagVarint(int firstByte, InputStream in) throws Exception {
+		int zigZag = 0;
+		int shift = 0;
+		int b = firstByte;
+		while (true) {
+			if (b == -1) {
+				throw new Exception("note data ended in the middle of a varint");
+			}
+			if (shift > 28) {
+				throw new Exception("malformed varint in note data");
+			}
+			zigZag |= (b & 0x7F) << shift;
+			shift += 7;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+			b = in.read();
+		}
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+}
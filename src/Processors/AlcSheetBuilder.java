@@ -0,0 +1,205 @@
+package Processors;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Utils.NoteUtils;
+
+/**
+ * Assembles a MusicSheet one .alc note line at a time, while performing the same integrity checks no matter which loader is feeding it
+ * (note data being out of order, duplicate notes in a slice reducing the note count, and the header note count matching what was actually read in).
+ *
+ * The loaders in AlcReaderWriter are only responsible for pulling the header line, count line, and {start time} {compareValue} {duration} values out of the file.
+ * Everything after that is handled here, so all of the loaders are guaranteed to produce identical MusicSheets (or fail identically) for the same .alc file.
+ *
+ * In streaming mode (used by AlcSliceStream), completed slices are NOT added to the MusicSheet. They are handed off one at a time via takeCompletedSlice(),
+ * so the song never needs to be held in memory as a whole. The MusicSheet only carries the info line and note count in that case.
+ */
+class AlcSheetBuilder {
+
+	private String source; // the loader using this builder, so error messages point back to the right place
+	private MusicSheet sheet;
+	private MusicSlice slice;
+	private String headerLine;
+	private boolean hasCountLine;
+	private int noteCount;
+	private int noteLinesReadIn;
+	private int duplicatesCaught;
+	private int prevStartTime;
+	private boolean isStreaming;
+	private MusicSlice completedSlice; // streaming mode only - the most recently completed slice, waiting to be taken
+
+	/**
+	 * @param source the class#method name of the loader using this builder, used as the prefix for any error messages
+	 */
+	public AlcSheetBuilder(String source) {
+		this(source, false);
+	}
+
+	/**
+	 * @param source the class#method name of the loader using this builder, used as the prefix for any error messages
+	 * @param isStreaming if true, completed slices are handed off via takeCompletedSlice() instead of being added to the MusicSheet
+	 */
+	public AlcSheetBuilder(String source, boolean isStreaming) {
+		this.source = source;
+		this.isStreaming = isStreaming;
+		noteCount = -1;
+		noteLinesReadIn = 0;
+		duplicatesCaught = 0;
+		prevStartTime = -1;
+	}
+
+	/**
+	 * First line of an .alc file is informational only
+	 * @param line the informational line
+	 */
+	public void setHeaderLine(String line) {
+		headerLine = line;
+	}
+
+	/**
+	 * Second line of an .alc file is an integrity check line - it holds the count of notes (the number of following lines) in the song.
+	 * This is also the point where the MusicSheet is created.
+	 * @param count the note count read in from the file
+	 */
+	public void setNoteCount(int count) {
+		hasCountLine = true;
+		noteCount = count;
+		sheet = new MusicSheet(headerLine, noteCount);
+	}
+
+	/**
+	 * Adds a single note line to the sheet being built.
+	 * If the note's start time is later than the previous note's, the previous slice is added to the sheet and a new slice is started.
+	 * If the start time is earlier than the previous note's, the data is out of order, and the load is aborted.
+	 * @param currStartTime start time of the note, in milliseconds
+	 * @param compareValue compareValue of the note
+	 * @param noteDuration duration of the note, in milliseconds
+	 * @return true if the note line was accepted (even if it was a thrown-out duplicate), false if the load has been aborted
+	 */
+	public boolean addNoteLine(int currStartTime, double compareValue, int noteDuration) {
+
+		if (slice == null) {
+			slice = new MusicSlice(currStartTime);
+		}
+
+		// initializing prevStartTime if it hasn't already.
+		// we initialize here, so the first line in an .alc file doesn't HAVE to start on a 0.
+		if (prevStartTime == -1) {
+			prevStartTime = currStartTime;
+		}
+
+		// if the currStartTime is greater than prevStartTime, this means we're in a new time slice.
+		// we need to add the old slice to the music sheet object and construct a new slice to put this music note into.
+		// otherwise, the start times are the same, so just add it to the existing slice.
+		if (prevStartTime != currStartTime) {
+
+			// data integrity check: if the current line's start time occurs EARLIER than the previous line's, then we have bad data, most likely due to hand-editing of the file.
+			if (prevStartTime > currStartTime) {
+				System.out.println(source + " - error - note data is out of order. Aborting load. Confirm - prevStartTime: " + prevStartTime + ", currStartTime: " + currStartTime);
+				sheet = null;
+				return false;
+			}
+
+			completeSlice(slice);
+			slice = new MusicSlice(currStartTime);
+			addToSlice(compareValue, noteDuration);
+			prevStartTime = currStartTime;
+		} else {
+			// if we fail to add a note (such as a duplicate), then we need to decrement the valid note count
+			if (!addToSlice(compareValue, noteDuration)) {
+				--noteCount;
+				++duplicatesCaught;
+				sheet.setNoteCount(noteCount);
+			}
+		}
+
+		// counter for our file integrity check
+		++noteLinesReadIn;
+		return true;
+	}
+
+	/**
+	 * Adds the note to the current slice. Valid keys are added by key index, so the slice can stay in its compact form (see MusicSlice),
+	 * while anything else (rests, invalid compareValues or durations) still goes through a MusicNote, to be handled / logged the same way as always.
+	 * @return true if the note was added, false if it was a duplicate
+	 */
+	private boolean addToSlice(double compareValue, int noteDuration) {
+		int keyIndex = NoteUtils.getKeyIndexForCompareValue(compareValue);
+		if (keyIndex != -1 && noteDuration > 0) {
+			return slice.addNote(keyIndex, noteDuration);
+		}
+		return slice.addMusicNote(new MusicNote(compareValue, noteDuration));
+	}
+
+	/**
+	 * Adds the finished slice to the sheet, or when streaming, holds onto it until takeCompletedSlice() is called
+	 */
+	private void completeSlice(MusicSlice finishedSlice) {
+		if (isStreaming) {
+			completedSlice = finishedSlice;
+		} else {
+			sheet.addSlice(finishedSlice);
+		}
+	}
+
+	/**
+	 * Streaming mode only. Returns the most recently completed slice (if there is one), and clears it so it is only handed out once.
+	 * A slice is completed once a note line with a later start time is added, or once finish() is called for the last slice of the song.
+	 * @return the completed MusicSlice, or null if no slice has been completed since the last call
+	 */
+	public MusicSlice takeCompletedSlice() {
+		MusicSlice taken = completedSlice;
+		completedSlice = null;
+		return taken;
+	}
+
+	/**
+	 * Aborts the load (for example, when the loader hits a malformed line). finish() will return null after this is called.
+	 */
+	public void abort() {
+		sheet = null;
+	}
+
+	/**
+	 * Finalizes the sheet and runs the file integrity checks.
+	 * @return the completed MusicSheet, or null if the load was aborted or any integrity checks failed
+	 */
+	public MusicSheet finish() {
+		if (sheet != null && slice != null) {
+			completeSlice(slice); // this is necessary because the newest slice hasn't been added to the musicsheet yet, due to how the loaders handle old/new slices.
+			slice = null;
+		}
+
+		if (headerLine == null || !hasCountLine) { // if the file was incomplete (only 1 or 2 lines in length), then there isn't enough data to play a song
+			System.out.println(source + " - error - .alc file did not have at least 3 lines (1 informational, 1 counter, at least 1 note). File is too small to process.");
+			sheet = null; // the object may not be null if the file was 2 lines long, so this ensures we return null
+		} else if (noteCount != (noteLinesReadIn-duplicatesCaught)) { // if we fail the integrity check, report an error and return a null object
+			System.out.println(source + " - error - .alc file failed the file integrity check. The number of notes read in does not match the expected note count." +
+						       " Read in: " + noteLinesReadIn + ", Expected: " + noteCount);
+			sheet = null;
+		} else if (noteCount == 0) { // if there was a note count of 0, then it is an (intentionally?) empty alc file
+			System.out.println(source + " - error - .alc file had a value of 0 in the note count line. File integrity can't be validated. File will not be processed.");
+			sheet = null;
+		} else if (noteLinesReadIn == 0) { // if there were no notes read in, we can't play a song. Although I don't think this conditional is capable of being hit.
+			System.out.println(source + " - error - .alc file contains 0 note lines. File will not be processed.");
+			sheet = null;
+		}
+
+		return sheet;
+	}
+
+	/**
+	 * @return true if the informational line has been read in
+	 */
+	public boolean hasHeaderLine() {
+		return headerLine != null;
+	}
+
+	/**
+	 * @return true if the note count line has been read in
+	 */
+	public boolean hasCountLine() {
+		return hasCountLine;
+	}
+}
@@ -0,0 +1,270 @@
+package Processors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Pull-based alternative to AlcReaderWriter#loadAlcFile for songs that are too large (or too numerous) to hold in memory as a whole MusicSheet.
+ * MusicSlices are read in from the .alc (or .alcb) file one at a time, as they are asked for, and only the slice currently being assembled is kept around.
+ *
+ * The same integrity checks as loadAlcFile are applied (see AlcSheetBuilder), but since the note count line can only be confirmed once every note has been read in,
+ * the checks are enforced at the end of the stream: once hasNext() returns false, isValid() reports whether the file passed.
+ * Consumers are expected to treat anything they computed from the slices as suspect (and discard it) if isValid() returns false.
+ * For .alcb files, the note data checksum is likewise verified at the end of the stream.
+ *
+ * Typical usage:
+ *   AlcSliceStream stream = new AlcSliceStream(alcFilePath);
+ *   while (stream.hasNext()) {
+ *       MusicSlice slice = stream.next();
+ *       ...
+ *   }
+ *   if (!stream.isValid()) { ... }
+ *
+ * The underlying file is closed automatically once the stream is exhausted. If a consumer stops early, it should call close().
+ */
+public class AlcSliceStream implements Iterator<MusicSlice> {
+
+	private String filePath;
+	private AlcSheetBuilder builder;
+	private String infoLine;
+	private int noteCount;
+
+	private BufferedReader reader; // text .alc files
+	private CheckedInputStream binaryIn; // .alcb files - the note data, checksummed as it is read
+	private int expectedChecksum;
+	private int binaryStartTime; // .alcb start times are stored as deltas, so we keep a running total
+	private int binaryDuration; // as are the durations
+
+	// the most recently parsed note line
+	private int currStartTime;
+	private double compareValue;
+	private int noteDuration;
+
+	private MusicSlice nextSlice;
+	private boolean isFinished;
+	private boolean isValid;
+
+	/**
+	 * Opens the given .alc or .alcb file and reads in its informational and note count lines.
+	 * If the file can't be opened, an error is written out and the stream will be empty (and invalid).
+	 * @param alcFilePath filepath to the .alc or .alcb file to stream
+	 */
+	public AlcSliceStream(String alcFilePath) {
+		filePath = alcFilePath;
+		builder = new AlcSheetBuilder("AlcSliceStream", true);
+		noteCount = -1;
+		isFinished = false;
+		isValid = false;
+
+		try {
+			if (new AlcReaderWriter().isAlcbFile(alcFilePath)) {
+				openBinary();
+			} else {
+				openText();
+			}
+		} catch (Exception e) {
+			System.out.println("AlcSliceStream#ctor - error - exception occurred while opening file at path: [" + filePath + "]. Exception: " + e.getMessage());
+			e.printStackTrace();
+			builder.abort();
+			finishStream();
+		}
+	}
+
+	private void openText() throws Exception {
+		reader = new BufferedReader(new FileReader(new File(filePath)));
+
+		// first line is informational only
+		String line = reader.readLine();
+		if (line != null) {
+			infoLine = line;
+			builder.setHeaderLine(line);
+
+			// second line is an integrity check line - it holds the count of notes (the number of following lines) in the song
+			line = reader.readLine();
+			if (line != null) {
+				noteCount = Integer.parseInt(line);
+				builder.setNoteCount(noteCount);
+			}
+		}
+	}
+
+	private void openBinary() throws Exception {
+		BufferedInputStream in = new BufferedInputStream(new FileInputStream(new File(filePath)));
+		DataInputStream header = new DataInputStream(in);
+
+		// the magic bytes were already confirmed by isAlcbFile
+		header.skipBytes(Constants.ALCB_MAGIC.length);
+		int version = header.readUnsignedByte();
+		if (version != Constants.ALCB_VERSION) {
+			header.close();
+			throw new Exception("unsupported .alcb version: " + version + ", expected: " + Constants.ALCB_VERSION);
+		}
+
+		byte[] infoBytes = new byte[header.readInt()];
+		header.readFully(infoBytes);
+		infoLine = new String(infoBytes, StandardCharsets.UTF_8);
+		builder.setHeaderLine(infoLine);
+		noteCount = header.readInt();
+		builder.setNoteCount(noteCount);
+		expectedChecksum = header.readInt();
+
+		// everything after the header is note data, which is what the checksum covers
+		binaryIn = new CheckedInputStream(in, new CRC32());
+		binaryStartTime = 0;
+		binaryDuration = 0;
+	}
+
+	/**
+	 * @return true if there is another MusicSlice to be read in
+	 */
+	@Override
+	public boolean hasNext() {
+		advance();
+		return nextSlice != null;
+	}
+
+	/**
+	 * @return the next MusicSlice in the song, in start time order
+	 */
+	@Override
+	public MusicSlice next() {
+		advance();
+		if (nextSlice == null) {
+			throw new NoSuchElementException("AlcSliceStream#next - no slices remain in: " + filePath);
+		}
+		MusicSlice slice = nextSlice;
+		nextSlice = null;
+		return slice;
+	}
+
+	/**
+	 * Reads note lines until the builder completes a slice, or the file runs out
+	 */
+	private void advance() {
+		while (nextSlice == null && !isFinished) {
+			if (!readNoteLine() || !builder.addNoteLine(currStartTime, compareValue, noteDuration)) {
+				finishStream();
+			} else {
+				nextSlice = builder.takeCompletedSlice();
+			}
+		}
+	}
+
+	/**
+	 * Parses the next note line into currStartTime / compareValue / noteDuration
+	 * @return true if a note line was read in, false at the end of the file or on an error (in which case the load is aborted)
+	 */
+	private boolean readNoteLine() {
+		try {
+			if (reader != null) {
+				String line = reader.readLine();
+				if (line == null) {
+					return false;
+				}
+				// if there are not enough tokens in a line, or bad data (such as non-numeric characters), an exception will be thrown and the load aborted.
+				StringTokenizer st = new StringTokenizer(line);
+				currStartTime = Integer.parseInt(st.nextToken());
+				compareValue = Double.parseDouble(st.nextToken());
+				noteDuration = Integer.parseInt(st.nextToken());
+				return true;
+			} else if (binaryIn != null) {
+				int firstByte = binaryIn.read();
+				if (firstByte == -1) {
+					if ((int)binaryIn.getChecksum().getValue() != expectedChecksum) {
+						System.out.println("AlcSliceStream#readNoteLine - error - checksum mismatch - the note data is damaged. Expected: " + expectedChecksum +
+										   ", calculated: " + (int)binaryIn.getChecksum().getValue());
+						builder.abort();
+					}
+					return false;
+				}
+				binaryStartTime += AlcReaderWriter.readZigZagVarint(firstByte, binaryIn);
+				currStartTime = binaryStartTime;
+				int keyIndex = binaryIn.read();
+				binaryDuration += AlcReaderWriter.readZigZagVarint(binaryIn.read(), binaryIn);
+				noteDuration = binaryDuration;
+
+				if (keyIndex == Constants.ALCB_REST_KEY_INDEX) {
+					compareValue = Constants.REST_COMP_VALUE;
+				} else {
+					compareValue = NoteUtils.getCompareValueForKeyIndex(keyIndex);
+					if (compareValue == -1) {
+						throw new Exception("invalid key index in note data: " + keyIndex);
+					}
+				}
+				return true;
+			}
+		} catch (Exception e) {
+			System.out.println("AlcSliceStream#readNoteLine - error - exception occurred while reading file at path: [" + filePath + "]. Exception: " + e.getMessage());
+			e.printStackTrace();
+			builder.abort(); // ensures the stream is reported as invalid
+		}
+		return false;
+	}
+
+	/**
+	 * Closes the file, runs the end-of-stream integrity checks, and queues up the final slice (if the load wasn't aborted)
+	 */
+	private void finishStream() {
+		isFinished = true;
+		close();
+		MusicSheet sheet = builder.finish();
+		isValid = (sheet != null);
+		nextSlice = builder.takeCompletedSlice();
+	}
+
+	/**
+	 * Closes the underlying file. Only needs to be called directly if the stream is abandoned before hasNext() returns false.
+	 * A stream that is closed early is never considered valid.
+	 */
+	public void close() {
+		try {
+			if (reader != null) {
+				reader.close();
+				reader = null;
+			}
+			if (binaryIn != null) {
+				binaryIn.close();
+				binaryIn = null;
+			}
+		} catch (Exception e) {
+			System.out.println("AlcSliceStream#close - error - exception occurred while closing file at path: [" + filePath + "]. Exception: " + e.getMessage());
+		}
+		isFinished = true;
+	}
+
+	/**
+	 * @return true once every slice has been read in and the file passed all of its integrity checks. Always false while slices remain.
+	 */
+	public boolean isValid() {
+		return isValid;
+	}
+
+	/**
+	 * @return the informational line of the file, or null if it couldn't be read
+	 */
+	public String getInfoLine() {
+		return infoLine;
+	}
+
+	/**
+	 * @return the note count line of the file, as read in (before any duplicate notes are thrown out), or -1 if it couldn't be read
+	 */
+	public int getNoteCount() {
+		return noteCount;
+	}
+}
@@ -0,0 +1,440 @@
+package Processors;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+import Utils.Constants;
+
+/**
+ * An in-process stand in for the arduino end of a streamed song (see FngStreamSender), so the streaming pipeline can be tested without any hardware.
+ *
+ * The emulator and the sender are joined by a SerialLink in each direction, running at the given baud rate, and the emulator plays the part of the sketch:
+ *  - every loopMs it reads whatever has arrived in its serial receive buffer, and decodes the batches into its instruction buffer
+ *  - it plays every buffered instruction that has come due, and sends a credit back for each slot it frees up
+ * The serial receive buffer and the instruction buffer are the sizes given, so a configuration that would drop bytes or run dry on a real board does so here too.
+ *
+ * Everything runs on a simulated clock, one millisecond at a time, so a whole song is checked in a fraction of its length, and the results are the same every run.
+ * The song starts playing startDelayMs after streaming begins, giving the sender a head start to fill the buffer.
+ *
+ * For every instruction, the emulator measures:
+ *  - slack: how long before it was due it arrived. An instruction that arrived after it was due is an underrun.
+ *  - latency: how long after it was due it was played
+ * The played instructions are also checksummed, so they can be compared against the file they were streamed from (see getChecksum).
+ *
+ * Bytes lost or damaged on the way throw out the batch they were in, and the credits the sender spent on it are handed back, so the stream carries on and the loss is reported
+ * (see getNumInstructionsLost) instead of the sender running out of credits:
+ *  - a batch that was damaged after its header (a bad checksum, or a delta that never ends) hands back the count its header gave
+ *  - a batch that never arrived in one piece (its sync byte or count was lost, or its count is more than the sender had credits for) can't be trusted to say how many instructions it held.
+ *    Its credits stay outstanding until the sender is out of credits, or done, with nothing left on the line. By then, every credit the sender no longer has was spent on a batch that never arrived.
+ */
+public class ArduinoEmulator {
+	public static final int HOST_RECEIVE_BUFFER_BYTES = 4096;
+	// how long the sender can sit out of credits, with nothing left to play and nothing on the line, before the credits it spent are considered lost
+	private static final int LOST_CREDITS_MS = 50;
+	// how long it can sit like that, with no credits lost, before the stream is considered stuck
+	private static final int STALL_MS = 1000;
+
+	// the batch decoder's states
+	private static final int WAIT_FOR_SYNC = 0;
+	private static final int READ_COUNT = 1;
+	private static final int READ_TIME = 2;
+	private static final int READ_DELTA = 3;
+	private static final int READ_FINGER = 4;
+	private static final int READ_KEY = 5;
+	private static final int READ_CHECKSUM = 6;
+
+	private int baudRate;
+	private int receiveBufferBytes;
+	private int instructionSlots;
+	private int loopMs;
+	private int startDelayMs;
+
+	// the instruction buffer, a ring. Instructions from a batch still being decoded sit past the end of it until the batch's checksum is confirmed.
+	private int[] slotTimes;
+	private int[] slotFingers;
+	private int[] slotKeyIndices;
+	private int[] slotActions;
+	private int head;
+	private int numBuffered;
+	private int numPending;
+	private int creditsOut; // credits handed to the sender that no batch has arrived for yet
+
+	// the batch being decoded
+	private int state;
+	private int batchCount;
+	private int batchBytesRead;
+	private int batchTime;
+	private int checksum;
+	private int deltaValue;
+	private int deltaShift;
+
+	// measurements
+	private int numPlayed;
+	private int numUnderruns;
+	private int worstLatencyMs;
+	private int minSlackMs;
+	private int maxBuffered;
+	private int numBadBatches;
+	private int numInstructionsLost;
+	private long bytesLost;
+	private long bytesReceived;
+	private int songEndMs;
+	private boolean didStall;
+	private CRC32 playedChecksum;
+
+	/**
+	 * @param baudRate baud rate of the serial link, in both directions
+	 * @param receiveBufferBytes size of the arduino's serial receive buffer (64 bytes on an uno)
+	 * @param instructionSlots number of instructions the arduino's instruction buffer holds (each takes Constants.STREAM_SLOT_BYTES of ram)
+	 * @param loopMs how often the arduino gets around to reading its serial buffer and playing instructions
+	 * @param startDelayMs how long after streaming begins the song starts playing
+	 */
+	public ArduinoEmulator(int baudRate, int receiveBufferBytes, int instructionSlots, int loopMs, int startDelayMs) {
+		this.baudRate = baudRate;
+		this.receiveBufferBytes = receiveBufferBytes;
+		this.instructionSlots = Math.max(instructionSlots, 1);
+		this.loopMs = Math.max(loopMs, 1);
+		this.startDelayMs = Math.max(startDelayMs, 0);
+	}
+
+	/**
+	 * Streams a song from the sender to the emulator until every instruction has been played
+	 * @param sender sender to stream from. It is connected to the emulator's serial links.
+	 * @return true if the song streamed to the end, false if the connection failed or the stream got stuck (the measurements up to that point are still available)
+	 */
+	public boolean run(FngStreamSender sender) {
+		reset();
+		SerialLink toDevice = new SerialLink(baudRate, Constants.SERIAL_BITS_PER_BYTE, receiveBufferBytes);
+		SerialLink toHost = new SerialLink(baudRate, Constants.SERIAL_BITS_PER_BYTE, HOST_RECEIVE_BUFFER_BYTES);
+		sender.connect(toDevice.getOutputStream(), toHost.getInputStream());
+		InputStream serialIn = toDevice.getInputStream();
+		OutputStream serialOut = toHost.getOutputStream();
+
+		// the sketch starts by telling the host how much room it has
+		sendCredits(serialOut, instructionSlots);
+
+		int now = 0;
+		int stalledMs = 0;
+		while (true) {
+			int songTime = now - startDelayMs;
+			if (!sender.poll(songTime)) {
+				return false;
+			}
+			toDevice.advance(1);
+			toHost.advance(1);
+			if (now % loopMs == 0) {
+				loop(songTime, serialIn, serialOut);
+			}
+			++now;
+
+			boolean isLineIdle = !toDevice.isSending() && !toHost.isSending() && toDevice.getNumBytesReceived() == 0 && toHost.getNumBytesReceived() == 0;
+			if (sender.isDone() && numBuffered == 0 && isLineIdle) {
+				discardLostBatches(sender, serialOut);
+				break;
+			}
+			if (sender.isWaitingOnCredits() && numBuffered == 0 && isLineIdle) {
+				++stalledMs;
+				if (stalledMs >= LOST_CREDITS_MS && discardLostBatches(sender, serialOut)) {
+					stalledMs = 0;
+				} else if (stalledMs >= STALL_MS) {
+					System.out.println("ArduinoEmulator#run - error - the stream stalled at song time " + songTime + ": the sender is out of credits, and the arduino has nothing left to play");
+					didStall = true;
+					break;
+				}
+			} else {
+				stalledMs = 0;
+			}
+		}
+		bytesLost = toDevice.getBytesLost();
+		bytesReceived = toDevice.getBytesSent() - bytesLost;
+		songEndMs = now - startDelayMs;
+		return !didStall;
+	}
+
+	private void reset() {
+		slotTimes = new int[instructionSlots];
+		slotFingers = new int[instructionSlots];
+		slotKeyIndices = new int[instructionSlots];
+		slotActions = new int[instructionSlots];
+		head = 0;
+		numBuffered = 0;
+		numPending = 0;
+		creditsOut = 0;
+		state = WAIT_FOR_SYNC;
+		numPlayed = 0;
+		numUnderruns = 0;
+		worstLatencyMs = 0;
+		minSlackMs = Integer.MAX_VALUE;
+		maxBuffered = 0;
+		numBadBatches = 0;
+		numInstructionsLost = 0;
+		bytesLost = 0;
+		bytesReceived = 0;
+		didStall = false;
+		playedChecksum = new CRC32();
+	}
+
+	/**
+	 * One pass of the sketch's loop(): decode whatever has arrived, play whatever is due, and hand the freed slots back as credits
+	 */
+	private void loop(int songTime, InputStream serialIn, OutputStream serialOut) {
+		try {
+			while (serialIn.available() > 0) {
+				decode(serialIn.read(), songTime, serialOut);
+			}
+		} catch (Exception e) {
+			System.out.println("ArduinoEmulator#loop - error - exception occurred while reading the serial link. Exception: " + e.getMessage());
+		}
+
+		int numFreed = 0;
+		while (numBuffered > 0 && slotTimes[head] <= songTime) {
+			worstLatencyMs = Math.max(worstLatencyMs, songTime - slotTimes[head]);
+			updateChecksum(playedChecksum, slotTimes[head], slotFingers[head], slotKeyIndices[head], slotActions[head]);
+			++numPlayed;
+			head = (head + 1) % instructionSlots;
+			--numBuffered;
+			++numFreed;
+		}
+		sendCredits(serialOut, numFreed);
+	}
+
+	private void decode(int b, int songTime, OutputStream serialOut) {
+		if (state != WAIT_FOR_SYNC && state != READ_CHECKSUM) {
+			checksum ^= b;
+		}
+		switch (state) {
+			case WAIT_FOR_SYNC:
+				if (b == Constants.STREAM_BATCH_SYNC) {
+					state = READ_COUNT;
+					checksum = 0;
+				}
+				break;
+			case READ_COUNT:
+				batchCount = b;
+				if (batchCount == 0 || batchCount > creditsOut) {
+					// the sender can't have sent this many, so either the count was damaged, or this isn't really the start of a batch. It's sorted out once the line goes quiet.
+					++numBadBatches;
+					state = WAIT_FOR_SYNC;
+				} else {
+					creditsOut -= batchCount;
+					state = READ_TIME;
+					batchBytesRead = 0;
+					batchTime = 0;
+				}
+				break;
+			case READ_TIME:
+				batchTime = (batchTime << 8) | b;
+				if (++batchBytesRead == 4) {
+					state = READ_DELTA;
+					deltaValue = 0;
+					deltaShift = 0;
+				}
+				break;
+			case READ_DELTA:
+				deltaValue |= (b & 0x7F) << deltaShift;
+				deltaShift += 7;
+				if ((b & 0x80) == 0) {
+					int slot = (head + numBuffered + numPending) % instructionSlots;
+					batchTime += deltaValue >>> 2;
+					slotTimes[slot] = batchTime;
+					slotActions[slot] = deltaValue & 0x3;
+					state = READ_FINGER;
+				} else if (deltaShift > 28) {
+					discardBatch(serialOut);
+				}
+				break;
+			case READ_FINGER:
+				slotFingers[(head + numBuffered + numPending) % instructionSlots] = b;
+				state = READ_KEY;
+				break;
+			case READ_KEY:
+				slotKeyIndices[(head + numBuffered + numPending) % instructionSlots] = b;
+				++numPending;
+				if (numPending == batchCount) {
+					state = READ_CHECKSUM;
+				} else {
+					state = READ_DELTA;
+					deltaValue = 0;
+					deltaShift = 0;
+				}
+				break;
+			case READ_CHECKSUM:
+				if ((checksum & 0xFF) == b) {
+					for (int x = 0; x < numPending; ++x) {
+						int slack = slotTimes[(head + numBuffered + x) % instructionSlots] - songTime;
+						minSlackMs = Math.min(minSlackMs, slack);
+						if (slack < 0) {
+							++numUnderruns;
+						}
+					}
+					numBuffered += numPending;
+					maxBuffered = Math.max(maxBuffered, numBuffered);
+					numPending = 0;
+					state = WAIT_FOR_SYNC;
+				} else {
+					discardBatch(serialOut);
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Throws out the batch being decoded, which was damaged on the way, so it can't be played. Its slots are still handed back, so the stream doesn't stall.
+	 */
+	private void discardBatch(OutputStream serialOut) {
+		++numBadBatches;
+		numInstructionsLost += batchCount;
+		sendCredits(serialOut, batchCount);
+		numPending = 0;
+		state = WAIT_FOR_SYNC;
+	}
+
+	/**
+	 * Once the line has gone quiet, hands back the credits spent on batches that never arrived in one piece
+	 * @return true if any credits were handed back
+	 */
+	private boolean discardLostBatches(FngStreamSender sender, OutputStream serialOut) {
+		if (state != WAIT_FOR_SYNC && state != READ_COUNT) {
+			// the rest of the batch being decoded is never coming
+			creditsOut += batchCount;
+			++numBadBatches;
+			numPending = 0;
+		}
+		state = WAIT_FOR_SYNC;
+		int numLost = creditsOut - sender.getCredits();
+		if (numLost <= 0) {
+			return false;
+		}
+		numInstructionsLost += numLost;
+		creditsOut -= numLost;
+		sendCredits(serialOut, numLost);
+		return true;
+	}
+
+	private void sendCredits(OutputStream serialOut, int numCredits) {
+		creditsOut += numCredits;
+		try {
+			while (numCredits > 0) {
+				int credits = Math.min(numCredits, 0xFF);
+				serialOut.write(Constants.STREAM_CREDIT_SYNC);
+				serialOut.write(credits);
+				numCredits -= credits;
+			}
+		} catch (Exception e) {
+			System.out.println("ArduinoEmulator#sendCredits - error - exception occurred while writing to the serial link. Exception: " + e.getMessage());
+		}
+	}
+
+	private static void updateChecksum(CRC32 crc, int time, int fingerSequence, int keyIndex, int action) {
+		crc.update(time >>> 24);
+		crc.update(time >>> 16);
+		crc.update(time >>> 8);
+		crc.update(time);
+		crc.update(fingerSequence);
+		crc.update(keyIndex);
+		crc.update(action);
+	}
+
+	/**
+	 * Checksums every instruction in the given source the same way the emulator checksums the instructions it plays
+	 * @param source instructions to checksum. Every instruction is read, and the source is closed.
+	 * @return the checksum, to compare against getPlayedChecksum(), or -1 if the source couldn't be read in full
+	 */
+	public static long getChecksum(FngInstructionSource source) {
+		CRC32 crc = new CRC32();
+		while (source.next()) {
+			updateChecksum(crc, source.getTime(), source.getFingerSequence(), source.getKeyIndex(), source.getAction());
+		}
+		return source.isValid() ? crc.getValue() : -1;
+	}
+
+	/**
+	 * @return checksum of every instruction played, in the order played (see getChecksum)
+	 */
+	public long getPlayedChecksum() {
+		return playedChecksum.getValue();
+	}
+
+	public int getNumPlayed() {
+		return numPlayed;
+	}
+
+	/**
+	 * @return number of instructions that arrived after they were due
+	 */
+	public int getNumUnderruns() {
+		return numUnderruns;
+	}
+
+	/**
+	 * @return the longest any instruction was played after it was due, in milliseconds
+	 */
+	public int getWorstLatencyMs() {
+		return worstLatencyMs;
+	}
+
+	/**
+	 * @return the least time any instruction arrived before it was due, in milliseconds (negative if any arrived late), or 0 if nothing arrived
+	 */
+	public int getMinSlackMs() {
+		return (minSlackMs == Integer.MAX_VALUE) ? 0 : minSlackMs;
+	}
+
+	/**
+	 * @return the most instructions that were ever waiting in the instruction buffer at once
+	 */
+	public int getMaxBuffered() {
+		return maxBuffered;
+	}
+
+	/**
+	 * @return number of batches that were damaged, or arrived with a count the sender didn't have credits for, and were thrown out
+	 */
+	public int getNumBadBatches() {
+		return numBadBatches;
+	}
+
+	/**
+	 * @return number of instructions in batches that arrived damaged, or never arrived, and were never played
+	 */
+	public int getNumInstructionsLost() {
+		return numInstructionsLost;
+	}
+
+	/**
+	 * @return number of bytes that arrived while the serial receive buffer was full, and were lost
+	 */
+	public long getBytesLost() {
+		return bytesLost;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * @return true if the last run stopped because the stream got stuck
+	 */
+	public boolean didStall() {
+		return didStall;
+	}
+
+	/**
+	 * @return the arduino ram the receive buffer and instruction buffer take up
+	 */
+	public int getRamBytes() {
+		return receiveBufferBytes + instructionSlots * Constants.STREAM_SLOT_BYTES;
+	}
+
+	/**
+	 * @return a summary of the last run
+	 */
+	public String getReport() {
+		double songSeconds = Math.max(songEndMs, 1) / 1000.0;
+		return "played " + numPlayed + " instructions | underruns: " + numUnderruns + " | worst latency: " + worstLatencyMs + "ms | min slack: " + getMinSlackMs() + "ms" +
+			   " | buffer peak: " + maxBuffered + " of " + instructionSlots + " slots (" + getRamBytes() + " bytes of ram with the receive buffer)" +
+			   " | received " + bytesReceived + " bytes, " + String.format("%.0f", bytesReceived / songSeconds) + " bytes/s of " + (baudRate / Constants.SERIAL_BITS_PER_BYTE) +
+			   " | bytes lost: " + bytesLost + " | bad batches: " + numBadBatches + " | instructions lost: " + numInstructionsLost + (didStall ? " | STALLED" : "") + System.lineSeparator();
+	}
+}
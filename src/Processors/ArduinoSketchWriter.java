@@ -0,0 +1,451 @@
+package Processors;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+
+import DataObjs.MusicSheet;
+import Utils.Constants;
+
+/**
+ * Turns a MusicSheet and Hand into ready to compile Arduino sketches (an .ino file and the song_data.h file it includes), so the song is "code written by code".
+ *
+ * The instructions are the same ones FngWriter writes out, stored in a PROGMEM (flash) array using the .fngb instruction encoding (see the layout in FngWriter),
+ * so a typical instruction is 3 bytes. The sketch reads them out of flash one at a time and plays them with a micros() loop.
+ * Each finger's sequence number maps to a digital pin in the FINGER_PINS table, starting at pin 2 (pins 0 and 1 are the serial port).
+ * Fingers past the board's last pin are left unassigned (and reported).
+ * Only static fingers (full and limited implementations) are supported. There's no sliding finger hardware to drive yet, so sliding hands are refused rather than written out with slides that do nothing.
+ *
+ * If a song doesn't fit in the board's flash, it is split into parts, each its own sketch, to be uploaded and played one after another.
+ * Parts are split at a moment no key is held where possible. Otherwise the notes held over the split are cut short (the part releases every finger when it ends), and reported.
+ * A single PROGMEM array is also capped at 32KB, since that's the largest array avr-gcc allows, so larger boards still get 32KB parts.
+ *
+ * Flash and RAM usage are estimates: the instruction tables are exact, and the code and core library sizes are from compiling the sketch for an uno.
+ */
+public class ArduinoSketchWriter {
+	public static final int MAX_PROGMEM_ARRAY_BYTES = 32767;
+	public static final int SKETCH_CODE_BYTES = 1400; // core library, pinMode / digitalWrite / micros, and the playback loop
+	public static final int SKETCH_RAM_BYTES = 20; // the playback loop's globals (11 bytes), plus the core library's timer globals (9 bytes)
+	public static final int FIRST_FINGER_PIN = 2;
+	public static final int NO_PIN = 0xFF;
+	private static final int BYTES_PER_LINE = 16;
+	private static final int MAX_INITIAL_CAPACITY = 1 << 16; // the instruction count in the .fngb header isn't trusted until the file passes its integrity checks
+
+	private String boardName;
+	private int flashBytes;
+	private int ramBytes;
+	private int numPins;
+
+	// every instruction in the song
+	private int numInstructions;
+	private int[] times;
+	private int[] fingers;
+	private int[] keyIndices;
+	private int[] actions;
+	private int maxFingerSequence;
+
+	// how the instructions were split into parts
+	private int numParts;
+	private int[] partStarts; // index of each part's first instruction, plus numInstructions at the end
+	private int[] partDataBytes;
+	private int[] partNotesCutShort;
+
+	/**
+	 * @param boardName name of the board, for the report
+	 * @param flashBytes flash available to a sketch on the board (after the bootloader)
+	 * @param ramBytes ram on the board
+	 * @param numPins number of digital pins on the board
+	 */
+	public ArduinoSketchWriter(String boardName, int flashBytes, int ramBytes, int numPins) {
+		this.boardName = boardName;
+		this.flashBytes = flashBytes;
+		this.ramBytes = ramBytes;
+		this.numPins = numPins;
+	}
+
+	/**
+	 * @param boardName one of Constants.ARDUINO_BOARD_NAMES (case insensitive)
+	 * @return a writer for the board, or null if the board isn't known
+	 */
+	public static ArduinoSketchWriter forBoard(String boardName) {
+		for (int x = 0; x < Constants.ARDUINO_BOARD_NAMES.length; ++x) {
+			if (Constants.ARDUINO_BOARD_NAMES[x].equalsIgnoreCase(boardName)) {
+				return new ArduinoSketchWriter(Constants.ARDUINO_BOARD_NAMES[x], Constants.ARDUINO_BOARD_FLASH_BYTES[x], Constants.ARDUINO_BOARD_RAM_BYTES[x], Constants.ARDUINO_BOARD_NUM_PINS[x]);
+			}
+		}
+		System.out.println("ArduinoSketchWriter#forBoard - error - unknown board: " + boardName + ". Known boards: " + Arrays.toString(Constants.ARDUINO_BOARD_NAMES));
+		return null;
+	}
+
+	/**
+	 * Generates the instructions for the song, splits them into parts that fit the board, and writes each part out as a sketch folder:
+	 * {outputDir}/{sketchName}/{sketchName}.ino and {outputDir}/{sketchName}/song_data.h, where the sketch name is the song name (with _part{n} on the end if the song was split).
+	 * @param hand hand object containing information regarding all robotic fingers' locations
+	 * @param sheet music sheet to generate the sketches for
+	 * @param songName name of the song. Anything that can't be in a C identifier is replaced with an underscore.
+	 * @param outputDir directory to write the sketch folders into
+	 * @return true if every sketch was written, false otherwise (including for a sliding finger implementation, which the sketches can't play, and for a song with no notes the fingers can hit)
+	 */
+	public boolean writeSketches(Hand hand, MusicSheet sheet, String songName, String outputDir) {
+		return writeSketches(hand, sheet, songName, outputDir, new FngWriter());
+	}
+
+	/**
+	 * Same as writeSketches above, but generates the instructions with the given FngWriter, so any ReleaseGapPass set on it is applied to what the sketches play
+	 * (the same as for the .fng and .fngb files it writes).
+	 * @param hand hand object containing information regarding all robotic fingers' locations
+	 * @param sheet music sheet to generate the sketches for
+	 * @param songName name of the song. Anything that can't be in a C identifier is replaced with an underscore.
+	 * @param outputDir directory to write the sketch folders into
+	 * @param fngWriter writer to generate the instructions with
+	 * @return true if every sketch was written, false otherwise (including for a sliding finger implementation, which the sketches can't play, and for a song with no notes the fingers can hit)
+	 */
+	public boolean writeSketches(Hand hand, MusicSheet sheet, String songName, String outputDir, FngWriter fngWriter) {
+		if (hand.getSlidingPlanner() != null) {
+			System.out.println("ArduinoSketchWriter#writeSketches - error - sketches can only be generated for static fingers. The sliding finger implementation has no hardware to drive yet.");
+			return false;
+		}
+		if (!loadInstructions(fngWriter, hand, sheet)) {
+			return false;
+		}
+		if (numInstructions == 0) {
+			System.out.println("ArduinoSketchWriter#writeSketches - error - no finger can hit any of the song's notes, so there's nothing for a sketch to play");
+			return false;
+		}
+		int pinTableBytes = maxFingerSequence + 1;
+		int partBudget = Math.min(flashBytes - SKETCH_CODE_BYTES - pinTableBytes, MAX_PROGMEM_ARRAY_BYTES);
+		if (partBudget < 16) {
+			System.out.println("ArduinoSketchWriter#writeSketches - error - the " + boardName + " doesn't have enough flash for the sketch code and finger pin table, let alone any instructions");
+			return false;
+		}
+		splitIntoParts(partBudget);
+
+		String baseName = songName.replaceAll("[^A-Za-z0-9_]", "_");
+		if (baseName.isEmpty() || Character.isDigit(baseName.charAt(0))) {
+			baseName = "song_" + baseName;
+		}
+		for (int part = 0; part < numParts; ++part) {
+			String sketchName = (numParts == 1) ? baseName : baseName + "_part" + (part + 1);
+			File sketchDir = new File(outputDir, sketchName);
+			if (!sketchDir.isDirectory() && !sketchDir.mkdirs()) {
+				System.out.println("ArduinoSketchWriter#writeSketches - error - could not create sketch folder: " + sketchDir.getAbsolutePath());
+				return false;
+			}
+			try {
+				writeHeader(new File(sketchDir, "song_data.h"), songName, part);
+				writeIno(new File(sketchDir, sketchName + ".ino"), songName, part);
+			} catch (Exception e) {
+				System.out.println("ArduinoSketchWriter#writeSketches - error - failed to write sketch: " + sketchDir.getAbsolutePath() + ". Exception: " + e.getMessage());
+				e.printStackTrace();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the song through the given FngWriter's .fngb encoding, and reads the instructions back in
+	 */
+	private boolean loadInstructions(FngWriter fngWriter, Hand hand, MusicSheet sheet) {
+		File fngbFile = null;
+		try {
+			fngbFile = File.createTempFile("ArduinoSketchWriter", ".fngb");
+			if (!fngWriter.writeFngFromSheet(hand, sheet, null, fngbFile.getAbsolutePath())) {
+				return false;
+			}
+			FngbReader reader = new FngbReader(fngbFile.getAbsolutePath());
+			int capacity = Math.min(Math.max(reader.getInstructionCount(), 16), MAX_INITIAL_CAPACITY);
+			times = new int[capacity];
+			fingers = new int[capacity];
+			keyIndices = new int[capacity];
+			actions = new int[capacity];
+			numInstructions = 0;
+			maxFingerSequence = 0;
+			while (reader.next()) {
+				if (numInstructions == times.length) {
+					capacity = numInstructions * 2;
+					times = Arrays.copyOf(times, capacity);
+					fingers = Arrays.copyOf(fingers, capacity);
+					keyIndices = Arrays.copyOf(keyIndices, capacity);
+					actions = Arrays.copyOf(actions, capacity);
+				}
+				times[numInstructions] = reader.getTime();
+				fingers[numInstructions] = reader.getFingerSequence();
+				keyIndices[numInstructions] = reader.getKeyIndex();
+				actions[numInstructions] = reader.getAction();
+				++numInstructions;
+			}
+			for (int x = 0; x < hand.getNumFingers(); ++x) {
+				maxFingerSequence = Math.max(maxFingerSequence, hand.getFinger(x).getFingerSequence());
+			}
+			if (!reader.isValid()) {
+				System.out.println("ArduinoSketchWriter#loadInstructions - error - the instructions read back in failed their integrity checks");
+				return false;
+			}
+		} catch (Exception e) {
+			System.out.println("ArduinoSketchWriter#loadInstructions - error - exception caught generating the instructions: " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		} finally {
+			if (fngbFile != null) {
+				fngbFile.delete();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Splits the instructions into parts whose encoded instructions fit the budget.
+	 * Parts never split instructions that share a timestamp, and end on a moment no key is held where that keeps the part at least half full.
+	 */
+	private void splitIntoParts(int partBudget) {
+		// how many keys are held after each instruction
+		int[] numHeldAfter = new int[numInstructions];
+		boolean[] isHeld = new boolean[maxFingerSequence + 1];
+		int numHeld = 0;
+		for (int x = 0; x < numInstructions; ++x) {
+			if (actions[x] == Constants.ACTION_HIT && !isHeld[fingers[x]]) {
+				isHeld[fingers[x]] = true;
+				++numHeld;
+			} else if (actions[x] == Constants.ACTION_RELEASE && isHeld[fingers[x]]) {
+				isHeld[fingers[x]] = false;
+				--numHeld;
+			}
+			numHeldAfter[x] = numHeld;
+		}
+
+		int[] starts = new int[16];
+		int[] bytes = new int[16];
+		int[] cutShort = new int[16];
+		numParts = 0;
+		int start = 0;
+		while (start < numInstructions) {
+			int used = 0;
+			int lastGroupEnd = -1;
+			int lastGroupEndBytes = 0;
+			int lastClean = -1;
+			int lastCleanBytes = 0;
+			int end = start;
+			for (; end < numInstructions; ++end) {
+				int size = getEncodedSize(times[end] - ((end == start) ? times[start] : times[end - 1]), actions[end]);
+				if (used + size > partBudget) {
+					break;
+				}
+				used += size;
+				if (end + 1 == numInstructions || times[end + 1] != times[end]) {
+					lastGroupEnd = end;
+					lastGroupEndBytes = used;
+					if (numHeldAfter[end] == 0) {
+						lastClean = end;
+						lastCleanBytes = used;
+					}
+				}
+			}
+			int last = end - 1; // everything fit
+			if (end < numInstructions) {
+				if (lastClean != -1 && lastCleanBytes >= partBudget / 2) {
+					last = lastClean;
+					used = lastCleanBytes;
+				} else if (lastGroupEnd != -1) {
+					last = lastGroupEnd;
+					used = lastGroupEndBytes;
+				}
+			}
+
+			if (numParts == starts.length) {
+				starts = Arrays.copyOf(starts, numParts * 2);
+				bytes = Arrays.copyOf(bytes, numParts * 2);
+				cutShort = Arrays.copyOf(cutShort, numParts * 2);
+			}
+			starts[numParts] = start;
+			bytes[numParts] = used;
+			cutShort[numParts] = (last >= start && last + 1 < numInstructions) ? numHeldAfter[last] : 0;
+			++numParts;
+			start = last + 1;
+		}
+		partStarts = Arrays.copyOf(starts, numParts + 1);
+		partStarts[numParts] = numInstructions;
+		partDataBytes = Arrays.copyOf(bytes, numParts);
+		partNotesCutShort = Arrays.copyOf(cutShort, numParts);
+	}
+
+	private int getEncodedSize(int delta, int action) {
+		int value = (delta << 2) | action;
+		int size = 3; // the last varint byte, the finger byte, and the key byte
+		while ((value & ~0x7F) != 0) {
+			++size;
+			value >>>= 7;
+		}
+		return size;
+	}
+
+	private void writeHeader(File file, String songName, int part) throws Exception {
+		int first = partStarts[part];
+		int last = partStarts[part + 1] - 1;
+		int startTime = times[first];
+		int endTime = times[last];
+
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		bw.write("// Generated by ArduinoSketchWriter for the " + boardName + ". Song: " + songName + ", part " + (part + 1) + " of " + numParts + ".\n");
+		bw.write("// " + (last - first + 1) + " instructions, from " + startTime + "ms to " + endTime + "ms into the song.\n");
+		bw.write("#ifndef SONG_DATA_H\n#define SONG_DATA_H\n\n#include <avr/pgmspace.h>\n\n");
+		bw.write("#define SONG_NUM_FINGERS " + maxFingerSequence + "\n");
+		bw.write("#define SONG_NUM_INSTRUCTIONS " + (last - first + 1) + "UL\n");
+		bw.write("#define SONG_DATA_LENGTH " + partDataBytes[part] + "\n");
+		bw.write("#define SONG_START_MS " + startTime + "UL\n\n");
+
+		bw.write("// the digital pin each finger (by sequence number) is wired to, or " + NO_PIN + " for none. Change these to match the wiring.\n");
+		bw.write("const uint8_t FINGER_PINS[SONG_NUM_FINGERS + 1] PROGMEM = {\n\t" + NO_PIN);
+		for (int finger = 1; finger <= maxFingerSequence; ++finger) {
+			bw.write(((finger % BYTES_PER_LINE == 0) ? ",\n\t" : ", ") + getDefaultPin(finger));
+		}
+		bw.write("\n};\n\n");
+
+		bw.write("// instructions: a varint of (ms since the previous instruction << 2) | action (0 release, 1 hit), then the finger byte, then the key index byte\n");
+		bw.write("const uint8_t SONG_DATA[SONG_DATA_LENGTH] PROGMEM = {");
+		int numBytes = 0;
+		for (int x = first; x <= last; ++x) {
+			int value = ((times[x] - ((x == first) ? startTime : times[x - 1])) << 2) | actions[x];
+			while ((value & ~0x7F) != 0) {
+				numBytes = writeByte(bw, (value & 0x7F) | 0x80, numBytes);
+				value >>>= 7;
+			}
+			numBytes = writeByte(bw, value, numBytes);
+			numBytes = writeByte(bw, fingers[x], numBytes);
+			numBytes = writeByte(bw, keyIndices[x], numBytes);
+		}
+		bw.write("\n};\n\n#endif\n");
+		bw.close();
+	}
+
+	private int writeByte(BufferedWriter bw, int value, int numBytes) throws Exception {
+		bw.write((numBytes == 0) ? "\n\t" : ((numBytes % BYTES_PER_LINE == 0) ? ",\n\t" : ", "));
+		bw.write(String.format("0x%02X", value));
+		return numBytes + 1;
+	}
+
+	private void writeIno(File file, String songName, int part) throws Exception {
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		bw.write("// Generated by ArduinoSketchWriter for the " + boardName + ". Song: " + songName + ", part " + (part + 1) + " of " + numParts + ".\n");
+		bw.write("// Plays the instructions in song_data.h as soon as the board starts up, then lets go of every key.\n");
+		bw.write("#include \"song_data.h\"\n\n");
+		bw.write("#define ACTION_RELEASE 0\n#define ACTION_HIT 1\n#define NO_PIN " + NO_PIN + "\n\n");
+		bw.write("uint16_t dataIndex = 0;\nuint32_t nextDueMicros;\nbool hasNext = false;\nbool isDone = false;\nuint8_t nextAction;\nuint8_t nextFinger;\nuint8_t nextKey;\n\n");
+
+		bw.write("void setFinger(uint8_t finger, uint8_t state) {\n");
+		bw.write("\tuint8_t pin = pgm_read_byte(&FINGER_PINS[finger]);\n");
+		bw.write("\tif (pin != NO_PIN) {\n\t\tdigitalWrite(pin, state);\n\t}\n}\n\n");
+
+		bw.write("// reads the next instruction out of flash, and schedules it relative to the one before it\n");
+		bw.write("void readNext() {\n");
+		bw.write("\tif (dataIndex >= SONG_DATA_LENGTH) {\n\t\thasNext = false;\n\t\treturn;\n\t}\n");
+		bw.write("\tuint32_t value = 0;\n\tuint8_t shift = 0;\n\tuint8_t b;\n");
+		bw.write("\tdo {\n\t\tb = pgm_read_byte(&SONG_DATA[dataIndex++]);\n\t\tvalue |= (uint32_t)(b & 0x7F) << shift;\n\t\tshift += 7;\n\t} while (b & 0x80);\n");
+		bw.write("\tnextAction = value & 0x3;\n");
+		bw.write("\tnextFinger = pgm_read_byte(&SONG_DATA[dataIndex++]);\n");
+		bw.write("\tnextKey = pgm_read_byte(&SONG_DATA[dataIndex++]);\n");
+		bw.write("\tnextDueMicros += (value >> 2) * 1000UL;\n");
+		bw.write("\thasNext = true;\n}\n\n");
+
+		bw.write("void setup() {\n");
+		bw.write("\tfor (uint8_t finger = 1; finger <= SONG_NUM_FINGERS; ++finger) {\n");
+		bw.write("\t\tuint8_t pin = pgm_read_byte(&FINGER_PINS[finger]);\n");
+		bw.write("\t\tif (pin != NO_PIN) {\n\t\t\tpinMode(pin, OUTPUT);\n\t\t\tdigitalWrite(pin, LOW);\n\t\t}\n\t}\n");
+		bw.write("\tnextDueMicros = micros();\n\treadNext();\n}\n\n");
+
+		bw.write("void loop() {\n");
+		bw.write("\t// the difference is compared as signed, so this keeps working when micros() wraps around (every ~70 minutes)\n");
+		bw.write("\twhile (hasNext && (int32_t)(micros() - nextDueMicros) >= 0) {\n");
+		bw.write("\t\tsetFinger(nextFinger, (nextAction == ACTION_HIT) ? HIGH : LOW);\n");
+		bw.write("\t\treadNext();\n\t}\n");
+		bw.write("\tif (!hasNext && !isDone) {\n");
+		bw.write("\t\tfor (uint8_t finger = 1; finger <= SONG_NUM_FINGERS; ++finger) {\n\t\t\tsetFinger(finger, LOW);\n\t\t}\n");
+		bw.write("\t\tisDone = true;\n\t}\n}\n");
+		bw.close();
+	}
+
+	/**
+	 * @return the pin the finger is wired to by default, or NO_PIN if the board has run out of pins
+	 */
+	private int getDefaultPin(int fingerSequence) {
+		int pin = FIRST_FINGER_PIN + fingerSequence - 1;
+		return (pin < numPins) ? pin : NO_PIN;
+	}
+
+	/**
+	 * @return the number of sketches the song was split into
+	 */
+	public int getNumParts() {
+		return numParts;
+	}
+
+	/**
+	 * @return the number of instructions in the part
+	 */
+	public int getPartNumInstructions(int part) {
+		return partStarts[part + 1] - partStarts[part];
+	}
+
+	/**
+	 * @return the size of the part's instruction table, in bytes
+	 */
+	public int getPartDataBytes(int part) {
+		return partDataBytes[part];
+	}
+
+	/**
+	 * @return the estimated flash the part's sketch uses, in bytes
+	 */
+	public int getPartFlashEstimate(int part) {
+		return SKETCH_CODE_BYTES + maxFingerSequence + 1 + partDataBytes[part];
+	}
+
+	/**
+	 * @return the estimated ram the part's sketch uses, in bytes. The tables are all in flash, so this is the same for every part.
+	 */
+	public int getRamEstimate() {
+		return SKETCH_RAM_BYTES;
+	}
+
+	/**
+	 * @return the number of notes still held when the part ends, which get let go of early
+	 */
+	public int getPartNotesCutShort(int part) {
+		return partNotesCutShort[part];
+	}
+
+	/**
+	 * @return the number of fingers that didn't get a pin, since the board ran out
+	 */
+	public int getNumUnwiredFingers() {
+		return Math.max(0, maxFingerSequence - (numPins - FIRST_FINGER_PIN));
+	}
+
+	/**
+	 * @return the song time (in ms) that the part starts at
+	 */
+	public int getPartStartTime(int part) {
+		return times[partStarts[part]];
+	}
+
+	/**
+	 * @return a line for each part with its flash and ram estimates against the board, and any warnings
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		for (int part = 0; part < numParts; ++part) {
+			int flash = getPartFlashEstimate(part);
+			report.append("part " + (part + 1) + " of " + numParts + ": " + getPartNumInstructions(part) + " instructions from " + getPartStartTime(part) + "ms | flash ~" + flash + " of " +
+						  flashBytes + " bytes (" + (100L * flash / flashBytes) + "%) | ram ~" + getRamEstimate() + " of " + ramBytes + " bytes (" + (100L * getRamEstimate() / ramBytes) + "%)");
+			if (partNotesCutShort[part] > 0) {
+				report.append(" | " + partNotesCutShort[part] + " notes cut short at the end of the part");
+			}
+			report.append("\n");
+		}
+		if (getNumUnwiredFingers() > 0) {
+			report.append("warning - the " + boardName + " only has pins for " + (numPins - FIRST_FINGER_PIN) + " fingers, so " + getNumUnwiredFingers() + " fingers have no pin\n");
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,391 @@
+package Processors;
+
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Software mixer that plays notes out of a SampleBank through a single SourceDataLine.
+ *
+ * Instead of a Clip (and its own line and threads) per note, every note that is sounding is a "voice" that the mixer adds into one fixed-size buffer,
+ * which is written out to the line, over and over, by the mixer's own thread. Starting a note (noteOn) just queues it up for the next buffer,
+ * so it can be called from the playback thread without holding it up.
+ *
+ * The number of voices is bounded. When a note is struck with every voice in use, the voice that has been sounding the longest is stolen for it.
+ * Striking a key that is already sounding restarts that key's voice, the same way re-striking a piano key would.
+ *
+ * Latency from noteOn to the note actually coming out of the line is measured for every note: the time it took the note to be mixed into a buffer,
+ * plus how much audio was already queued up in the line ahead of that buffer (from the line's reported playback position).
+ */
+public class AudioMixer {
+	public static final int DEFAULT_MAX_VOICES = 32;
+	public static final int BUFFER_FRAMES = 512; // ~11.6ms per buffer at 44.1khz
+	private static final int LINE_BUFFERS = 4; // how many buffers the line itself can hold ahead of what is playing
+
+	private SampleBank bank;
+	private int maxVoices;
+
+	// voices - parallel arrays, only touched by the mixing thread
+	private short[][] voiceSamples; // null if the voice is free
+	private int[] voiceKeys;
+	private int[] voicePositions; // next sample (not frame) to mix
+	private long[] voiceStartOrder;
+	private long nextStartOrder;
+	private int numVoicesStolen;
+
+	// note-ons waiting for the next buffer, handed from noteOn() to the mixing thread
+	private final Object pendingLock = new Object();
+	private int[] pendingKeys;
+	private long[] pendingNanos;
+	private int[] pendingOffsets; // sample (not frame) to start the note from
+	private int numPending;
+	private int[] takenKeys; // swapped with the pending arrays by the mixing thread, so nothing is allocated per buffer
+	private long[] takenNanos;
+	private int[] takenOffsets;
+	private int numDropped;
+	private boolean isCutPending; // all notes off, before any of the pending note-ons are started
+	private long cutNanos;
+
+	private int[] mixBuffer;
+	private byte[] outBuffer;
+
+	// latency measurements
+	private long framesWritten;
+	private int numLatencies;
+	private long totalLatencyNanos;
+	private long maxLatencyNanos;
+	private int numCuts;
+	private long totalCutLatencyNanos;
+	private long maxCutLatencyNanos;
+
+	private SourceDataLine line;
+	private Thread thread;
+	private volatile boolean isStopped;
+
+	/**
+	 * @param bank samples to play notes with
+	 * @param maxVoices the most notes that can sound at once
+	 */
+	public AudioMixer(SampleBank bank, int maxVoices) {
+		this.bank = bank;
+		this.maxVoices = maxVoices;
+		voiceSamples = new short[maxVoices][];
+		voiceKeys = new int[maxVoices];
+		voicePositions = new int[maxVoices];
+		voiceStartOrder = new long[maxVoices];
+		nextStartOrder = 0;
+		pendingKeys = new int[maxVoices * 4];
+		pendingNanos = new long[maxVoices * 4];
+		pendingOffsets = new int[maxVoices * 4];
+		numPending = 0;
+		takenKeys = new int[maxVoices * 4];
+		takenNanos = new long[maxVoices * 4];
+		takenOffsets = new int[maxVoices * 4];
+		mixBuffer = new int[BUFFER_FRAMES * SampleBank.CHANNELS];
+		outBuffer = new byte[BUFFER_FRAMES * SampleBank.CHANNELS * 2];
+	}
+
+	/**
+	 * Opens the default output line and starts mixing into it on a new thread
+	 * @return true if the line was opened, false otherwise (such as a machine without any audio output)
+	 */
+	public boolean start() {
+		try {
+			line = AudioSystem.getSourceDataLine(SampleBank.FORMAT);
+			line.open(SampleBank.FORMAT, outBuffer.length * LINE_BUFFERS);
+			line.start();
+		} catch (Exception e) {
+			System.out.println("AudioMixer#start - error - exception caught opening the audio line: " + e.getMessage());
+			line = null;
+			return false;
+		}
+
+		isStopped = false;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!isStopped) {
+					mixBuffer();
+					line.write(outBuffer, 0, outBuffer.length); // blocks until the line has room, which is what paces the mixer
+					framesWritten += BUFFER_FRAMES;
+				}
+				line.drain();
+				line.close();
+			}
+		}, "AudioMixer");
+		thread.start();
+		return true;
+	}
+
+	/**
+	 * Stops mixing, and closes the line once what has already been written to it finishes playing
+	 */
+	public void stop() {
+		isStopped = true;
+		try {
+			if (thread != null) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Strikes a note. It will start sounding at the beginning of the next buffer. Safe to call from any thread.
+	 * @param keyIndex key index of the note to play
+	 * @return false if the bank has no sample for the key (or too many notes were struck at once to queue up), true otherwise
+	 */
+	public boolean noteOn(int keyIndex) {
+		return noteOn(keyIndex, 0);
+	}
+
+	/**
+	 * Strikes a note part way through, as if it had been struck the given time ago (such as a note that is still held at a point in the song that was jumped to).
+	 * It will start sounding at the beginning of the next buffer. Safe to call from any thread.
+	 * @param keyIndex key index of the note to play
+	 * @param offsetMs how far into the note's sample to start, in milliseconds. If the sample is shorter than that, nothing is played.
+	 * @return false if the bank has no sample for the key (or too many notes were struck at once to queue up), true otherwise
+	 */
+	public boolean noteOn(int keyIndex, int offsetMs) {
+		if (bank.getSamples(keyIndex) == null) {
+			System.out.println("AudioMixer#noteOn - error - no sample loaded for key index " + keyIndex + " in voice " + bank.getVoice());
+			return false;
+		}
+		synchronized (pendingLock) {
+			if (numPending == pendingKeys.length) {
+				++numDropped;
+				return false;
+			}
+			pendingKeys[numPending] = keyIndex;
+			pendingNanos[numPending] = System.nanoTime();
+			pendingOffsets[numPending] = (int)(Math.max(offsetMs, 0) * (long)SampleBank.SAMPLE_RATE / 1000) * SampleBank.CHANNELS;
+			++numPending;
+		}
+		return true;
+	}
+
+	/**
+	 * Silences every note that is sounding (and any that were struck but haven't started yet), as of the start of the next buffer.
+	 * Notes struck after this is called still play. Safe to call from any thread.
+	 */
+	public void allNotesOff() {
+		allNotesOff(System.nanoTime());
+	}
+
+	/**
+	 * Silences every note that is sounding, the same as allNotesOff(), but times how long it takes for the silence to be heard from the given time
+	 * (such as when a seek was asked for), rather than from now. Safe to call from any thread.
+	 * @param requestNanos the System.nanoTime to time the cut from
+	 */
+	public void allNotesOff(long requestNanos) {
+		synchronized (pendingLock) {
+			numPending = 0;
+			isCutPending = true;
+			cutNanos = requestNanos;
+		}
+	}
+
+	/**
+	 * Mixes the next BUFFER_FRAMES frames of every sounding voice into the output buffer.
+	 * Called by the mixing thread, or directly (along with getOutputBuffer) to mix without an audio line.
+	 */
+	public void mixBuffer() {
+		startPendingVoices();
+
+		Arrays.fill(mixBuffer, 0);
+		for (int voice = 0; voice < maxVoices; ++voice) {
+			short[] samples = voiceSamples[voice];
+			if (samples == null) {
+				continue;
+			}
+			int pos = voicePositions[voice];
+			int count = Math.min(mixBuffer.length, samples.length - pos);
+			for (int x = 0; x < count; ++x) {
+				mixBuffer[x] += samples[pos + x];
+			}
+			voicePositions[voice] = pos + count;
+			if (voicePositions[voice] >= samples.length) {
+				voiceSamples[voice] = null; // finished
+			}
+		}
+
+		// clamp back down to 16 bits, little-endian
+		for (int x = 0; x < mixBuffer.length; ++x) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[x]));
+			outBuffer[x * 2] = (byte)sample;
+			outBuffer[x * 2 + 1] = (byte)(sample >> 8);
+		}
+	}
+
+	/**
+	 * Handles a pending all notes off, then moves the queued note-ons into voices, stealing voices if needed, and records their latency
+	 */
+	private void startPendingVoices() {
+		int[] keys = takenKeys;
+		long[] nanos = takenNanos;
+		int[] offsets = takenOffsets;
+		int count;
+		boolean isCut;
+		long cutRequestNanos;
+		synchronized (pendingLock) {
+			if (numPending == 0 && !isCutPending) {
+				return;
+			}
+			isCut = isCutPending;
+			cutRequestNanos = cutNanos;
+			isCutPending = false;
+			count = numPending;
+			takenKeys = pendingKeys;
+			takenNanos = pendingNanos;
+			takenOffsets = pendingOffsets;
+			pendingKeys = keys;
+			pendingNanos = nanos;
+			pendingOffsets = offsets;
+			keys = takenKeys;
+			nanos = takenNanos;
+			offsets = takenOffsets;
+			numPending = 0;
+		}
+
+		// once this buffer is written, it plays after whatever the line already has queued up
+		long queuedNanos = 0;
+		if (line != null) {
+			long queuedFrames = Math.max(0, framesWritten - line.getLongFramePosition());
+			queuedNanos = (long)(queuedFrames * 1000000000L / SampleBank.SAMPLE_RATE);
+		}
+		long now = System.nanoTime();
+
+		if (isCut) {
+			Arrays.fill(voiceSamples, null);
+			long latency = (now - cutRequestNanos) + queuedNanos;
+			++numCuts;
+			totalCutLatencyNanos += latency;
+			maxCutLatencyNanos = Math.max(maxCutLatencyNanos, latency);
+		}
+
+		for (int x = 0; x < count; ++x) {
+			short[] samples = bank.getSamples(keys[x]);
+			if (offsets[x] >= samples.length) {
+				continue; // struck so long ago that it would have already finished sounding
+			}
+			int voice = findVoice(keys[x]);
+			voiceSamples[voice] = samples;
+			voiceKeys[voice] = keys[x];
+			voicePositions[voice] = offsets[x];
+			voiceStartOrder[voice] = nextStartOrder++;
+
+			long latency = (now - nanos[x]) + queuedNanos;
+			++numLatencies;
+			totalLatencyNanos += latency;
+			maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+		}
+	}
+
+	/**
+	 * @return the voice to play the key with: the key's own voice if it is still sounding, otherwise a free voice, otherwise the oldest voice (which is stolen)
+	 */
+	private int findVoice(int keyIndex) {
+		int free = -1;
+		int oldest = 0;
+		for (int voice = 0; voice < maxVoices; ++voice) {
+			if (voiceSamples[voice] == null) {
+				if (free == -1) {
+					free = voice;
+				}
+			} else if (voiceKeys[voice] == keyIndex) {
+				return voice;
+			} else if (voiceStartOrder[voice] < voiceStartOrder[oldest]) {
+				oldest = voice;
+			}
+		}
+		if (free != -1) {
+			return free;
+		}
+		++numVoicesStolen;
+		return oldest;
+	}
+
+	/**
+	 * @return the most recently mixed buffer, as 16-bit little-endian stereo PCM (BUFFER_FRAMES frames)
+	 */
+	public byte[] getOutputBuffer() {
+		return outBuffer;
+	}
+
+	/**
+	 * @return the number of voices currently sounding. Only accurate from the mixing thread, or while no line is running.
+	 */
+	public int getNumActiveVoices() {
+		int active = 0;
+		for (int voice = 0; voice < maxVoices; ++voice) {
+			if (voiceSamples[voice] != null) {
+				++active;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * @return the number of times a sounding voice was cut off to play a new note
+	 */
+	public int getNumVoicesStolen() {
+		return numVoicesStolen;
+	}
+
+	/**
+	 * @return the number of note-ons that were thrown out because too many were queued up at once
+	 */
+	public int getNumDropped() {
+		return numDropped;
+	}
+
+	/**
+	 * @return the average note-on-to-audio latency, in nanoseconds
+	 */
+	public long getMeanLatencyNanos() {
+		return (numLatencies == 0) ? 0 : totalLatencyNanos / numLatencies;
+	}
+
+	/**
+	 * @return the worst note-on-to-audio latency, in nanoseconds
+	 */
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos;
+	}
+
+	/**
+	 * @return the number of times all notes were turned off
+	 */
+	public int getNumCuts() {
+		return numCuts;
+	}
+
+	/**
+	 * @return the average time from all notes off being asked for until it is heard (mixed into the next buffer, plus whatever the line already had queued up ahead of it), in nanoseconds
+	 */
+	public long getMeanCutLatencyNanos() {
+		return (numCuts == 0) ? 0 : totalCutLatencyNanos / numCuts;
+	}
+
+	/**
+	 * @return the longest time from all notes off being asked for until it is heard, in nanoseconds
+	 */
+	public long getMaxCutLatencyNanos() {
+		return maxCutLatencyNanos;
+	}
+
+	/**
+	 * @return a one line summary of the latency measurements and voice usage, for logging
+	 */
+	public String getLatencySummary() {
+		return "notes played: " + numLatencies +
+			   ", mean note-on latency: " + String.format("%.3f", getMeanLatencyNanos() / 1000000.0) + "ms" +
+			   ", max note-on latency: " + String.format("%.3f", getMaxLatencyNanos() / 1000000.0) + "ms" +
+			   ", voices stolen: " + numVoicesStolen + ", notes dropped: " + numDropped +
+			   ((numCuts == 0) ? "" : ", all notes off: " + numCuts +
+									  ", mean all notes off latency: " + String.format("%.3f", totalCutLatencyNanos / numCuts / 1000000.0) + "ms" +
+									  ", max all notes off latency: " + String.format("%.3f", maxCutLatencyNanos / 1000000.0) + "ms");
+	}
+}
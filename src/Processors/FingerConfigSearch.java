@@ -0,0 +1,225 @@
+package Processors;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import DataObjs.MusicSheet;
+
+/**
+ * Runs the SlidingFingerPlanner on one song for every combination of a range of finger counts and slide speeds, to find out what hardware it would take to play the song well.
+ * (This is the "Finger Reducer" from the piano bot notes: rather than brute-forcing one finger count at a time until it fails, every count is planned and compared.)
+ *
+ * Every combination is planned independently, so they're spread over a ForkJoinPool. Each plan only reads the MusicSheet, and each result lands in its own slot,
+ * so nothing has to be locked, and the results are the same no matter how many threads are used.
+ *
+ * The results that are worth buying are the Pareto frontier: a configuration is on it unless some other configuration needs no more fingers, slides no faster,
+ * and plays the song at least as well (no more unplayable notes and no more lost hold time), while being strictly better in at least one of those.
+ * Travel is reported, but isn't part of the frontier, since it is wear on the hardware rather than something the listener hears.
+ */
+public class FingerConfigSearch {
+	private static final int CONFIGS_PER_TASK = 1; // every plan is big enough to be worth its own task
+
+	private MusicSheet sheet;
+	private int minKeyIndex;
+	private int maxKeyIndex;
+	private int numConfigs;
+	private int[] configFingers;
+	private double[] configSpeeds;
+	private int[] unplayable;
+	private long[] lostHoldTimes;
+	private long[] travels;
+	private long[] planNanos;
+	private boolean[] isOnFrontier;
+	private int numNotes;
+
+	/**
+	 * @param sheet MusicSheet to plan for
+	 * @param minKeyIndex key index of the leftmost key on the piano
+	 * @param maxKeyIndex key index of the rightmost key on the piano
+	 * @param fingerCounts every number of fingers to try
+	 * @param keysPerMsSpeeds every slide speed to try, in keys per millisecond
+	 */
+	public FingerConfigSearch(MusicSheet sheet, int minKeyIndex, int maxKeyIndex, int[] fingerCounts, double[] keysPerMsSpeeds) {
+		this.sheet = sheet;
+		this.minKeyIndex = minKeyIndex;
+		this.maxKeyIndex = maxKeyIndex;
+		numConfigs = fingerCounts.length * keysPerMsSpeeds.length;
+		configFingers = new int[numConfigs];
+		configSpeeds = new double[numConfigs];
+		for (int x = 0; x < fingerCounts.length; ++x) {
+			for (int y = 0; y < keysPerMsSpeeds.length; ++y) {
+				configFingers[x * keysPerMsSpeeds.length + y] = fingerCounts[x];
+				configSpeeds[x * keysPerMsSpeeds.length + y] = keysPerMsSpeeds[y];
+			}
+		}
+		unplayable = new int[numConfigs];
+		lostHoldTimes = new long[numConfigs];
+		travels = new long[numConfigs];
+		planNanos = new long[numConfigs];
+		isOnFrontier = new boolean[numConfigs];
+	}
+
+	/**
+	 * Plans every configuration, then works out the frontier
+	 * @param numThreads number of threads to plan on
+	 * @return true if every configuration was planned, false otherwise
+	 */
+	public boolean run(int numThreads) {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numThreads));
+		try {
+			pool.invoke(new PlanTask(0, numConfigs));
+		} catch (Exception e) {
+			System.out.println("FingerConfigSearch#run - error - exception caught planning configurations: " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		} finally {
+			pool.shutdown();
+		}
+		findFrontier();
+		return true;
+	}
+
+	/**
+	 * Plans the configurations [from, to), splitting the range in half until each task is small enough to just do
+	 */
+	private class PlanTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		PlanTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CONFIGS_PER_TASK) {
+				for (int config = from; config < to; ++config) {
+					plan(config);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new PlanTask(from, mid), new PlanTask(mid, to));
+			}
+		}
+	}
+
+	private void plan(int config) {
+		long start = System.nanoTime();
+		SlidingFingerPlanner planner = new SlidingFingerPlanner(sheet, configFingers[config], minKeyIndex, maxKeyIndex, configSpeeds[config]);
+		planNanos[config] = System.nanoTime() - start;
+		unplayable[config] = planner.getNumUnplayable();
+		lostHoldTimes[config] = planner.getLostHoldTime();
+		travels[config] = planner.getTravel();
+		numNotes = planner.getNumNotes();
+	}
+
+	private void findFrontier() {
+		for (int config = 0; config < numConfigs; ++config) {
+			isOnFrontier[config] = true;
+			for (int other = 0; other < numConfigs && isOnFrontier[config]; ++other) {
+				if (dominates(other, config)) {
+					isOnFrontier[config] = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if config a is at least as good as config b in every way, and strictly better in at least one
+	 */
+	private boolean dominates(int a, int b) {
+		boolean isNoWorse = configFingers[a] <= configFingers[b] && configSpeeds[a] <= configSpeeds[b] &&
+							unplayable[a] <= unplayable[b] && lostHoldTimes[a] <= lostHoldTimes[b];
+		boolean isBetter = configFingers[a] < configFingers[b] || configSpeeds[a] < configSpeeds[b] ||
+						   unplayable[a] < unplayable[b] || lostHoldTimes[a] < lostHoldTimes[b];
+		return isNoWorse && isBetter;
+	}
+
+	/**
+	 * @return the number of configurations searched (every finger count with every speed)
+	 */
+	public int getNumConfigs() {
+		return numConfigs;
+	}
+
+	/**
+	 * @param config index of the configuration. Configurations are ordered by finger count, then by speed, in the order they were given.
+	 * @return the number of fingers in the configuration
+	 */
+	public int getFingers(int config) {
+		return configFingers[config];
+	}
+
+	/**
+	 * @param config index of the configuration
+	 * @return the slide speed of the configuration, in keys per millisecond
+	 */
+	public double getKeysPerMs(int config) {
+		return configSpeeds[config];
+	}
+
+	/**
+	 * @param config index of the configuration
+	 * @return the number of notes the configuration can't play
+	 */
+	public int getNumUnplayable(int config) {
+		return unplayable[config];
+	}
+
+	/**
+	 * @param config index of the configuration
+	 * @return the total time, in milliseconds, cut off of notes by fingers sliding away early
+	 */
+	public long getLostHoldTime(int config) {
+		return lostHoldTimes[config];
+	}
+
+	/**
+	 * @param config index of the configuration
+	 * @return the total number of keys slid over
+	 */
+	public long getTravel(int config) {
+		return travels[config];
+	}
+
+	/**
+	 * @param config index of the configuration
+	 * @return how long planning the configuration took, in nanoseconds
+	 */
+	public long getPlanNanos(int config) {
+		return planNanos[config];
+	}
+
+	/**
+	 * @param config index of the configuration
+	 * @return true if no other configuration is at least as cheap and plays at least as well
+	 */
+	public boolean isOnFrontier(int config) {
+		return isOnFrontier[config];
+	}
+
+	/**
+	 * @return a table of every configuration, with the ones on the frontier marked, followed by the frontier on its own
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append("fingers | keys/ms | unplayable notes (of " + numNotes + ") | lost hold ms | keys slid | plan ms | on frontier\n");
+		for (int config = 0; config < numConfigs; ++config) {
+			appendConfig(report, config);
+		}
+		report.append("\nPareto frontier (fewest fingers and slowest slides for how well the song plays):\n");
+		for (int config = 0; config < numConfigs; ++config) {
+			if (isOnFrontier[config]) {
+				appendConfig(report, config);
+			}
+		}
+		return report.toString();
+	}
+
+	private void appendConfig(StringBuilder report, int config) {
+		report.append(configFingers[config] + " | " + configSpeeds[config] + " | " + unplayable[config] + " | " + lostHoldTimes[config] + " | " + travels[config] + " | " +
+					  (planNanos[config] / 1000000) + " | " + (isOnFrontier[config] ? "*" : "") + "\n");
+	}
+}
@@ -0,0 +1,569 @@
+package Processors;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import DataObjs.FingerPowerModel;
+import DataObjs.MusicSheet;
+import Utils.Constants;
+
+/**
+ * Runs a song's instructions through a FingerPowerModel, to find out how much current the fingers draw, and whether any finger runs hot.
+ * This answers the question AlcStatsUtils#getMaxSimulHitsAndHolds leaves open (does holding a key cost power?) for whatever model of finger is given, rather than just counting fingers.
+ *
+ * For the song as a whole, it measures the peak current drawn by every finger at once (and when), the average current and total charge,
+ * and if a supply budget is set, how long and how often the fingers draw more than the supply can give.
+ * For each finger, it measures its duty cycle (the share of the song it draws current, and the share it holds a key down),
+ * and its thermal load over time, recording every stretch of time the finger is over its thermal limit (a hotspot).
+ *
+ * The current only changes when an instruction happens or a pulse ends, so the song is swept one change at a time, in order:
+ * instructions come in order from the source, and since every pulse of a kind is the same length, pulses end in the order they started, so each kind just needs a queue.
+ * Between changes the current is constant, so a finger's thermal load can be moved forward exactly, however long the gap is. The whole sweep is linear in the number of instructions.
+ */
+public class FingerPowerSimulator {
+	public static final double THERMAL_LIMIT = 1.0;
+	private static final int MAX_HOTSPOTS_REPORTED = 10;
+	private static final int MAX_FINGERS_REPORTED = 5;
+
+	// what a finger is doing besides holding (or not holding) a key
+	private static final int PULSE_NONE = 0;
+	private static final int PULSE_HIT = 1;
+	private static final int PULSE_RELEASE = 2;
+	private static final int PULSE_SLIDE = 3;
+
+	private FingerPowerModel model;
+	private int supplyBudgetMa;
+
+	// each finger's state, indexed by finger sequence number
+	private int numFingers;
+	private boolean[] isHeld;
+	private int[] pulse;
+	private int[] pulseEnd;
+	private int[] currentMa;
+	private int[] lastUpdate;
+	private double[] thermalLoad;
+	private int[] hotSince; // when the finger went over its thermal limit, or -1 if it isn't
+	private double[] hotPeak;
+
+	// each finger's results
+	private long[] energizedMs;
+	private long[] heldMs;
+	private int[] numHits;
+	private double[] peakLoad;
+	private int[] peakLoadTime;
+	private long[] msOverLimit;
+
+	// every hotspot
+	private int numHotspots;
+	private int[] hotspotFingers;
+	private int[] hotspotStarts;
+	private int[] hotspotEnds;
+	private double[] hotspotPeaks;
+
+	// the whole song's results
+	private int totalCurrentMa;
+	private int lastTotalTime;
+	private int peakCurrentMa;
+	private int peakCurrentTime;
+	private long chargeMaMs;
+	private int overBudgetSince;
+	private long msOverBudget;
+	private int numBudgetOverruns;
+	private int endTime;
+	private int numInstructions;
+
+	/**
+	 * @param model how much current the fingers draw, and how they heat up
+	 */
+	public FingerPowerSimulator(FingerPowerModel model) {
+		this.model = model;
+		this.supplyBudgetMa = 0;
+	}
+
+	/**
+	 * @param supplyBudgetMa the most current the power supply can give, in mA, or 0 for no budget. Applies to the next song simulated.
+	 */
+	public void setSupplyBudgetMa(int supplyBudgetMa) {
+		this.supplyBudgetMa = Math.max(supplyBudgetMa, 0);
+	}
+
+	/**
+	 * Simulates a MusicSheet, by running it through the given FngWriter (so any ReleaseGapPass set on it is applied, the same as for the arduino) and simulating the instructions
+	 * @param writer writer to generate the instructions with
+	 * @param hand hand object containing information regarding all robotic fingers' locations
+	 * @param sheet music sheet to simulate
+	 * @return true if the song was simulated, false otherwise
+	 */
+	public boolean simulate(FngWriter writer, Hand hand, MusicSheet sheet) {
+		File fngbFile = null;
+		try {
+			fngbFile = File.createTempFile("FingerPowerSimulator", ".fngb");
+			if (!writer.writeFngFromSheet(hand, sheet, null, fngbFile.getAbsolutePath())) {
+				return false;
+			}
+			return simulate(new FngbReader(fngbFile.getAbsolutePath()));
+		} catch (Exception e) {
+			System.out.println("FingerPowerSimulator#simulate - error - exception caught generating the instructions: " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		} finally {
+			if (fngbFile != null) {
+				fngbFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Simulates the instructions in a .fng or .fngb file
+	 * @param source instructions to simulate. Every instruction is read, which closes the source.
+	 * @return true if every instruction was read and simulated, false if the source was damaged (the results up to that point are still available)
+	 */
+	public boolean simulate(FngInstructionSource source) {
+		reset();
+		PulseQueue hitEnds = new PulseQueue();
+		PulseQueue releaseEnds = new PulseQueue();
+		PulseQueue slideEnds = new PulseQueue();
+
+		boolean hasInstruction = source.next();
+		int time = 0;
+		while (hasInstruction || !hitEnds.isEmpty() || !releaseEnds.isEmpty() || !slideEnds.isEmpty()) {
+			time = Integer.MAX_VALUE;
+			if (hasInstruction) {
+				time = source.getTime();
+			}
+			time = Math.min(time, Math.min(hitEnds.peekTime(), Math.min(releaseEnds.peekTime(), slideEnds.peekTime())));
+			accumulateTotals(time);
+
+			// pulses ending now finish before any instruction at the same time starts a new one
+			endPulses(hitEnds, time);
+			endPulses(releaseEnds, time);
+			endPulses(slideEnds, time);
+
+			while (hasInstruction && source.getTime() == time) {
+				int finger = source.getFingerSequence();
+				ensureFinger(finger);
+				advanceFinger(finger, time);
+				int action = source.getAction();
+				if (action == Constants.ACTION_HIT) {
+					isHeld[finger] = true;
+					++numHits[finger];
+					startPulse(finger, time, PULSE_HIT, model.getHitPulseMs(), hitEnds);
+				} else if (action == Constants.ACTION_RELEASE) {
+					isHeld[finger] = false;
+					startPulse(finger, time, PULSE_RELEASE, model.getReleasePulseMs(), releaseEnds);
+				} else {
+					startPulse(finger, time, PULSE_SLIDE, model.getSlidePulseMs(), slideEnds);
+				}
+				updateCurrent(finger);
+				++numInstructions;
+				hasInstruction = source.next();
+			}
+			recordTotals(time);
+		}
+
+		endTime = time;
+		accumulateTotals(endTime);
+		for (int finger = 0; finger < numFingers; ++finger) {
+			advanceFinger(finger, endTime);
+			if (hotSince[finger] != -1) {
+				recordHotspot(finger, hotSince[finger], endTime, hotPeak[finger]);
+			}
+		}
+		if (overBudgetSince != -1) {
+			msOverBudget += endTime - overBudgetSince;
+		}
+		return source.isValid();
+	}
+
+	private void reset() {
+		numFingers = 0;
+		isHeld = new boolean[0];
+		pulse = new int[0];
+		pulseEnd = new int[0];
+		currentMa = new int[0];
+		lastUpdate = new int[0];
+		thermalLoad = new double[0];
+		hotSince = new int[0];
+		hotPeak = new double[0];
+		energizedMs = new long[0];
+		heldMs = new long[0];
+		numHits = new int[0];
+		peakLoad = new double[0];
+		peakLoadTime = new int[0];
+		msOverLimit = new long[0];
+		numHotspots = 0;
+		hotspotFingers = new int[16];
+		hotspotStarts = new int[16];
+		hotspotEnds = new int[16];
+		hotspotPeaks = new double[16];
+		totalCurrentMa = 0;
+		lastTotalTime = 0;
+		peakCurrentMa = 0;
+		peakCurrentTime = 0;
+		chargeMaMs = 0;
+		overBudgetSince = -1;
+		msOverBudget = 0;
+		numBudgetOverruns = 0;
+		endTime = 0;
+		numInstructions = 0;
+	}
+
+	private void startPulse(int finger, int time, int kind, int pulseMs, PulseQueue ends) {
+		if (pulseMs > 0) {
+			pulse[finger] = kind;
+			pulseEnd[finger] = time + pulseMs;
+			ends.add(time + pulseMs, finger);
+		} else {
+			pulse[finger] = PULSE_NONE;
+		}
+	}
+
+	private void endPulses(PulseQueue ends, int time) {
+		while (!ends.isEmpty() && ends.peekTime() == time) {
+			int finger = ends.pollFinger();
+			// a finger that started another pulse since this one has moved on
+			if (pulse[finger] != PULSE_NONE && pulseEnd[finger] == time) {
+				advanceFinger(finger, time);
+				pulse[finger] = PULSE_NONE;
+				updateCurrent(finger);
+			}
+		}
+	}
+
+	private void updateCurrent(int finger) {
+		int current;
+		if (pulse[finger] == PULSE_HIT) {
+			current = model.getHitCurrentMa();
+		} else if (pulse[finger] == PULSE_RELEASE) {
+			current = model.getReleaseCurrentMa();
+		} else if (pulse[finger] == PULSE_SLIDE) {
+			current = model.getSlideCurrentMa();
+		} else {
+			current = isHeld[finger] ? model.getHoldCurrentMa() : 0;
+		}
+		totalCurrentMa += current - currentMa[finger];
+		currentMa[finger] = current;
+	}
+
+	/**
+	 * Moves a finger's measurements forward to the given time, at the current it has been drawing since it was last moved forward
+	 */
+	private void advanceFinger(int finger, int time) {
+		int elapsed = time - lastUpdate[finger];
+		if (elapsed <= 0) {
+			return;
+		}
+		if (currentMa[finger] > 0) {
+			energizedMs[finger] += elapsed;
+		}
+		if (isHeld[finger]) {
+			heldMs[finger] += elapsed;
+		}
+
+		// the load heads towards where it would settle at this current, closing the gap by a factor of e every time constant
+		double ratio = (double)currentMa[finger] / model.getRatedCurrentMa();
+		double target = ratio * ratio;
+		double start = thermalLoad[finger];
+		double end = target + (start - target) * Math.exp(-(double)elapsed / model.getThermalTimeConstantMs());
+		if (start <= THERMAL_LIMIT && end > THERMAL_LIMIT) {
+			hotSince[finger] = lastUpdate[finger] + getCrossingMs(start, target);
+			hotPeak[finger] = end;
+		} else if (start > THERMAL_LIMIT && end <= THERMAL_LIMIT) {
+			recordHotspot(finger, hotSince[finger], lastUpdate[finger] + getCrossingMs(start, target), hotPeak[finger]);
+			hotSince[finger] = -1;
+		} else if (end > THERMAL_LIMIT) {
+			hotPeak[finger] = Math.max(hotPeak[finger], end);
+		}
+		if (end > peakLoad[finger]) {
+			peakLoad[finger] = end;
+			peakLoadTime[finger] = time;
+		}
+		thermalLoad[finger] = end;
+		lastUpdate[finger] = time;
+	}
+
+	/**
+	 * @return how long after starting at the given load, heading towards the target, the load crosses the thermal limit
+	 */
+	private int getCrossingMs(double start, double target) {
+		return (int)Math.round(model.getThermalTimeConstantMs() * Math.log((start - target) / (THERMAL_LIMIT - target)));
+	}
+
+	private void recordHotspot(int finger, int start, int end, double peak) {
+		if (numHotspots == hotspotFingers.length) {
+			hotspotFingers = Arrays.copyOf(hotspotFingers, numHotspots * 2);
+			hotspotStarts = Arrays.copyOf(hotspotStarts, numHotspots * 2);
+			hotspotEnds = Arrays.copyOf(hotspotEnds, numHotspots * 2);
+			hotspotPeaks = Arrays.copyOf(hotspotPeaks, numHotspots * 2);
+		}
+		hotspotFingers[numHotspots] = finger;
+		hotspotStarts[numHotspots] = start;
+		hotspotEnds[numHotspots] = end;
+		hotspotPeaks[numHotspots] = peak;
+		++numHotspots;
+		msOverLimit[finger] += end - start;
+	}
+
+	/**
+	 * Adds up the charge drawn since the last change, at the total current drawn since then
+	 */
+	private void accumulateTotals(int time) {
+		chargeMaMs += (long)totalCurrentMa * (time - lastTotalTime);
+		lastTotalTime = time;
+	}
+
+	/**
+	 * Checks the total current against the peak and the budget, once every change at the given time has been made
+	 */
+	private void recordTotals(int time) {
+		if (totalCurrentMa > peakCurrentMa) {
+			peakCurrentMa = totalCurrentMa;
+			peakCurrentTime = time;
+		}
+		if (supplyBudgetMa > 0) {
+			if (totalCurrentMa > supplyBudgetMa && overBudgetSince == -1) {
+				overBudgetSince = time;
+				++numBudgetOverruns;
+			} else if (totalCurrentMa <= supplyBudgetMa && overBudgetSince != -1) {
+				msOverBudget += time - overBudgetSince;
+				overBudgetSince = -1;
+			}
+		}
+	}
+
+	private void ensureFinger(int finger) {
+		if (finger < numFingers) {
+			return;
+		}
+		int newLength = Math.max(finger + 1, numFingers * 2);
+		if (newLength > isHeld.length) {
+			isHeld = Arrays.copyOf(isHeld, newLength);
+			pulse = Arrays.copyOf(pulse, newLength);
+			pulseEnd = Arrays.copyOf(pulseEnd, newLength);
+			currentMa = Arrays.copyOf(currentMa, newLength);
+			lastUpdate = Arrays.copyOf(lastUpdate, newLength);
+			thermalLoad = Arrays.copyOf(thermalLoad, newLength);
+			hotSince = Arrays.copyOf(hotSince, newLength);
+			Arrays.fill(hotSince, numFingers, newLength, -1);
+			hotPeak = Arrays.copyOf(hotPeak, newLength);
+			energizedMs = Arrays.copyOf(energizedMs, newLength);
+			heldMs = Arrays.copyOf(heldMs, newLength);
+			numHits = Arrays.copyOf(numHits, newLength);
+			peakLoad = Arrays.copyOf(peakLoad, newLength);
+			peakLoadTime = Arrays.copyOf(peakLoadTime, newLength);
+			msOverLimit = Arrays.copyOf(msOverLimit, newLength);
+		}
+		numFingers = finger + 1;
+	}
+
+	/**
+	 * @return the most current drawn by every finger at once, in mA
+	 */
+	public int getPeakCurrentMa() {
+		return peakCurrentMa;
+	}
+
+	/**
+	 * @return the time the peak current was first drawn at
+	 */
+	public int getPeakCurrentTime() {
+		return peakCurrentTime;
+	}
+
+	/**
+	 * @return the average current drawn over the whole song, in mA
+	 */
+	public double getAverageCurrentMa() {
+		return (endTime > 0) ? (double)chargeMaMs / endTime : 0;
+	}
+
+	/**
+	 * @return the total charge drawn over the whole song, in mAh
+	 */
+	public double getChargeMah() {
+		return chargeMaMs / 3600000.0;
+	}
+
+	/**
+	 * @return how long the fingers drew more current than the supply budget, in ms
+	 */
+	public long getMsOverBudget() {
+		return msOverBudget;
+	}
+
+	/**
+	 * @return how many separate times the fingers went over the supply budget
+	 */
+	public int getNumBudgetOverruns() {
+		return numBudgetOverruns;
+	}
+
+	/**
+	 * @return the time the last instruction (or the pulse it started) ends at
+	 */
+	public int getEndTime() {
+		return endTime;
+	}
+
+	public int getNumInstructions() {
+		return numInstructions;
+	}
+
+	/**
+	 * @return one more than the highest finger sequence number in the song
+	 */
+	public int getNumFingers() {
+		return numFingers;
+	}
+
+	/**
+	 * @return the share of the song (0 to 1) the given finger draws current
+	 */
+	public double getDutyCycle(int finger) {
+		return (finger < numFingers && endTime > 0) ? (double)energizedMs[finger] / endTime : 0;
+	}
+
+	/**
+	 * @return the share of the song (0 to 1) the given finger holds a key down
+	 */
+	public double getHeldDutyCycle(int finger) {
+		return (finger < numFingers && endTime > 0) ? (double)heldMs[finger] / endTime : 0;
+	}
+
+	public int getNumHits(int finger) {
+		return (finger < numFingers) ? numHits[finger] : 0;
+	}
+
+	/**
+	 * @return the highest thermal load the given finger reaches (1.0 being its thermal limit)
+	 */
+	public double getPeakThermalLoad(int finger) {
+		return (finger < numFingers) ? peakLoad[finger] : 0;
+	}
+
+	public int getPeakThermalLoadTime(int finger) {
+		return (finger < numFingers) ? peakLoadTime[finger] : 0;
+	}
+
+	/**
+	 * @return how long the given finger spends over its thermal limit, in ms
+	 */
+	public long getMsOverThermalLimit(int finger) {
+		return (finger < numFingers) ? msOverLimit[finger] : 0;
+	}
+
+	public int getNumHotspots() {
+		return numHotspots;
+	}
+
+	public int getHotspotFinger(int hotspot) {
+		return hotspotFingers[hotspot];
+	}
+
+	public int getHotspotStart(int hotspot) {
+		return hotspotStarts[hotspot];
+	}
+
+	public int getHotspotEnd(int hotspot) {
+		return hotspotEnds[hotspot];
+	}
+
+	/**
+	 * @return the highest thermal load the finger reached during the hotspot
+	 */
+	public double getHotspotPeak(int hotspot) {
+		return hotspotPeaks[hotspot];
+	}
+
+	/**
+	 * @return a summary of the last song simulated: the current drawn, the busiest fingers, and the worst hotspots
+	 */
+	public String getReport() {
+		String nl = System.lineSeparator();
+		StringBuilder report = new StringBuilder();
+		report.append("peak current " + peakCurrentMa + "mA at " + peakCurrentTime + "ms | average " + String.format("%.0f", getAverageCurrentMa()) + "mA | " +
+					  String.format("%.2f", getChargeMah()) + "mAh over " + String.format("%.1f", endTime / 1000.0) + "s");
+		if (supplyBudgetMa > 0) {
+			report.append(" | budget " + supplyBudgetMa + "mA: " + ((numBudgetOverruns == 0) ? "never exceeded" : "exceeded " + numBudgetOverruns + " times, for " + msOverBudget + "ms"));
+		}
+		report.append(nl);
+
+		// the busiest fingers, by duty cycle
+		Integer[] fingers = new Integer[numFingers];
+		for (int x = 0; x < numFingers; ++x) {
+			fingers[x] = x;
+		}
+		Arrays.sort(fingers, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(energizedMs[b], energizedMs[a]);
+			}
+		});
+		report.append("busiest fingers:");
+		for (int x = 0; x < Math.min(MAX_FINGERS_REPORTED, numFingers) && energizedMs[fingers[x]] > 0; ++x) {
+			int finger = fingers[x];
+			report.append(" | finger " + finger + ": " + String.format("%.1f", 100 * getDutyCycle(finger)) + "% energized, " + String.format("%.1f", 100 * getHeldDutyCycle(finger)) +
+						  "% held, " + numHits[finger] + " hits, peak thermal load " + String.format("%.2f", peakLoad[finger]));
+		}
+		report.append(nl);
+
+		// the worst hotspots, by how hot they got
+		report.append("hotspots (thermal load over " + String.format("%.1f", THERMAL_LIMIT) + "): " + numHotspots + nl);
+		Integer[] hotspots = new Integer[numHotspots];
+		for (int x = 0; x < numHotspots; ++x) {
+			hotspots[x] = x;
+		}
+		Arrays.sort(hotspots, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(hotspotPeaks[b], hotspotPeaks[a]);
+			}
+		});
+		for (int x = 0; x < Math.min(MAX_HOTSPOTS_REPORTED, numHotspots); ++x) {
+			int hotspot = hotspots[x];
+			report.append("  finger " + hotspotFingers[hotspot] + " from " + hotspotStarts[hotspot] + "ms to " + hotspotEnds[hotspot] + "ms, peaking at " +
+						  String.format("%.2f", hotspotPeaks[hotspot]) + nl);
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Pulse end times (and their fingers) in the order they were added, which is the order they end in, since every pulse of a kind is the same length
+	 */
+	private static class PulseQueue {
+		private long[] ends = new long[64]; // end time in the high bits, finger in the low bits
+		private int head;
+		private int count;
+
+		boolean isEmpty() {
+			return count == 0;
+		}
+
+		void add(int time, int finger) {
+			if (count == ends.length) {
+				long[] grown = new long[count * 2];
+				for (int x = 0; x < count; ++x) {
+					grown[x] = ends[(head + x) % ends.length];
+				}
+				ends = grown;
+				head = 0;
+			}
+			ends[(head + count++) % ends.length] = ((long)time << 32) | finger;
+		}
+
+		/**
+		 * @return the time the next pulse ends, or Integer.MAX_VALUE if there are none
+		 */
+		int peekTime() {
+			return (count == 0) ? Integer.MAX_VALUE : (int)(ends[head] >>> 32);
+		}
+
+		int pollFinger() {
+			int finger = (int)ends[head];
+			head = (head + 1) % ends.length;
+			--count;
+			return finger;
+		}
+	}
+}
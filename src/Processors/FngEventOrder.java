@@ -0,0 +1,174 @@
+package Processors;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Packs a .fng instruction (time, finger, key, and whether it is a hit, a release, or a slide) into a single long,
+ * such that sorting the longs numerically puts the instructions in the same order as sorting the instruction strings themselves.
+ * This lets the .fng file be generated by merging primitive events, without building and sorting a string for every instruction.
+ *
+ * The instruction strings look like "{zero-padded time} FINGER {sequence} CV {compareValue} {1-RELEASE or 2-HIT}" and "{zero-padded time} FINGER {sequence} SLIDE CV {compareValue}".
+ * With every timestamp padded to the same length, they sort by:
+ *   time, numerically.
+ *   finger sequence, as text (so finger 10 sorts before finger 2). Each finger is given its rank in that text order.
+ *   "CV" before "SLIDE".
+ *   compareValue, as text (so 13.0 sorts before 6.5). Each key index is given its rank in that text order.
+ *   "1-RELEASE" before "2-HIT".
+ * From most to least significant bit, an event is: time | finger rank (8 bits) | slide bit | key rank (8 bits) | hit bit.
+ */
+public class FngEventOrder {
+	private static final int HIT_SHIFT = 0;
+	private static final int KEY_RANK_SHIFT = 1;
+	private static final int SLIDE_SHIFT = 9;
+	private static final int FINGER_RANK_SHIFT = 10;
+	private static final int TIME_SHIFT = 18;
+	private static final int RANK_MASK = 0xFF;
+
+	// the compareValue text for every key index, and each key index's rank when ordered by that text. These don't depend on the hand, so they're built once.
+	private static final char[][] KEY_TEXT_BY_INDEX = new char[Constants.NUM_KEY_INDICES][];
+	private static final int[] KEY_RANK_BY_INDEX = new int[Constants.NUM_KEY_INDICES];
+	private static final int[] KEY_INDEX_BY_RANK = new int[Constants.NUM_KEY_INDICES];
+	static {
+		final String[] keyTexts = new String[Constants.NUM_KEY_INDICES];
+		Integer[] keyIndices = new Integer[Constants.NUM_KEY_INDICES];
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			keyTexts[keyIndex] = NoteUtils.getCompareValueForKeyIndex(keyIndex) + "";
+			KEY_TEXT_BY_INDEX[keyIndex] = keyTexts[keyIndex].toCharArray();
+			keyIndices[keyIndex] = keyIndex;
+		}
+		Arrays.sort(keyIndices, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return keyTexts[a].compareTo(keyTexts[b]);
+			}
+		});
+		for (int rank = 0; rank < keyIndices.length; ++rank) {
+			KEY_INDEX_BY_RANK[rank] = keyIndices[rank];
+			KEY_RANK_BY_INDEX[keyIndices[rank]] = rank;
+		}
+	}
+
+	private int[] fingerRankBySequence;
+	private int[] fingerSequenceByRank;
+
+	/**
+	 * @param hand the hand whose fingers will be in the events. Its fingers are ranked by how their sequence numbers sort as text.
+	 */
+	public FngEventOrder(Hand hand) {
+		final String[] fingerTexts = new String[hand.getNumFingers()];
+		Integer[] fingers = new Integer[hand.getNumFingers()];
+		int maxSequence = 0;
+		for (int x = 0; x < fingers.length; ++x) {
+			int sequence = hand.getFinger(x).getFingerSequence();
+			fingerTexts[x] = sequence + "";
+			fingers[x] = x;
+			maxSequence = Math.max(maxSequence, sequence);
+		}
+		Arrays.sort(fingers, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return fingerTexts[a].compareTo(fingerTexts[b]);
+			}
+		});
+		fingerRankBySequence = new int[maxSequence + 1];
+		fingerSequenceByRank = new int[fingers.length];
+		for (int rank = 0; rank < fingers.length; ++rank) {
+			int sequence = hand.getFinger(fingers[rank]).getFingerSequence();
+			fingerRankBySequence[sequence] = rank;
+			fingerSequenceByRank[rank] = sequence;
+		}
+	}
+
+	/**
+	 * @return the event for the finger hitting the key at the given time
+	 */
+	public long encodeHit(int time, int fingerSequence, int keyIndex) {
+		return encode(time, fingerSequence, false, keyIndex) | (1L << HIT_SHIFT);
+	}
+
+	/**
+	 * @return the event for the finger releasing the key at the given time
+	 */
+	public long encodeRelease(int time, int fingerSequence, int keyIndex) {
+		return encode(time, fingerSequence, false, keyIndex);
+	}
+
+	/**
+	 * @return the event for the finger starting to slide to the key at the given time
+	 */
+	public long encodeSlide(int time, int fingerSequence, int keyIndex) {
+		return encode(time, fingerSequence, true, keyIndex);
+	}
+
+	private long encode(int time, int fingerSequence, boolean isSlide, int keyIndex) {
+		return ((long)time << TIME_SHIFT) | ((long)fingerRankBySequence[fingerSequence] << FINGER_RANK_SHIFT) | ((isSlide ? 1L : 0L) << SLIDE_SHIFT) |
+			   ((long)KEY_RANK_BY_INDEX[keyIndex] << KEY_RANK_SHIFT);
+	}
+
+	/**
+	 * @return the time the event occurs at
+	 */
+	public int getTime(long event) {
+		return (int)(event >>> TIME_SHIFT);
+	}
+
+	/**
+	 * @return the sequence number of the event's finger
+	 */
+	public int getFingerSequence(long event) {
+		return fingerSequenceByRank[getFingerRank(event)];
+	}
+
+	/**
+	 * @return the key index the event hits or releases, or for a slide, the key index being slid to
+	 */
+	public int getKeyIndex(long event) {
+		return KEY_INDEX_BY_RANK[(int)(event >>> KEY_RANK_SHIFT) & RANK_MASK];
+	}
+
+	/**
+	 * @return true if the event is a finger starting to slide
+	 */
+	public boolean isSlide(long event) {
+		return ((event >>> SLIDE_SHIFT) & 1) == 1;
+	}
+
+	/**
+	 * @return true if the event is a finger hitting a key
+	 */
+	public boolean isHit(long event) {
+		return !isSlide(event) && ((event >>> HIT_SHIFT) & 1) == 1;
+	}
+
+	/**
+	 * @return true if the event is a finger releasing a key
+	 */
+	public boolean isRelease(long event) {
+		return !isSlide(event) && ((event >>> HIT_SHIFT) & 1) == 0;
+	}
+
+	/**
+	 * @return the event's action: Constants.ACTION_RELEASE, ACTION_HIT, or ACTION_SLIDE
+	 */
+	public int getAction(long event) {
+		if (isSlide(event)) {
+			return Constants.ACTION_SLIDE;
+		}
+		return isHit(event) ? Constants.ACTION_HIT : Constants.ACTION_RELEASE;
+	}
+
+	/**
+	 * @return the compareValue of the key index, as it is written in a .fng instruction
+	 */
+	static char[] getKeyText(int keyIndex) {
+		return KEY_TEXT_BY_INDEX[keyIndex];
+	}
+
+	private int getFingerRank(long event) {
+		return (int)(event >>> FINGER_RANK_SHIFT) & RANK_MASK;
+	}
+}
@@ -0,0 +1,44 @@
+package Processors;
+
+/**
+ * Hands out the instructions of a song one at a time, in the order they are written in a .fng file.
+ * Implemented by FngReader (text .fng files) and FngbReader (binary .fngb files), so anything that plays or sends instructions doesn't need to care which format it was given.
+ */
+public interface FngInstructionSource {
+
+	/**
+	 * Reads in the next instruction, which is then available from the getters
+	 * @return true if an instruction was read in, false once there are no more (or the file is damaged)
+	 */
+	public boolean next();
+
+	/**
+	 * @return the time the most recently read instruction occurs at
+	 */
+	public int getTime();
+
+	/**
+	 * @return the finger sequence number of the most recently read instruction
+	 */
+	public int getFingerSequence();
+
+	/**
+	 * @return the key index the most recently read instruction hits or releases, or for a slide, the key index being slid to
+	 */
+	public int getKeyIndex();
+
+	/**
+	 * @return the action of the most recently read instruction: Constants.ACTION_RELEASE, ACTION_HIT, or ACTION_SLIDE
+	 */
+	public int getAction();
+
+	/**
+	 * @return true once every instruction has been read in and none of them were damaged. Always false while instructions remain.
+	 */
+	public boolean isValid();
+
+	/**
+	 * Closes the underlying file. Only needs to be called directly if the source is abandoned before next() returns false.
+	 */
+	public void close();
+}
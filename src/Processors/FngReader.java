@@ -0,0 +1,154 @@
+package Processors;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Reads the instructions out of a text .fng file, one line at a time, as they are asked for. The text counterpart of FngbReader.
+ * Lines are expected in the form FngWriter writes them:
+ *   {time} FINGER {finger} CV {compareValue} {1-RELEASE or 2-HIT}
+ *   {time} FINGER {finger} SLIDE CV {compareValue}
+ *
+ * A .fng file has no header or checksum, so once next() returns false, isValid() only reports whether every line could be read in and was in order of time.
+ */
+public class FngReader implements FngInstructionSource {
+
+	private String filePath;
+	private BufferedReader br;
+	private int lineNumber;
+	private boolean isValid;
+
+	// the most recently read instruction
+	private int time;
+	private int fingerSequence;
+	private int keyIndex;
+	private int action;
+
+	/**
+	 * Opens the given .fng file. If the file can't be opened, an error is written out and there will be no instructions to read (and the reader will be invalid).
+	 * @param fngFilePath filepath to the .fng file to read
+	 */
+	public FngReader(String fngFilePath) {
+		filePath = fngFilePath;
+		isValid = false;
+		try {
+			br = new BufferedReader(new FileReader(new File(filePath)));
+		} catch (Exception e) {
+			System.out.println("FngReader#ctor - error - exception occurred while opening .fng file at path: [" + filePath + "]. Exception: " + e.getMessage());
+			close();
+		}
+	}
+
+	/**
+	 * Opens whichever kind of reader the given file needs: an FngbReader for .fngb files, and an FngReader for anything else
+	 * @param filePath filepath to a .fng or .fngb file
+	 * @return a source of the file's instructions
+	 */
+	public static FngInstructionSource open(String filePath) {
+		if (filePath.toLowerCase().endsWith(".fngb")) {
+			return new FngbReader(filePath);
+		}
+		return new FngReader(filePath);
+	}
+
+	@Override
+	public boolean next() {
+		if (br == null) {
+			return false;
+		}
+		String line = null;
+		try {
+			line = br.readLine();
+			while (line != null && line.trim().isEmpty()) {
+				++lineNumber;
+				line = br.readLine();
+			}
+			if (line == null) {
+				isValid = true;
+				close();
+				return false;
+			}
+			++lineNumber;
+
+			String[] tokens = line.trim().split("\\s+");
+			int cvToken;
+			if (tokens.length == 6 && tokens[3].equals(Constants.INSTRUCT_SLIDE) && tokens[4].equals("CV")) {
+				action = Constants.ACTION_SLIDE;
+				cvToken = 5;
+			} else if (tokens.length == 6 && tokens[3].equals("CV")) {
+				if (tokens[5].equals(Constants.INSTRUCT_HIT)) {
+					action = Constants.ACTION_HIT;
+				} else if (tokens[5].equals(Constants.INSTRUCT_RELEASE)) {
+					action = Constants.ACTION_RELEASE;
+				} else {
+					throw new Exception("unknown instruction: " + tokens[5]);
+				}
+				cvToken = 4;
+			} else {
+				throw new Exception("malformed instruction");
+			}
+			if (!tokens[1].equals("FINGER")) {
+				throw new Exception("malformed instruction");
+			}
+
+			int lineTime = Integer.parseInt(tokens[0]);
+			if (lineTime < time) {
+				throw new Exception("instruction is earlier than the one before it");
+			}
+			int lineKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(tokens[cvToken]));
+			if (lineKeyIndex == -1) {
+				throw new Exception("invalid compare value: " + tokens[cvToken]);
+			}
+			time = lineTime;
+			fingerSequence = Integer.parseInt(tokens[2]);
+			keyIndex = lineKeyIndex;
+			return true;
+		} catch (Exception e) {
+			System.out.println("FngReader#next - error - exception occurred while reading line " + lineNumber + " of .fng file at path: [" + filePath + "]. Line: [" + line +
+							   "]. Exception: " + e.getMessage());
+			close();
+			return false;
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (br != null) {
+				br.close();
+				br = null;
+			}
+		} catch (Exception e) {
+			System.out.println("FngReader#close - error - exception occurred while closing file at path: [" + filePath + "]. Exception: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public boolean isValid() {
+		return isValid;
+	}
+
+	@Override
+	public int getTime() {
+		return time;
+	}
+
+	@Override
+	public int getFingerSequence() {
+		return fingerSequence;
+	}
+
+	@Override
+	public int getKeyIndex() {
+		return keyIndex;
+	}
+
+	@Override
+	public int getAction() {
+		return action;
+	}
+}
@@ -0,0 +1,198 @@
+package Processors;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import Utils.Constants;
+
+/**
+ * The host side of streaming a song's instructions to the arduino over its serial link, for songs too large to fit in its flash (see ArduinoSketchWriter).
+ *
+ * Instructions are read from a .fng or .fngb file one at a time, and sent in time stamped batches (see the batch layout in Constants).
+ * Two things limit what is sent:
+ *  - the lookahead window: only instructions due within lookaheadMs of the current point in the song are sent, so the arduino is never fed far ahead of the music,
+ *    and the host only ever holds the one instruction it has read ahead
+ *  - credits: the arduino starts by telling the host how many instructions its buffer holds, and hands out more credits as it plays instructions and frees up room.
+ *    Every instruction sent uses up a credit, so the arduino's buffer can never overflow, no matter how fast the link is.
+ *
+ * The sender doesn't block. poll() is called regularly with the current song time, and sends whatever it can.
+ * It only needs an OutputStream to the arduino and an InputStream back from it, so it runs the same against a real serial port or the ArduinoEmulator.
+ */
+public class FngStreamSender {
+
+	private FngInstructionSource source;
+	private int lookaheadMs;
+	private int maxBatchSize;
+	private OutputStream toDevice;
+	private InputStream fromDevice;
+
+	// the next instruction to send, read ahead from the source
+	private boolean hasNext;
+	private int nextTime;
+	private int nextFinger;
+	private int nextKeyIndex;
+	private int nextAction;
+
+	private int credits;
+	private boolean isCreditCountNext; // a credit sync byte has been read, so the next byte is the number of credits
+	private byte[] batch;
+
+	private boolean isWaitingOnCredits;
+	private int numCreditStalls;
+	private int numInstructionsSent;
+	private int numBatchesSent;
+	private long numBytesSent;
+
+	/**
+	 * @param source instructions to send, in order
+	 * @param lookaheadMs how far ahead of the current point in the song to send instructions
+	 * @param maxBatchSize the most instructions to send in one batch, up to Constants.STREAM_MAX_BATCH_SIZE
+	 */
+	public FngStreamSender(FngInstructionSource source, int lookaheadMs, int maxBatchSize) {
+		this.source = source;
+		this.lookaheadMs = lookaheadMs;
+		this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, Constants.STREAM_MAX_BATCH_SIZE));
+		// batch header (sync, count, 4 byte time), then at most a 5 byte varint, finger, and key index per instruction, then the checksum
+		this.batch = new byte[6 + 7 * this.maxBatchSize + 1];
+		readNext();
+	}
+
+	/**
+	 * @param toDevice stream to send batches to the arduino over
+	 * @param fromDevice stream to read the arduino's credits from. Only as many bytes as it reports being available() are read, so it is never blocked on.
+	 */
+	public void connect(OutputStream toDevice, InputStream fromDevice) {
+		this.toDevice = toDevice;
+		this.fromDevice = fromDevice;
+	}
+
+	/**
+	 * Reads in any credits the arduino has sent, then sends every instruction inside the lookahead window that there are credits for
+	 * @param songTime the current point in the song, in milliseconds (negative before the song starts)
+	 * @return true if everything that could be sent was, false if the connection failed
+	 */
+	public boolean poll(int songTime) {
+		try {
+			while (fromDevice.available() > 0) {
+				int b = fromDevice.read();
+				if (isCreditCountNext) {
+					credits += b;
+					isCreditCountNext = false;
+				} else if (b == Constants.STREAM_CREDIT_SYNC) {
+					isCreditCountNext = true;
+				}
+			}
+
+			isWaitingOnCredits = false;
+			long windowEnd = (long)songTime + lookaheadMs;
+			while (hasNext && nextTime <= windowEnd) {
+				if (credits == 0) {
+					isWaitingOnCredits = true;
+					++numCreditStalls;
+					break;
+				}
+				int batchTime = nextTime;
+				int prevTime = batchTime;
+				int count = 0;
+				int length = 6;
+				int limit = Math.min(credits, maxBatchSize);
+				while (hasNext && nextTime <= windowEnd && count < limit) {
+					int value = ((nextTime - prevTime) << 2) | nextAction;
+					while ((value & ~0x7F) != 0) {
+						batch[length++] = (byte)((value & 0x7F) | 0x80);
+						value >>>= 7;
+					}
+					batch[length++] = (byte)value;
+					batch[length++] = (byte)nextFinger;
+					batch[length++] = (byte)nextKeyIndex;
+					prevTime = nextTime;
+					++count;
+					readNext();
+				}
+				batch[0] = (byte)Constants.STREAM_BATCH_SYNC;
+				batch[1] = (byte)count;
+				batch[2] = (byte)(batchTime >>> 24);
+				batch[3] = (byte)(batchTime >>> 16);
+				batch[4] = (byte)(batchTime >>> 8);
+				batch[5] = (byte)batchTime;
+				int checksum = 0;
+				for (int x = 1; x < length; ++x) {
+					checksum ^= batch[x];
+				}
+				batch[length++] = (byte)checksum;
+				toDevice.write(batch, 0, length);
+				toDevice.flush();
+
+				credits -= count;
+				numInstructionsSent += count;
+				++numBatchesSent;
+				numBytesSent += length;
+			}
+			return true;
+		} catch (Exception e) {
+			System.out.println("FngStreamSender#poll - error - exception occurred while streaming instructions at song time " + songTime + ". Exception: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private void readNext() {
+		hasNext = source.next();
+		if (hasNext) {
+			nextTime = source.getTime();
+			nextFinger = source.getFingerSequence();
+			nextKeyIndex = source.getKeyIndex();
+			nextAction = source.getAction();
+		}
+	}
+
+	/**
+	 * @return true once every instruction has been sent
+	 */
+	public boolean isDone() {
+		return !hasNext;
+	}
+
+	/**
+	 * @return true if every instruction was read from the source without error. Only meaningful once isDone().
+	 */
+	public boolean isSourceValid() {
+		return source.isValid();
+	}
+
+	/**
+	 * @return true if the last poll() had an instruction inside the lookahead window that it couldn't send, because it was out of credits
+	 */
+	public boolean isWaitingOnCredits() {
+		return isWaitingOnCredits;
+	}
+
+	/**
+	 * @return number of polls that had an instruction inside the lookahead window they couldn't send, because they were out of credits
+	 */
+	public int getNumCreditStalls() {
+		return numCreditStalls;
+	}
+
+	/**
+	 * @return number of credits the arduino has given that haven't been used yet
+	 */
+	public int getCredits() {
+		return credits;
+	}
+
+	public int getNumInstructionsSent() {
+		return numInstructionsSent;
+	}
+
+	public int getNumBatchesSent() {
+		return numBatchesSent;
+	}
+
+	public long getNumBytesSent() {
+		return numBytesSent;
+	}
+
+	public int getLookaheadMs() {
+		return lookaheadMs;
+	}
+}
@@ -1,24 +1,40 @@
 package Processors;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
-import java.util.Collections;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 import DataObjs.Finger;
-import DataObjs.MusicNote;
 import DataObjs.MusicSheet;
 import DataObjs.MusicSlice;
 import Utils.Constants;
+import Utils.NoteUtils;
 
 public class FngWriter {
-
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+	
+	private ReleaseGapPass releaseGapPass;
+	
 	public FngWriter() {
 	}
 	
+	/**
+	 * Sets a pass to run the instructions through before writeFngFromSheet or writeFngFromStream writes them out, so fingers get time to come back up before re-hitting a key.
+	 * After each song is written, the pass holds the record of every adjustment it made.
+	 * @param pass the pass to run, or null to write the instructions out as they are (the default)
+	 */
+	public void setReleaseGapPass(ReleaseGapPass pass) {
+		releaseGapPass = pass;
+	}
+	
 	/**
 	 * Given a musicsheet (aka an imported .alc file), create a .fng file from it
 	 * We will need the Hand so we know if notes are in range or not. We can't write out instructions for fingers that aren't present.
@@ -28,103 +44,478 @@ public class FngWriter {
 	 * @return true if the music was successfully converted to a .fng file format, false otherwise
 	 */
 	public boolean writeFngFromSheet(Hand hand, MusicSheet sheet, String fngFilePath) {
+		return writeFngFromSheet(hand, sheet, fngFilePath, null);
+	}
+	
+	/**
+	 * Given a musicsheet (aka an imported .alc file), create a .fng file from it, and the binary .fngb version of it alongside (see the .fngb layout below) in the same pass.
+	 * @param hand hand object containing information regarding all robotic fingers' locations
+	 * @param sheet music sheet to convert to .fng file format
+	 * @param fngFilePath output path to write the .fng file to, or null to only write the .fngb file
+	 * @param fngbFilePath output path to write the .fngb file to, or null to only write the .fng file
+	 * @return true if the music was successfully converted to the requested formats, false otherwise
+	 */
+	public boolean writeFngFromSheet(Hand hand, MusicSheet sheet, String fngFilePath, String fngbFilePath) {
 		boolean wasSuccessful = true;
 		
 		// This is how we'll structure the pseudo-code for the arduino instructions.
 		// {timestamp to start at} {finger number} {"hit"} for when we are hitting a piano key
 		// {timestamp to start at} {finger number} {"release"} for when we are releasing a piano key
-		// We'll generate the instructions by parsing over every slice, but since we also need to insert the release instructions, it would be out of order if we just iterated over all the instructions in the insertion order.
-		// So, we'll store the raw instruction strings in a collection that can be sorted, since instructions start with the timestamp and can be sorted using them as the basis.
+		// Sliding fingers also get a {timestamp to start at} {finger number} {"SLIDE"} {compareValue to slide to} instruction.
+		// The instructions are written out in the order a plain sort of the instruction strings would put them in (every timestamp is zero-padded to the same length, so that's in order of time).
+		// Rather than building every instruction as a string and sorting them all, each instruction is packed into a long whose numeric order matches that string order (see FngEventOrder),
+		// and three streams of them are merged: hits, which come out of the slices already in order of time, releases, which wait in a heap until the merge reaches them,
+		// and slides, which the planner already knows all of up front. Only the notes being held at once are ever in the heap, so this runs in O(n log k) for k notes held at once.
+		
+		// What happens when a hit happens again immediately after a release? This is why releases are ordered before hits at the same timestamp.
+		// That is, at 000, we hit, and at 200 we release, but then we hit again at 200. I don't want a finger to do a super fast doubletake and break something :^
+		// When a ReleaseGapPass is set (see setReleaseGapPass), the release is moved earlier to leave a gap before the re-hit, and a key hit again while it's still held is split or merged.
+		// IT WILL SOUND WRONG TO PEOPLES EARS IF NOTES DONT HIT AT THE RIGHT TIME, SO DONT OFFSET BOTH THE RELEASE AND THE HIT (LIKE MAKE THE RELEASE 50ms earlier and the hit 50ms later)
+		// ONLY MAKE THE RELEASE OCCUR EARLIER, NOT THE HIT! We can confirm by ear once the fingers are set up (the gap is configurable for that reason).
+		
+		// LESSER PRIORITY:
+		// TODO any instructions for lighting up / turning off LEDs? Would that be an optional input arg?
 		
-		LinkedList<String> instructions = new LinkedList<String>();
+		FngEventOrder order = new FngEventOrder(hand);
 		int numDigitsForTimestamp = (sheet.getEndTime()+"").length();
-		// since we're comparing instructions based on their start time, we'll prepend zeroes in the front of any that have a length less than the maximum timestamp length,
-		// so 110 compares accurately with, say, 1150, 12, 1100, and so on.
-		
-		LinkedList<MusicSlice> slices = sheet.getSlices();
-		for (int x = 0; x < slices.size(); ++x) {
-			MusicSlice slice = slices.get(x);
-			TreeSet<MusicNote> notes = slice.getNotes();
-			Iterator<MusicNote> iter = notes.iterator();
-			String strStartTime = slice.getStartTime() + "";
-			while (strStartTime.length() < numDigitsForTimestamp) {
-				strStartTime = "0" + strStartTime;
-			}
-			while (iter.hasNext()) {
-				MusicNote note = iter.next();
+		
+		// Write all the instructions to the .fng (and / or .fngb) output file
+		FngEventSink writer = null;
+		try {
+			if (fngbFilePath == null) {
+				writer = new FngLineWriter(fngFilePath, numDigitsForTimestamp);
+			} else if (fngFilePath == null) {
+				writer = new FngbWriter(fngbFilePath, numDigitsForTimestamp);
+			} else {
+				writer = new FngEventSinkPair(new FngLineWriter(fngFilePath, numDigitsForTimestamp), new FngbWriter(fngbFilePath, numDigitsForTimestamp));
+			}
+			if (releaseGapPass != null) {
+				releaseGapPass.start(order);
+				writer = new ReleaseGapSink(releaseGapPass, order, writer);
+			}
+			
+			// TODO do we need boilerplate before we get into writing instructions? opening loops over time in milliseconds until song endtime?
+			// TODO what will instructions actually look like? If time in milliseconds is between x and y, power some solenoid?
+			//      and we'll just have a massive chain of conditionals for the entire song? is that viable?
+			
+			writeSlices(hand, order, sheet.sliceIterator(), writer, "writeFngFromSheet");
+			
+			// TODO do we need any boilerplate after writing instructions? closing loops?
+			
+			writer.close();
+		} catch (Exception e) {
+			System.out.println("FngWriter#writeFngFromSheet - failed to write to .fng file at path: " + fngFilePath + " / .fngb file at path: " + fngbFilePath + ". Exception: " + e.getMessage());
+			e.printStackTrace();
+			closeQuietly(writer);
+			wasSuccessful = false;
+		}
+		
+		return wasSuccessful;
+	}
+	
+	/**
+	 * Writes out the instructions for every slice, merged into the order they belong in the file (see writeFngFromSheet)
+	 * @param slices the song's slices, in order of start time
+	 * @param caller name of the public method writing the file, for warnings
+	 * @return the song's end time (see MusicSheet#getEndTime), which includes notes no finger can hit
+	 */
+	private int writeSlices(Hand hand, FngEventOrder order, Iterator<MusicSlice> slices, FngEventSink writer, String caller) throws Exception {
+		// sliding fingers need to be told when to slide, and where to
+		long[] slides = new long[0];
+		SlidingFingerPlanner planner = hand.getSlidingPlanner();
+		if (planner != null) {
+			slides = new long[planner.getNumSlides()];
+			for (int x = 0; x < slides.length; ++x) {
+				slides[x] = order.encodeSlide(planner.getSlideDepartTime(x), hand.getFinger(planner.getSlideFinger(x)).getFingerSequence(), planner.getSlideToKey(x));
+			}
+			Arrays.sort(slides);
+		}
+		int nextSlide = 0;
+		
+		LongHeap releases = new LongHeap();
+		long[] hits = new long[16];
+		int endTime = 0;
+		while (slices.hasNext()) {
+			MusicSlice slice = slices.next();
+			int startTime = slice.getStartTime();
+			endTime = Math.max(endTime, startTime + slice.getLongestDuration());
+			int numHits = 0;
+			// only keys can be hit, so rests are never looked at (and the slice never has to build its MusicNotes)
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
 				// Get the finger for this note at this start time.
 				// It will remain the same finger for the entire duration it is pressing it (that is, it can't slide away mid-press if using a sliding implementation)
-				Finger finger = hand.getFingerForNoteAtTime(note.getCompareValue(), slice.getStartTime());
+				Finger finger = hand.getFingerForKeyAtTime(keyIndex, startTime);
 				
-				// If a finger was returned, then the note is in range of the piano and hittable. Hit it.
+				// If a finger was returned, then the note is in range of the piano and hittable. Hit it, and queue up its release.
+				// (a sliding finger may have to let go early, to slide over to the next note it is needed for)
 				if (finger != null) {
-					// create and insert the push instruction
-					String pushInstruct = strStartTime + " FINGER " + finger.getFingerSequence() + " CV " + note.getCompareValue() + " " + Constants.INSTRUCT_HIT;
-					instructions.add(pushInstruct);
-					
-					// create and insert the release instruction. we'll need to calculate the time we release it at.
-					String strEndTime = (slice.getStartTime() + note.getDuration()) + "";
-					while (strEndTime.length() < numDigitsForTimestamp) {
-						strEndTime = "0" + strEndTime;
+					if (numHits == hits.length) {
+						hits = Arrays.copyOf(hits, numHits * 2);
 					}
-					String releaseInstruct = strEndTime + " FINGER " + finger.getFingerSequence() + " CV " + note.getCompareValue() + " " + Constants.INSTRUCT_RELEASE;
-					instructions.add(releaseInstruct);
-					
-					// HIGH PRIORITY:
-					
-					// TODO what happens when a hit happens again immediately after a release? For this reason, we start release commands with 1, so they're ordered first in the instructions.
-					//      That is, at 000, we hit, and at 200 we release, but then we hit again at 200. Do we need to build a buffer into that? like let go 50ms early?
-					//      I don't want a finger to do a super fast doubletake and break something :^
-                    // IT WILL SOUND WRONG TO PEOPLES EARS IF NOTES DONT HIT AT THE RIGHT TIME, SO DONT OFFSET BOTH THE RELEASE AND THE HIT (LIKE MAKE THE RELEASE 50ms earlier and the hit 50ms later)
-                    // ONLY MAKE THE RELEASE OCCUR EARLIER, NOT THE HIT! We can confirm by ear once the fingers are set up.
-
-					
-					// LESSER PRIORITY:
-					// TODO any instructions for lighting up / turning off LEDs? Would that be an optional input arg?
-					
-					
-					// FAR-FUTURE PRIORITY:
-					// TODO in the future - sliding instructions would need to be added here to reposition sliding fingers to the note they need to hit
-					// TODO oh no what would happen if bad data or translating led to a sliding finger trying to slide WHILE pressing down on a key?
-					
-					
+					hits[numHits++] = order.encodeHit(startTime, finger.getFingerSequence(), keyIndex);
+					releases.add(order.encodeRelease(hand.getReleaseTimeForKeyAtTime(keyIndex, startTime, slice.getDurationForKey(keyIndex)), finger.getFingerSequence(), keyIndex));
 				} else {
 					// Warn that there is no finger in range for this given note - it can't be hit.
-					System.out.println("FngWriter#writeFngFromSheet - warning - skipped note because no finger is capable of hitting it. Details: " + note.toString());
-					
+					System.out.println("FngWriter#" + caller + " - warning - skipped note because no finger is capable of hitting it. Details: startTime: " + startTime +
+									   " | CompareValue: " + NoteUtils.getCompareValueForKeyIndex(keyIndex) + " | Duration: " + slice.getDurationForKey(keyIndex) + "ms");
 				}
 			}
+			
+			// a slice only has a handful of notes, so its hits are sorted amongst themselves, then merged with whatever releases and slides come before each one
+			Arrays.sort(hits, 0, numHits);
+			for (int hit = 0; hit < numHits; ++hit) {
+				nextSlide = writeEventsBefore(writer, order, hits[hit], releases, slides, nextSlide);
+				writeEvent(writer, order, hits[hit]);
+			}
 		}
 		
-		// sorts all the instructions so the hits / releases are written out in a linear order from start to finish
-		Collections.sort(instructions);
+		// write out the releases and slides left after the last hit
+		writeEventsBefore(writer, order, Long.MAX_VALUE, releases, slides, nextSlide);
+		return endTime;
+	}
+	
+	/**
+	 * Writes out every queued release and slide that is ordered before the given event, merging the two in order
+	 * @return the index of the next slide that hasn't been written out yet
+	 */
+	private int writeEventsBefore(FngEventSink writer, FngEventOrder order, long event, LongHeap releases, long[] slides, int nextSlide) throws Exception {
+		while (true) {
+			boolean hasRelease = !releases.isEmpty() && releases.peek() < event;
+			boolean hasSlide = nextSlide < slides.length && slides[nextSlide] < event;
+			if (hasRelease && (!hasSlide || releases.peek() < slides[nextSlide])) {
+				writeEvent(writer, order, releases.poll());
+			} else if (hasSlide) {
+				writeEvent(writer, order, slides[nextSlide++]);
+			} else {
+				return nextSlide;
+			}
+		}
+	}
+	
+	private void writeEvent(FngEventSink writer, FngEventOrder order, long event) throws Exception {
+		writer.write(order.getTime(event), order.getFingerSequence(event), order.getKeyIndex(event), order.getAction(event));
+	}
+	
+	/**
+	 * Decodes a binary .fngb file back into the text .fng format. The .fng file written out is identical to the one writeFngFromSheet wrote alongside the .fngb file.
+	 * @param fngbFilePath filepath to the .fngb file to decode
+	 * @param fngFilePath output path to write the .fng file to
+	 * @return true if the .fngb file was read in and passed its integrity checks, and the .fng file was written, false otherwise
+	 */
+	public boolean writeFngFromFngb(String fngbFilePath, String fngFilePath) {
+		boolean wasSuccessful = true;
+		FngbReader reader = new FngbReader(fngbFilePath);
+		FngLineWriter writer = null;
 		
-        // TODO do we need to parse for simultaneous hit / hold instructions for a cv occurring at the same time in a song, and space them out a bit? or will the finger hardware release and hit just fine on its own?
+		try {
+			if (reader.getNumDigitsForTimestamp() == -1) {
+				return false; // the reader already reported why the file couldn't be opened
+			}
+			writer = new FngLineWriter(fngFilePath, reader.getNumDigitsForTimestamp());
+			while (reader.next()) {
+				writer.write(reader.getTime(), reader.getFingerSequence(), reader.getKeyIndex(), reader.getAction());
+			}
+			writer.close();
+			if (!reader.isValid()) {
+				System.out.println("FngWriter#writeFngFromFngb - error - the .fngb file failed its integrity checks: " + fngbFilePath);
+				new File(fngFilePath).delete();
+				wasSuccessful = false;
+			}
+		} catch (Exception e) {
+			System.out.println("FngWriter#writeFngFromFngb - failed to write to .fng file at path: " + fngFilePath);
+			e.printStackTrace();
+			closeQuietly(writer);
+			reader.close();
+			wasSuccessful = false;
+		}
 		
-		// Write all the instructions to the .fng output file
+		return wasSuccessful;
+	}
+	
+	private void closeQuietly(FngEventSink writer) {
 		try {
-			BufferedWriter bw = new BufferedWriter(new FileWriter(new File(fngFilePath)));
-			
-            // TODO do we need boilerplate before we get into writing instructions? opening loops over time in milliseconds until song endtime?
-			
-			for (int x = 0; x < instructions.size(); ++x) {
-                
-                // TODO what will instructions actually look like? If time in milliseconds is between x and y, power some solenoid?
-                //      and we'll just have a massive chain of conditionals for the entire song? is that viable?
-                
-				bw.write(instructions.get(x));
-				bw.newLine();
+			if (writer != null) {
+				writer.close();
 			}
+		} catch (Exception e) {
+			// the original exception has already been reported
+		}
+	}
+	
+	/**
+	 * Streaming version of writeFngFromSheet, for songs too large to load into a MusicSheet.
+	 * The .fng file written out is identical to the one writeFngFromSheet would write for the same song.
+	 * 
+	 * The instructions are merged the same way writeFngFromSheet merges them, as their slices are streamed in, so only the notes currently being held are in memory.
+	 * The one thing that can't be known up front is the song's end time, which determines how many zeroes every timestamp is padded with.
+	 * So the instructions are first streamed into a temporary .fngb file (a few bytes per instruction), which is then decoded into the .fng file once the end time is known.
+	 * Any ReleaseGapPass set (see setReleaseGapPass) is applied on the way into the temporary file, the same as writeFngFromSheet applies it.
+	 * 
+	 * @param hand hand object containing information regarding all robotic fingers' locations
+	 * @param stream AlcSliceStream that has not been read from yet. It will be fully consumed.
+	 * @param fngFilePath output path to write the .fng file to
+	 * @return true if the music was successfully converted to a .fng file format, false otherwise (including if the stream failed its integrity checks)
+	 */
+	public boolean writeFngFromStream(Hand hand, AlcSliceStream stream, String fngFilePath) {
+		boolean wasSuccessful = true;
+		File tempFile = null;
+		FngEventSink writer = null;
+		
+		try {
+			tempFile = File.createTempFile("FngWriter", ".fngb.tmp");
+			FngEventOrder order = new FngEventOrder(hand);
+			FngbWriter fngbWriter = new FngbWriter(tempFile.getAbsolutePath(), 0);
+			writer = fngbWriter;
+			if (releaseGapPass != null) {
+				releaseGapPass.start(order);
+				writer = new ReleaseGapSink(releaseGapPass, order, writer);
+			}
+			int endTime = writeSlices(hand, order, stream, writer, "writeFngFromStream");
+			fngbWriter.setNumDigitsForTimestamp((endTime+"").length());
+			writer.close();
 			
-            // TODO do we need any boilerplate after writing instructions? closing loops?
-            
-			bw.close();
+			if (!stream.isValid()) {
+				System.out.println("FngWriter#writeFngFromStream - error - the streamed file failed its integrity checks. The .fng file will not be written.");
+				wasSuccessful = false;
+			} else {
+				wasSuccessful = writeFngFromFngb(tempFile.getAbsolutePath(), fngFilePath);
+			}
 		} catch (Exception e) {
-			System.out.println("FngWriter#writeFngFromSheet - failed to write to .fng file at path: " + fngFilePath);
+			System.out.println("FngWriter#writeFngFromStream - failed to write to .fng file at path: " + fngFilePath);
 			e.printStackTrace();
+			closeQuietly(writer);
+			stream.close();
 			wasSuccessful = false;
+		} finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
 		}
 		
 		return wasSuccessful;
 	}
+	
+	/**
+	 * Somewhere instructions are written out to, one primitive event at a time, in the order they belong in the file
+	 */
+	private interface FngEventSink {
+		void write(int time, int fingerSequence, int keyIndex, int action) throws Exception;
+		void close() throws Exception;
+	}
+	
+	/**
+	 * Runs instructions through a ReleaseGapPass on their way to another sink
+	 */
+	private static class ReleaseGapSink implements FngEventSink {
+		private ReleaseGapPass pass;
+		private FngEventOrder order;
+		private FngEventSink sink;
+		
+		ReleaseGapSink(ReleaseGapPass pass, FngEventOrder order, FngEventSink sink) {
+			this.pass = pass;
+			this.order = order;
+			this.sink = sink;
+		}
+		
+		@Override
+		public void write(int time, int fingerSequence, int keyIndex, int action) throws Exception {
+			if (action == Constants.ACTION_HIT) {
+				pass.add(order.encodeHit(time, fingerSequence, keyIndex));
+			} else if (action == Constants.ACTION_RELEASE) {
+				pass.add(order.encodeRelease(time, fingerSequence, keyIndex));
+			} else {
+				pass.add(order.encodeSlide(time, fingerSequence, keyIndex));
+			}
+			writeReady();
+		}
+		
+		private void writeReady() throws Exception {
+			while (pass.hasNext()) {
+				long event = pass.next();
+				sink.write(order.getTime(event), order.getFingerSequence(event), order.getKeyIndex(event), order.getAction(event));
+			}
+		}
+		
+		@Override
+		public void close() throws Exception {
+			try {
+				pass.finish();
+				writeReady();
+			} finally {
+				sink.close();
+			}
+		}
+	}
+	
+	/**
+	 * Writes instructions out to two sinks at once, so the .fng and .fngb files can be generated in one pass
+	 */
+	private static class FngEventSinkPair implements FngEventSink {
+		private FngEventSink first;
+		private FngEventSink second;
+		
+		FngEventSinkPair(FngEventSink first, FngEventSink second) {
+			this.first = first;
+			this.second = second;
+		}
+		
+		@Override
+		public void write(int time, int fingerSequence, int keyIndex, int action) throws Exception {
+			first.write(time, fingerSequence, keyIndex, action);
+			second.write(time, fingerSequence, keyIndex, action);
+		}
+		
+		@Override
+		public void close() throws Exception {
+			try {
+				first.close();
+			} finally {
+				second.close();
+			}
+		}
+	}
+	
+	/**
+	 * Writes instructions out as .fng instruction lines, straight from their primitive form into a buffer, with the timestamps zero-padded
+	 */
+	private static class FngLineWriter implements FngEventSink {
+		private static final char[] FINGER = " FINGER ".toCharArray();
+		private static final char[] CV = " CV ".toCharArray();
+		private static final char[] SLIDE_CV = (" " + Constants.INSTRUCT_SLIDE + " CV ").toCharArray();
+		private static final char[] HIT = (" " + Constants.INSTRUCT_HIT).toCharArray();
+		private static final char[] RELEASE = (" " + Constants.INSTRUCT_RELEASE).toCharArray();
+		
+		private BufferedWriter bw;
+		private int numDigitsForTimestamp;
+		private char[] digits = new char[10];
+		private char[][] fingerTexts = new char[0][]; // each finger sequence number as text, filled in as fingers show up
+		
+		FngLineWriter(String fngFilePath, int numDigitsForTimestamp) throws Exception {
+			this.bw = new BufferedWriter(new FileWriter(new File(fngFilePath)), WRITE_BUFFER_SIZE);
+			this.numDigitsForTimestamp = numDigitsForTimestamp;
+		}
+		
+		@Override
+		public void write(int time, int fingerSequence, int keyIndex, int action) throws Exception {
+			int numDigits = 0;
+			do {
+				digits[digits.length - ++numDigits] = (char)('0' + time % 10);
+				time /= 10;
+			} while (time > 0);
+			for (int x = numDigits; x < numDigitsForTimestamp; ++x) {
+				bw.write('0');
+			}
+			bw.write(digits, digits.length - numDigits, numDigits);
+			bw.write(FINGER);
+			bw.write(getFingerText(fingerSequence));
+			if (action == Constants.ACTION_SLIDE) {
+				bw.write(SLIDE_CV);
+				bw.write(FngEventOrder.getKeyText(keyIndex));
+			} else {
+				bw.write(CV);
+				bw.write(FngEventOrder.getKeyText(keyIndex));
+				bw.write((action == Constants.ACTION_HIT) ? HIT : RELEASE);
+			}
+			bw.newLine();
+		}
+		
+		private char[] getFingerText(int fingerSequence) {
+			if (fingerSequence >= fingerTexts.length) {
+				fingerTexts = Arrays.copyOf(fingerTexts, fingerSequence + 1);
+			}
+			if (fingerTexts[fingerSequence] == null) {
+				fingerTexts[fingerSequence] = (fingerSequence + "").toCharArray();
+			}
+			return fingerTexts[fingerSequence];
+		}
+		
+		@Override
+		public void close() throws Exception {
+			bw.close();
+		}
+	}
+	
+	// .fngb - the binary sibling of the .fng format, compact enough to stream over the arduino's serial link or store in its flash.
+	// A .fng instruction line is around 30 bytes. The same instruction in an .fngb file is usually 3.
+	// Layout:
+	//   magic bytes "FNGB" (see Constants.FNGB_MAGIC), then 1 byte format version
+	//   1 byte: how many digits the .fng file pads its timestamps to, so the .fng file can be recreated exactly
+	//   instruction count: 4 bytes
+	//   checksum: 4 bytes, the CRC32 of every byte that follows it (the instruction data)
+	//   instruction data, one entry per instruction, in the same order as the .fng file's lines:
+	//     varint of (time since the previous instruction << 2) | action, where action is Constants.ACTION_RELEASE, ACTION_HIT, or ACTION_SLIDE.
+	//       (7 bits per byte, high bit set on every byte except the last, so instructions within 31ms of each other cost a single byte)
+	//     1 byte finger sequence number
+	//     1 byte half-step key index: the key being hit or released, or the key being slid to (see NoteUtils#getKeyIndexForCompareValue)
+	// All multi-byte fixed width values are big-endian.
+	
+	/**
+	 * Writes instructions out in the .fngb format (see the layout above).
+	 * The instruction data is streamed straight to the file, and the instruction count and checksum are filled in to the header once the last instruction is written.
+	 */
+	private static class FngbWriter implements FngEventSink {
+		private static final int DIGITS_OFFSET = Constants.FNGB_MAGIC.length + 1;
+		private static final int COUNT_OFFSET = Constants.FNGB_MAGIC.length + 2;
+		private static final int MAX_TIME_DELTA = (1 << 29) - 1; // the delta is shifted over 2 bits for the action, and still has to fit in an int
+		
+		private String fngbFilePath;
+		private int numDigitsForTimestamp;
+		private CheckedOutputStream out;
+		private int prevTime;
+		private int numInstructions;
+		
+		FngbWriter(String fngbFilePath, int numDigitsForTimestamp) throws Exception {
+			this.fngbFilePath = fngbFilePath;
+			this.numDigitsForTimestamp = numDigitsForTimestamp;
+			DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(fngbFilePath)), WRITE_BUFFER_SIZE));
+			header.write(Constants.FNGB_MAGIC);
+			header.writeByte(Constants.FNGB_VERSION);
+			header.writeByte(numDigitsForTimestamp); // rewritten on close, in case it changed
+			header.writeInt(0); // instruction count, filled in on close
+			header.writeInt(0); // checksum, filled in on close
+			out = new CheckedOutputStream(header, new CRC32());
+		}
+		
+		@Override
+		public void write(int time, int fingerSequence, int keyIndex, int action) throws Exception {
+			int delta = time - prevTime;
+			if (delta < 0 || delta > MAX_TIME_DELTA) {
+				throw new Exception("instruction at time " + time + " can't be stored as a delta from the previous instruction at " + prevTime);
+			}
+			if (fingerSequence < 0 || fingerSequence > 0xFF) {
+				throw new Exception("finger sequence number doesn't fit in a byte: " + fingerSequence);
+			}
+			int value = (delta << 2) | action;
+			while ((value & ~0x7F) != 0) {
+				out.write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+			out.write(fingerSequence);
+			out.write(keyIndex);
+			prevTime = time;
+			++numInstructions;
+		}
+		
+		/**
+		 * For when the song's end time isn't known until every instruction has been written. The header is updated on close.
+		 */
+		void setNumDigitsForTimestamp(int numDigitsForTimestamp) {
+			this.numDigitsForTimestamp = numDigitsForTimestamp;
+		}
+		
+		@Override
+		public void close() throws Exception {
+			out.close();
+			RandomAccessFile raf = new RandomAccessFile(fngbFilePath, "rw");
+			try {
+				raf.seek(DIGITS_OFFSET);
+				raf.writeByte(numDigitsForTimestamp);
+				raf.writeInt(numInstructions);
+				raf.writeInt((int)out.getChecksum().getValue());
+			} finally {
+				raf.close();
+			}
+		}
+	}
 }
@@ -0,0 +1,223 @@
+package Processors;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Reads the instructions out of a binary .fngb file (see the layout in FngWriter), one at a time, as they are asked for.
+ *
+ * Like AlcSliceStream, the instruction count and checksum can only be confirmed once every instruction has been read in,
+ * so once next() returns false, isValid() reports whether the file passed. Anything computed from the instructions should be treated as suspect if it didn't.
+ *
+ * Typical usage:
+ *   FngbReader reader = new FngbReader(fngbFilePath);
+ *   while (reader.next()) {
+ *       ... reader.getTime(), reader.getFingerSequence(), reader.getKeyIndex(), reader.getAction() ...
+ *   }
+ *   if (!reader.isValid()) { ... }
+ *
+ * The underlying file is closed automatically once every instruction has been read. If a consumer stops early, it should call close().
+ */
+public class FngbReader implements FngInstructionSource {
+
+	private String filePath;
+	private CheckedInputStream in;
+	private int numDigitsForTimestamp;
+	private int instructionCount;
+	private int expectedChecksum;
+	private int numRead;
+	private boolean isValid;
+
+	// the most recently read instruction
+	private int time;
+	private int fingerSequence;
+	private int keyIndex;
+	private int action;
+	private int numBytes;
+
+	/**
+	 * Opens the given .fngb file and reads in its header.
+	 * If the file can't be opened, or isn't an .fngb file, an error is written out and there will be no instructions to read (and the reader will be invalid).
+	 * @param fngbFilePath filepath to the .fngb file to read
+	 */
+	public FngbReader(String fngbFilePath) {
+		filePath = fngbFilePath;
+		numDigitsForTimestamp = -1;
+		instructionCount = -1;
+		isValid = false;
+
+		try {
+			BufferedInputStream bis = new BufferedInputStream(new FileInputStream(new File(filePath)));
+			DataInputStream header = new DataInputStream(bis);
+			byte[] magic = new byte[Constants.FNGB_MAGIC.length];
+			header.readFully(magic);
+			if (!Arrays.equals(magic, Constants.FNGB_MAGIC)) {
+				header.close();
+				throw new Exception("file does not start with the .fngb magic bytes");
+			}
+			int version = header.readUnsignedByte();
+			if (version != Constants.FNGB_VERSION) {
+				header.close();
+				throw new Exception("unsupported .fngb version: " + version + ", expected: " + Constants.FNGB_VERSION);
+			}
+			numDigitsForTimestamp = header.readUnsignedByte();
+			instructionCount = header.readInt();
+			expectedChecksum = header.readInt();
+
+			// everything after the header is instruction data, which is what the checksum covers
+			in = new CheckedInputStream(bis, new CRC32());
+		} catch (Exception e) {
+			System.out.println("FngbReader#ctor - error - exception occurred while opening .fngb file at path: [" + filePath + "]. Exception: " + e.getMessage());
+			numDigitsForTimestamp = -1;
+			close();
+		}
+	}
+
+	/**
+	 * Reads in the next instruction, which is then available from the getters
+	 * @return true if an instruction was read in, false once there are no more (or the file is damaged)
+	 */
+	@Override
+	public boolean next() {
+		if (in == null) {
+			return false;
+		}
+		try {
+			int first = in.read();
+			if (first == -1) {
+				isValid = (numRead == instructionCount) && ((int)in.getChecksum().getValue() == expectedChecksum);
+				if (!isValid) {
+					System.out.println("FngbReader#next - error - integrity check failed for .fngb file at path: [" + filePath + "]. Instructions expected: " + instructionCount +
+									   ", read: " + numRead + ". Checksum expected: " + expectedChecksum + ", calculated: " + (int)in.getChecksum().getValue());
+				}
+				close();
+				return false;
+			}
+
+			int value = 0;
+			int shift = 0;
+			int b = first;
+			numBytes = 0;
+			while (true) {
+				if (b == -1) {
+					throw new Exception("instruction data ended in the middle of a varint");
+				}
+				if (shift > 28) {
+					throw new Exception("malformed varint in instruction data");
+				}
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+				++numBytes;
+				if ((b & 0x80) == 0) {
+					break;
+				}
+				b = in.read();
+			}
+			fingerSequence = in.read();
+			keyIndex = in.read();
+			if (fingerSequence == -1 || keyIndex == -1) {
+				throw new Exception("instruction data ended in the middle of an instruction");
+			}
+			numBytes += 2;
+			action = value & 0x3;
+			if (action != Constants.ACTION_RELEASE && action != Constants.ACTION_HIT && action != Constants.ACTION_SLIDE) {
+				throw new Exception("invalid action in instruction data: " + action);
+			}
+			if (NoteUtils.getCompareValueForKeyIndex(keyIndex) == -1) {
+				throw new Exception("invalid key index in instruction data: " + keyIndex);
+			}
+			time += value >>> 2;
+			++numRead;
+			return true;
+		} catch (Exception e) {
+			System.out.println("FngbReader#next - error - exception occurred while reading .fngb file at path: [" + filePath + "]. Exception: " + e.getMessage());
+			close();
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the underlying file. Only needs to be called directly if the reader is abandoned before next() returns false.
+	 * A reader that is closed early is never considered valid.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (in != null) {
+				in.close();
+				in = null;
+			}
+		} catch (Exception e) {
+			System.out.println("FngbReader#close - error - exception occurred while closing file at path: [" + filePath + "]. Exception: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return true once every instruction has been read in and the file passed its integrity checks. Always false while instructions remain.
+	 */
+	@Override
+	public boolean isValid() {
+		return isValid;
+	}
+
+	/**
+	 * @return how many digits the .fng file pads its timestamps to, or -1 if the file couldn't be opened
+	 */
+	public int getNumDigitsForTimestamp() {
+		return numDigitsForTimestamp;
+	}
+
+	/**
+	 * @return the number of instructions the header says the file holds, or -1 if the file couldn't be opened
+	 */
+	public int getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * @return the time the most recently read instruction occurs at
+	 */
+	@Override
+	public int getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the finger sequence number of the most recently read instruction
+	 */
+	@Override
+	public int getFingerSequence() {
+		return fingerSequence;
+	}
+
+	/**
+	 * @return the key index the most recently read instruction hits or releases, or for a slide, the key index being slid to
+	 */
+	@Override
+	public int getKeyIndex() {
+		return keyIndex;
+	}
+
+	/**
+	 * @return the action of the most recently read instruction: Constants.ACTION_RELEASE, ACTION_HIT, or ACTION_SLIDE
+	 */
+	@Override
+	public int getAction() {
+		return action;
+	}
+
+	/**
+	 * @return how many bytes the most recently read instruction took up in the file
+	 */
+	public int getNumBytes() {
+		return numBytes;
+	}
+}
@@ -1,7 +1,6 @@
 package Processors;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
 
 import DataObjs.Finger;
 import DataObjs.MusicSheet;
@@ -15,12 +14,17 @@ import Utils.NoteUtils;
  * The Hand's sole job is: given an alc file, determine which fingers will hit which notes and when.
  * On a sliding implementation, individual finger(s) may move with relation to time, up to as often as the greatestCommonDivisor in milliseconds for the song per the MusicSheet.
  * On full and limited implementations, fingers stay in one static location, and so we only need to look up the finger hovering over a given compareValue regardless of time.
+ * Those lookups go through a table indexed by key index, built once in the constructor, so finding a note's finger doesn't depend on how many fingers there are.
+ * Fingers that move keep their positions sorted by time, so they are each checked with a binary search instead.
+ * On a sliding implementation, which finger hits each note (and when fingers slide) comes from a SlidingFingerPlanner, built in the constructor.
  * 
  * @author smartel
  */
 public class Hand {
 
-	LinkedList<Finger> fingers;
+	ArrayList<Finger> fingers;
+	Finger[] fingersByKey; // the finger over each key index, for fingers that never move. null if fingers can move
+	SlidingFingerPlanner planner; // null unless it is a sliding implementation
 	boolean didInit;
 	
 	public Hand(PianoProperties properties, MusicSheet sheet) {
@@ -35,10 +39,10 @@ public class Hand {
 		// And the goal is that the Hand will be able to tell you what Finger is hovering over a specific compareValue at any given point in time.
 		// This may seem like a lot of work for what should boil down to just a quick 1:1 lookup for Full (and still a quick static lookup for Limited finger implementations),
 		//   but accounting for time leaves the door open for implementing Sliding finger implementations sometime in the future.
-		fingers = new LinkedList<Finger>();
+		fingers = new ArrayList<Finger>();
 
 		AlcStatsUtils asu = new AlcStatsUtils();
-		HashMap<Double, NoteStats> stats = asu.generateCompValStats(sheet);
+		NoteStats[] keyStats = asu.generateKeyIndexStats(sheet);
 		
 		
 		// If a Full finger implementation, create a finger object for every available compareValue
@@ -64,7 +68,7 @@ public class Hand {
 			int fingerSeq = 1;
 			while (currCompVal <= endCompVal) {
 				// Since this is limited (not full), only create a finger IF it was hit
-				if (stats.get(currCompVal).getNumTimesHit() > 0) {
+				if (keyStats[NoteUtils.getKeyIndexForCompareValue(currCompVal)].getNumTimesHit() > 0) {
 					Finger finger = new Finger(fingerSeq, currCompVal);
 					fingers.add(finger);
 					++fingerSeq;
@@ -81,15 +85,28 @@ public class Hand {
 		}
 		
 		else if (fingerImpl == Constants.FINGER_IMPL_SLIDING) {
-			// Sliding finger implementation TBD. We'd need to know how many fingers are available, how fast they can slide, and track their positions within Finger objects,
-			// while also detecting / preventing potential collisions.
-			// At a minimum, we would need either AlcStatsUtils#getMaxSimulHitsAndHolds or AlcStatsUtils#getMaxSimulHits number of fingers.
-			// TODO NYI
-			// do a java implementation of our old c++ problem solver framework to find the best solution for handling slides?
-				// based on the minimum number of keys needed based on >how many notes are ever hit simultaneously?
-					// if we account for lifting keys 0.15 seconds early or whatever, we should TOTAL how much "play time" is "lost" that way
-						// and then see if we can decrease the "lost time" by adding more fingers, hopefully bringing the "lost" time to 0.
-							// so an optimal solution would be somewhere between >least number of fingers while also having closest to 0 lost time?
+			// Sliding fingers need to know where to be and when. The SlidingFingerPlanner works that out for the whole song up front (which finger hits each note,
+			// when each finger slides, and how much hold time is lost to fingers letting go of keys early so they can slide away), and the fingers just record the plan.
+			int numSlidingFingers = Integer.parseInt(properties.getSetting(Constants.SETTINGS_NUM_SLIDING_FINGERS));
+			int minKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MIN_COMP_VALUE)));
+			int maxKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MAX_COMP_VALUE)));
+			if (numSlidingFingers > maxKeyIndex - minKeyIndex + 1) {
+				System.out.println("Hand#ctor: error - there are more sliding fingers than keys on the piano. Fingers can't be initialized. numSlidingFingers: " + numSlidingFingers);
+				didInit = false;
+			} else {
+				planner = new SlidingFingerPlanner(sheet, numSlidingFingers, minKeyIndex, maxKeyIndex, Constants.SLIDING_FINGER_KEYS_PER_MS);
+				for (int x = 0; x < planner.getNumFingers(); ++x) {
+					fingers.add(new Finger(x + 1, NoteUtils.getCompareValueForKeyIndex(planner.getStartKeyIndex(x))));
+				}
+				for (int x = 0; x < planner.getNumSlides(); ++x) {
+					fingers.get(planner.getSlideFinger(x)).slide(planner.getSlideArriveTime(x), NoteUtils.getCompareValueForKeyIndex(planner.getSlideToKey(x)));
+				}
+				
+				System.out.println("\nSliding finger plan: " + planner.getSummary());
+				if (planner.getNumUnplayable() > 0) {
+					System.out.println("Hand#ctor: warning - " + planner.getNumUnplayable() + " notes can't be reached by any sliding finger in time, and won't be played.");
+				}
+			}
 		} else if (fingerImpl == Constants.FINGER_IMPL_GUI_ONLY) {
 			System.out.println("Hand#ctor: Finger Implementation is set to GUI-only mode (no static or sliding fingers). Fingers can't be initialized. Confirm - fingerImpl: " + fingerImpl);
 			didInit = false;
@@ -99,23 +116,33 @@ public class Hand {
 		}
 		
 		
+		// full and limited fingers never move, so every lookup can be answered straight from the key they sit over
+		if (fingerImpl == Constants.FINGER_IMPL_FULL || fingerImpl == Constants.FINGER_IMPL_LIMITED) {
+			fingersByKey = new Finger[Constants.NUM_KEY_INDICES];
+			for (int x = 0; x < fingers.size(); ++x) {
+				int keyIndex = fingers.get(x).getKeyIndexAtTime(0);
+				if (keyIndex != -1 && fingersByKey[keyIndex] == null) {
+					fingersByKey[keyIndex] = fingers.get(x);
+				}
+			}
+		}
+		
+		
 		// print out a GREAT BIG WARNING about notes that are out of range? (that is, on octaves that the piano can't reach, even if a Full implementation)
-		for (double x = Constants.MIN_THEORETICAL_COMPARE_VALUE;
-			 x < Double.parseDouble(properties.getSetting(Constants.SETTINGS_MIN_COMP_VALUE));
-			 x = NoteUtils.getNextNoteCV(x)) {
+		int minKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MIN_COMP_VALUE)));
+		int maxKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MAX_COMP_VALUE)));
+		for (int x = 0; x < minKeyIndex; ++x) {
 			
 			// Warn that the following hit notes are too low
-			if (stats.get(x).getNumTimesHit() > 0) {
-				System.out.println("Hand#ctor: warning - Note compareValue hit in song is too low to be hit according to the piano properties. Out-of-range compareValue: " + x);
+			if (keyStats[x].getNumTimesHit() > 0) {
+				System.out.println("Hand#ctor: warning - Note compareValue hit in song is too low to be hit according to the piano properties. Out-of-range compareValue: " + NoteUtils.getCompareValueForKeyIndex(x));
 			}
 		}
-		for (double x = NoteUtils.getNextNoteCV(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MAX_COMP_VALUE)));  
-			 x <= Constants.MAX_THEORETICAL_COMPARE_VALUE;
-			 x = NoteUtils.getNextNoteCV(x)) {
+		for (int x = maxKeyIndex + 1; x < Constants.NUM_KEY_INDICES; ++x) {
 			
 			// Warn that the following hit notes are too high
-			if (stats.get(x).getNumTimesHit() > 0) {
-				System.out.println("Hand#ctor: warning - Note compareValue hit in song is too high to be hit according to the piano properties. Out-of-range compareValue: " + x);
+			if (keyStats[x].getNumTimesHit() > 0) {
+				System.out.println("Hand#ctor: warning - Note compareValue hit in song is too high to be hit according to the piano properties. Out-of-range compareValue: " + NoteUtils.getCompareValueForKeyIndex(x));
 			}
 		}
 		
@@ -123,39 +150,137 @@ public class Hand {
 	}
 	
 	public Finger getFingerForNoteAtTime(double desiredCompVal, int currentTime) {
+		return getFingerForKeyAtTime(NoteUtils.getKeyIndexForCompareValue(desiredCompVal), currentTime);
+	}
+	
+	/**
+	 * Same as getFingerForNoteAtTime, but takes the note's half-step key index (see NoteUtils#getKeyIndexForCompareValue), so fingers are matched with int compares
+	 * @param desiredKeyIndex key index of the note to hit
+	 * @param currentTime time in the song, in milliseconds
+	 * @return the Finger hovering over the key at the given time, or null if there isn't one
+	 */
+	public Finger getFingerForKeyAtTime(int desiredKeyIndex, int currentTime) {
 		Finger finger = null;
 		
-		for (int x = 0; x < fingers.size(); ++x) {
-			if (fingers.get(x).getCompValAtTime(currentTime) == desiredCompVal) {
-				finger = fingers.get(x);
-				break;
+		if (desiredKeyIndex >= 0 && desiredKeyIndex < Constants.NUM_KEY_INDICES) {
+			int plannedNote = (planner == null) ? -1 : planner.getNoteAt(currentTime, desiredKeyIndex);
+			if (fingersByKey != null) {
+				finger = fingersByKey[desiredKeyIndex];
+			} else if (plannedNote != -1) {
+				// a note in the song: the plan says which finger (if any) hits it
+				finger = (planner.getNoteFinger(plannedNote) == -1) ? null : fingers.get(planner.getNoteFinger(plannedNote));
+			} else {
+				// fingers that move have to be checked one at a time, but each check is a binary search over that finger's positions
+				for (int x = 0; x < fingers.size(); ++x) {
+					Finger candidate = fingers.get(x);
+					if (candidate.getKeyIndexAtTime(currentTime) == desiredKeyIndex) {
+						finger = candidate;
+						break;
+					}
+				}
 			}
 		}
 		
 		return finger;
 	}
 	
+	/**
+	 * Static fingers hold every note for its full duration, but a sliding finger may have to let go of a note early, to slide over to the next note it is needed for
+	 * @param keyIndex key index of the note
+	 * @param startTime time the note is struck at, in milliseconds
+	 * @param duration the note's duration, in milliseconds
+	 * @return the time the finger hitting the note lets go of it
+	 */
+	public int getReleaseTimeForKeyAtTime(int keyIndex, int startTime, int duration) {
+		if (planner != null) {
+			int plannedNote = planner.getNoteAt(startTime, keyIndex);
+			if (plannedNote != -1 && planner.getNoteFinger(plannedNote) != -1) {
+				return planner.getNoteRelease(plannedNote);
+			}
+		}
+		return startTime + duration;
+	}
 	
-	public boolean slideFinger(Finger slidee, double destCompVal) {
-		boolean wasSuccessful = false;
-		// TODO NYI
-		// when the finger slides, we need to see if it collides with any other physical fingers while attempting to reach the destination compareValue (note).
-		// If it does collide, then this fails and returns false.
-		// If it doesn't collide: will it make it in a "reasonable amount of time" ? This is TBD. We don't know how fast fingers would be able to slide in the final implementation,
-		// but we may need to know Constants of how fast it can slide over a white key distance, as in, if the note needs to go from compareValue 6 to 40 in 1 second, it probably won't make it.
-		// Long story short, if the gap in compareValues falls within some TBD time threshold WITHOUT colliding, only then can we return true.
-		
-		// TODO do we want to do any error checking, such as ensuring there aren't 2 notes that somehow have the same compareValue? Which would be impossible with physical fingers.
-		//      it shouldn't be possible to have duplicates with Full and Limited, since we just iterate over every key or every necessary key, but maybe sliding could introduce it.
-		
-		return wasSuccessful;
+	/**
+	 * Moves a finger over a new compareValue from the given time onwards, as long as it can get there in time without running into the fingers beside it.
+	 * The finger leaves as late as it can (arriving right at the given time), and can't leave before its own last change of position.
+	 * Slides for a whole song should come from a SlidingFingerPlanner instead, which plans every finger's slides together - this checks a single slide against the fingers as they are.
+	 * @param slidee finger to slide
+	 * @param arriveTime time in milliseconds that the finger needs to be over the new compareValue by
+	 * @param destCompVal compareValue to slide to
+	 * @return true if the finger could slide there (and now does), false otherwise
+	 */
+	public boolean slideFinger(Finger slidee, int arriveTime, double destCompVal) {
+		int position = fingers.indexOf(slidee);
+		int destKeyIndex = NoteUtils.getKeyIndexForCompareValue(destCompVal);
+		if (position == -1 || destKeyIndex == -1) {
+			return false;
+		}
+		
+		// the last time the finger arrived somewhere (it can't have been sliding before that)
+		int fromKeyIndex = slidee.getKeyIndexAtTime(arriveTime);
+		int lastChange = 0;
+		for (int x = slidee.getNumPositions() - 1; x >= 0; --x) {
+			if (slidee.getPositionTime(x) <= arriveTime) {
+				lastChange = slidee.getPositionTime(x);
+				break;
+			}
+		}
+		int distance = Math.abs(destKeyIndex - fromKeyIndex);
+		int departTime = arriveTime - (int)Math.ceil(distance / Constants.SLIDING_FINGER_KEYS_PER_MS);
+		if (distance > 0 && departTime < lastChange) {
+			return false; // can't get there in time
+		}
+		
+		// the keys the finger passes over can't have any other finger on them at any point during the slide
+		int low = Math.min(fromKeyIndex, destKeyIndex);
+		int high = Math.max(fromKeyIndex, destKeyIndex);
+		for (int x = 0; x < fingers.size(); ++x) {
+			Finger other = fingers.get(x);
+			if (other == slidee) {
+				continue;
+			}
+			// fingers can't cross, so they have to stay on the same side of the finger they started on
+			int otherKeyIndex = other.getKeyIndexAtTime(departTime);
+			boolean isLeft = (x < position);
+			if (isLeft ? otherKeyIndex >= low : otherKeyIndex <= high) {
+				return false;
+			}
+			for (int change = 0; change < other.getNumPositions(); ++change) {
+				int changeTime = other.getPositionTime(change);
+				otherKeyIndex = other.getPositionKeyIndex(change);
+				if (changeTime > departTime && changeTime <= arriveTime && (isLeft ? otherKeyIndex >= low : otherKeyIndex <= high)) {
+					return false;
+				}
+			}
+		}
+		
+		slidee.slide(arriveTime, destCompVal);
+		return true;
 	}
 	
-
+	/**
+	 * @return the sliding finger plan for the song, or null if this isn't a sliding implementation
+	 */
+	public SlidingFingerPlanner getSlidingPlanner() {
+		return planner;
+	}
 	
+	/**
+	 * @return the number of fingers on the hand
+	 */
+	public int getNumFingers() {
+		return fingers.size();
+	}
 	
+	/**
+	 * @param x position of the finger, from the leftmost finger
+	 * @return the finger
+	 */
+	public Finger getFinger(int x) {
+		return fingers.get(x);
+	}
 	
-
 	/**
 	 * @return true if this Hand successfully initialized (didn't have a bad finger implementation, ...). false otherwise
 	 */
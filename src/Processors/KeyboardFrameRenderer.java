@@ -0,0 +1,274 @@
+package Processors;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+import Utils.Constants;
+
+/**
+ * Draws the piano keyboard, as it looks at any point in a song, into an image. It doesn't need a gui, so it can turn a song into a video (or a sequence of .png files),
+ * and the PianoFeigner's PianoPanel uses it as its offscreen image, only copying the keys that changed onto the screen.
+ *
+ * Frames are taken at a fixed rate, and which keys are down in each frame comes straight from the song's PlaybackSchedule, so nothing has to be played in real time.
+ * One image is reused for every frame: the whole keyboard is only drawn for the first frame, and after that only the keys that went up or down since the previous frame are redrawn
+ * (along with any black keys sitting on top of a redrawn white key). Most frames don't change at all, and those aren't drawn.
+ *
+ * Raw frames are written as packed 8-bit rgb (3 bytes per pixel, top row first), which an encoder can take directly, for example:
+ * ffmpeg -f rawvideo -pix_fmt rgb24 -s {width}x{height} -r {fps} -i - out.mp4
+ */
+public class KeyboardFrameRenderer {
+	private KeyboardLayout layout;
+	private PlaybackSchedule schedule;
+	private BufferedImage image;
+	private Graphics2D graphics;
+	private int[] pixels; // the image's own pixel data, 0xRRGGBB
+	private byte[] rgbFrame; // reused for every raw frame written
+	private boolean isRgbFrameStale; // true if the image has been drawn on since rgbFrame was last filled in
+
+	private boolean[] isDown; // whether each key in the layout is drawn as down in the current image
+	private boolean[] isDirty;
+	private int shownEvent;
+	private Rectangle dirtyBounds;
+	private boolean hasDrawn;
+	private long numKeysDrawn;
+
+	/**
+	 * @param layout the keyboard to draw
+	 * @param schedule the schedule of the song being drawn
+	 */
+	public KeyboardFrameRenderer(KeyboardLayout layout, PlaybackSchedule schedule) {
+		this.layout = layout;
+		this.schedule = schedule;
+		image = new BufferedImage(layout.getKeyboardWidth(), layout.getKeyboardHeight(), BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+		pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		rgbFrame = new byte[pixels.length * 3];
+		isRgbFrameStale = true;
+		isDown = new boolean[layout.getNumKeys()];
+		isDirty = new boolean[layout.getNumKeys()];
+		shownEvent = -1;
+		hasDrawn = false;
+		numKeysDrawn = 0;
+	}
+
+	/**
+	 * @param fps frames per second
+	 * @return the number of frames it takes to cover the whole song (up until the last key is released) at the given frame rate
+	 */
+	public int getNumFrames(int fps) {
+		int endTime = (schedule.getNumEvents() == 0) ? 0 : schedule.getEventTime(schedule.getNumEvents() - 1);
+		return (int)((long)endTime * fps / 1000) + 1;
+	}
+
+	/**
+	 * @param frame index of the frame
+	 * @param fps frames per second
+	 * @return the time the frame shows, in milliseconds from the start of the song
+	 */
+	public static int getFrameTime(int frame, int fps) {
+		return (int)((long)frame * 1000 / fps);
+	}
+
+	/**
+	 * Brings the image up to date with the keys that are down at the given time, only redrawing the keys that changed
+	 * @param time time in milliseconds from the start of the song
+	 * @return the number of keys that were redrawn
+	 */
+	public int renderFrame(int time) {
+		return renderEvent(schedule.getEventAtTime(time));
+	}
+
+	/**
+	 * Brings the image up to date with the keys that are down as of the given event, only redrawing the keys that changed.
+	 * The area that was redrawn is available from getDirtyBounds afterwards.
+	 * @param event index of the event in the schedule, or -1 for before the first event (no keys down)
+	 * @return the number of keys that were redrawn
+	 */
+	public int renderEvent(int event) {
+		if (!hasDrawn) {
+			return renderFullEvent(event);
+		}
+		dirtyBounds = null;
+		if (event == shownEvent) {
+			return 0;
+		}
+		shownEvent = event;
+
+		int numDirty = 0;
+		for (int key = 0; key < layout.getNumKeys(); ++key) {
+			boolean down = schedule.isKeyDown(event, layout.getKeyIndex(key));
+			isDirty[key] = (down != isDown[key]);
+			isDown[key] = down;
+			if (isDirty[key]) {
+				++numDirty;
+			}
+		}
+		if (numDirty == 0) {
+			return 0;
+		}
+
+		// a redrawn white key paints over the black keys on either side of it, so those have to be put back on top
+		for (int white = 0; white < layout.getNumKeys() && !layout.isBlackKey(white); ++white) {
+			if (isDirty[white]) {
+				for (int black = white + 1; black < layout.getNumKeys(); ++black) {
+					if (layout.isBlackKey(black) && !isDirty[black] && layout.doKeysOverlap(white, black)) {
+						isDirty[black] = true;
+					}
+				}
+			}
+		}
+
+		int numDrawn = 0;
+		for (int key = 0; key < layout.getNumKeys(); ++key) {
+			if (isDirty[key]) {
+				drawKey(key);
+				addDirtyBounds(key);
+				++numDrawn;
+			}
+		}
+		return numDrawn;
+	}
+
+	private void addDirtyBounds(int key) {
+		// + 1 for the border, which is drawn one pixel past the fill
+		Rectangle keyBounds = new Rectangle(layout.getX(key), 0, layout.getWidth(key) + 1, layout.getHeight(key) + 1);
+		if (dirtyBounds == null) {
+			dirtyBounds = keyBounds;
+		} else {
+			dirtyBounds.add(keyBounds);
+		}
+	}
+
+	/**
+	 * @return the smallest rectangle holding every key redrawn by the last render, or null if nothing was redrawn
+	 */
+	public Rectangle getDirtyBounds() {
+		return dirtyBounds;
+	}
+
+	/**
+	 * Redraws the entire keyboard for the given time, whether anything changed or not
+	 * @param time time in milliseconds from the start of the song
+	 * @return the number of keys that were redrawn
+	 */
+	public int renderFullFrame(int time) {
+		return renderFullEvent(schedule.getEventAtTime(time));
+	}
+
+	/**
+	 * Redraws the entire keyboard as of the given event, whether anything changed or not
+	 * @param event index of the event in the schedule, or -1 for before the first event (no keys down)
+	 * @return the number of keys that were redrawn
+	 */
+	public int renderFullEvent(int event) {
+		shownEvent = event;
+		hasDrawn = true;
+		dirtyBounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+		graphics.setColor(Constants.KEY_COLOR_WHITE);
+		graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+		for (int key = 0; key < layout.getNumKeys(); ++key) {
+			isDown[key] = schedule.isKeyDown(shownEvent, layout.getKeyIndex(key));
+			drawKey(key);
+		}
+		return layout.getNumKeys();
+	}
+
+	private void drawKey(int key) {
+		if (isDown[key]) {
+			graphics.setColor(Constants.KEY_COLOR_HIT);
+		} else if (layout.isBlackKey(key)) {
+			graphics.setColor(Constants.KEY_COLOR_BLACK);
+		} else {
+			graphics.setColor(Constants.KEY_COLOR_WHITE);
+		}
+		graphics.fillRect(layout.getX(key), 0, layout.getWidth(key), layout.getHeight(key));
+		graphics.setColor(Constants.KEY_COLOR_BORDER);
+		graphics.drawRect(layout.getX(key), 0, layout.getWidth(key), layout.getHeight(key));
+		++numKeysDrawn;
+		isRgbFrameStale = true;
+	}
+
+	/**
+	 * @return the image the frames are drawn into. The same image is reused (and changed) for every frame.
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * @return the total number of keys drawn across every frame rendered so far
+	 */
+	public long getNumKeysDrawn() {
+		return numKeysDrawn;
+	}
+
+	/**
+	 * Writes the current image as one raw frame of packed 8-bit rgb.
+	 * The image is only converted again if something was drawn since the last frame written, so unchanged frames are just written out again.
+	 * @param out stream to write to
+	 */
+	public void writeRgbFrame(OutputStream out) throws Exception {
+		if (isRgbFrameStale) {
+			for (int x = 0; x < pixels.length; ++x) {
+				int pixel = pixels[x];
+				rgbFrame[x * 3] = (byte)(pixel >> 16);
+				rgbFrame[x * 3 + 1] = (byte)(pixel >> 8);
+				rgbFrame[x * 3 + 2] = (byte)pixel;
+			}
+			isRgbFrameStale = false;
+		}
+		out.write(rgbFrame);
+	}
+
+	/**
+	 * Renders every frame of the song as raw rgb frames, one after another
+	 * @param out stream to write to. It is not closed.
+	 * @param fps frames per second
+	 * @return true if every frame was written, false otherwise
+	 */
+	public boolean renderRgbStream(OutputStream out, int fps) {
+		try {
+			int numFrames = getNumFrames(fps);
+			for (int frame = 0; frame < numFrames; ++frame) {
+				renderFrame(getFrameTime(frame, fps));
+				writeRgbFrame(out);
+			}
+			out.flush();
+			return true;
+		} catch (Exception e) {
+			System.out.println("KeyboardFrameRenderer#renderRgbStream - error - exception caught writing frames: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Renders every frame of the song as a sequence of .png files, named frame_000000.png, frame_000001.png, ...
+	 * A frame that is the same as the one before it is still written, so the sequence plays back at the right speed.
+	 * @param directory directory to write the files to. It is created if it doesn't exist.
+	 * @param fps frames per second
+	 * @return true if every frame was written, false otherwise
+	 */
+	public boolean renderPngSequence(File directory, int fps) {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			System.out.println("KeyboardFrameRenderer#renderPngSequence - error - could not create directory: " + directory);
+			return false;
+		}
+		try {
+			int numFrames = getNumFrames(fps);
+			for (int frame = 0; frame < numFrames; ++frame) {
+				renderFrame(getFrameTime(frame, fps));
+				ImageIO.write(image, "png", new File(directory, String.format("frame_%06d.png", frame)));
+			}
+			return true;
+		} catch (Exception e) {
+			System.out.println("KeyboardFrameRenderer#renderPngSequence - error - exception caught writing frames: " + e.getMessage());
+			return false;
+		}
+	}
+}
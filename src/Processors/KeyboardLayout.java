@@ -0,0 +1,171 @@
+package Processors;
+
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Where every key of the piano gui is drawn, worked out once up front: each key's rectangle, its key index, and whether it is a black key.
+ * The keys are laid out the same way PianoFeigner's PianoPanel has always drawn them - white keys side by side from the left,
+ * and black keys dropped on top of them, straddling the gap between two white keys.
+ *
+ * Keys are stored white keys first (left to right), then black keys (left to right), which is also the order they have to be drawn in,
+ * since black keys overlap the white keys on either side of them.
+ */
+public class KeyboardLayout {
+	private int numWhiteKeys;
+	private int numKeys;
+	private int[] keyIndices;
+	private int[] keyX;
+	private int[] keyWidths;
+	private int[] keyHeights;
+	private int width;
+	private int height;
+
+	/**
+	 * @param numWhiteKeys The number of white keys on the piano
+	 * @param numBlackKeys The number of black keys on the piano
+	 * @param firstKey The letter of the first white key on the piano
+	 * @param firstOctave The number of the octave attached to the first white key on the piano
+	 */
+	public KeyboardLayout(int numWhiteKeys, int numBlackKeys, String firstKey, int firstOctave) {
+		this.numWhiteKeys = numWhiteKeys;
+		numKeys = numWhiteKeys + numBlackKeys;
+		keyIndices = new int[numKeys];
+		keyX = new int[numKeys];
+		keyWidths = new int[numKeys];
+		keyHeights = new int[numKeys];
+
+		// white keys are immediate neighbours, so each one is just one key width over from the last
+		int patternPosition = NoteUtils.getPositionForNote(firstKey);
+		int currentOctave = firstOctave;
+		for (int i = 0; i < numWhiteKeys; ++i) {
+			String letter = NoteUtils.getNoteForPosition(patternPosition);
+			setKey(i, NoteUtils.generateCompareValue(letter, currentOctave, false, false), Constants.KEY_WIDTH_WHITE * i, Constants.KEY_WIDTH_WHITE, Constants.KEY_HEIGHT_WHITE);
+
+			++patternPosition;
+			if (patternPosition > Constants.OCTAVE_LENGTH) {
+				patternPosition = 1;
+				++currentOctave;
+			}
+		}
+
+		// NOTE: while natural keys are all immediate neighbors with each other, sharp/flat keys do not physically touch any other sharp/flat keys.
+		// this means there are spaces between black keys. we can't just draw them all sequentially like white keys, we need to determine their placement pattern / position.
+		// if we pretend that black notes fall in the exact gap between 2 white keys (as in, there is a black key that is positioned with one half in white C and in white D),
+		// and we give black keys a width that is only approximately 2/3rd the width of a white key (so a white key can be surrounded by black keys on both sides,
+		//																							 1/3rd the space on each side of the white key being black, when needed),
+		// then we can work with a pattern of:
+		// C - Black - D - Black - E - NO BLACK - F - Black - G - Black - A - Black - B - NO BLACK - (repeat)
+		// which would translate into a repeating pattern of:
+		// (FIRST TIME ONLY: SKIP THE POSITION 1/3 INTO THE WHITE NOTE TO INITIALIZE)
+		// skip 1/3rd (for C's middle), place black key, skip 1/3rd (for D's middle), place key, skip 1/3rd for E's middle, SKIP 1/3RD  AGAIN(E has no sharp), ...
+		// (init with one skip) skip place skip place skip skip skip place skip place skip place skip skip (repeat)
+
+		// Init: skip 1/3rd in
+		int walker = Constants.KEY_WIDTH_WHITE / 3;
+		patternPosition = NoteUtils.getPositionForNote(firstKey);
+		currentOctave = firstOctave;
+		for (int i = 0; i < numBlackKeys; ++i) {
+			walker += (Constants.KEY_WIDTH_WHITE / 3);
+			if (patternPosition == (int)Constants.A_POS || patternPosition == (int)Constants.C_POS || patternPosition == (int)Constants.D_POS ||
+				patternPosition == (int)Constants.F_POS || patternPosition == (int)Constants.G_POS) {
+				String letter = NoteUtils.getNoteForPosition(patternPosition);
+				setKey(numWhiteKeys + i, NoteUtils.generateCompareValue(letter, currentOctave, true, false), walker, Constants.KEY_WIDTH_BLACK, Constants.KEY_HEIGHT_BLACK);
+			} else {
+				--i;
+			}
+			walker += Constants.KEY_WIDTH_BLACK;
+
+			++patternPosition;
+			if (patternPosition > Constants.OCTAVE_LENGTH) {
+				patternPosition = 1;
+				++currentOctave;
+			}
+		}
+
+		// borders are drawn one pixel past the fill, on the right and bottom edges
+		width = 1;
+		height = 1;
+		for (int key = 0; key < numKeys; ++key) {
+			width = Math.max(width, keyX[key] + keyWidths[key] + 1);
+			height = Math.max(height, keyHeights[key] + 1);
+		}
+	}
+
+	private void setKey(int key, double compareValue, int x, int width, int height) {
+		keyIndices[key] = NoteUtils.getKeyIndexForCompareValue(compareValue);
+		keyX[key] = x;
+		keyWidths[key] = width;
+		keyHeights[key] = height;
+	}
+
+	/**
+	 * @return the number of keys (white and black) on the piano
+	 */
+	public int getNumKeys() {
+		return numKeys;
+	}
+
+	/**
+	 * @param key position of the key in the layout (white keys first, then black keys)
+	 * @return true if the key is a black key
+	 */
+	public boolean isBlackKey(int key) {
+		return key >= numWhiteKeys;
+	}
+
+	/**
+	 * @param key position of the key in the layout
+	 * @return the key's key index (see NoteUtils#getKeyIndexForCompareValue), or -1 if the key doesn't map to a valid note
+	 */
+	public int getKeyIndex(int key) {
+		return keyIndices[key];
+	}
+
+	/**
+	 * @param key position of the key in the layout
+	 * @return the left edge of the key, in pixels. The top edge of every key is 0.
+	 */
+	public int getX(int key) {
+		return keyX[key];
+	}
+
+	/**
+	 * @param key position of the key in the layout
+	 * @return the width of the key's fill, in pixels (its border is drawn one pixel wider)
+	 */
+	public int getWidth(int key) {
+		return keyWidths[key];
+	}
+
+	/**
+	 * @param key position of the key in the layout
+	 * @return the height of the key's fill, in pixels (its border is drawn one pixel taller)
+	 */
+	public int getHeight(int key) {
+		return keyHeights[key];
+	}
+
+	/**
+	 * @param whiteKey position of a white key in the layout
+	 * @param blackKey position of a black key in the layout
+	 * @return true if the black key is drawn over part of the white key
+	 */
+	public boolean doKeysOverlap(int whiteKey, int blackKey) {
+		return keyX[blackKey] <= keyX[whiteKey] + keyWidths[whiteKey] && keyX[whiteKey] <= keyX[blackKey] + keyWidths[blackKey];
+	}
+
+	/**
+	 * @return the width of the whole keyboard, in pixels (including the borders)
+	 */
+	public int getKeyboardWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the whole keyboard, in pixels (including the borders)
+	 */
+	public int getKeyboardHeight() {
+		return height;
+	}
+}
@@ -0,0 +1,57 @@
+package Processors;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of events, so pending releases don't each need a boxed object like they would in a PriorityQueue
+ */
+class LongHeap {
+	private long[] heap = new long[64];
+	private int size = 0;
+	
+	boolean isEmpty() {
+		return size == 0;
+	}
+	
+	long peek() {
+		return heap[0];
+	}
+	
+	void add(long value) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		int child = size++;
+		while (child > 0) {
+			int parent = (child - 1) >>> 1;
+			if (heap[parent] <= value) {
+				break;
+			}
+			heap[child] = heap[parent];
+			child = parent;
+		}
+		heap[child] = value;
+	}
+	
+	long poll() {
+		long top = heap[0];
+		long last = heap[--size];
+		int parent = 0;
+		while (true) {
+			int child = 2 * parent + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				++child;
+			}
+			if (last <= heap[child]) {
+				break;
+			}
+			heap[parent] = heap[child];
+			parent = child;
+		}
+		heap[parent] = last;
+		return top;
+	}
+}
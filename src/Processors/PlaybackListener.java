@@ -0,0 +1,32 @@
+package Processors;
+
+/**
+ * Receives the events of a PlaybackSchedule from a PlaybackScheduler, as they come due.
+ * Every method is called from the scheduler's playback thread, so anything that touches the gui needs to be handed off to the gui thread (repaint() is safe to call).
+ * They should also return quickly, as the next event can't be played until they do.
+ */
+public interface PlaybackListener {
+
+	/**
+	 * Called when an event comes due
+	 * @param schedule the schedule being played
+	 * @param event index of the event within the schedule
+	 */
+	public void playbackEvent(PlaybackSchedule schedule, int event);
+
+	/**
+	 * Called when playback jumps to a different point in the song (see PlaybackScheduler#seek), before any events after that point are played.
+	 * Anything that was sounding should be stopped, and the keys that are down as of the given event should be shown.
+	 * @param schedule the schedule being played
+	 * @param event index of the event in effect at the point jumped to (the last event before it), or -1 if it is before the first event
+	 * @param time the point jumped to, in milliseconds from the start of the song
+	 * @param requestNanos the System.nanoTime that the seek was asked for at, so the listener can time how long it takes to catch up to the new point
+	 */
+	public void playbackSeeked(PlaybackSchedule schedule, int event, int time, long requestNanos);
+
+	/**
+	 * Called once after the last event has been played, or once playback has been stopped
+	 * @param scheduler the scheduler that was playing, which can be asked for its timing measurements
+	 */
+	public void playbackFinished(PlaybackScheduler scheduler);
+}
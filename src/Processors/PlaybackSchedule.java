@@ -0,0 +1,228 @@
+package Processors;
+
+import java.util.Arrays;
+
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Utils.Constants;
+
+/**
+ * Every point in time during playback of a MusicSheet where something happens - either a slice's notes are struck, or a held note is released -
+ * worked out ahead of time, so playback only has to wake up when something actually happens (instead of on every GCD interval).
+ *
+ * Each event has a time (in milliseconds from the start of the song), the index of the slice struck at that time (or -1 if the event is only releases),
+ * and the full set of keys that are down from that time until the next event, stored as a bitmask indexed by key index (see NoteUtils#getKeyIndexForCompareValue).
+ *
+ * Keys are held the same way the PianoFeigner has always held them: from the slice's start time until the note's duration runs out,
+ * and hitting a key that is still being held doesn't change anything (the original note's duration still applies).
+ * Rests aren't keys, so they never show up as being held (although their slice is still struck, so the listener can decide what to do with them).
+ *
+ * The schedule never changes once it is built, so it is safe to read from multiple threads (such as a playback thread and the gui thread).
+ */
+public class PlaybackSchedule {
+	private static final int KEY_MASK_WORDS = (Constants.NUM_KEY_INDICES + 63) / 64;
+	private static final int KEY_BITS = 8; // key indices fit in the low byte of a packed release, with the release time above them
+
+	private MusicSheet sheet;
+	private int[] eventTimes;
+	private int[] sliceIndices;
+	private long[] keyMasks; // KEY_MASK_WORDS longs per event
+	private int numEvents;
+
+	// only used while building the schedule
+	private long[] currentMask;
+	private long[] releaseHeap; // min-heap of pending releases, packed as (release time << KEY_BITS) | key index
+	private int heapSize;
+
+	/**
+	 * Builds the schedule for the given sheet
+	 * @param sheet MusicSheet to be played
+	 */
+	public PlaybackSchedule(MusicSheet sheet) {
+		this.sheet = sheet;
+		int capacity = Math.max(sheet.getNumSlices() * 2, 16);
+		eventTimes = new int[capacity];
+		sliceIndices = new int[capacity];
+		keyMasks = new long[capacity * KEY_MASK_WORDS];
+		numEvents = 0;
+		currentMask = new long[KEY_MASK_WORDS];
+		releaseHeap = new long[Math.max(sheet.getNoteCount(), 16)];
+		heapSize = 0;
+
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			MusicSlice slice = sheet.getSlice(x);
+			int startTime = slice.getStartTime();
+
+			releaseBefore(startTime);
+			// notes released at the same time a slice is struck are released first, and combined into the slice's event
+			while (heapSize > 0 && (releaseHeap[0] >>> KEY_BITS) == startTime) {
+				releaseKey((int)(popRelease() & ((1 << KEY_BITS) - 1)));
+			}
+
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				if (!isDown(currentMask, 0, keyIndex)) {
+					int releaseTime = startTime + slice.getDurationForKey(keyIndex);
+					currentMask[keyIndex >>> 6] |= 1L << (keyIndex & 63);
+					pushRelease(((long)releaseTime << KEY_BITS) | keyIndex);
+				}
+			}
+			addEvent(startTime, x);
+		}
+		releaseBefore(Integer.MAX_VALUE);
+
+		eventTimes = Arrays.copyOf(eventTimes, numEvents);
+		sliceIndices = Arrays.copyOf(sliceIndices, numEvents);
+		keyMasks = Arrays.copyOf(keyMasks, numEvents * KEY_MASK_WORDS);
+		currentMask = null;
+		releaseHeap = null;
+	}
+
+	/**
+	 * Adds an event for every distinct release time before the given time
+	 */
+	private void releaseBefore(int time) {
+		while (heapSize > 0 && (releaseHeap[0] >>> KEY_BITS) < time) {
+			int releaseTime = (int)(releaseHeap[0] >>> KEY_BITS);
+			while (heapSize > 0 && (releaseHeap[0] >>> KEY_BITS) == releaseTime) {
+				releaseKey((int)(popRelease() & ((1 << KEY_BITS) - 1)));
+			}
+			addEvent(releaseTime, -1);
+		}
+	}
+
+	private void releaseKey(int keyIndex) {
+		currentMask[keyIndex >>> 6] &= ~(1L << (keyIndex & 63));
+	}
+
+	private void addEvent(int time, int sliceIndex) {
+		if (numEvents == eventTimes.length) {
+			eventTimes = Arrays.copyOf(eventTimes, numEvents * 2);
+			sliceIndices = Arrays.copyOf(sliceIndices, numEvents * 2);
+			keyMasks = Arrays.copyOf(keyMasks, numEvents * 2 * KEY_MASK_WORDS);
+		}
+		eventTimes[numEvents] = time;
+		sliceIndices[numEvents] = sliceIndex;
+		System.arraycopy(currentMask, 0, keyMasks, numEvents * KEY_MASK_WORDS, KEY_MASK_WORDS);
+		++numEvents;
+	}
+
+	private void pushRelease(long release) {
+		if (heapSize == releaseHeap.length) {
+			releaseHeap = Arrays.copyOf(releaseHeap, heapSize * 2);
+		}
+		int pos = heapSize++;
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (releaseHeap[parent] <= release) {
+				break;
+			}
+			releaseHeap[pos] = releaseHeap[parent];
+			pos = parent;
+		}
+		releaseHeap[pos] = release;
+	}
+
+	private long popRelease() {
+		long earliest = releaseHeap[0];
+		long last = releaseHeap[--heapSize];
+		int pos = 0;
+		while (true) {
+			int child = pos * 2 + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && releaseHeap[child + 1] < releaseHeap[child]) {
+				++child;
+			}
+			if (releaseHeap[child] >= last) {
+				break;
+			}
+			releaseHeap[pos] = releaseHeap[child];
+			pos = child;
+		}
+		if (heapSize > 0) {
+			releaseHeap[pos] = last;
+		}
+		return earliest;
+	}
+
+	private static boolean isDown(long[] masks, int offset, int keyIndex) {
+		return (masks[offset + (keyIndex >>> 6)] & (1L << (keyIndex & 63))) != 0;
+	}
+
+	/**
+	 * @return the sheet this schedule was built for
+	 */
+	public MusicSheet getSheet() {
+		return sheet;
+	}
+
+	/**
+	 * @return the number of events in the schedule
+	 */
+	public int getNumEvents() {
+		return numEvents;
+	}
+
+	/**
+	 * @param event index of the event
+	 * @return the time of the event, in milliseconds from the start of the song
+	 */
+	public int getEventTime(int event) {
+		return eventTimes[event];
+	}
+
+	/**
+	 * @param event index of the event
+	 * @return the index (within the sheet) of the slice struck at this event, or -1 if nothing is struck (only releases happen)
+	 */
+	public int getSliceIndex(int event) {
+		return sliceIndices[event];
+	}
+
+	/**
+	 * @param event index of the event
+	 * @return the slice struck at this event, or null if nothing is struck (only releases happen)
+	 */
+	public MusicSlice getSlice(int event) {
+		return (sliceIndices[event] == -1) ? null : sheet.getSlice(sliceIndices[event]);
+	}
+
+	/**
+	 * @param event index of the event, or -1 for the time before the first event
+	 * @param keyIndex key index of the key to check
+	 * @return true if the key is down from this event's time until the next event's time
+	 */
+	public boolean isKeyDown(int event, int keyIndex) {
+		if (event < 0 || keyIndex < 0 || keyIndex >= Constants.NUM_KEY_INDICES) {
+			return false;
+		}
+		return isDown(keyMasks, event * KEY_MASK_WORDS, keyIndex);
+	}
+
+	/**
+	 * @param event index of the event
+	 * @return true if the set of keys that are down is different after this event than before it.
+	 *         Only false when every key struck by the event was already being held.
+	 */
+	public boolean didKeysChange(int event) {
+		int offset = event * KEY_MASK_WORDS;
+		for (int x = 0; x < KEY_MASK_WORDS; ++x) {
+			long previous = (event == 0) ? 0 : keyMasks[offset - KEY_MASK_WORDS + x];
+			if (keyMasks[offset + x] != previous) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the event in effect at the given time (the last event at or before it), via a binary search
+	 * @param time time in milliseconds from the start of the song
+	 * @return the index of the event in effect, or -1 if the time is before the first event
+	 */
+	public int getEventAtTime(int time) {
+		int event = Arrays.binarySearch(eventTimes, 0, numEvents, time);
+		return (event < 0) ? -event - 2 : event;
+	}
+}
@@ -0,0 +1,389 @@
+package Processors;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a PlaybackSchedule in real time on its own thread, handing each event to a PlaybackListener when it comes due.
+ *
+ * Rather than firing on a fixed interval (like a Timer running every GCD milliseconds), the scheduler sleeps until the next event is due,
+ * so songs with a 1ms GCD don't burn through a wakeup every millisecond, and nothing at all happens between events.
+ *
+ * Every event's due time is measured from an anchor - a point in the song, and the System.nanoTime that point was (or will be) reached at - rather than from when
+ * the previous event happened to run. That way, lateness never accumulates over the course of a song: if one event runs late (a slow listener, the OS not waking the thread on time, ...),
+ * the following events are still aimed at their original due times. Playback starts anchored at time 0 of the song, and is only re-anchored when it is paused, resumed,
+ * sped up or slowed down, or jumped to a different point in the song (seek).
+ *
+ * Seeking finds the first event at or after the new point with a binary search over the event times, rather than replaying the song from the start,
+ * and the listener is told about the seek (so it can stop whatever was sounding, and show the keys that are down at the new point) before any more events are played.
+ * How long it takes from seek being called until the listener has been told is recorded (the seek dispatch time). The listener is handed the time the seek was asked for,
+ * so it can time the rest of the resync itself - such as the keys being repainted, or the audio catching up.
+ *
+ * Sleeping is done in two stages: the thread parks until shortly before the due time, and then yields until the due time actually arrives,
+ * since parking alone can oversleep by a millisecond or more on some platforms. Pausing, seeking or changing the speed wakes the thread up so it can re-aim.
+ *
+ * How late each event actually ran (its jitter) is recorded, and can be inspected once playback has finished.
+ */
+public class PlaybackScheduler {
+	public static final double MIN_SPEED = 0.25;
+	public static final double MAX_SPEED = 4.0;
+	private static final long NANOS_PER_MILLI = 1000000L;
+	private static final long SPIN_NANOS = 1000000L; // how long before an event is due to stop parking, and yield until it is due instead
+
+	private PlaybackSchedule schedule;
+	private PlaybackListener listener;
+	private long[] jitterNanos;
+	private volatile int numEventsPlayed;
+	private volatile long totalJitterNanos;
+	private volatile long maxJitterNanos;
+	private volatile boolean isStopped;
+	private boolean holdAtEnd;
+	private Thread thread;
+
+	// the playback clock. guarded by the scheduler's lock, and changed by pause / resume / seek / setSpeed from any thread
+	private int anchorTime; // point in the song, in milliseconds
+	private long anchorNanos; // System.nanoTime that anchorTime is reached at
+	private double speed;
+	private boolean isPaused;
+	private int nextEvent;
+	private int seekEvent; // the event in effect at the point seeked to, once a seek is pending
+	private int seekTime;
+	private boolean isSeekPending;
+	private long seekRequestNanos;
+	private volatile int clockVersion; // bumped every time the clock changes, so a sleeping playback thread knows to re-aim
+
+	// seek measurements
+	private volatile int numSeeks;
+	private volatile long totalSeekNanos;
+	private volatile long maxSeekNanos;
+
+	/**
+	 * @param schedule the schedule to play
+	 * @param listener the listener to hand events to as they come due
+	 */
+	public PlaybackScheduler(PlaybackSchedule schedule, PlaybackListener listener) {
+		this.schedule = schedule;
+		this.listener = listener;
+		jitterNanos = new long[schedule.getNumEvents()];
+		numEventsPlayed = 0;
+		isStopped = false;
+		holdAtEnd = false;
+		speed = 1.0;
+		isPaused = false;
+		nextEvent = 0;
+		isSeekPending = false;
+	}
+
+	/**
+	 * By default, playback finishes once the last event has been played. If it is held at the end instead, it waits there (as if paused)
+	 * until it is seeked back into the song or stopped, and the listener's playbackFinished is only called once it is stopped.
+	 * Must be set before start is called.
+	 * @param holdAtEnd true to hold at the end of the song rather than finishing
+	 */
+	public void setHoldAtEnd(boolean holdAtEnd) {
+		this.holdAtEnd = holdAtEnd;
+	}
+
+	/**
+	 * Starts playback on a new thread. Time 0 of the song (or wherever playback was seeked to beforehand) is the moment this is called.
+	 * @return false if playback was already started, true otherwise
+	 */
+	public boolean start() {
+		if (thread != null) {
+			System.out.println("PlaybackScheduler#start - error - playback has already been started.");
+			return false;
+		}
+		synchronized (this) {
+			anchorNanos = System.nanoTime();
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				play();
+			}
+		}, "PlaybackScheduler");
+		thread.start();
+		return true;
+	}
+
+	private void play() {
+		while (!isStopped) {
+			int version = clockVersion;
+			int event;
+			long dueNanos;
+			boolean isSeek = false;
+			int time = 0;
+			long requestNanos = 0;
+			boolean isIdle;
+			synchronized (this) {
+				if (isSeekPending) {
+					isSeekPending = false;
+					isSeek = true;
+					time = seekTime;
+					requestNanos = seekRequestNanos;
+				}
+				event = isSeek ? seekEvent : nextEvent;
+				isIdle = isPaused || nextEvent >= schedule.getNumEvents();
+				dueNanos = isIdle ? 0 : getDueNanos(nextEvent);
+			}
+
+			if (isSeek) {
+				listener.playbackSeeked(schedule, event, time, requestNanos);
+				long elapsed = System.nanoTime() - requestNanos;
+				totalSeekNanos += elapsed;
+				maxSeekNanos = Math.max(maxSeekNanos, elapsed);
+				++numSeeks;
+				continue;
+			}
+
+			if (isIdle) {
+				if (!isPaused && !holdAtEnd) {
+					break; // the last event has been played
+				}
+				while (clockVersion == version && !isStopped) {
+					LockSupport.park(this);
+				}
+				continue;
+			}
+
+			if (!waitUntil(dueNanos, version)) {
+				continue; // the clock changed while waiting, so re-aim
+			}
+			synchronized (this) {
+				if (clockVersion != version) {
+					continue;
+				}
+				++nextEvent;
+			}
+			long jitter = System.nanoTime() - dueNanos;
+			jitterNanos[event] = jitter;
+			totalJitterNanos += jitter;
+			maxJitterNanos = Math.max(maxJitterNanos, jitter);
+			listener.playbackEvent(schedule, event);
+			++numEventsPlayed;
+		}
+		listener.playbackFinished(this);
+	}
+
+	/**
+	 * @return the System.nanoTime the event is due at, given the current anchor and speed. Must be called while holding the lock.
+	 */
+	private long getDueNanos(int event) {
+		return anchorNanos + (long)((schedule.getEventTime(event) - anchorTime) * NANOS_PER_MILLI / speed);
+	}
+
+	/**
+	 * @return true once the due time has arrived, false if the clock changed (or playback was stopped) before then
+	 */
+	private boolean waitUntil(long dueNanos, int version) {
+		long remaining = dueNanos - System.nanoTime();
+		while (remaining > 0) {
+			if (clockVersion != version || isStopped) {
+				return false;
+			}
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+			} else {
+				Thread.yield();
+			}
+			remaining = dueNanos - System.nanoTime();
+		}
+		return clockVersion == version && !isStopped;
+	}
+
+	/**
+	 * Wakes up the playback thread after the clock has been changed. Must be called while holding the lock.
+	 */
+	private void clockChanged() {
+		++clockVersion;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * @return the current point in the song, in milliseconds. Must be called while holding the lock.
+	 */
+	private int getPositionLocked() {
+		if (isPaused || thread == null) {
+			return anchorTime;
+		}
+		return anchorTime + (int)((System.nanoTime() - anchorNanos) * speed / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * @return the current point in the song, in milliseconds from its start. Stops at the time of the last event.
+	 */
+	public synchronized int getPosition() {
+		int endTime = (schedule.getNumEvents() == 0) ? 0 : schedule.getEventTime(schedule.getNumEvents() - 1);
+		return Math.max(0, Math.min(getPositionLocked(), endTime));
+	}
+
+	/**
+	 * Pauses playback. Nothing is played until resume is called (seeking while paused is allowed, and stays paused).
+	 */
+	public synchronized void pause() {
+		if (!isPaused) {
+			anchorTime = getPositionLocked();
+			isPaused = true;
+			clockChanged();
+		}
+	}
+
+	/**
+	 * Resumes playback from wherever it was paused (or seeked to while paused)
+	 */
+	public synchronized void resume() {
+		if (isPaused) {
+			anchorNanos = System.nanoTime();
+			isPaused = false;
+			clockChanged();
+		}
+	}
+
+	/**
+	 * @return true if playback is paused
+	 */
+	public synchronized boolean isPaused() {
+		return isPaused;
+	}
+
+	/**
+	 * Jumps to a different point in the song. The listener's playbackSeeked is called (on the playback thread) with the event in effect at that point,
+	 * and playback carries on from the first event at or after it.
+	 * @param time point in the song to jump to, in milliseconds from its start
+	 */
+	public synchronized void seek(int time) {
+		time = Math.max(0, time);
+		// the first event at or after the time is the next to play, and the one before it is what is in effect
+		int event = schedule.getEventAtTime(time);
+		if (event == -1 || schedule.getEventTime(event) != time) {
+			++event;
+		}
+		nextEvent = event;
+		seekEvent = event - 1;
+		seekTime = time;
+		isSeekPending = true;
+		seekRequestNanos = System.nanoTime();
+		anchorTime = time;
+		anchorNanos = seekRequestNanos;
+		clockChanged();
+	}
+
+	/**
+	 * Changes how fast the song is played, from the current point on
+	 * @param speed multiplier of the song's normal speed, from MIN_SPEED (a quarter of normal speed) to MAX_SPEED (4 times normal speed)
+	 * @return true if the speed was changed, false if it was out of range
+	 */
+	public synchronized boolean setSpeed(double speed) {
+		if (speed < MIN_SPEED || speed > MAX_SPEED) {
+			System.out.println("PlaybackScheduler#setSpeed - error - speed must be from " + MIN_SPEED + " to " + MAX_SPEED + ". Speed given: " + speed);
+			return false;
+		}
+		anchorTime = getPositionLocked();
+		anchorNanos = System.nanoTime();
+		this.speed = speed;
+		clockChanged();
+		return true;
+	}
+
+	/**
+	 * @return the current speed multiplier
+	 */
+	public synchronized double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Stops playback. The listener's playbackFinished is still called.
+	 */
+	public void stop() {
+		isStopped = true;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Waits for playback to finish (either the last event is played, or playback is stopped)
+	 * @return true if playback finished, false if interrupted while waiting
+	 */
+	public boolean waitForFinish() {
+		try {
+			if (thread != null) {
+				thread.join();
+			}
+			return true;
+		} catch (InterruptedException e) {
+			System.out.println("PlaybackScheduler#waitForFinish - error - interrupted while waiting for playback to finish.");
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number of events that have been handed to the listener so far (counting any that were played again after seeking back)
+	 */
+	public int getNumEventsPlayed() {
+		return numEventsPlayed;
+	}
+
+	/**
+	 * @param event index of an event that has been played
+	 * @return how late the event was handed to the listener (the last time it was played), in nanoseconds
+	 */
+	public long getJitterNanos(int event) {
+		return jitterNanos[event];
+	}
+
+	/**
+	 * @return the latest any played event was handed to the listener, in nanoseconds
+	 */
+	public long getMaxJitterNanos() {
+		return maxJitterNanos;
+	}
+
+	/**
+	 * @return the average of how late the played events were handed to the listener, in nanoseconds
+	 */
+	public long getMeanJitterNanos() {
+		int played = numEventsPlayed;
+		return (played == 0) ? 0 : totalJitterNanos / played;
+	}
+
+	/**
+	 * @return the number of seeks the listener has been told about
+	 */
+	public int getNumSeeks() {
+		return numSeeks;
+	}
+
+	/**
+	 * @return the average time from seek being called until the listener had been told about it, in nanoseconds
+	 */
+	public long getMeanSeekNanos() {
+		int seeks = numSeeks;
+		return (seeks == 0) ? 0 : totalSeekNanos / seeks;
+	}
+
+	/**
+	 * @return the longest time from seek being called until the listener had been told about it, in nanoseconds
+	 */
+	public long getMaxSeekNanos() {
+		return maxSeekNanos;
+	}
+
+	/**
+	 * @return a one line summary of the timing measurements, for logging
+	 */
+	public String getJitterSummary() {
+		String summary = "events played: " + numEventsPlayed + " (schedule has " + schedule.getNumEvents() + ")" +
+						 ", mean jitter: " + String.format("%.3f", getMeanJitterNanos() / (double)NANOS_PER_MILLI) + "ms" +
+						 ", max jitter: " + String.format("%.3f", getMaxJitterNanos() / (double)NANOS_PER_MILLI) + "ms";
+		if (numSeeks > 0) {
+			summary += ", seeks: " + numSeeks +
+					   ", mean seek dispatch: " + String.format("%.3f", getMeanSeekNanos() / (double)NANOS_PER_MILLI) + "ms" +
+					   ", max seek dispatch: " + String.format("%.3f", getMaxSeekNanos() / (double)NANOS_PER_MILLI) + "ms";
+		}
+		return summary;
+	}
+}
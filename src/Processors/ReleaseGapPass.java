@@ -0,0 +1,376 @@
+package Processors;
+
+import java.util.Arrays;
+
+import Utils.NoteUtils;
+
+/**
+ * A post-processing stage for the instructions FngWriter writes out, so a finger is never asked to re-hit a key the instant it lets go of it, or to hit a key it is already holding.
+ *
+ * Two things are fixed, and every fix is recorded (see getReport):
+ *  - a finger that is released and then hit again less than minGapMs later has its release moved earlier, so it gets at least minGapMs to come back up.
+ *    Only the release moves, never the hit, since a late hit is what people hear. A release is never moved to less than minHoldMs after its own hit,
+ *    so a very short note may still get less of a gap than asked for (which is recorded as well).
+ *  - a finger that is hit again while still holding the same key (munashiki.alc hits cv 34.0 at 109200 for 600, and again at 109600 for 200 - see known issues.txt)
+ *    either has the hold split in two, releasing ahead of the second hit the same way as above (OVERLAP_SPLIT), or has the second hit dropped,
+ *    so it becomes one longer hold (OVERLAP_MERGE). Either way the key is released at the later of the two release times, once.
+ *
+ * The instructions go through in one pass, in the order they're written out. Since a release can only ever move up to minGapMs earlier,
+ * instructions are held back for minGapMs (in a heap, ordered the same as FngEventOrder) before they're handed on,
+ * and releases are held back until it's known whether their finger is hit again within minGapMs. Only that window of instructions is ever held at once.
+ */
+public class ReleaseGapPass {
+	public static final int OVERLAP_SPLIT = 0;
+	public static final int OVERLAP_MERGE = 1;
+
+	// kinds of adjustments
+	public static final int ADJUST_RELEASE_MOVED = 0;
+	public static final int ADJUST_HOLD_SPLIT = 1;
+	public static final int ADJUST_HOLD_MERGED = 2;
+	public static final int ADJUST_GAP_TOO_SHORT = 3;
+	private static final String[] ADJUST_DESCRIPTIONS = { "release moved earlier, ahead of a re-hit", "overlapping hold split in two", "overlapping hold merged into one",
+														  "note too short to leave the full gap before its re-hit" };
+
+	private int minGapMs;
+	private int minHoldMs;
+	private int overlapMode;
+
+	private FngEventOrder order;
+	private LongHeap output;
+	private long[] ready;
+	private int numReady;
+	private int nextReady;
+
+	// each finger's state, indexed by finger sequence number
+	private int[] heldKey; // -1 if the finger isn't holding a key
+	private int[] holdStart;
+	private int[] releasesToDrop; // releases still to come for holds that were split or merged into a later one
+	private boolean[] hasPendingRelease;
+	private long[] pendingRelease;
+	private int[] pendingHoldStart;
+
+	// fingers with a release held back, in order of release time. Entries for releases that have since been handed on are skipped over.
+	private int[] pendingFingers;
+	private long[] pendingEvents;
+	private int pendingHead;
+	private int pendingCount;
+
+	// every adjustment made
+	private int numAdjustments;
+	private int[] adjustTypes;
+	private int[] adjustTimes; // time of the hit that caused the adjustment
+	private int[] adjustFingers;
+	private int[] adjustKeys;
+	private int[] adjustFromTimes; // the release's original time (or for a merge, the dropped hit's time)
+	private int[] adjustToTimes; // the release's new time
+	private int[] adjustCounts = new int[ADJUST_DESCRIPTIONS.length];
+
+	/**
+	 * @param minGapMs the least time a finger is given between letting go of a key and hitting it again
+	 * @param minHoldMs the least time a key is held after a release is moved earlier (at least 1, so a release never lands on its own hit)
+	 * @param overlapMode what to do when a finger is hit again while still holding its key: OVERLAP_SPLIT or OVERLAP_MERGE
+	 */
+	public ReleaseGapPass(int minGapMs, int minHoldMs, int overlapMode) {
+		this.minGapMs = Math.max(minGapMs, 0);
+		this.minHoldMs = Math.max(minHoldMs, 1);
+		this.overlapMode = (overlapMode == OVERLAP_MERGE) ? OVERLAP_MERGE : OVERLAP_SPLIT;
+	}
+
+	/**
+	 * Gets the pass ready for a new song, clearing out the adjustments from the last one
+	 * @param order the order instructions are encoded and written out in
+	 */
+	void start(FngEventOrder order) {
+		this.order = order;
+		output = new LongHeap();
+		ready = new long[16];
+		numReady = 0;
+		nextReady = 0;
+		heldKey = new int[0];
+		holdStart = new int[0];
+		releasesToDrop = new int[0];
+		hasPendingRelease = new boolean[0];
+		pendingRelease = new long[0];
+		pendingHoldStart = new int[0];
+		pendingFingers = new int[16];
+		pendingEvents = new long[16];
+		pendingHead = 0;
+		pendingCount = 0;
+		numAdjustments = 0;
+		adjustTypes = new int[16];
+		adjustTimes = new int[16];
+		adjustFingers = new int[16];
+		adjustKeys = new int[16];
+		adjustFromTimes = new int[16];
+		adjustToTimes = new int[16];
+		Arrays.fill(adjustCounts, 0);
+	}
+
+	/**
+	 * Takes in the next instruction, in the order they're written out. Any instructions that are now final can be taken with hasNext() / next().
+	 * @param event the instruction, encoded by the FngEventOrder given to start()
+	 */
+	void add(long event) {
+		int time = order.getTime(event);
+		handOnPendingReleases((long)time - minGapMs);
+
+		int finger = order.getFingerSequence(event);
+		ensureFinger(finger);
+		int keyIndex = order.getKeyIndex(event);
+		if (order.isRelease(event)) {
+			if (releasesToDrop[finger] > 0) {
+				--releasesToDrop[finger];
+			} else {
+				if (heldKey[finger] == keyIndex) {
+					heldKey[finger] = -1;
+				}
+				holdRelease(finger, event);
+			}
+			handOnOutput((long)time - minGapMs);
+			return;
+		} else if (order.isHit(event)) {
+			if (heldKey[finger] == keyIndex) {
+				// hit again while still holding the key
+				++releasesToDrop[finger];
+				if (overlapMode == OVERLAP_MERGE || time - holdStart[finger] < minHoldMs + 1) {
+					recordAdjustment(ADJUST_HOLD_MERGED, time, finger, keyIndex, time, -1);
+					return;
+				}
+				int releaseTime = Math.max(time - minGapMs, holdStart[finger] + minHoldMs);
+				output.add(order.encodeRelease(releaseTime, finger, keyIndex));
+				recordAdjustment(ADJUST_HOLD_SPLIT, time, finger, keyIndex, -1, releaseTime);
+				if (time - releaseTime < minGapMs) {
+					recordAdjustment(ADJUST_GAP_TOO_SHORT, time, finger, keyIndex, -1, releaseTime);
+				}
+			} else if (hasPendingRelease[finger]) {
+				// released not long ago. let go earlier, so the finger has time to come back up before this hit.
+				long release = pendingRelease[finger];
+				int releaseTime = order.getTime(release);
+				int releaseKey = order.getKeyIndex(release);
+				int movedTime = Math.min(releaseTime, Math.max(time - minGapMs, pendingHoldStart[finger] + minHoldMs));
+				hasPendingRelease[finger] = false;
+				if (movedTime < releaseTime) {
+					output.add(order.encodeRelease(movedTime, finger, releaseKey));
+					recordAdjustment(ADJUST_RELEASE_MOVED, time, finger, releaseKey, releaseTime, movedTime);
+				} else {
+					output.add(release);
+				}
+				if (time - movedTime < minGapMs) {
+					recordAdjustment(ADJUST_GAP_TOO_SHORT, time, finger, releaseKey, releaseTime, movedTime);
+				}
+			}
+			heldKey[finger] = keyIndex;
+			holdStart[finger] = time;
+		}
+		output.add(event);
+		handOnOutput((long)time - minGapMs);
+	}
+
+	/**
+	 * Hands on every instruction still being held back. Call once the last instruction has been added.
+	 */
+	void finish() {
+		handOnPendingReleases(Long.MAX_VALUE);
+		handOnOutput(Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return true if there are instructions ready to be written out
+	 */
+	boolean hasNext() {
+		return nextReady < numReady;
+	}
+
+	/**
+	 * @return the next instruction to write out
+	 */
+	long next() {
+		long event = ready[nextReady++];
+		if (nextReady == numReady) {
+			nextReady = 0;
+			numReady = 0;
+		}
+		return event;
+	}
+
+	private void holdRelease(int finger, long release) {
+		if (hasPendingRelease[finger]) {
+			// a release without a hit since the last one (ex: after a slide). the earlier one can't move anymore.
+			output.add(pendingRelease[finger]);
+		}
+		hasPendingRelease[finger] = true;
+		pendingRelease[finger] = release;
+		pendingHoldStart[finger] = holdStart[finger];
+		if (pendingCount == pendingFingers.length) {
+			int[] fingers = new int[pendingCount * 2];
+			long[] events = new long[pendingCount * 2];
+			for (int x = 0; x < pendingCount; ++x) {
+				fingers[x] = pendingFingers[(pendingHead + x) % pendingFingers.length];
+				events[x] = pendingEvents[(pendingHead + x) % pendingEvents.length];
+			}
+			pendingFingers = fingers;
+			pendingEvents = events;
+			pendingHead = 0;
+		}
+		int tail = (pendingHead + pendingCount++) % pendingFingers.length;
+		pendingFingers[tail] = finger;
+		pendingEvents[tail] = release;
+	}
+
+	/**
+	 * Hands on the releases that can no longer be moved, since nothing after the given time can be a re-hit within minGapMs of them
+	 */
+	private void handOnPendingReleases(long time) {
+		while (pendingCount > 0) {
+			int finger = pendingFingers[pendingHead];
+			long release = pendingEvents[pendingHead];
+			boolean isStillPending = hasPendingRelease[finger] && pendingRelease[finger] == release;
+			if (isStillPending && order.getTime(release) > time) {
+				return;
+			}
+			if (isStillPending) {
+				hasPendingRelease[finger] = false;
+				output.add(release);
+			}
+			pendingHead = (pendingHead + 1) % pendingFingers.length;
+			--pendingCount;
+		}
+	}
+
+	/**
+	 * Moves every held back instruction before the given time over to the ready list, in order. Nothing can be moved in front of them anymore.
+	 */
+	private void handOnOutput(long beforeTime) {
+		while (!output.isEmpty() && order.getTime(output.peek()) < beforeTime) {
+			if (numReady == ready.length) {
+				ready = Arrays.copyOf(ready, numReady * 2);
+			}
+			ready[numReady++] = output.poll();
+		}
+	}
+
+	private void ensureFinger(int finger) {
+		if (finger < heldKey.length) {
+			return;
+		}
+		int oldLength = heldKey.length;
+		int newLength = Math.max(finger + 1, oldLength * 2);
+		heldKey = Arrays.copyOf(heldKey, newLength);
+		Arrays.fill(heldKey, oldLength, newLength, -1);
+		holdStart = Arrays.copyOf(holdStart, newLength);
+		releasesToDrop = Arrays.copyOf(releasesToDrop, newLength);
+		hasPendingRelease = Arrays.copyOf(hasPendingRelease, newLength);
+		pendingRelease = Arrays.copyOf(pendingRelease, newLength);
+		pendingHoldStart = Arrays.copyOf(pendingHoldStart, newLength);
+	}
+
+	private void recordAdjustment(int type, int time, int finger, int keyIndex, int fromTime, int toTime) {
+		if (numAdjustments == adjustTypes.length) {
+			int newLength = numAdjustments * 2;
+			adjustTypes = Arrays.copyOf(adjustTypes, newLength);
+			adjustTimes = Arrays.copyOf(adjustTimes, newLength);
+			adjustFingers = Arrays.copyOf(adjustFingers, newLength);
+			adjustKeys = Arrays.copyOf(adjustKeys, newLength);
+			adjustFromTimes = Arrays.copyOf(adjustFromTimes, newLength);
+			adjustToTimes = Arrays.copyOf(adjustToTimes, newLength);
+		}
+		adjustTypes[numAdjustments] = type;
+		adjustTimes[numAdjustments] = time;
+		adjustFingers[numAdjustments] = finger;
+		adjustKeys[numAdjustments] = keyIndex;
+		adjustFromTimes[numAdjustments] = fromTime;
+		adjustToTimes[numAdjustments] = toTime;
+		++numAdjustments;
+		++adjustCounts[type];
+	}
+
+	public int getMinGapMs() {
+		return minGapMs;
+	}
+
+	public int getMinHoldMs() {
+		return minHoldMs;
+	}
+
+	public int getOverlapMode() {
+		return overlapMode;
+	}
+
+	/**
+	 * @return number of adjustments made to the last song written out
+	 */
+	public int getNumAdjustments() {
+		return numAdjustments;
+	}
+
+	/**
+	 * @param type one of the ADJUST_ constants
+	 * @return number of adjustments of the given kind made to the last song written out
+	 */
+	public int getNumAdjustments(int type) {
+		return adjustCounts[type];
+	}
+
+	/**
+	 * @return the kind of the given adjustment, one of the ADJUST_ constants
+	 */
+	public int getAdjustmentType(int adjustment) {
+		return adjustTypes[adjustment];
+	}
+
+	/**
+	 * @return time of the hit that caused the given adjustment
+	 */
+	public int getAdjustmentTime(int adjustment) {
+		return adjustTimes[adjustment];
+	}
+
+	public int getAdjustmentFinger(int adjustment) {
+		return adjustFingers[adjustment];
+	}
+
+	public int getAdjustmentKeyIndex(int adjustment) {
+		return adjustKeys[adjustment];
+	}
+
+	/**
+	 * @return the time the release was originally at, or for a merge, the time of the hit that was dropped. -1 if it doesn't apply.
+	 */
+	public int getAdjustmentFromTime(int adjustment) {
+		return adjustFromTimes[adjustment];
+	}
+
+	/**
+	 * @return the time the release is now at, or -1 if it doesn't apply
+	 */
+	public int getAdjustmentToTime(int adjustment) {
+		return adjustToTimes[adjustment];
+	}
+
+	/**
+	 * @return a summary of the adjustments made to the last song written out, followed by each adjustment on its own line
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append("release gap of " + minGapMs + "ms, holds of at least " + minHoldMs + "ms, overlapping holds " + ((overlapMode == OVERLAP_SPLIT) ? "split" : "merged") + ": " +
+					  numAdjustments + " adjustments");
+		for (int type = 0; type < ADJUST_DESCRIPTIONS.length; ++type) {
+			report.append(" | " + ADJUST_DESCRIPTIONS[type] + ": " + adjustCounts[type]);
+		}
+		report.append(System.lineSeparator());
+		for (int x = 0; x < numAdjustments; ++x) {
+			report.append("  " + adjustTimes[x] + " FINGER " + adjustFingers[x] + " CV " + NoteUtils.getCompareValueForKeyIndex(adjustKeys[x]) + ": " + ADJUST_DESCRIPTIONS[adjustTypes[x]]);
+			if (adjustTypes[x] == ADJUST_HOLD_MERGED) {
+				report.append(", hit dropped");
+			} else if (adjustTypes[x] == ADJUST_GAP_TOO_SHORT) {
+				report.append(", gap is " + (adjustTimes[x] - adjustToTimes[x]) + "ms");
+			} else if (adjustFromTimes[x] == -1) {
+				report.append(", released at " + adjustToTimes[x]);
+			} else {
+				report.append(", release moved from " + adjustFromTimes[x] + " to " + adjustToTimes[x]);
+			}
+			report.append(System.lineSeparator());
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,168 @@
+package Processors;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Every .wav file for a voice (resources/grand or resources/orgel), decoded once into memory as 16-bit stereo PCM samples, indexed by key index.
+ *
+ * The PianoFeigner used to open a new AudioInputStream and Clip off of the classpath for every single note it played, which made chords noticeably late.
+ * Decoding everything up front means starting a note is just pointing a voice at an array that's already in memory (see AudioMixer).
+ *
+ * Banks are shared: getBank only decodes a voice's files the first time it is asked for that voice.
+ * Files that aren't already in FORMAT are converted to it when they're decoded.
+ */
+public class SampleBank {
+	public static final float SAMPLE_RATE = 44100f;
+	public static final int CHANNELS = 2;
+	public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false); // 16-bit signed, little-endian
+
+	private static final HashMap<String, SampleBank> BANKS = new HashMap<String, SampleBank>();
+
+	private String voice;
+	private short[][] samples; // indexed by key index, interleaved left/right. null for keys with no .wav file
+	private int numSamplesLoaded;
+
+	/**
+	 * Returns the shared bank for the given voice, decoding its .wav files if this is the first time the voice has been asked for
+	 * @param voice Constants.VOICE_GRAND or Constants.VOICE_ORGEL
+	 * @return the bank for the voice, or null if the voice is invalid
+	 */
+	public static synchronized SampleBank getBank(String voice) {
+		if (!voice.equalsIgnoreCase(Constants.VOICE_ORGEL) && !voice.equalsIgnoreCase(Constants.VOICE_GRAND)) {
+			System.out.println("SampleBank#getBank - error - invalid voice supplied: " + voice);
+			return null;
+		}
+		String key = voice.toUpperCase();
+		SampleBank bank = BANKS.get(key);
+		if (bank == null) {
+			bank = new SampleBank(key);
+			BANKS.put(key, bank);
+		}
+		return bank;
+	}
+
+	private SampleBank(String voice) {
+		this.voice = voice;
+		samples = new short[Constants.NUM_KEY_INDICES][];
+		numSamplesLoaded = 0;
+
+		// the resource folders are named after the voice, and the files after the compare values (the same naming NoteUtils#getSoundWavForNote uses)
+		String folder = voice.toLowerCase() + "/";
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			String uri = folder + NoteUtils.getCompareValueForKeyIndex(keyIndex) + ".wav";
+			URL url = SampleBank.class.getClassLoader().getResource(uri);
+			if (url != null) {
+				samples[keyIndex] = decode(url);
+				if (samples[keyIndex] != null) {
+					++numSamplesLoaded;
+				}
+			}
+		}
+		System.out.println("SampleBank#ctor - decoded " + numSamplesLoaded + " .wav files for voice " + voice + " (" + (getTotalFrames() * CHANNELS * 2 / (1024 * 1024)) + "MB)");
+	}
+
+	/**
+	 * Decodes a .wav file into interleaved 16-bit stereo samples
+	 * @return the samples, or null if the file couldn't be decoded
+	 */
+	private short[] decode(URL url) {
+		try {
+			InputStream in = new BufferedInputStream(url.openStream());
+			AudioInputStream audioIn = AudioSystem.getAudioInputStream(in);
+			if (!audioIn.getFormat().matches(FORMAT)) {
+				audioIn = AudioSystem.getAudioInputStream(FORMAT, audioIn);
+			}
+
+			byte[] bytes = readAll(audioIn);
+			audioIn.close();
+
+			short[] decoded = new short[bytes.length / 2];
+			ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(decoded);
+			return decoded;
+		} catch (Exception e) {
+			System.out.println("SampleBank#decode - error - exception caught decoding .wav file: " + url + ". Exception: " + e.getMessage());
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private byte[] readAll(AudioInputStream audioIn) throws Exception {
+		int frameSize = FORMAT.getFrameSize();
+		long frames = audioIn.getFrameLength();
+		byte[] buffer = new byte[(frames > 0) ? (int)(frames * frameSize) : 1024 * 1024];
+		int total = 0;
+		int read;
+		while ((read = audioIn.read(buffer, total, buffer.length - total)) > 0) {
+			total += read;
+			if (total == buffer.length) {
+				byte[] bigger = new byte[buffer.length * 2];
+				System.arraycopy(buffer, 0, bigger, 0, total);
+				buffer = bigger;
+			}
+		}
+		total -= total % frameSize; // only whole frames
+		if (total == buffer.length) {
+			return buffer;
+		}
+		byte[] trimmed = new byte[total];
+		System.arraycopy(buffer, 0, trimmed, 0, total);
+		return trimmed;
+	}
+
+	/**
+	 * @param keyIndex key index of the note
+	 * @return the note's interleaved left/right samples, or null if the voice has no .wav file for the key. The array must not be modified.
+	 */
+	public short[] getSamples(int keyIndex) {
+		if (keyIndex < 0 || keyIndex >= Constants.NUM_KEY_INDICES) {
+			return null;
+		}
+		return samples[keyIndex];
+	}
+
+	/**
+	 * @param keyIndex key index of the note
+	 * @return the length of the note's .wav file in frames (one sample per channel), or 0 if there isn't one
+	 */
+	public int getNumFrames(int keyIndex) {
+		short[] keySamples = getSamples(keyIndex);
+		return (keySamples == null) ? 0 : keySamples.length / CHANNELS;
+	}
+
+	/**
+	 * @return the number of .wav files that were decoded for the voice
+	 */
+	public int getNumSamplesLoaded() {
+		return numSamplesLoaded;
+	}
+
+	/**
+	 * @return the total length, in frames, of all the decoded files
+	 */
+	public long getTotalFrames() {
+		long total = 0;
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			total += getNumFrames(keyIndex);
+		}
+		return total;
+	}
+
+	/**
+	 * @return the voice this bank holds
+	 */
+	public String getVoice() {
+		return voice;
+	}
+}
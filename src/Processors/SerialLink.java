@@ -0,0 +1,150 @@
+package Processors;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * One direction of a simulated serial connection: a pipe whose bytes take as long to come out the far end as they would over a real serial line at the given baud rate.
+ * The writing side writes to getOutputStream() whenever it likes (like the operating system's serial driver, it buffers everything it's given).
+ * The bytes are put on the line one at a time as advance() moves the link's clock forward, and land in the receiving side's buffer, read from getInputStream().
+ *
+ * The receive buffer has a fixed size, like the arduino's 64 byte serial buffer. Bytes that arrive while it is full are lost, and counted.
+ *
+ * Time only moves when advance() is called, so a whole song can be pushed through the link in far less time than it takes to play,
+ * and the results are the same every run.
+ */
+public class SerialLink {
+
+	private int baudRate;
+	private int bitsPerByte;
+	private long bitBudget; // in thousandths of a bit, so a baud rate that isn't a multiple of 1000 doesn't lose time every millisecond
+
+	private byte[] sending = new byte[256];
+	private int sendingHead;
+	private int sendingCount;
+
+	private byte[] received;
+	private int receivedHead;
+	private int receivedCount;
+
+	private long bytesSent;
+	private long bytesLost;
+
+	private OutputStream out = new OutputStream() {
+		@Override
+		public void write(int b) {
+			if (sendingCount == sending.length) {
+				byte[] grown = new byte[sending.length * 2];
+				for (int x = 0; x < sendingCount; ++x) {
+					grown[x] = sending[(sendingHead + x) % sending.length];
+				}
+				sending = grown;
+				sendingHead = 0;
+			}
+			sending[(sendingHead + sendingCount++) % sending.length] = (byte)b;
+		}
+	};
+
+	private InputStream in = new InputStream() {
+		@Override
+		public int read() {
+			if (receivedCount == 0) {
+				return -1;
+			}
+			int b = received[receivedHead] & 0xFF;
+			receivedHead = (receivedHead + 1) % received.length;
+			--receivedCount;
+			return b;
+		}
+
+		@Override
+		public int available() {
+			return receivedCount;
+		}
+	};
+
+	/**
+	 * @param baudRate bits per second the line carries
+	 * @param bitsPerByte bits on the line for each byte sent (see Constants.SERIAL_BITS_PER_BYTE)
+	 * @param receiveBufferBytes size of the receiving side's buffer
+	 */
+	public SerialLink(int baudRate, int bitsPerByte, int receiveBufferBytes) {
+		this.baudRate = baudRate;
+		this.bitsPerByte = bitsPerByte;
+		this.received = new byte[Math.max(receiveBufferBytes, 1)];
+	}
+
+	/**
+	 * Moves the link's clock forward, putting as many of the waiting bytes on the line as there is time for
+	 * @param ms milliseconds to move forward
+	 */
+	public void advance(int ms) {
+		long byteCost = bitsPerByte * 1000L;
+		bitBudget += (long)baudRate * ms;
+		while (sendingCount > 0 && bitBudget >= byteCost) {
+			bitBudget -= byteCost;
+			byte b = sending[sendingHead];
+			sendingHead = (sendingHead + 1) % sending.length;
+			--sendingCount;
+			++bytesSent;
+			if (receivedCount == received.length) {
+				++bytesLost;
+			} else {
+				received[(receivedHead + receivedCount++) % received.length] = b;
+			}
+		}
+		if (sendingCount == 0) {
+			// an idle line doesn't save up time to send later bytes faster
+			bitBudget = 0;
+		}
+	}
+
+	/**
+	 * @return the stream the sending side writes to
+	 */
+	public OutputStream getOutputStream() {
+		return out;
+	}
+
+	/**
+	 * @return the stream the receiving side reads from. available() is how many bytes are waiting in the receive buffer.
+	 */
+	public InputStream getInputStream() {
+		return in;
+	}
+
+	/**
+	 * @return true if there are bytes written to the link that haven't been put on the line yet
+	 */
+	public boolean isSending() {
+		return sendingCount > 0;
+	}
+
+	/**
+	 * @return number of bytes written to the link that haven't been put on the line yet
+	 */
+	public int getNumBytesWaiting() {
+		return sendingCount;
+	}
+
+	/**
+	 * @return number of bytes waiting in the receive buffer to be read
+	 */
+	public int getNumBytesReceived() {
+		return receivedCount;
+	}
+
+	/**
+	 * @return total number of bytes put on the line
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * @return total number of bytes that arrived while the receive buffer was full, and were lost
+	 */
+	public long getBytesLost() {
+		return bytesLost;
+	}
+}
@@ -0,0 +1,877 @@
+package Processors;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+
+/**
+ * Works out which sliding finger hits each note of a song, and when every finger slides, for a piano with a set number of fingers on a shared track (FINGER_IMPL_SLIDING).
+ *
+ * The rules the fingers have to follow:
+ * - fingers can't pass through each other, so finger 1 is always left of finger 2, which is always left of finger 3, ... (and no two fingers are ever over the same key)
+ * - a finger slides at most keysPerMs keys per millisecond, and can't start sliding until it has struck its last note
+ * - a finger holding a key down has to let go of it before it can slide away, which cuts the note short. The time cut off is the "lost hold time"
+ * Slides are timed to arrive just as the note they're for is struck, so a finger keeps holding its last note for as long as it can.
+ * A finger also can't start sliding while a finger beside it is still on (or still crossing) any of the keys it is about to slide over, which keeps the fingers from ever crossing mid-slide.
+ * Only the neighbour's last slide is looked at: if it stayed clear of those keys, the finger can leave once the neighbour arrived from the slide before it,
+ * otherwise it has to wait for the neighbour to finish its last slide.
+ *
+ * Planning is a beam search over the song's slices: the best BEAM_WIDTH ways of playing the song so far are kept, and each is extended with every way of handing the
+ * next slice's notes out to fingers that could reach them in time (skipping a note is always an option, but it costs UNPLAYABLE_NOTE_COST).
+ * Fingers that aren't hitting anything stay where they are, unless a finger hitting something has to push them out of the way.
+ * The cost being minimized is lost hold time (in milliseconds) + TRAVEL_COST_PER_KEY for every key slid over + UNPLAYABLE_NOTE_COST for every note that can't be hit.
+ *
+ * Fingers start wherever they are first needed: a finger that hasn't done anything yet can be put into place before the song starts for free,
+ * as long as that doesn't put it on the wrong side of a finger beside it at any point. Notes off either end of the piano are always unplayable.
+ *
+ * The beam can prune away the plans an extra finger needs, so on its own, more fingers could end up leaving more notes unplayable.
+ * To stop that, the plan for one finger fewer is made first (so planning for n fingers plans for 1 to n - 1 fingers too), and followed alongside the search
+ * with the extra finger parked at an end of the piano that plan never reaches (beside any fingers it already had parked there). Parked, the extra finger changes nothing,
+ * so that plan is kept if the search can't play more of the song. This only fails to hold if the plan for one finger fewer reaches both ends of the piano.
+ *
+ * Everything is worked out in the constructor, and never changes after that, so a planner is safe to read from multiple threads.
+ */
+public class SlidingFingerPlanner {
+	public static final int DEFAULT_BEAM_WIDTH = 16;
+	public static final long UNPLAYABLE_NOTE_COST = 1000000;
+	public static final long TRAVEL_COST_PER_KEY = 1;
+	private static final int MAX_ASSIGNMENTS_PER_STATE = 512; // bounds how many ways of handing out a big chord are tried from each state
+	private static final int UNSET = Integer.MIN_VALUE;
+
+	private int numFingers;
+	private int minKeyIndex;
+	private int maxKeyIndex;
+	private double keysPerMs;
+	private int beamWidth;
+	private int[] travelTimes; // milliseconds it takes to slide over x keys
+
+	// the notes of the song, in slice order and then by key index
+	private int[] noteStarts;
+	private int[] noteDurations;
+	private int[] noteKeys;
+	private int[] noteFingers; // -1 if the note can't be hit
+	private int[] noteReleases;
+	private int numNotes;
+	private int[] sliceFirstNotes; // the notes of slice x are sliceFirstNotes[x] up to sliceFirstNotes[x + 1]
+	private int numSlices;
+
+	private int[] rootKeys; // where each finger is before the search puts anything into place
+	private int[] lowestKeys; // lowest and highest key each finger is ever over
+	private int[] highestKeys;
+	private int[] startKeys; // where each finger is when the song starts
+	private int[] slideFingers; // slides, ordered by the time they leave
+	private int[] slideDepartTimes;
+	private int[] slideArriveTimes;
+	private int[] slideFromKeys;
+	private int[] slideToKeys;
+	private int numSlides;
+
+	private long lostHoldTime;
+	private long travel;
+	private int numUnplayable;
+
+	// scratch space for the search
+	private int[] sliceKeys;
+	private int[] keyFingers;
+	private int[] newPositions;
+	private boolean[] isPlaced;
+	private Candidate[] pool;
+	private int poolSize;
+	private long slideLost; // lost hold time and travel of the last placeFingers
+	private long slideTravel;
+
+	/**
+	 * @param sheet MusicSheet to plan for
+	 * @param numFingers number of sliding fingers (expected to be no more than the number of keys on the piano)
+	 * @param minKeyIndex key index of the leftmost key on the piano
+	 * @param maxKeyIndex key index of the rightmost key on the piano
+	 * @param keysPerMs fastest a finger can slide, in keys (key indices) per millisecond
+	 */
+	public SlidingFingerPlanner(MusicSheet sheet, int numFingers, int minKeyIndex, int maxKeyIndex, double keysPerMs) {
+		this(sheet, numFingers, minKeyIndex, maxKeyIndex, keysPerMs, DEFAULT_BEAM_WIDTH);
+	}
+
+	/**
+	 * @param sheet MusicSheet to plan for
+	 * @param numFingers number of sliding fingers (expected to be no more than the number of keys on the piano)
+	 * @param minKeyIndex key index of the leftmost key on the piano
+	 * @param maxKeyIndex key index of the rightmost key on the piano
+	 * @param keysPerMs fastest a finger can slide, in keys (key indices) per millisecond
+	 * @param beamWidth number of partial plans kept at each slice. Wider is slower, but more likely to find a cheaper plan.
+	 */
+	public SlidingFingerPlanner(MusicSheet sheet, int numFingers, int minKeyIndex, int maxKeyIndex, double keysPerMs, int beamWidth) {
+		this.numFingers = Math.max(1, Math.min(numFingers, maxKeyIndex - minKeyIndex + 1));
+		if (this.numFingers != numFingers) {
+			System.out.println("SlidingFingerPlanner#ctor - error - can't fit " + numFingers + " fingers on keys " + minKeyIndex + " to " + maxKeyIndex + ". Planning for " + this.numFingers + " fingers instead.");
+		}
+		this.minKeyIndex = minKeyIndex;
+		this.maxKeyIndex = maxKeyIndex;
+		this.keysPerMs = keysPerMs;
+		this.beamWidth = Math.max(1, beamWidth);
+
+		travelTimes = new int[maxKeyIndex - minKeyIndex + 1];
+		for (int x = 0; x < travelTimes.length; ++x) {
+			travelTimes[x] = (int)Math.min(Integer.MAX_VALUE / 4, Math.ceil(x / keysPerMs));
+		}
+
+		loadNotes(sheet);
+		plan((this.numFingers > 1) ? new SlidingFingerPlanner(sheet, this.numFingers - 1, minKeyIndex, maxKeyIndex, keysPerMs, beamWidth) : null);
+	}
+
+	private void loadNotes(MusicSheet sheet) {
+		int capacity = Math.max(sheet.getNoteCount(), 16);
+		noteStarts = new int[capacity];
+		noteDurations = new int[capacity];
+		noteKeys = new int[capacity];
+		numNotes = 0;
+		sliceFirstNotes = new int[sheet.getNumSlices() + 1];
+		numSlices = 0;
+		int maxNotesPerSlice = 0;
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			MusicSlice slice = sheet.getSlice(x);
+			int firstNote = numNotes;
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				if (numNotes == noteStarts.length) {
+					noteStarts = Arrays.copyOf(noteStarts, numNotes * 2);
+					noteDurations = Arrays.copyOf(noteDurations, numNotes * 2);
+					noteKeys = Arrays.copyOf(noteKeys, numNotes * 2);
+				}
+				noteStarts[numNotes] = slice.getStartTime();
+				noteDurations[numNotes] = slice.getDurationForKey(keyIndex);
+				noteKeys[numNotes] = keyIndex;
+				++numNotes;
+			}
+			if (numNotes > firstNote) { // slices of nothing but rests don't need anything from the fingers
+				sliceFirstNotes[numSlices++] = firstNote;
+				maxNotesPerSlice = Math.max(maxNotesPerSlice, numNotes - firstNote);
+			}
+		}
+		sliceFirstNotes[numSlices] = numNotes;
+		noteFingers = new int[numNotes];
+		noteReleases = new int[numNotes];
+
+		sliceKeys = new int[maxNotesPerSlice];
+		keyFingers = new int[maxNotesPerSlice];
+		newPositions = new int[numFingers];
+		isPlaced = new boolean[numFingers];
+		pool = new Candidate[beamWidth];
+	}
+
+	/**
+	 * One way of playing the song up to (and including) a slice
+	 */
+	private static class State {
+		State parent;
+		int[] positions; // key index each finger is over
+		int[] sliceFingers; // finger that hit each note of the slice, -1 if the note wasn't hit
+		boolean[] placed; // fingers put into place before the song started for this slice, rather than slid there. null if there weren't any
+
+		// only needed while the state is on the edge of the search. dropped once the next slice has been planned from it
+		int[] anchors; // earliest each finger can leave (after its last strike, and not before its last arrival). UNSET if the finger hasn't done anything yet
+		int[] arrivals; // when each finger last finished sliding. UNSET if it hasn't slid yet
+		int[] prevArrivals; // when each finger finished the slide before its last one. UNSET if there wasn't one
+		int[] slideLows; // lowest and highest key each finger passed over in its last slide
+		int[] slideHighs;
+		int[] busyUntil; // when each finger lets go of the key it is holding
+
+		long cost;
+		long lostHoldTime;
+		long travel;
+		int numUnplayable;
+
+		void clearEdge() {
+			anchors = null;
+			arrivals = null;
+			prevArrivals = null;
+			slideLows = null;
+			slideHighs = null;
+			busyUntil = null;
+		}
+	}
+
+	/**
+	 * A state for the next slice that made it into the beam, before it has been built
+	 */
+	private static class Candidate {
+		State parent;
+		int[] positions;
+		int[] sliceFingers;
+		boolean[] placed;
+		long cost;
+		long lostHoldTime;
+		long travel;
+		int numDropped;
+	}
+
+	/**
+	 * @param fewerFingers plan for one finger fewer, followed alongside the search. null if there isn't one
+	 */
+	private void plan(SlidingFingerPlanner fewerFingers) {
+		// before the song, the fingers are spread evenly over the keys (clear of the ends, which are left for fingers parked by a plan with more fingers)
+		int[] positions = new int[numFingers];
+		int numKeys = maxKeyIndex - minKeyIndex + 1;
+		for (int finger = 0; finger < numFingers; ++finger) {
+			positions[finger] = minKeyIndex + (int)((2L * finger + 1) * numKeys / (2 * numFingers));
+		}
+		State[] beam = { newRoot(positions) };
+
+		int[] guideFingers = null; // finger each finger of the plan with one finger fewer is in the guide
+		State guide = null;
+		int parkingKey = (fewerFingers == null) ? UNSET : fewerFingers.getParkingKey();
+		if (parkingKey != UNSET) {
+			guideFingers = new int[numFingers - 1];
+			positions = new int[numFingers];
+			int finger = 0;
+			for (int x = 0; x < numFingers - 1; ++x) {
+				if (finger == x && fewerFingers.rootKeys[x] > parkingKey) {
+					positions[finger++] = parkingKey;
+				}
+				guideFingers[x] = finger;
+				positions[finger++] = fewerFingers.rootKeys[x];
+			}
+			if (finger == numFingers - 1) {
+				positions[finger] = parkingKey;
+			}
+			guide = newRoot(positions);
+		}
+
+		for (int slice = 0; slice < numSlices; ++slice) {
+			poolSize = 0;
+			for (int x = 0; x < beam.length; ++x) {
+				extend(beam[x], slice);
+			}
+			Candidate guideCandidate = null;
+			if (guide != null) {
+				guideCandidate = follow(guide, slice, fewerFingers, guideFingers);
+			}
+
+			State[] nextBeam = new State[poolSize];
+			for (int x = 0; x < poolSize; ++x) {
+				nextBeam[x] = build(pool[x], slice);
+				pool[x] = null;
+			}
+			State nextGuide = (guideCandidate == null) ? null : build(guideCandidate, slice);
+			for (int x = 0; x < beam.length; ++x) {
+				beam[x].clearEdge();
+			}
+			if (guide != null) {
+				guide.clearEdge();
+			}
+			beam = nextBeam;
+			guide = nextGuide;
+		}
+
+		State best = beam[0];
+		for (int x = 1; x < beam.length; ++x) {
+			if (beam[x].cost < best.cost) {
+				best = beam[x];
+			}
+		}
+		if (guide != null && (guide.numUnplayable < best.numUnplayable || (guide.numUnplayable == best.numUnplayable && guide.cost < best.cost))) {
+			best = guide;
+		}
+		lostHoldTime = best.lostHoldTime;
+		travel = best.travel;
+		numUnplayable = best.numUnplayable;
+		replay(best);
+	}
+
+	private State newRoot(int[] positions) {
+		State root = new State();
+		root.positions = positions;
+		root.anchors = new int[numFingers];
+		root.arrivals = new int[numFingers];
+		root.prevArrivals = new int[numFingers];
+		root.slideLows = Arrays.copyOf(positions, numFingers);
+		root.slideHighs = Arrays.copyOf(positions, numFingers);
+		root.busyUntil = new int[numFingers];
+		Arrays.fill(root.anchors, UNSET);
+		Arrays.fill(root.arrivals, UNSET);
+		Arrays.fill(root.prevArrivals, UNSET);
+		Arrays.fill(root.busyUntil, UNSET);
+		return root;
+	}
+
+	/**
+	 * Works out where a finger can be added to this plan without changing anything it does: beside the fingers parked at one end of the piano,
+	 * as long as the finger after them never comes over that key
+	 * @return the key the extra finger can stay on for the whole song, or UNSET if the plan uses both ends of the piano
+	 */
+	private int getParkingKey() {
+		int numParked = 0;
+		while (numParked < numFingers && highestKeys[numParked] == minKeyIndex + numParked) {
+			++numParked;
+		}
+		if (numParked == numFingers || lowestKeys[numParked] > minKeyIndex + numParked) {
+			return minKeyIndex + numParked;
+		}
+		numParked = 0;
+		while (numParked < numFingers && lowestKeys[numFingers - 1 - numParked] == maxKeyIndex - numParked) {
+			++numParked;
+		}
+		if (numParked == numFingers || highestKeys[numFingers - 1 - numParked] < maxKeyIndex - numParked) {
+			return maxKeyIndex - numParked;
+		}
+		return UNSET;
+	}
+
+	/**
+	 * Plays the slice from the guide the same way the plan with one finger fewer does
+	 * @return the guide's state after the slice, or null if it can't be played that way
+	 */
+	private Candidate follow(State guide, int slice, SlidingFingerPlanner fewerFingers, int[] guideFingers) {
+		int time = noteStarts[sliceFirstNotes[slice]];
+		int numKeys = sliceFirstNotes[slice + 1] - sliceFirstNotes[slice];
+		int numDropped = 0;
+		for (int key = 0; key < numKeys; ++key) {
+			sliceKeys[key] = noteKeys[sliceFirstNotes[slice] + key];
+			int finger = fewerFingers.noteFingers[sliceFirstNotes[slice] + key];
+			keyFingers[key] = (finger == -1) ? -1 : guideFingers[finger];
+			if (finger == -1) {
+				++numDropped;
+			}
+		}
+		if (!placeFingers(guide, time, numKeys)) {
+			return null;
+		}
+		long cost = guide.cost + slideLost + slideTravel * TRAVEL_COST_PER_KEY + numDropped * UNPLAYABLE_NOTE_COST;
+		return newCandidate(guide, numKeys, cost, slideLost, slideTravel, numDropped);
+	}
+
+	/**
+	 * Adds every way of playing the slice from the state to the pool (as long as it is cheap enough to make it in)
+	 */
+	private void extend(State state, int slice) {
+		int time = noteStarts[sliceFirstNotes[slice]];
+		int numKeys = sliceFirstNotes[slice + 1] - sliceFirstNotes[slice];
+		for (int x = 0; x < numKeys; ++x) {
+			sliceKeys[x] = noteKeys[sliceFirstNotes[slice] + x];
+		}
+		assign(state, slice, time, numKeys, 0, -1, 0, new int[] { 0 });
+	}
+
+	/**
+	 * Tries every order-preserving way of handing the keys from key onwards to fingers after lastFinger (or skipping them)
+	 */
+	private void assign(State state, int slice, int time, int numKeys, int key, int lastFinger, int numDropped, int[] numTried) {
+		if (numTried[0] >= MAX_ASSIGNMENTS_PER_STATE) {
+			return;
+		}
+		if (poolSize == beamWidth && state.cost + numDropped * UNPLAYABLE_NOTE_COST >= worstPoolCost()) {
+			return; // can only get more expensive from here
+		}
+		if (key == numKeys) {
+			++numTried[0];
+			evaluate(state, slice, time, numKeys, numDropped);
+			return;
+		}
+
+		int keyIndex = sliceKeys[key];
+		if (keyIndex >= minKeyIndex && keyIndex <= maxKeyIndex) {
+			int lastKeyIndex = (lastFinger == -1) ? minKeyIndex - 1 : sliceKeys[lastFingerKey(key)];
+			for (int finger = lastFinger + 1; finger < numFingers; ++finger) {
+				// there has to be room for every finger between this one and the last one used, and for every finger after this one
+				if (keyIndex - lastKeyIndex < finger - lastFinger) {
+					break;
+				}
+				if (maxKeyIndex - keyIndex >= numFingers - 1 - finger && canReach(state, finger, keyIndex, time)) {
+					keyFingers[key] = finger;
+					assign(state, slice, time, numKeys, key + 1, finger, numDropped, numTried);
+				}
+			}
+		}
+		keyFingers[key] = -1;
+		assign(state, slice, time, numKeys, key + 1, lastFinger, numDropped + 1, numTried);
+	}
+
+	/**
+	 * @return the index (within the slice) of the last key before the given one that was handed to a finger
+	 */
+	private int lastFingerKey(int key) {
+		int x = key - 1;
+		while (keyFingers[x] == -1) {
+			--x;
+		}
+		return x;
+	}
+
+	private boolean canReach(State state, int finger, int keyIndex, int time) {
+		int distance = Math.abs(keyIndex - state.positions[finger]);
+		return distance == 0 || time - travelTimes[distance] >= getEarliestDepart(state, finger, keyIndex);
+	}
+
+	/**
+	 * A finger can't leave until it has struck its last note, and it can't leave while a finger beside it could still be on any key between where it is and where it is going
+	 * @return the earliest time the finger can start sliding to the key. UNSET if it could have been there since before the song started
+	 */
+	private int getEarliestDepart(State state, int finger, int keyIndex) {
+		int low = Math.min(keyIndex, state.positions[finger]);
+		int high = Math.max(keyIndex, state.positions[finger]);
+		int earliest = state.anchors[finger];
+		if (finger > 0) {
+			earliest = Math.max(earliest, (state.slideHighs[finger - 1] < low) ? state.prevArrivals[finger - 1] : state.arrivals[finger - 1]);
+		}
+		if (finger < numFingers - 1) {
+			earliest = Math.max(earliest, (state.slideLows[finger + 1] > high) ? state.prevArrivals[finger + 1] : state.arrivals[finger + 1]);
+		}
+		return earliest;
+	}
+
+	private long worstPoolCost() {
+		long worst = Long.MIN_VALUE;
+		for (int x = 0; x < poolSize; ++x) {
+			worst = Math.max(worst, pool[x].cost);
+		}
+		return worst;
+	}
+
+	/**
+	 * Works out where every finger ends up for the current assignment (keyFingers), what it costs, and adds it to the pool if it is good enough
+	 */
+	private void evaluate(State state, int slice, int time, int numKeys, int numDropped) {
+		if (placeFingers(state, time, numKeys)) {
+			long cost = state.cost + slideLost + slideTravel * TRAVEL_COST_PER_KEY + numDropped * UNPLAYABLE_NOTE_COST;
+			addToPool(state, numKeys, cost, slideLost, slideTravel, numDropped);
+		}
+	}
+
+	/**
+	 * Works out where every finger ends up for the current assignment (keyFingers) (newPositions and isPlaced), and the lost hold time and travel it takes to get there
+	 * @return true if every finger can get where it needs to be in time, false otherwise
+	 */
+	private boolean placeFingers(State state, int time, int numKeys) {
+		// fingers hitting something go to their keys. the rest stay put, unless they're in the way, in which case they're pushed just far enough aside
+		int[] positions = state.positions;
+		int leftFinger = -1;
+		int leftKeyIndex = minKeyIndex - 1;
+		int key = 0;
+		while (leftFinger < numFingers) {
+			while (key < numKeys && keyFingers[key] == -1) {
+				++key;
+			}
+			int rightFinger = (key < numKeys) ? keyFingers[key] : numFingers;
+			int rightKeyIndex = (key < numKeys) ? sliceKeys[key] : maxKeyIndex + 1;
+			for (int finger = leftFinger + 1; finger < rightFinger; ++finger) {
+				int low = leftKeyIndex + (finger - leftFinger);
+				int high = rightKeyIndex - (rightFinger - finger);
+				newPositions[finger] = Math.max(low, Math.min(high, positions[finger]));
+			}
+			if (rightFinger < numFingers) {
+				newPositions[rightFinger] = rightKeyIndex;
+			}
+			leftFinger = rightFinger;
+			leftKeyIndex = rightKeyIndex;
+			++key;
+		}
+
+		findPlacements(state);
+		long lost = 0;
+		long moved = 0;
+		for (int finger = 0; finger < numFingers; ++finger) {
+			int distance = Math.abs(newPositions[finger] - positions[finger]);
+			if (distance > 0 && !isPlaced[finger]) {
+				int depart = time - travelTimes[distance];
+				if (depart < Math.max(getEarliestDepart(state, finger, newPositions[finger]), 0)) {
+					return false; // a finger can't get there (or out of the way) in time
+				}
+				moved += distance;
+				if (state.busyUntil[finger] > depart) {
+					lost += state.busyUntil[finger] - depart;
+				}
+			}
+		}
+
+		slideLost = lost;
+		slideTravel = moved;
+		return true;
+	}
+
+	/**
+	 * Works out which of the moving fingers can be put into place before the song starts instead of sliding (isPlaced).
+	 * That is any finger that hasn't done anything yet, with neighbours that haven't slid yet (so the neighbours have been in the same spot since the song started),
+	 * as long as its new spot is on the right side of where its neighbours have been all along. Neighbours that are being put into place too have been in their new spot all along.
+	 */
+	private void findPlacements(State state) {
+		for (int finger = 0; finger < numFingers; ++finger) {
+			isPlaced[finger] = newPositions[finger] != state.positions[finger] && state.anchors[finger] == UNSET &&
+				(finger == 0 || state.arrivals[finger - 1] == UNSET) && (finger == numFingers - 1 || state.arrivals[finger + 1] == UNSET);
+		}
+		boolean didChange = true;
+		while (didChange) {
+			didChange = false;
+			for (int finger = 0; finger < numFingers; ++finger) {
+				if (isPlaced[finger]) {
+					boolean isLeftClear = (finger == 0) || (isPlaced[finger - 1] ? newPositions[finger - 1] : state.positions[finger - 1]) < newPositions[finger];
+					boolean isRightClear = (finger == numFingers - 1) || (isPlaced[finger + 1] ? newPositions[finger + 1] : state.positions[finger + 1]) > newPositions[finger];
+					if (!isLeftClear || !isRightClear) {
+						isPlaced[finger] = false;
+						didChange = true;
+					}
+				}
+			}
+		}
+	}
+
+	private void addToPool(State state, int numKeys, long cost, long lost, long moved, int numDropped) {
+		// two plans with the fingers in the same spots are nearly interchangeable, so only the cheaper one is kept
+		int replace = -1;
+		for (int x = 0; x < poolSize; ++x) {
+			if (Arrays.equals(pool[x].positions, newPositions)) {
+				if (pool[x].cost <= cost) {
+					return;
+				}
+				replace = x;
+				break;
+			}
+		}
+		if (replace == -1) {
+			if (poolSize < beamWidth) {
+				replace = poolSize++;
+			} else {
+				replace = 0;
+				for (int x = 1; x < poolSize; ++x) {
+					if (pool[x].cost > pool[replace].cost) {
+						replace = x;
+					}
+				}
+				if (pool[replace].cost <= cost) {
+					return;
+				}
+			}
+		}
+		pool[replace] = newCandidate(state, numKeys, cost, lost, moved, numDropped);
+	}
+
+	private Candidate newCandidate(State state, int numKeys, long cost, long lost, long moved, int numDropped) {
+		Candidate candidate = new Candidate();
+		candidate.parent = state;
+		candidate.positions = Arrays.copyOf(newPositions, numFingers);
+		candidate.sliceFingers = Arrays.copyOf(keyFingers, numKeys);
+		for (int finger = 0; finger < numFingers; ++finger) {
+			if (isPlaced[finger]) {
+				candidate.placed = Arrays.copyOf(isPlaced, numFingers);
+				break;
+			}
+		}
+		candidate.cost = cost;
+		candidate.lostHoldTime = lost;
+		candidate.travel = moved;
+		candidate.numDropped = numDropped;
+		return candidate;
+	}
+
+	private State build(Candidate candidate, int slice) {
+		State parent = candidate.parent;
+		int time = noteStarts[sliceFirstNotes[slice]];
+		State state = new State();
+		state.parent = parent;
+		state.positions = candidate.positions;
+		state.sliceFingers = candidate.sliceFingers;
+		state.placed = candidate.placed;
+		state.anchors = Arrays.copyOf(parent.anchors, numFingers);
+		state.arrivals = Arrays.copyOf(parent.arrivals, numFingers);
+		state.prevArrivals = Arrays.copyOf(parent.prevArrivals, numFingers);
+		state.slideLows = Arrays.copyOf(parent.slideLows, numFingers);
+		state.slideHighs = Arrays.copyOf(parent.slideHighs, numFingers);
+		state.busyUntil = Arrays.copyOf(parent.busyUntil, numFingers);
+		state.cost = candidate.cost;
+		state.lostHoldTime = parent.lostHoldTime + candidate.lostHoldTime;
+		state.travel = parent.travel + candidate.travel;
+		state.numUnplayable = parent.numUnplayable + candidate.numDropped;
+
+		for (int finger = 0; finger < numFingers; ++finger) {
+			int distance = Math.abs(state.positions[finger] - parent.positions[finger]);
+			if (distance > 0 && (state.placed == null || !state.placed[finger])) {
+				int depart = time - travelTimes[distance];
+				state.busyUntil[finger] = Math.min(state.busyUntil[finger], depart);
+				state.prevArrivals[finger] = state.arrivals[finger];
+				state.arrivals[finger] = time;
+				state.slideLows[finger] = Math.min(parent.positions[finger], state.positions[finger]);
+				state.slideHighs[finger] = Math.max(parent.positions[finger], state.positions[finger]);
+				state.anchors[finger] = Math.max(state.anchors[finger], time);
+			}
+		}
+		for (int key = 0; key < state.sliceFingers.length; ++key) {
+			int finger = state.sliceFingers[key];
+			if (finger != -1) {
+				int note = sliceFirstNotes[slice] + key;
+				// a finger has to hold a note for at least a millisecond, so the release is never written out alongside its own hit
+				state.anchors[finger] = Math.max(state.anchors[finger], time + 1);
+				state.busyUntil[finger] = Math.max(state.busyUntil[finger], time + noteDurations[note]);
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Walks the chosen plan from the start of the song, filling in every note's finger and release time, and every slide
+	 */
+	private void replay(State best) {
+		State[] path = new State[numSlices + 1];
+		State state = best;
+		for (int x = numSlices; x >= 0; --x) {
+			path[x] = state;
+			state = state.parent;
+		}
+
+		rootKeys = path[0].positions;
+		lowestKeys = Arrays.copyOf(rootKeys, numFingers);
+		highestKeys = Arrays.copyOf(rootKeys, numFingers);
+		for (int x = 1; x <= numSlices; ++x) {
+			for (int finger = 0; finger < numFingers; ++finger) {
+				lowestKeys[finger] = Math.min(lowestKeys[finger], path[x].positions[finger]);
+				highestKeys[finger] = Math.max(highestKeys[finger], path[x].positions[finger]);
+			}
+		}
+		startKeys = Arrays.copyOf(rootKeys, numFingers);
+		int capacity = 16;
+		slideFingers = new int[capacity];
+		slideDepartTimes = new int[capacity];
+		slideArriveTimes = new int[capacity];
+		slideFromKeys = new int[capacity];
+		slideToKeys = new int[capacity];
+		numSlides = 0;
+
+		boolean[] isUsed = new boolean[numFingers];
+		int[] firstHeldNotes = new int[numFingers]; // notes hit by each finger since it last slid
+		Arrays.fill(noteFingers, -1);
+		for (int slice = 0; slice < numSlices; ++slice) {
+			State before = path[slice];
+			State after = path[slice + 1];
+			int time = noteStarts[sliceFirstNotes[slice]];
+			for (int finger = 0; finger < numFingers; ++finger) {
+				int distance = Math.abs(after.positions[finger] - before.positions[finger]);
+				if (distance == 0) {
+					continue;
+				}
+				if (after.placed != null && after.placed[finger]) {
+					startKeys[finger] = after.positions[finger];
+					continue;
+				}
+				int depart = time - travelTimes[distance];
+				if (numSlides == slideFingers.length) {
+					capacity = numSlides * 2;
+					slideFingers = Arrays.copyOf(slideFingers, capacity);
+					slideDepartTimes = Arrays.copyOf(slideDepartTimes, capacity);
+					slideArriveTimes = Arrays.copyOf(slideArriveTimes, capacity);
+					slideFromKeys = Arrays.copyOf(slideFromKeys, capacity);
+					slideToKeys = Arrays.copyOf(slideToKeys, capacity);
+				}
+				slideFingers[numSlides] = finger;
+				slideDepartTimes[numSlides] = depart;
+				slideArriveTimes[numSlides] = time;
+				slideFromKeys[numSlides] = before.positions[finger];
+				slideToKeys[numSlides] = after.positions[finger];
+				++numSlides;
+
+				// anything the finger was still holding is let go of as it leaves
+				if (isUsed[finger]) {
+					for (int note = firstHeldNotes[finger]; note < sliceFirstNotes[slice]; ++note) {
+						if (noteFingers[note] == finger && noteReleases[note] > depart) {
+							noteReleases[note] = depart;
+						}
+					}
+				}
+				firstHeldNotes[finger] = sliceFirstNotes[slice];
+				isUsed[finger] = true;
+			}
+			for (int key = 0; key < after.sliceFingers.length; ++key) {
+				int note = sliceFirstNotes[slice] + key;
+				int finger = after.sliceFingers[key];
+				noteFingers[note] = finger;
+				noteReleases[note] = noteStarts[note] + noteDurations[note];
+				if (finger != -1 && !isUsed[finger]) {
+					firstHeldNotes[finger] = note;
+					isUsed[finger] = true;
+				}
+			}
+		}
+
+		sortSlidesByDepartTime();
+	}
+
+	private void sortSlidesByDepartTime() {
+		Integer[] order = new Integer[numSlides];
+		for (int x = 0; x < numSlides; ++x) {
+			order[x] = x;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int compare = Integer.compare(slideDepartTimes[a], slideDepartTimes[b]);
+				return (compare != 0) ? compare : Integer.compare(slideFingers[a], slideFingers[b]);
+			}
+		});
+		int[][] columns = { slideFingers, slideDepartTimes, slideArriveTimes, slideFromKeys, slideToKeys };
+		for (int c = 0; c < columns.length; ++c) {
+			int[] sorted = new int[numSlides];
+			for (int x = 0; x < numSlides; ++x) {
+				sorted[x] = columns[c][order[x]];
+			}
+			columns[c] = sorted;
+		}
+		slideFingers = columns[0];
+		slideDepartTimes = columns[1];
+		slideArriveTimes = columns[2];
+		slideFromKeys = columns[3];
+		slideToKeys = columns[4];
+	}
+
+	/**
+	 * @return the number of fingers planned for
+	 */
+	public int getNumFingers() {
+		return numFingers;
+	}
+
+	/**
+	 * @return the fastest a finger was allowed to slide, in keys per millisecond
+	 */
+	public double getKeysPerMs() {
+		return keysPerMs;
+	}
+
+	/**
+	 * @param finger index of the finger (0 is the leftmost)
+	 * @return the key index the finger is over when the song starts
+	 */
+	public int getStartKeyIndex(int finger) {
+		return startKeys[finger];
+	}
+
+	/**
+	 * @return the number of notes in the song (rests aren't notes)
+	 */
+	public int getNumNotes() {
+		return numNotes;
+	}
+
+	/**
+	 * @param note index of the note (notes are in slice order, then key index order)
+	 * @return the time the note is struck at
+	 */
+	public int getNoteStart(int note) {
+		return noteStarts[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return the note's key index
+	 */
+	public int getNoteKey(int note) {
+		return noteKeys[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return index of the finger that hits the note, or -1 if no finger can
+	 */
+	public int getNoteFinger(int note) {
+		return noteFingers[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return the time the note is let go of. Earlier than its start + duration if its finger had to slide away before the note was over.
+	 */
+	public int getNoteRelease(int note) {
+		return noteReleases[note];
+	}
+
+	/**
+	 * @param time time in milliseconds from the start of the song
+	 * @param keyIndex key index of the note
+	 * @return index of the note struck on the key at the time, or -1 if there isn't one
+	 */
+	public int getNoteAt(int time, int keyIndex) {
+		int low = 0;
+		int high = numNotes;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (noteStarts[mid] < time || (noteStarts[mid] == time && noteKeys[mid] < keyIndex)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return (low < numNotes && noteStarts[low] == time && noteKeys[low] == keyIndex) ? low : -1;
+	}
+
+	/**
+	 * @return the number of slides the fingers make during the song
+	 */
+	public int getNumSlides() {
+		return numSlides;
+	}
+
+	/**
+	 * @param slide index of the slide (slides are ordered by the time they leave)
+	 * @return index of the finger that slides
+	 */
+	public int getSlideFinger(int slide) {
+		return slideFingers[slide];
+	}
+
+	/**
+	 * @param slide index of the slide
+	 * @return the time the finger starts sliding
+	 */
+	public int getSlideDepartTime(int slide) {
+		return slideDepartTimes[slide];
+	}
+
+	/**
+	 * @param slide index of the slide
+	 * @return the time the finger arrives at its new key
+	 */
+	public int getSlideArriveTime(int slide) {
+		return slideArriveTimes[slide];
+	}
+
+	/**
+	 * @param slide index of the slide
+	 * @return the key index the finger slides from
+	 */
+	public int getSlideFromKey(int slide) {
+		return slideFromKeys[slide];
+	}
+
+	/**
+	 * @param slide index of the slide
+	 * @return the key index the finger slides to
+	 */
+	public int getSlideToKey(int slide) {
+		return slideToKeys[slide];
+	}
+
+	/**
+	 * @return the total time, in milliseconds, cut off of notes because their finger had to slide away
+	 */
+	public long getLostHoldTime() {
+		return lostHoldTime;
+	}
+
+	/**
+	 * @return the total number of keys slid over by every finger during the song
+	 */
+	public long getTravel() {
+		return travel;
+	}
+
+	/**
+	 * @return the number of notes no finger can hit
+	 */
+	public int getNumUnplayable() {
+		return numUnplayable;
+	}
+
+	/**
+	 * @return one line describing how well the song can be played
+	 */
+	public String getSummary() {
+		return numFingers + " sliding fingers at " + keysPerMs + " keys/ms: " + (numNotes - numUnplayable) + " of " + numNotes + " notes playable, " +
+			numUnplayable + " unplayable, " + lostHoldTime + "ms of hold time lost, " + travel + " keys slid over in " + numSlides + " slides";
+	}
+}
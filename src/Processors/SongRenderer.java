@@ -0,0 +1,259 @@
+package Processors;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Utils.Constants;
+
+/**
+ * Renders a whole MusicSheet to 16-bit stereo PCM (SampleBank.FORMAT), as fast as possible, rather than in real time.
+ *
+ * Unlike live playback (which plays every .wav file in full), each note only sounds for its duration, and then fades out over FADE_MS,
+ * so a quarter note and a whole note on the same key actually sound different. Striking a key that is still sounding cuts the earlier strike off,
+ * the same way AudioMixer restarts a key's voice.
+ *
+ * Every note is worked out up front into flat arrays (start frame, end frame, key), sorted by start. The song is then split into segments of SEGMENT_FRAMES,
+ * and each segment only depends on those arrays and the SampleBank, so segments are mixed in parallel and written out in order.
+ * Only a bounded number of segments are held in memory at once, so a long song doesn't need its entire output to fit in memory.
+ */
+public class SongRenderer {
+	public static final int SEGMENT_FRAMES = 44100; // 1 second per segment
+	public static final int FADE_MS = 30;
+	private static final int FADE_FRAMES = (int)(SampleBank.SAMPLE_RATE * FADE_MS / 1000);
+	private static final int BYTES_PER_FRAME = SampleBank.CHANNELS * 2;
+	private static final int WAV_HEADER_BYTES = 44;
+
+	private SampleBank bank;
+	private int[] noteStarts; // frame the note is struck at
+	private int[] noteReleases; // frame the note's duration runs out (or it is struck again), and its fade starts
+	private int[] noteEnds; // frame the note stops sounding entirely
+	private int[] noteKeys;
+	private int numNotes;
+	private int maxNoteFrames; // longest any note sounds, which bounds how far back a segment has to look for notes still sounding in it
+	private int numFrames;
+
+	/**
+	 * @param sheet MusicSheet to render
+	 * @param bank samples to render the notes with
+	 */
+	public SongRenderer(MusicSheet sheet, SampleBank bank) {
+		this.bank = bank;
+		int capacity = Math.max(sheet.getNoteCount(), 16);
+		noteStarts = new int[capacity];
+		noteReleases = new int[capacity];
+		noteEnds = new int[capacity];
+		noteKeys = new int[capacity];
+		numNotes = 0;
+
+		// slices are already in start order, so the notes come out in start order too
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			MusicSlice slice = sheet.getSlice(x);
+			int startFrame = toFrames(slice.getStartTime());
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				if (bank.getSamples(keyIndex) == null) {
+					System.out.println("SongRenderer#ctor - error - no sample loaded for key index " + keyIndex + " in voice " + bank.getVoice() + ". The note will be silent.");
+					continue;
+				}
+				if (numNotes == noteStarts.length) {
+					noteStarts = Arrays.copyOf(noteStarts, numNotes * 2);
+					noteReleases = Arrays.copyOf(noteReleases, numNotes * 2);
+					noteEnds = Arrays.copyOf(noteEnds, numNotes * 2);
+					noteKeys = Arrays.copyOf(noteKeys, numNotes * 2);
+				}
+				noteStarts[numNotes] = startFrame;
+				noteReleases[numNotes] = startFrame + toFrames(slice.getDurationForKey(keyIndex));
+				noteKeys[numNotes] = keyIndex;
+				++numNotes;
+			}
+		}
+
+		// cut every note off where its key is struck next, then work out where each one stops sounding
+		int[] nextStrike = new int[Constants.NUM_KEY_INDICES];
+		Arrays.fill(nextStrike, Integer.MAX_VALUE);
+		maxNoteFrames = 0;
+		numFrames = 0;
+		for (int note = numNotes - 1; note >= 0; --note) {
+			int key = noteKeys[note];
+			noteReleases[note] = Math.min(noteReleases[note], nextStrike[key]);
+			nextStrike[key] = noteStarts[note];
+			noteEnds[note] = Math.min(noteReleases[note] + FADE_FRAMES, noteStarts[note] + bank.getNumFrames(key));
+			maxNoteFrames = Math.max(maxNoteFrames, noteEnds[note] - noteStarts[note]);
+			numFrames = Math.max(numFrames, noteEnds[note]);
+		}
+	}
+
+	private static int toFrames(int millis) {
+		return (int)((long)millis * (long)SampleBank.SAMPLE_RATE / 1000);
+	}
+
+	/**
+	 * @return the length of the rendered song, in frames (one sample per channel)
+	 */
+	public int getNumFrames() {
+		return numFrames;
+	}
+
+	/**
+	 * @return the number of segments the song is rendered in
+	 */
+	public int getNumSegments() {
+		return (numFrames + SEGMENT_FRAMES - 1) / SEGMENT_FRAMES;
+	}
+
+	/**
+	 * @return the number of notes that will be rendered
+	 */
+	public int getNumNotes() {
+		return numNotes;
+	}
+
+	/**
+	 * Mixes one segment of the song. Safe to call from multiple threads at once.
+	 * @param segment index of the segment
+	 * @return the segment as 16-bit little-endian stereo PCM. Every segment is SEGMENT_FRAMES long, other than the last one.
+	 */
+	public byte[] renderSegment(int segment) {
+		int segmentStart = segment * SEGMENT_FRAMES;
+		int segmentEnd = Math.min(segmentStart + SEGMENT_FRAMES, numFrames);
+		int[] mix = new int[(segmentEnd - segmentStart) * SampleBank.CHANNELS];
+
+		// only notes struck within maxNoteFrames before the segment can still be sounding in it
+		int note = firstNoteStartingAtOrAfter(segmentStart - maxNoteFrames);
+		for (; note < numNotes && noteStarts[note] < segmentEnd; ++note) {
+			int from = Math.max(noteStarts[note], segmentStart);
+			int to = Math.min(noteEnds[note], segmentEnd);
+			if (from < to) {
+				mixNote(note, from, to, segmentStart, mix);
+			}
+		}
+
+		byte[] out = new byte[mix.length * 2];
+		for (int x = 0; x < mix.length; ++x) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[x]));
+			out[x * 2] = (byte)sample;
+			out[x * 2 + 1] = (byte)(sample >> 8);
+		}
+		return out;
+	}
+
+	/**
+	 * Adds the frames [from, to) of the note into the segment's mix, fading it out once its release frame has passed
+	 */
+	private void mixNote(int note, int from, int to, int segmentStart, int[] mix) {
+		short[] samples = bank.getSamples(noteKeys[note]);
+		int start = noteStarts[note];
+		int release = noteReleases[note];
+
+		// full volume up to the release
+		int fullTo = Math.min(to, release);
+		for (int frame = from; frame < fullTo; ++frame) {
+			int in = (frame - start) * SampleBank.CHANNELS;
+			int out = (frame - segmentStart) * SampleBank.CHANNELS;
+			for (int channel = 0; channel < SampleBank.CHANNELS; ++channel) {
+				mix[out + channel] += samples[in + channel];
+			}
+		}
+
+		// then a linear fade over FADE_FRAMES
+		for (int frame = Math.max(from, release); frame < to; ++frame) {
+			int gain = FADE_FRAMES - (frame - release);
+			int in = (frame - start) * SampleBank.CHANNELS;
+			int out = (frame - segmentStart) * SampleBank.CHANNELS;
+			for (int channel = 0; channel < SampleBank.CHANNELS; ++channel) {
+				mix[out + channel] += samples[in + channel] * gain / FADE_FRAMES;
+			}
+		}
+	}
+
+	private int firstNoteStartingAtOrAfter(int frame) {
+		int low = 0;
+		int high = numNotes;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (noteStarts[mid] < frame) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Renders the whole song as raw PCM (no header) to the stream, mixing segments on numThreads threads and writing them out in order
+	 * @param out stream to write to. It is not closed.
+	 * @param numThreads number of threads to mix segments on
+	 * @return true if the whole song was written, false otherwise
+	 */
+	public boolean render(OutputStream out, int numThreads) {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<Future<byte[]>>();
+		int maxInFlight = Math.max(1, numThreads) * 2; // enough to keep every thread busy while the oldest segment is written
+		try {
+			int nextSegment = 0;
+			while (nextSegment < getNumSegments() || !inFlight.isEmpty()) {
+				while (nextSegment < getNumSegments() && inFlight.size() < maxInFlight) {
+					final int segment = nextSegment++;
+					inFlight.add(pool.submit(new Callable<byte[]>() {
+						@Override
+						public byte[] call() {
+							return renderSegment(segment);
+						}
+					}));
+				}
+				out.write(inFlight.poll().get());
+			}
+			return true;
+		} catch (Exception e) {
+			System.out.println("SongRenderer#render - error - exception caught rendering the song: " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Renders the whole song to a .wav file
+	 * @param wavPath path of the .wav file to write
+	 * @param numThreads number of threads to mix segments on
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean writeWavFile(String wavPath, int numThreads) {
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(wavPath), 1024 * 1024);
+			out.write(buildWavHeader());
+			boolean wasSuccessful = render(out, numThreads);
+			out.close();
+			return wasSuccessful;
+		} catch (Exception e) {
+			System.out.println("SongRenderer#writeWavFile - error - exception caught writing .wav file: " + wavPath + ". Exception: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * The length of the song is known before anything is mixed, so the header can be written up front, and the samples streamed out after it
+	 */
+	private byte[] buildWavHeader() {
+		int dataBytes = numFrames * BYTES_PER_FRAME;
+		ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.put("RIFF".getBytes()).putInt(WAV_HEADER_BYTES - 8 + dataBytes).put("WAVE".getBytes());
+		header.put("fmt ".getBytes()).putInt(16).putShort((short)1).putShort((short)SampleBank.CHANNELS);
+		header.putInt((int)SampleBank.SAMPLE_RATE).putInt((int)SampleBank.SAMPLE_RATE * BYTES_PER_FRAME);
+		header.putShort((short)BYTES_PER_FRAME).putShort((short)16);
+		header.put("data".getBytes()).putInt(dataBytes);
+		return header.array();
+	}
+}
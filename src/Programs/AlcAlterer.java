@@ -4,7 +4,6 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.StringTokenizer;
 
 import DataObjs.MusicNote;
@@ -110,9 +109,8 @@ public class AlcAlterer {
 							
 							// we have a valid value - loop through the musicsheet and update everything's startTime and duration by the bpmMultiplier.
 							// Slices will be responsible for updating their individual notes.
-							LinkedList<MusicSlice> slices = sheet.getSlices();
-							for (int x = 0; x < slices.size(); ++x) {
-								MusicSlice slice = slices.get(x);
+							for (int x = 0; x < sheet.getNumSlices(); ++x) {
+								MusicSlice slice = sheet.getSlice(x);
 								slice.applyBpmMultipler(bpmMult);
 							}
 							
@@ -146,9 +144,8 @@ public class AlcAlterer {
 								
 								// we have a valid value - loop through the musicsheet and update every note's octave by the supplied amount, "deleting" it if necessary (over the bounds. we'll just turn it into a rest, cleanup will later delete it).
 								
-								LinkedList<MusicSlice> slices = sheet.getSlices();
-								for (int x = 0; x < slices.size(); ++x) {
-									MusicSlice slice = slices.get(x);
+								for (int x = 0; x < sheet.getNumSlices(); ++x) {
+									MusicSlice slice = sheet.getSlice(x);
 									Iterator<MusicNote> iter = slice.getNotes().iterator();
 									while (iter.hasNext()) {
 										MusicNote note = iter.next();
@@ -184,10 +181,9 @@ public class AlcAlterer {
 							// and append the new slices into the original MusicSheet, and increase the noteCount by the original total again
 							for (int x = 0; x < loopCount; ++x) {
 								MusicSheet loopSheet = new MusicSheet(sheetCopy);
-								LinkedList<MusicSlice> loopSlices = loopSheet.getSlices();
-								for (int y = 0; y < loopSlices.size(); ++y) {
-									loopSlices.get(y).setStartTime(loopSlices.get(y).getStartTime() + (loopTime * (x+1)));
-									sheet.addSlice(loopSlices.get(y));
+								for (int y = 0; y < loopSheet.getNumSlices(); ++y) {
+									loopSheet.getSlice(y).setStartTime(loopSheet.getSlice(y).getStartTime() + (loopTime * (x+1)));
+									sheet.addSlice(loopSheet.getSlice(y));
 								}
 								sheet.setNoteCount(sheet.getNoteCount() + loopNoteCount);
 							}
@@ -210,9 +206,8 @@ public class AlcAlterer {
 							} else {
 								// we have a valid value - loop through the musicsheet and shift every note by the supplied amount, "deleting" it if necessary (if it goes over the bounds, it turns into a rest, which cleanup will later delete).
 								
-								LinkedList<MusicSlice> slices = sheet.getSlices();
-								for (int x = 0; x < slices.size(); ++x) {
-									MusicSlice slice = slices.get(x);
+								for (int x = 0; x < sheet.getNumSlices(); ++x) {
+									MusicSlice slice = sheet.getSlice(x);
 									Iterator<MusicNote> iter = slice.getNotes().iterator();
 									while (iter.hasNext()) {
 										MusicNote note = iter.next();
@@ -243,9 +238,8 @@ public class AlcAlterer {
 								System.out.println("AlcAlterer#main - error - Please provide different compare values to find and replace - the \"find\" value and the \"replace\" value are the same. Supplied values: findCompVal: " + findCompVal + ", replaceCompVal: " + replaceCompVal + ".\nExiting.");
 							} else {
 								// we have a valid value - loop through the musicsheet and replace any notes that match the "find" compareValue with the "replace" compareValue.
-								LinkedList<MusicSlice> slices = sheet.getSlices();
-								for (int x = 0; x < slices.size(); ++x) {
-									MusicSlice slice = slices.get(x);
+								for (int x = 0; x < sheet.getNumSlices(); ++x) {
+									MusicSlice slice = sheet.getSlice(x);
 									Iterator<MusicNote> iter = slice.getNotes().iterator();
 									while (iter.hasNext()) {
 										MusicNote note = iter.next();
@@ -279,9 +273,8 @@ public class AlcAlterer {
 							} else {
 								// we have a valid value - loop through the musicsheet and adjust the start time of every slice (which will thus impact every MusicNote).
 								
-								LinkedList<MusicSlice> slices = sheet.getSlices();
-								for (int x = 0; x < slices.size(); ++x) {
-									MusicSlice slice = slices.get(x);
+								for (int x = 0; x < sheet.getNumSlices(); ++x) {
+									MusicSlice slice = sheet.getSlice(x);
 									slice.setStartTime(slice.getStartTime() + adjustAmount);
 									
 									if (slice.getStartTime() < 0) {
@@ -307,9 +300,8 @@ public class AlcAlterer {
 							// We also need to reduce the durations of all MusicNotes to their smallest possible value.
 							// Determine the current greatest-common-divisor, which we can divide everything by.
 							int origGcd = sheet.getGCD();
-							LinkedList<MusicSlice> slices = sheet.getSlices();
-							for (int x = 0; x < slices.size(); ++x) {
-								MusicSlice slice = slices.get(x);
+							for (int x = 0; x < sheet.getNumSlices(); ++x) {
+								MusicSlice slice = sheet.getSlice(x);
 								int currStartTime = slice.getStartTime();
 								slice.setStartTime(currStartTime / origGcd); // since we're dividing by the gcd, it will divide cleanly into an integer
 								
@@ -349,9 +341,8 @@ public class AlcAlterer {
 								System.out.println("AlcAlterer#main - error - Provided end range is above the theorical max Compare Value (" + Constants.MAX_THEORETICAL_COMPARE_VALUE + "). Exiting.");
 							} else {
 								// we have a valid range - loop through the musicsheet and wiggle the compare values of any notes outside the range, to be inside the range
-								LinkedList<MusicSlice> slices = sheet.getSlices();
-								for (int x = 0; x < slices.size(); ++x) {
-									MusicSlice slice = slices.get(x);
+								for (int x = 0; x < sheet.getNumSlices(); ++x) {
+									MusicSlice slice = sheet.getSlice(x);
 									Iterator<MusicNote> iter = slice.getNotes().iterator();
 									while (iter.hasNext()) {
 										MusicNote note = iter.next();
@@ -431,6 +422,12 @@ public class AlcAlterer {
 	 * @return MusicSheet the imported MusicSheet from the filepath
 	 */
 	public MusicSheet importAlcFileWithPlaceholders(String alcFilePath) {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		if (arw.isAlcbFile(alcFilePath)) {
+			// binary .alcb files are only ever written out from a loaded MusicSheet, so they can't contain placeholders. Just load it normally.
+			return arw.loadAlcbFile(alcFilePath);
+		}
+		
 		MusicSheet sheet = null;
 		MusicSlice slice = null;
 		String headerLine = null;
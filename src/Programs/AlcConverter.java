@@ -0,0 +1,54 @@
+package Programs;
+
+import java.io.File;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+
+/**
+ * Converts between the text .alc format and the binary .alcb format, in either direction.
+ * The input format is detected automatically (by the .alcb magic bytes), and the output format is picked from the output file's extension:
+ * an output path ending in .alcb is written as binary, anything else is written as a text .alc file.
+ * After writing, the output file is loaded back in to verify it round-trips.
+ */
+public class AlcConverter {
+
+	/**
+	 * @param args {input .alc or .alcb file path} {output .alc or .alcb file path}
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("AlcConverter#main - usage: {input .alc or .alcb file path} {output .alc or .alcb file path}");
+			System.out.println("AlcConverter#main - Please provide a filepath to an .alc or .alcb file to convert, and an output path. An output path ending in .alcb will be written as binary, otherwise as text. Gracefully exiting.");
+		} else {
+			String inputPath = args[0];
+			String outputPath = args[1];
+			boolean writeBinary = outputPath.toLowerCase().endsWith(".alcb");
+			boolean wasSuccessful;
+
+			AlcReaderWriter arw = new AlcReaderWriter();
+			MusicSheet sheet = arw.loadAlcFile(inputPath); // handles both text and binary input
+
+			if (sheet == null) {
+				System.out.println("AlcConverter#main - error - failed to load the input file: " + inputPath + ". Gracefully exiting.");
+			} else {
+				if (writeBinary) {
+					wasSuccessful = arw.writeAlcbFile(sheet, outputPath);
+				} else {
+					wasSuccessful = arw.writeAlcFile(sheet, outputPath);
+				}
+
+				if (!wasSuccessful) {
+					System.out.println("AlcConverter#main - error - failed to write the output file: " + outputPath + ".");
+				} else if (arw.loadAlcFile(outputPath) == null) {
+					System.out.println("AlcConverter#main - error - verification load failed for the converted file written to: " + outputPath + ". Conversion failed.");
+				} else {
+					long inputSize = new File(inputPath).length();
+					long outputSize = new File(outputPath).length();
+					System.out.println("AlcConverter#main - success - converted " + inputPath + " (" + inputSize + " bytes) to " + (writeBinary ? ".alcb" : ".alc") +
+									   " file " + outputPath + " (" + outputSize + " bytes).");
+				}
+			}
+		}
+	}
+}
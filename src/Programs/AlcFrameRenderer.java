@@ -0,0 +1,101 @@
+package Programs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import DataObjs.MusicSheet;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.KeyboardFrameRenderer;
+import Processors.KeyboardLayout;
+import Processors.PlaybackSchedule;
+import Utils.Constants;
+
+/**
+ * Given a piano properties file and an .alc file, draws the piano gui (the same keyboard the PianoFeigner shows) for every frame of the song, at a fixed frame rate,
+ * without opening any windows. The frames are either written as a sequence of .png files, or as a raw rgb stream that can be piped straight into a video encoder:
+ * java Programs.AlcFrameRenderer piano_properties.txt song.alc 30 - | ffmpeg -f rawvideo -pix_fmt rgb24 -s {width}x{height} -r 30 -i - song.mp4
+ * (the width and height are printed when rendering starts).
+ */
+public class AlcFrameRenderer {
+
+	/**
+	 * @param args file path to a piano properties file, file path to the .alc file to draw, frames per second,
+	 *        and where to write the frames to: a directory for a .png sequence, a file path ending in .rgb for raw frames, or - for raw frames to standard out
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		if (args.length < 4) {
+			System.out.println("AlcFrameRenderer#main - usage: {filepath to piano properties file} {filepath to alc file} {frames per second} {output directory for .png files, or output file path ending in .rgb for raw frames, or - for raw frames to standard out}");
+			System.out.println("AlcFrameRenderer#main - Please provide a properties file, an .alc file to draw, a frame rate, and where to write the frames. Gracefully exiting.");
+			return;
+		}
+		String outputPath = args[3];
+		boolean isRaw = outputPath.equals("-") || outputPath.toLowerCase().endsWith(".rgb");
+		// when the frames go to standard out, anything else printed there (including messages from loading the song) would end up in the video,
+		// so messages go to standard error instead
+		PrintStream frameOut = System.out;
+		if (outputPath.equals("-")) {
+			System.setOut(System.err);
+		}
+		PrintStream log = System.out;
+
+		int fps;
+		try {
+			fps = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			fps = 0;
+		}
+		if (fps <= 0) {
+			log.println("AlcFrameRenderer#main - error - frames per second must be a number greater than 0: " + args[2] + ". Gracefully exiting.");
+			return;
+		}
+
+		PianoProperties properties = new PianoProperties(args[0]);
+		if (!properties.didLoad()) {
+			log.println("AlcFrameRenderer#main - Please fix the reported errors with the properties file and execute the program again. Gracefully exiting.");
+			return;
+		}
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFile(args[1]);
+		if (sheet == null) {
+			log.println("AlcFrameRenderer#main - Failed to load .alc file. Gracefully exiting.");
+			return;
+		}
+
+		KeyboardLayout layout = new KeyboardLayout(Integer.parseInt(properties.getSetting(Constants.SETTINGS_NUM_WHITE_KEYS)),
+												   Integer.parseInt(properties.getSetting(Constants.SETTINGS_NUM_BLACK_KEYS)),
+												   properties.getSetting(Constants.SETTINGS_FIRST_NOTE),
+												   Integer.parseInt(properties.getSetting(Constants.SETTINGS_FIRST_OCTAVE)));
+		KeyboardFrameRenderer renderer = new KeyboardFrameRenderer(layout, new PlaybackSchedule(sheet));
+		int numFrames = renderer.getNumFrames(fps);
+		log.println("AlcFrameRenderer#main - drawing " + numFrames + " frames of " + layout.getKeyboardWidth() + "x" + layout.getKeyboardHeight() + " at " + fps + " fps");
+
+		long start = System.nanoTime();
+		boolean wasSuccessful;
+		if (isRaw) {
+			try {
+				OutputStream out = outputPath.equals("-") ? frameOut : new FileOutputStream(outputPath);
+				out = new BufferedOutputStream(out, 1024 * 1024);
+				wasSuccessful = renderer.renderRgbStream(out, fps);
+				out.close();
+			} catch (Exception e) {
+				log.println("AlcFrameRenderer#main - error - exception caught writing raw frames to: " + outputPath + ". Exception: " + e.getMessage());
+				wasSuccessful = false;
+			}
+		} else {
+			wasSuccessful = renderer.renderPngSequence(new File(outputPath), fps);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (wasSuccessful) {
+			log.println("AlcFrameRenderer#main - drew " + numFrames + " frames in " + String.format("%.1f", elapsed / 1000000.0) + "ms (" + String.format("%.0f", numFrames / (elapsed / 1000000000.0)) + " fps)" +
+						", " + renderer.getNumKeysDrawn() + " keys drawn in total");
+		} else {
+			log.println("AlcFrameRenderer#main - Failed to write the frames to: " + outputPath + ". Gracefully exiting.");
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package Programs;
+
+import DataObjs.MusicSheet;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.SampleBank;
+import Processors.SongRenderer;
+import Utils.Constants;
+
+/**
+ * Given a piano properties file and an .alc file, renders the song to a .wav file using the properties file's voice.
+ * This doesn't play anything, so it works on machines without any audio output (or a display), and runs as fast as the cpu allows rather than in real time.
+ */
+public class AlcRenderer {
+
+	/**
+	 * @param args file path to a piano properties file, file path to the .alc file to render, file path of the .wav file to write,
+	 *        and optionally the number of threads to render with (defaults to the number of processors)
+	 */
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.out.println("AlcRenderer#main - usage: {filepath to piano properties file} {filepath to alc file} {output file path to write the .wav file to} {optional: number of threads to render with}");
+			System.out.println("AlcRenderer#main - Please provide a properties file, an .alc file to render, and an output path to write a .wav file to. Gracefully exiting.");
+			return;
+		}
+
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 3) {
+			try {
+				numThreads = Integer.parseInt(args[3]);
+			} catch (NumberFormatException e) {
+				System.out.println("AlcRenderer#main - error - number of threads is not a number: " + args[3] + ". Gracefully exiting.");
+				return;
+			}
+		}
+
+		PianoProperties properties = new PianoProperties(args[0]);
+		if (!properties.didLoad()) {
+			System.out.println("AlcRenderer#main - Please fix the reported errors with the properties file and execute the program again. Gracefully exiting.");
+			return;
+		}
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFile(args[1]);
+		if (sheet == null) {
+			System.out.println("AlcRenderer#main - Failed to load .alc file. Gracefully exiting.");
+			return;
+		}
+		SampleBank bank = SampleBank.getBank(properties.getSetting(Constants.SETTINGS_VOICE));
+		if (bank == null) {
+			System.out.println("AlcRenderer#main - Failed to load the samples for the voice. Gracefully exiting.");
+			return;
+		}
+
+		long start = System.nanoTime();
+		SongRenderer renderer = new SongRenderer(sheet, bank);
+		if (!renderer.writeWavFile(args[2], numThreads)) {
+			System.out.println("AlcRenderer#main - Failed to write .wav file: " + args[2] + ". Gracefully exiting.");
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		long numSamples = (long)renderer.getNumFrames() * SampleBank.CHANNELS;
+		System.out.println("AlcRenderer#main - rendered " + renderer.getNumNotes() + " notes (" + String.format("%.1f", renderer.getNumFrames() / SampleBank.SAMPLE_RATE) + "s of audio) to " + args[2] +
+						   " in " + String.format("%.1f", elapsed / 1000000.0) + "ms on " + numThreads + " threads (" + String.format("%.0f", numSamples / (elapsed / 1000000000.0)) + " samples/s)");
+	}
+}
@@ -0,0 +1,87 @@
+package Programs;
+
+import DataObjs.MusicSheet;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.FingerConfigSearch;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+/**
+ * Given a piano properties file and an .alc file, plans the song with sliding fingers for every finger count in a range and every slide speed given,
+ * and reports how well each configuration plays the song (unplayable notes, lost hold time, and keys slid), along with the Pareto frontier of the configurations.
+ * Only the piano's keys are taken from the properties file - the finger settings in it are ignored, since those are what's being searched for.
+ */
+public class FingerCountSearch {
+
+	/**
+	 * @param args file path to a piano properties file, file path to the .alc file to plan, the fewest fingers to try, the most fingers to try,
+	 *        a comma separated list of slide speeds to try (in keys per millisecond), and optionally the number of threads to plan with (defaults to the number of processors)
+	 */
+	public static void main(String[] args) {
+		if (args.length < 5) {
+			System.out.println("FingerCountSearch#main - usage: {filepath to piano properties file} {filepath to alc file} {fewest fingers} {most fingers} {comma separated slide speeds in keys/ms, ex: 0.005,0.01,0.02} {optional: number of threads to plan with}");
+			System.out.println("FingerCountSearch#main - Please provide a properties file, an .alc file, a range of finger counts, and slide speeds to search. Gracefully exiting.");
+			return;
+		}
+
+		int[] fingerCounts;
+		double[] speeds;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		try {
+			int minFingers = Integer.parseInt(args[2]);
+			int maxFingers = Integer.parseInt(args[3]);
+			if (minFingers < 1 || maxFingers < minFingers) {
+				System.out.println("FingerCountSearch#main - error - finger counts must be at least 1, with the fewest no more than the most: " + args[2] + " " + args[3] + ". Gracefully exiting.");
+				return;
+			}
+			fingerCounts = new int[maxFingers - minFingers + 1];
+			for (int x = 0; x < fingerCounts.length; ++x) {
+				fingerCounts[x] = minFingers + x;
+			}
+			String[] speedArgs = args[4].split(",");
+			speeds = new double[speedArgs.length];
+			for (int x = 0; x < speedArgs.length; ++x) {
+				speeds[x] = Double.parseDouble(speedArgs[x].trim());
+				if (speeds[x] <= 0) {
+					System.out.println("FingerCountSearch#main - error - slide speeds must be greater than 0: " + speedArgs[x] + ". Gracefully exiting.");
+					return;
+				}
+			}
+			if (args.length > 5) {
+				numThreads = Integer.parseInt(args[5]);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("FingerCountSearch#main - error - an argument is not a number: " + e.getMessage() + ". Gracefully exiting.");
+			return;
+		}
+
+		PianoProperties properties = new PianoProperties(args[0]);
+		if (!properties.didLoad()) {
+			System.out.println("FingerCountSearch#main - Please fix the reported errors with the properties file and execute the program again. Gracefully exiting.");
+			return;
+		}
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFile(args[1]);
+		if (sheet == null) {
+			System.out.println("FingerCountSearch#main - Failed to load .alc file. Gracefully exiting.");
+			return;
+		}
+		int minKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MIN_COMP_VALUE)));
+		int maxKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MAX_COMP_VALUE)));
+		if (fingerCounts[fingerCounts.length - 1] > maxKeyIndex - minKeyIndex + 1) {
+			System.out.println("FingerCountSearch#main - error - can't fit " + fingerCounts[fingerCounts.length - 1] + " fingers on a piano with " + (maxKeyIndex - minKeyIndex + 1) + " keys. Gracefully exiting.");
+			return;
+		}
+
+		long start = System.nanoTime();
+		FingerConfigSearch search = new FingerConfigSearch(sheet, minKeyIndex, maxKeyIndex, fingerCounts, speeds);
+		if (!search.run(numThreads)) {
+			System.out.println("FingerCountSearch#main - Failed to plan every configuration. Gracefully exiting.");
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println(search.getReport());
+		System.out.println("FingerCountSearch#main - planned " + search.getNumConfigs() + " configurations in " + String.format("%.1f", elapsed / 1000000.0) + "ms on " + numThreads + " threads");
+	}
+}
@@ -0,0 +1,150 @@
+package Programs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import DataObjs.MusicSheet;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.FngWriter;
+import Processors.FngbReader;
+import Processors.Hand;
+import Utils.Constants;
+
+/**
+ * Given a piano properties file and one or more .alc files, writes each song out as both a text .fng file and a binary .fngb file (to temporary files),
+ * and reports how big each encoding is, and whether the arduino's serial link could keep up with streaming it as the song plays.
+ * The .fngb file is also decoded back to text and compared against the .fng file, to confirm it round-trips.
+ *
+ * Bandwidth is reported both on average and for the busiest second of the song, since a song that fits on average can still overrun the link during a fast run of notes.
+ */
+public class FngSizeReport {
+
+	private static final int WINDOW_MS = 1000;
+
+	/**
+	 * @param args file path to a piano properties file, followed by the file paths of every .alc file to report on
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("FngSizeReport#main - usage: {filepath to piano properties file} {filepath to alc file} {optional: more alc files}");
+			System.out.println("FngSizeReport#main - Please provide a properties file and at least one .alc file to report on. Gracefully exiting.");
+			return;
+		}
+
+		PianoProperties properties = new PianoProperties(args[0]);
+		if (!properties.didLoad()) {
+			System.out.println("FngSizeReport#main - Please fix the reported errors with the properties file and execute the program again. Gracefully exiting.");
+			return;
+		}
+
+		int linkBytesPerSecond = Constants.ARDUINO_BAUD_RATE / Constants.SERIAL_BITS_PER_BYTE;
+		System.out.println("FngSizeReport#main - serial link: " + Constants.ARDUINO_BAUD_RATE + " baud, " + linkBytesPerSecond + " bytes/s");
+		for (int x = 1; x < args.length; ++x) {
+			reportSong(properties, args[x], linkBytesPerSecond);
+		}
+	}
+
+	private static void reportSong(PianoProperties properties, String alcFilePath, int linkBytesPerSecond) {
+		String name = new File(alcFilePath).getName();
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(alcFilePath);
+		if (sheet == null) {
+			System.out.println("FngSizeReport#reportSong - error - failed to load .alc file: " + alcFilePath);
+			return;
+		}
+		Hand hand = new Hand(properties, sheet);
+		if (!hand.didInit()) {
+			System.out.println("FngSizeReport#reportSong - error - failed to set up the fingers for: " + alcFilePath);
+			return;
+		}
+
+		File fngFile = null;
+		File fngbFile = null;
+		File decodedFile = null;
+		try {
+			fngFile = File.createTempFile("FngSizeReport", ".fng");
+			fngbFile = File.createTempFile("FngSizeReport", ".fngb");
+			decodedFile = File.createTempFile("FngSizeReport", ".fng");
+			FngWriter fw = new FngWriter();
+			if (!fw.writeFngFromSheet(hand, sheet, fngFile.getAbsolutePath(), fngbFile.getAbsolutePath())) {
+				System.out.println("FngSizeReport#reportSong - error - failed to write the .fng and .fngb files for: " + alcFilePath);
+				return;
+			}
+			boolean isRoundTrip = fw.writeFngFromFngb(fngbFile.getAbsolutePath(), decodedFile.getAbsolutePath()) &&
+								  Arrays.equals(Files.readAllBytes(fngFile.toPath()), Files.readAllBytes(decodedFile.toPath()));
+
+			// the time and size of every instruction, in both encodings. the .fng lines are in the same order as the .fngb instructions.
+			FngbReader reader = new FngbReader(fngbFile.getAbsolutePath());
+			int numInstructions = Math.max(reader.getInstructionCount(), 0);
+			int[] times = new int[numInstructions];
+			int[] fngbSizes = new int[numInstructions];
+			int[] fngSizes = new int[numInstructions];
+			BufferedReader br = new BufferedReader(new FileReader(fngFile));
+			int lineSeparatorLength = System.lineSeparator().length();
+			int numRead = 0;
+			while (reader.next() && numRead < numInstructions) {
+				times[numRead] = reader.getTime();
+				fngbSizes[numRead] = reader.getNumBytes();
+				String line = br.readLine();
+				fngSizes[numRead] = (line == null) ? 0 : line.length() + lineSeparatorLength;
+				++numRead;
+			}
+			br.close();
+			reader.close();
+
+			long fngBytes = fngFile.length();
+			long fngbBytes = fngbFile.length();
+			int songMs = (numRead > 0) ? Math.max(times[numRead - 1], 1) : 1;
+			int fngPeak = getPeakWindowBytes(times, fngSizes, numRead);
+			int fngbPeak = getPeakWindowBytes(times, fngbSizes, numRead);
+
+			System.out.println("FngSizeReport - " + name + ": " + numRead + " instructions over " + String.format("%.1f", songMs / 1000.0) + "s | .fng " + fngBytes + " bytes (" +
+							   String.format("%.1f", (double)fngBytes / Math.max(numRead, 1)) + "/instruction) | .fngb " + fngbBytes + " bytes (" +
+							   String.format("%.1f", (double)fngbBytes / Math.max(numRead, 1)) + "/instruction) | " + String.format("%.1f", (double)fngBytes / Math.max(fngbBytes, 1)) +
+							   "x smaller | round trip: " + (isRoundTrip ? "ok" : "FAILED"));
+			System.out.println("FngSizeReport - " + name + ": " + getBandwidthLine(".fng", fngBytes, fngPeak, songMs, linkBytesPerSecond) + " | " +
+							   getBandwidthLine(".fngb", fngbBytes, fngbPeak, songMs, linkBytesPerSecond));
+		} catch (Exception e) {
+			System.out.println("FngSizeReport#reportSong - error - exception caught reporting on: " + alcFilePath + ". Exception: " + e.getMessage());
+			e.printStackTrace();
+		} finally {
+			if (fngFile != null) {
+				fngFile.delete();
+			}
+			if (fngbFile != null) {
+				fngbFile.delete();
+			}
+			if (decodedFile != null) {
+				decodedFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return the most bytes of instructions that occur within any WINDOW_MS long stretch of the song
+	 */
+	private static int getPeakWindowBytes(int[] times, int[] sizes, int numInstructions) {
+		int peak = 0;
+		int windowBytes = 0;
+		int windowStart = 0;
+		for (int x = 0; x < numInstructions; ++x) {
+			windowBytes += sizes[x];
+			while (times[x] - times[windowStart] >= WINDOW_MS) {
+				windowBytes -= sizes[windowStart++];
+			}
+			peak = Math.max(peak, windowBytes);
+		}
+		return peak;
+	}
+
+	private static String getBandwidthLine(String format, long totalBytes, int peakBytes, int songMs, int linkBytesPerSecond) {
+		double averageBytesPerSecond = totalBytes / (songMs / 1000.0);
+		double peakBytesPerSecond = peakBytes * (1000.0 / WINDOW_MS);
+		return format + " averages " + String.format("%.0f", averageBytesPerSecond) + " bytes/s, peaks at " + String.format("%.0f", peakBytesPerSecond) + " bytes/s (" +
+			   String.format("%.0f", 100 * peakBytesPerSecond / linkBytesPerSecond) + "% of the link" + ((peakBytesPerSecond > linkBytesPerSecond) ? ", TOO FAST" : "") +
+			   "), uploads in " + String.format("%.1f", (double)totalBytes / linkBytesPerSecond) + "s";
+	}
+}
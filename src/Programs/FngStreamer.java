@@ -0,0 +1,80 @@
+package Programs;
+
+import Processors.ArduinoEmulator;
+import Processors.FngReader;
+import Processors.FngStreamSender;
+import Utils.Constants;
+
+/**
+ * Given a .fng or .fngb file, streams it to an emulated arduino over an emulated serial link, the way a song too large for the arduino's flash would be played,
+ * and reports whether the stream kept up: underruns (instructions that arrived after they were due), the worst latency, the least slack, and how full the arduino's buffers got.
+ * The instructions the emulator played are also checked against the file, to confirm nothing was lost or reordered on the way.
+ *
+ * The buffer sizes, baud rate, and sender settings can all be given, so a configuration can be tried out before there's any hardware to try it on.
+ */
+public class FngStreamer {
+	private static final int DEFAULT_LOOKAHEAD_MS = 2000;
+	private static final int DEFAULT_INSTRUCTION_SLOTS = 128;
+	private static final int DEFAULT_MAX_BATCH_SIZE = 32;
+	private static final int DEFAULT_RECEIVE_BUFFER_BYTES = 64;
+	private static final int DEFAULT_LOOP_MS = 1;
+	private static final int DEFAULT_START_DELAY_MS = 500;
+
+	/**
+	 * @param args file path to a .fng or .fngb file, then optionally (in order): lookahead window in ms, instruction slots on the arduino, most instructions per batch,
+	 *        baud rate, serial receive buffer bytes on the arduino, how often the arduino's loop runs in ms, and how long after streaming starts the song starts in ms
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("FngStreamer#main - usage: {filepath to fng or fngb file} {optional: lookahead ms} {optional: instruction slots} {optional: max batch size} {optional: baud rate}" +
+							   " {optional: receive buffer bytes} {optional: loop ms} {optional: start delay ms}");
+			System.out.println("FngStreamer#main - Please provide a .fng or .fngb file to stream. Gracefully exiting.");
+			return;
+		}
+
+		int lookaheadMs = DEFAULT_LOOKAHEAD_MS;
+		int instructionSlots = DEFAULT_INSTRUCTION_SLOTS;
+		int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+		int baudRate = Constants.ARDUINO_BAUD_RATE;
+		int receiveBufferBytes = DEFAULT_RECEIVE_BUFFER_BYTES;
+		int loopMs = DEFAULT_LOOP_MS;
+		int startDelayMs = DEFAULT_START_DELAY_MS;
+		try {
+			lookaheadMs = (args.length > 1) ? Integer.parseInt(args[1]) : lookaheadMs;
+			instructionSlots = (args.length > 2) ? Integer.parseInt(args[2]) : instructionSlots;
+			maxBatchSize = (args.length > 3) ? Integer.parseInt(args[3]) : maxBatchSize;
+			baudRate = (args.length > 4) ? Integer.parseInt(args[4]) : baudRate;
+			receiveBufferBytes = (args.length > 5) ? Integer.parseInt(args[5]) : receiveBufferBytes;
+			loopMs = (args.length > 6) ? Integer.parseInt(args[6]) : loopMs;
+			startDelayMs = (args.length > 7) ? Integer.parseInt(args[7]) : startDelayMs;
+		} catch (NumberFormatException e) {
+			System.out.println("FngStreamer#main - error - an argument is not a number: " + e.getMessage() + ". Gracefully exiting.");
+			return;
+		}
+		if (lookaheadMs < 0 || instructionSlots < 1 || maxBatchSize < 1 || baudRate < Constants.SERIAL_BITS_PER_BYTE || receiveBufferBytes < 1 || loopMs < 1 || startDelayMs < 0) {
+			System.out.println("FngStreamer#main - error - the lookahead and start delay can't be negative, and every other setting must be at least 1. Gracefully exiting.");
+			return;
+		}
+
+		long expectedChecksum = ArduinoEmulator.getChecksum(FngReader.open(args[0]));
+		if (expectedChecksum == -1) {
+			System.out.println("FngStreamer#main - Failed to read the instructions file. Gracefully exiting.");
+			return;
+		}
+
+		System.out.println("FngStreamer#main - streaming " + args[0] + " | lookahead " + lookaheadMs + "ms | " + instructionSlots + " instruction slots | batches of up to " + maxBatchSize +
+						   " | " + baudRate + " baud | " + receiveBufferBytes + " byte receive buffer | loop every " + loopMs + "ms | song starts after " + startDelayMs + "ms");
+		long start = System.nanoTime();
+		FngStreamSender sender = new FngStreamSender(FngReader.open(args[0]), lookaheadMs, maxBatchSize);
+		ArduinoEmulator emulator = new ArduinoEmulator(baudRate, receiveBufferBytes, instructionSlots, loopMs, startDelayMs);
+		boolean didFinish = emulator.run(sender);
+		long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+		System.out.println("FngStreamer#main - sent " + sender.getNumInstructionsSent() + " instructions in " + sender.getNumBatchesSent() + " batches (" + sender.getNumBytesSent() +
+						   " bytes) | waited on credits for " + sender.getNumCreditStalls() + "ms | emulated in " + elapsedMs + "ms");
+		System.out.print("FngStreamer#main - " + emulator.getReport());
+		boolean isPlayedCorrectly = emulator.getPlayedChecksum() == expectedChecksum;
+		System.out.println("FngStreamer#main - " + (didFinish ? "the song streamed to the end" : "the song did NOT stream to the end") + ", and the played instructions " +
+						   (isPlayedCorrectly ? "match the file" : "do NOT match the file"));
+	}
+}
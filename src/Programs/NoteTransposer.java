@@ -5,6 +5,7 @@ import DataObjs.PianoProperties;
 import Processors.AlcReaderWriter;
 import Processors.FngWriter;
 import Processors.Hand;
+import Processors.ReleaseGapPass;
 import Translators.TransMusicXML;
 import Utils.AlcStatsUtils;
 import Utils.Constants;
@@ -72,6 +73,11 @@ public class NoteTransposer {
 					alcFilePath = args[3];
 				}
 			
+				// binary .alcb files never need translating, so load them directly rather than looking for a sibling .alc file
+				if (targetFilePath.endsWith(".alcb")) {
+					alcFilePath = targetFilePath;
+				}
+			
 				if (targetFilePath.endsWith(".xml") || targetFilePath.endsWith(".musicxml")) {
 					// Call MusicXML translator
 					TransMusicXML transXml = new TransMusicXML();
@@ -79,7 +85,7 @@ public class NoteTransposer {
 				}
 				
 				// if supplied with an alc file, or if there was a successful translation of a different file format, we can create arduino code
-				if (targetFilePath.endsWith("alc") || 
+				if (targetFilePath.endsWith("alc") || targetFilePath.endsWith("alcb") || 
 		           ((targetFilePath.endsWith(".xml") || targetFilePath.endsWith(".musicxml")) && isSuccessful) ) {
 
 					// import the alc format into a MusicSheet for further processing
@@ -112,6 +118,9 @@ public class NoteTransposer {
 								Hand hand = new Hand(properties, sheet);
 								if (hand.didInit()) {
 									fw = new FngWriter();
+									// give every finger time to come back up before it re-hits a key, and untangle keys hit again while they're still held (see known issues.txt)
+									ReleaseGapPass releaseGapPass = new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT);
+									fw.setReleaseGapPass(releaseGapPass);
 									
 									// if an optional output fng filepath wasn't provided, display the path that will be used
 									if (args.length < numMandatoryArgs+1) {
@@ -123,8 +132,12 @@ public class NoteTransposer {
 										fngFilePath = args[4];
 									}
 									
-									if (fw.writeFngFromSheet(hand, sheet, fngFilePath)) {
-										System.out.println("\nNoteTransposer#main - Successfully converted the .alc file into an .fng file!");
+									// the binary .fngb version is written alongside the .fng file, for streaming to or storing on the arduino
+									String fngbFilePath = fngFilePath.endsWith(".fng") ? fngFilePath + "b" : fngFilePath + ".fngb";
+									
+									if (fw.writeFngFromSheet(hand, sheet, fngFilePath, fngbFilePath)) {
+										System.out.println("\nNoteTransposer#main - Successfully converted the .alc file into an .fng file! The binary .fngb version was written to: " + fngbFilePath);
+										System.out.print("NoteTransposer#main - " + releaseGapPass.getReport());
 									} else {
 										System.out.println("\nNoteTransposer#main - Failed to convert the .alc into an .fng. Exiting.");
 									}
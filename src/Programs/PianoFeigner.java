@@ -1,28 +1,38 @@
 package Programs;
 
+import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.net.URL;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.TreeSet;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
-import DataObjs.MusicNote;
 import DataObjs.MusicSheet;
 import DataObjs.MusicSlice;
 import DataObjs.PianoProperties;
 import Processors.AlcReaderWriter;
+import Processors.AudioMixer;
+import Processors.KeyboardFrameRenderer;
+import Processors.KeyboardLayout;
+import Processors.PlaybackListener;
+import Processors.PlaybackSchedule;
+import Processors.PlaybackScheduler;
+import Processors.SampleBank;
 import Utils.Constants;
+import Utils.NoteIntervalIndex;
 import Utils.NoteUtils;
 
 
@@ -51,10 +61,10 @@ public class PianoFeigner extends JFrame {
 	 * 
 	 */
 	private static final long serialVersionUID = 1314933741042363037L;
+	private static final double FRAME_PERIOD_MS = 1000.0 / 60; // one frame of a 60hz display - a seek should be caught up with within one
 	
 	PianoProperties properties;
-	private int sliceIndex;
-	private int rollingTime;
+	private AudioMixer mixer;
 	
 	public static void main(String[] args) {
 		String propertiesPath = "";
@@ -93,10 +103,6 @@ public class PianoFeigner extends JFrame {
 		String firstNote = properties.getSetting(Constants.SETTINGS_FIRST_NOTE);
 		int firstOctave = Integer.parseInt(properties.getSetting(Constants.SETTINGS_FIRST_OCTAVE));
 		String pianoVoice = properties.getSetting(Constants.SETTINGS_VOICE);
-		LinkedList<MusicSlice> slices = sheet.getSlices();
-		sliceIndex = 0;
-		rollingTime = 0;
-		int delay;
 
 		// TODO
 		// The gui is hanging when DISPLAY_LETTERS is set to true. The gui won't close normally on exit, and it won't play sound / highlight keys after the first.
@@ -110,75 +116,115 @@ public class PianoFeigner extends JFrame {
 		}*/
 		
 		// TODO perhaps we should make a radio button for voice, instead of having it in the Settings file?
-		// TODO and perhaps a "Start" button instead of it immediately jumping into playback when you run the application?
-		//      After you hit start, we could then replace the button with a "Pause" button, so hitting it again would stop playback. When it is paused,
-		//      we could then turn the button into a "Restart" or "Resume" button (or both), and hitting restart again could restart the playback from the beginning. just some ideas.
+		// TODO playback still immediately starts when you run the application. there's a pause button, a position slider (which can be dragged back to restart)
+		//      and a speed selector under the keyboard now, so a "Start" button could just begin paused.
 
 		
-		PianoPanel pianoPanel = new PianoPanel(numWhiteKeys, numBlackKeys, firstNote, firstOctave, showLetters);
+		// playback used to be driven by a swing Timer firing every GCD milliseconds, which repainted (and allocated) on every tick whether anything changed or not.
+		// now every press / release is worked out up front, and the scheduler only wakes up when one of them is due.
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		// every note as an interval of time, so the notes still held at any point jumped to can be found without replaying the song up to it
+		final NoteIntervalIndex noteIndex = new NoteIntervalIndex(sheet);
+		
+		PianoPanel pianoPanel = new PianoPanel(schedule, numWhiteKeys, numBlackKeys, firstNote, firstOctave, showLetters);
 		add(pianoPanel);
 		
-		delay = sheet.getGCD();
-		if (delay == -1 || delay == 0) {
-			System.out.println("PianoFeigner#execute - Failed to generate a valid greatest-common-divisor between the MusicSlices, so playback is aborted. Delay: " + delay);
-		} else {
-			Timer timer = new Timer(delay, new ActionListener() {
-				@Override
-				public void actionPerformed(ActionEvent e) {
-					if (sliceIndex < slices.size()) {
-						MusicSlice currentSlice = slices.get(sliceIndex);
-						
-						if (currentSlice.getStartTime() != rollingTime) {
-							// while this is the next MusicSlice we need to play, it is NOT time to play it yet. so do nothing and wait for the next loop.
-							// we'll send an empty MusicSlice, so the LiveSlice will update as needed and remove expired Notes from the gui.
-							pianoPanel.setHitNotes(new MusicSlice(rollingTime), delay, rollingTime);
-							// No sounds need to be played, as no MusicSlice is starting at this timestamp.
-						} else {
-							++sliceIndex;
-							pianoPanel.setHitNotes(currentSlice, delay, rollingTime);
-							// every time we repaint the piano gui with new notes, play the sounds too
-							playSoundsForSlice(currentSlice, pianoVoice);
-						}
-						repaint();
-					} else if (rollingTime > sheet.getEndTime()) {
-						setVisible(false);
-						System.exit(0);
+		// every .wav for the voice is decoded once up front, and all notes are mixed into a single audio line (rather than opening a new Clip for every note)
+		SampleBank bank = SampleBank.getBank(pianoVoice);
+		if (bank != null) {
+			mixer = new AudioMixer(bank, AudioMixer.DEFAULT_MAX_VOICES);
+			if (!mixer.start()) {
+				System.out.println("PianoFeigner#execute - warning - no audio line could be opened, so the song will play without sound.");
+				mixer = null;
+			}
+		}
+		final PlaybackScheduler scheduler = new PlaybackScheduler(schedule, new PlaybackListener() {
+			private int[] heldNotes = new int[Constants.NUM_KEY_INDICES]; // only touched on the playback thread
+			
+			@Override
+			public void playbackEvent(PlaybackSchedule schedule, int event) {
+				if (schedule.didKeysChange(event)) {
+					pianoPanel.setHitKeys(event); // only repaints the keys that changed
+				}
+				MusicSlice struckSlice = schedule.getSlice(event);
+				if (struckSlice != null) {
+					// every time notes are struck, play the sounds too
+					playSoundsForSlice(struckSlice);
+				}
+			}
+			
+			@Override
+			public void playbackSeeked(PlaybackSchedule schedule, int event, int time, long requestNanos) {
+				// whatever was sounding belongs to the old point in the song, so it's cut off, and the keys held at the new point are shown.
+				// notes still held at the new point are struck again part way through, so they sound the way they would have if the song had played up to it.
+				if (mixer != null) {
+					mixer.allNotesOff(requestNanos);
+					int numHeld = noteIndex.getHeldNotes(time, heldNotes);
+					for (int x = 0; x < numHeld; ++x) {
+						mixer.noteOn(noteIndex.getNoteKey(heldNotes[x]), time - noteIndex.getNoteStart(heldNotes[x]));
 					}
-					rollingTime += delay;
 				}
-			});
-			timer.start();
-					
-			// we'll have slight buffer space in the ui
-			setSize(Constants.KEY_WIDTH_WHITE * (numWhiteKeys + 1), Constants.KEY_HEIGHT_WHITE + 45);
-			setTitle("Piano Feigner");
-			setLocationRelativeTo(null);
-			setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-			setVisible(true);
-		}
-	}
-	
-	public void playSoundsForSlice(MusicSlice slice, String pianoVoice) {
-
-		double compareValue = -1;
-		TreeSet<MusicNote> notes = slice.getNotes();
-		Iterator<MusicNote> iter = notes.iterator();
-		
-		while (iter.hasNext()) {
-			MusicNote note = iter.next();
-			compareValue = note.getCompareValue();
-			if (compareValue > 0) {
+				pianoPanel.setHitKeys(event, requestNanos);
+			}
+			
+			@Override
+			public void playbackFinished(PlaybackScheduler scheduler) {
+				System.out.println("PianoFeigner#execute - playback finished - " + scheduler.getJitterSummary());
 				try {
-					String uri = NoteUtils.getSoundWavForNote(compareValue, pianoVoice, properties);
-					URL url = getClass().getClassLoader().getResource(uri);
-					AudioInputStream audioIn = AudioSystem.getAudioInputStream(url);
-					Clip clip = AudioSystem.getClip();
-					clip.open(audioIn);
-					clip.start();
+					SwingUtilities.invokeAndWait(new Runnable() {
+						@Override
+						public void run() {
+							System.out.println("PianoFeigner#execute - gui - " + pianoPanel.getFrameTimeSummary());
+							if (pianoPanel.getNumSeeks() > 0) {
+								System.out.println("PianoFeigner#execute - seek resync - keys (seek asked for until the changed keys are painted): " + pianoPanel.getSeekResyncSummary(FRAME_PERIOD_MS));
+							}
+						}
+					});
 				} catch (Exception e) {
-					System.out.println("PianoFeigner#execute - exception caught attempting to test playing .wav files: " + e.getMessage());
-					e.printStackTrace();
+					System.out.println("PianoFeigner#execute - error - exception caught getting the gui's frame times: " + e.getMessage());
+				}
+				if (mixer != null) {
+					System.out.println("PianoFeigner#execute - audio - " + mixer.getLatencySummary());
+					if (mixer.getNumCuts() > 0) {
+						double meanMs = mixer.getMeanCutLatencyNanos() / 1000000.0;
+						double maxMs = mixer.getMaxCutLatencyNanos() / 1000000.0;
+						System.out.println("PianoFeigner#execute - seek resync - audio (seek asked for until the cut is heard, after the next buffer and what the line had queued): " +
+										   "seeks: " + mixer.getNumCuts() + ", mean: " + String.format("%.3f", meanMs) + "ms, max: " + String.format("%.3f", maxMs) + "ms, frame period: " +
+										   String.format("%.1f", FRAME_PERIOD_MS) + "ms - " + ((maxMs <= FRAME_PERIOD_MS) ? "within one frame" : "NOT within one frame"));
+					}
+					mixer.stop();
 				}
+				setVisible(false);
+				System.exit(0);
+			}
+		});
+		// playback waits at the end of the song, so it can be dragged back, and only finishes when the window is closed
+		scheduler.setHoldAtEnd(true);
+		add(new PlaybackControlPanel(scheduler, schedule.getSheet().getEndTime()), BorderLayout.SOUTH);
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				scheduler.stop();
+			}
+		});
+				
+		// we'll have slight buffer space in the ui
+		setSize(Constants.KEY_WIDTH_WHITE * (numWhiteKeys + 1), Constants.KEY_HEIGHT_WHITE + 45 + PlaybackControlPanel.PANEL_HEIGHT);
+		setTitle("Piano Feigner");
+		setLocationRelativeTo(null);
+		setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE); // playbackFinished exits, once it has logged the measurements
+		setVisible(true);
+		scheduler.start();
+	}
+	
+	/**
+	 * Strikes every key in the slice on the mixer. This only queues the notes up, so it returns immediately.
+	 * Rests (which shouldn't be in an .alc file anyway) have no key, so they are skipped.
+	 */
+	public void playSoundsForSlice(MusicSlice slice) {
+		if (mixer != null) {
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				mixer.noteOn(keyIndex);
 			}
 		}
 	}
@@ -191,212 +237,273 @@ class PianoPanel extends JPanel {
 	 */
 	private static final long serialVersionUID = 364405349942973048L;
 	
-	private int numWhiteKeys;
-	private int numBlackKeys;
-	private String firstKey;
-	private int firstOctave;
 	private boolean showLetters;
-	private MusicSlice liveSlice;
+	private KeyboardLayout layout;
+	private KeyboardFrameRenderer renderer; // the keyboard is drawn into the renderer's offscreen image, only ever touched on the gui thread
+	
+	// frame time counter, only ever touched on the gui thread
+	private int numFramesPainted;
+	private long totalPaintNanos;
+	private long maxPaintNanos;
+	private long totalPixelsPainted;
+	
+	// seek resync timing, only ever touched on the gui thread
+	private long pendingSeekNanos; // when the seek being repainted was asked for, or 0 if none is
+	private int numSeeks;
+	private long totalSeekNanos;
+	private long maxSeekNanos;
 	
 	/**
+	 * @param schedule The schedule of the song being played, which determines which keys are down
 	 * @param numWhiteKeys The number of white keys to display in the piano gui
 	 * @param numBlackKeys The number of black keys to display in the piano gui
 	 * @param firstKey The letter of the first white key that appears on the piano gui
 	 * @param firstOctave The number of the octave attached to the first white key on the piano gui
 	 * @param showLetters If true, will show the note letters (A-G) on the white keys
 	 */
-	public PianoPanel(int numWhiteKeys, int numBlackKeys, String firstKey, int firstOctave, boolean showLetters) {
-		this.numWhiteKeys = numWhiteKeys;
-		this.numBlackKeys = numBlackKeys;
-		this.firstKey = firstKey;
-		this.firstOctave = firstOctave;
+	public PianoPanel(PlaybackSchedule schedule, int numWhiteKeys, int numBlackKeys, String firstKey, int firstOctave, boolean showLetters) {
 		this.showLetters = showLetters;
-		liveSlice = new MusicSlice(0);
+		
+		// ensure the piano's settings are valid. the number of white/black keys are determined from the TOTAL NUMBER OF KEYS from the piano properties,
+		// so we know it will be a valid ratio, and not some weird bad data like 7 white keys and 1 black key, or 4 white keys and 20 black keys
+		if (NoteUtils.getPositionForNote(firstKey) == -1) {
+			System.out.println("PianoFeigner.PianoPanel#ctor - invalid first note of piano given. firstKey: " + firstKey);
+		}
+		if (firstOctave < Constants.MIN_PIANO_OCTAVE) {
+			System.out.println("PianoFeigner.PianoPanel#ctor - invalid octave value given. firstOctave: " + firstOctave);
+		}
+		if (numWhiteKeys < 0 || numBlackKeys < 0) {
+			System.out.println("PianoFeigner.PianoPanel#ctor - invalid white/black key counts given. Both values must be greater than 0. " +
+							   "numWhiteKeys: " + numWhiteKeys + ", numBlackKeys: " + numBlackKeys);
+		}
+		
+		// where each key goes is worked out once, and the whole keyboard is drawn once, up front.
+		// after that, only keys that go up or down are redrawn, and only the area they cover is repainted on screen.
+		layout = new KeyboardLayout(numWhiteKeys, numBlackKeys, firstKey, firstOctave);
+		renderer = new KeyboardFrameRenderer(layout, schedule);
+		renderer.renderEvent(-1);
+		numFramesPainted = 0;
+		totalPaintNanos = 0;
+		maxPaintNanos = 0;
+		totalPixelsPainted = 0;
 	}
 	
 	/**
-	 * When notes are struck, we store them in a MusicSlice that belongs to the gui, because notes may have different hold durations within a given slice,
-	 * and a new slice may appear before the durations of some (or all) current notes have fully played out from the previous slice.
-	 * So the idea is, we copy all of the struck notes into the gui's personal slice, and when a new slice arrives, we subtract the delay in ms from the currently displayed notes,
-	 * and if any notes still have remaining durations >= 0, we need to keep displaying those notes as hit, while also displaying the newly struck notes.
-	 * Additionally, if any notes have remaining durations <= 0 (ideally exactly 0), then we want to remove them as hit from the gui.
-	 * Once this new Slice containing all the updated notes to hit is created, we point to that one to display.
-	 * @param currentSlice Slice to copy MusicNotes from and to display as hit in the gui.
-	 * @param duration the duration of time between MusicSlices in milliseconds
-	 * @param startTime the time in milliseconds the new MusicSlice starts at
+	 * Notes may have different hold durations within a given slice, and a new slice may be struck before the durations of some (or all) of the previous slice's notes have played out,
+	 * so which keys are down at any point in time is worked out ahead of time by the PlaybackSchedule.
+	 * The gui just redraws the keys whose state changed as of the given event, and repaints the area they cover.
+	 * Safe to call from any thread - the drawing itself is handed off to the gui thread.
+	 * @param event index of the schedule's event to display
 	 */
-	public void setHitNotes(MusicSlice currentSlice, int duration, int startTime) {
-		MusicSlice newSlice = new MusicSlice(startTime); // this will store the new notes to display in the gui
-		
-		// check for expired previous notes
-		if (liveSlice.getNotes() != null) {
-			Iterator<MusicNote> iter = liveSlice.getNotes().iterator();
-			while (iter.hasNext()) {
-				MusicNote note = iter.next();
-				note.feignerDecreaseRemainingDuration(duration);
-				if (note.feignerGetRemainingDuration() > 0) {
-					// only notes that have remaining duration can be kept
-					newSlice.addMusicNote(note); // we don't check the returned success boolean flag, because we take no action if it were to fail as a duplicate
+	public void setHitKeys(final int event) {
+		setHitKeys(event, 0);
+	}
+	
+	/**
+	 * Same as setHitKeys(event), for a seek: the time from the seek being asked for until the changed keys have been painted is recorded.
+	 * @param event index of the schedule's event to display
+	 * @param seekRequestNanos the System.nanoTime the seek was asked for, or 0 if this isn't for a seek
+	 */
+	public void setHitKeys(final int event, final long seekRequestNanos) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				renderer.renderEvent(event);
+				Rectangle dirty = renderer.getDirtyBounds();
+				if (dirty != null) {
+					if (seekRequestNanos != 0) {
+						pendingSeekNanos = seekRequestNanos; // timed once the dirty area has actually been painted
+					}
+					repaint(dirty);
+				} else if (seekRequestNanos != 0) {
+					recordSeek(seekRequestNanos); // the keys down at the new point are the ones already showing, so there is nothing to paint
 				}
 			}
-		}
-		
-		// add the new notes to display as hit
-		Iterator<MusicNote> iter = currentSlice.getNotes().iterator();
-		while (iter.hasNext()) {
-			MusicNote note = iter.next();
-			note.feignerInitRemainingDuration();
-			newSlice.addMusicNote(note);
-		}
-		
-		liveSlice = newSlice;
+		});
 	}
 	
+	private void recordSeek(long requestNanos) {
+		long elapsed = System.nanoTime() - requestNanos;
+		++numSeeks;
+		totalSeekNanos += elapsed;
+		maxSeekNanos = Math.max(maxSeekNanos, elapsed);
+	}
+	
+	/**
+	 * Copies the keyboard from the offscreen image. Swing sets the clip to the area being repainted, so only the keys that changed are actually copied.
+	 */
 	public void doDrawing(Graphics g) {
-		Graphics2D gra = (Graphics2D) g;
-		int patternPosition;
-		int currentOctave;
-		int walker; // a tracked position that walks across the white piano keys from left to right, used when placing black keys
-		int startX;
-		int startY;
+		g.drawImage(renderer.getImage(), 0, 0, null);
 		
 		if (showLetters) {
-			// required for setting labels in coordinate positions, if "showLetters" is turned on
-			setLayout(null);
-		}
-		
-		// Check all inputs for valid values
-		
-		// Determine where you are in the pattern.
-		// We'll map the letters to numbers ie C=1, D=2, ... B=7, and use conditionals to know when to skip.
-		patternPosition = NoteUtils.getPositionForNote(firstKey);
-		if (patternPosition == -1) {
-			System.out.println("PianoFeigner.PianoPanel#doDrawing - invalid first note of piano given. firstKey: " + firstKey);
-		}
-		
-		// ensure the supplied octave is valid
-		if (firstOctave < Constants.MIN_PIANO_OCTAVE) {
-			System.out.println("PianoFeigner.PianoPanel#doDrawing - invalid octave value given. firstOctave: " + firstOctave);
+			g.setColor(Constants.KEY_COLOR_BORDER);
+			for (int key = 0; key < layout.getNumKeys() && !layout.isBlackKey(key); ++key) {
+				g.drawString(NoteUtils.getNoteForKeyIndex(layout.getKeyIndex(key)), layout.getX(key) + Constants.LETTER_X_BUFFER, Constants.LETTER_Y_BUFFER + Constants.LETTER_HEIGHT / 2);
+			}
 		}
-		currentOctave = firstOctave;
+	}
+	
+	@Override
+	public void paintComponent(Graphics g) {
+		long start = System.nanoTime();
+		super.paintComponent(g);
+		doDrawing(g);
+		long elapsed = System.nanoTime() - start;
 		
-		// at a minimum, ensure the number of white and black keys are at least positive
-		// the number of white/black keys are determined from the TOTAL NUMBER OF KEYS from the piano properties, so we know it will be a valid ratio,
-		// and not some weird bad data like 7 white keys and 1 black key, or 4 white keys and 20 black keys
-		if (numWhiteKeys < 0 || numBlackKeys < 0) {
-			System.out.println("PianoFeigner.PianoPanel#doDrawing - invalid white/black key counts given. Both values must be greater than 0. " +
-							   "numWhiteKeys: " + numWhiteKeys + ", numBlackKeys: " + numBlackKeys);
+		Rectangle clip = g.getClipBounds();
+		totalPixelsPainted += (clip == null) ? (long)getWidth() * getHeight() : (long)clip.width * clip.height;
+		++numFramesPainted;
+		totalPaintNanos += elapsed;
+		maxPaintNanos = Math.max(maxPaintNanos, elapsed);
+		if (pendingSeekNanos != 0) {
+			recordSeek(pendingSeekNanos);
+			pendingSeekNanos = 0;
 		}
-		
-		startY = 0; // the top of the gui - this will never change, whether white or black keys
-		
-		
-		
-		
-		// draw the white keys
-		
-		for (int i = 0; i < numWhiteKeys; ++i) {
-			startX = Constants.KEY_WIDTH_WHITE * i;
-
-			// Determine the compare value of this key, so we can check if it is being struck currently.
-			// Get the note letter we are on by checking where we are in the ABCDEFG pattern
-			String displayLetter = NoteUtils.getNoteForPosition(patternPosition);
-			double currentCompVal = NoteUtils.generateCompareValue(displayLetter, currentOctave, false, false);
-
-			// we'll fill in the color for the key, and then draw a rectangle over it to give it a border
-			// if this is a note that is being struck, color it with the struck-color
-			if (liveSlice.containsNote(currentCompVal)) {
-				gra.setColor(Constants.KEY_COLOR_HIT);
-				gra.fillRect(startX, startY, Constants.KEY_WIDTH_WHITE, Constants.KEY_HEIGHT_WHITE);
-			} else {
-				gra.setColor(Constants.KEY_COLOR_WHITE);
-				gra.fillRect(startX, startY, Constants.KEY_WIDTH_WHITE, Constants.KEY_HEIGHT_WHITE);
-			}
-			gra.setColor(Constants.KEY_COLOR_BORDER);
-			gra.drawRect(startX, startY, Constants.KEY_WIDTH_WHITE, Constants.KEY_HEIGHT_WHITE);
-			
-			if (showLetters) {
-				JLabel letterLabel = new JLabel(displayLetter);
-				add(letterLabel);
-				letterLabel.setLocation(startX + Constants.LETTER_X_BUFFER, Constants.LETTER_Y_BUFFER);
-				letterLabel.setSize(Constants.LETTER_WIDTH, Constants.LETTER_HEIGHT);
-			}
+	}
+	
+	/**
+	 * @return a one line summary of how many frames were painted, how long they took to paint, and how much of the keyboard was repainted in each, for logging.
+	 *         Should be called on the gui thread.
+	 */
+	public String getFrameTimeSummary() {
+		double keyboardPixels = (double)layout.getKeyboardWidth() * layout.getKeyboardHeight();
+		return "frames painted: " + numFramesPainted +
+			   ", mean frame time: " + String.format("%.3f", (numFramesPainted == 0) ? 0 : totalPaintNanos / numFramesPainted / 1000000.0) + "ms" +
+			   ", max frame time: " + String.format("%.3f", maxPaintNanos / 1000000.0) + "ms" +
+			   ", mean area repainted: " + String.format("%.1f", (numFramesPainted == 0) ? 0 : 100.0 * totalPixelsPainted / numFramesPainted / keyboardPixels) + "% of the keyboard";
+	}
+	
+	/**
+	 * @return the number of seeks the keyboard has caught up with. Should be called on the gui thread.
+	 */
+	public int getNumSeeks() {
+		return numSeeks;
+	}
+	
+	/**
+	 * @param framePeriodMs how long one frame of the display lasts, which the worst seek is compared against
+	 * @return a one line summary of how long the keyboard took to show the point seeked to, for logging. Should be called on the gui thread.
+	 */
+	public String getSeekResyncSummary(double framePeriodMs) {
+		double meanMs = (numSeeks == 0) ? 0 : totalSeekNanos / numSeeks / 1000000.0;
+		double maxMs = maxSeekNanos / 1000000.0;
+		return "seeks: " + numSeeks + ", mean: " + String.format("%.3f", meanMs) + "ms, max: " + String.format("%.3f", maxMs) + "ms, frame period: " +
+			   String.format("%.1f", framePeriodMs) + "ms - " + ((maxMs <= framePeriodMs) ? "within one frame" : "NOT within one frame");
+	}
+	
+}
 
-			++patternPosition;
-			if (patternPosition > Constants.OCTAVE_LENGTH) {
-				patternPosition = 1;
-				++currentOctave;
-			}
-		}
+/**
+ * Controls under the keyboard: pause / resume, a slider showing (and setting) the position in the song, and the playback speed.
+ * The slider follows playback with a swing Timer - the Timer only moves the slider, it doesn't drive playback.
+ * Dragging the slider seeks as it goes, so the keyboard (and the sound) follow it while scrubbing.
+ */
+class PlaybackControlPanel extends JPanel {
+	
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 2716043513872411398L;
+	
+	public static final int PANEL_HEIGHT = 35;
+	private static final int POSITION_REFRESH_MS = 33; // ~30 times a second
+	private static final String[] SPEED_NAMES = { "0.25x", "0.5x", "0.75x", "1x", "1.5x", "2x", "3x", "4x" };
+	private static final double[] SPEEDS = { 0.25, 0.5, 0.75, 1, 1.5, 2, 3, 4 };
+	
+	private PlaybackScheduler scheduler;
+	private int endTime;
+	private JButton pauseButton;
+	private JSlider positionSlider;
+	private JLabel positionLabel;
+	private boolean isFollowingPlayback; // true while the slider is being moved to follow playback, rather than by the user
+	
+	/**
+	 * @param scheduler the scheduler playing the song
+	 * @param endTime the time the song ends, in milliseconds
+	 */
+	public PlaybackControlPanel(PlaybackScheduler scheduler, int endTime) {
+		this.scheduler = scheduler;
+		this.endTime = endTime;
+		setLayout(new BorderLayout());
+		setPreferredSize(new Dimension(0, PANEL_HEIGHT));
 		
+		pauseButton = new JButton("Pause");
+		pauseButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				togglePause();
+			}
+		});
 		
+		positionSlider = new JSlider(0, Math.max(endTime, 1), 0);
+		positionSlider.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				if (!isFollowingPlayback) {
+					PlaybackControlPanel.this.scheduler.seek(positionSlider.getValue());
+					updatePositionLabel(positionSlider.getValue());
+				}
+			}
+		});
 		
+		final JComboBox<String> speedBox = new JComboBox<String>(SPEED_NAMES);
+		speedBox.setSelectedIndex(3); // 1x
+		speedBox.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				PlaybackControlPanel.this.scheduler.setSpeed(SPEEDS[speedBox.getSelectedIndex()]);
+			}
+		});
 		
-		// draw the black keys
+		positionLabel = new JLabel();
+		updatePositionLabel(0);
+		JPanel rightSide = new JPanel();
+		rightSide.add(positionLabel);
+		rightSide.add(speedBox);
 		
-		// guess we'll just drop em on top of the white ones.
-		// NOTE: while natural keys are all immediate neighbors with each other, sharp/flat keys do not physically touch any other sharp/flat keys.
-		// this means there are spaces between black keys. we can't just draw them all sequentially like white keys, we need to determine their placement pattern / position.
-		// if we pretend that black notes fall in the exact gap between 2 white keys (as in, there is a black key that is positioned with one half in white C and in white D),
-		// and we give black keys a width that is only approximately 2/3rd the width of a white key (so a white key can be surrounded by black keys on both sides,
-		//																							 1/3rd the space on each side of the white key being black, when needed),
-		// then we can work with a pattern of:
-		// C - Black - D - Black - E - NO BLACK - F - Black - G - Black - A - Black - B - NO BLACK - (repeat)
-		// which would translate into a repeating pattern of:
-		// (FIRST TIME ONLY: SKIP THE POSITION 1/3 INTO THE WHITE NOTE TO INITIALIZE)
-		// skip 1/3rd (for C's middle), place black key, skip 1/3rd (for D's middle), place key, skip 1/3rd for E's middle, SKIP 1/3RD  AGAIN(E has no sharp), ...
-		// (init with one skip) skip place skip place skip skip skip place skip place skip place skip skip (repeat)
+		add(pauseButton, BorderLayout.WEST);
+		add(positionSlider, BorderLayout.CENTER);
+		add(rightSide, BorderLayout.EAST);
 		
-		// Init: skip 1/3rd in
-		walker = 0 + (Constants.KEY_WIDTH_WHITE / 3);
-		patternPosition = NoteUtils.getPositionForNote(firstKey);
-		currentOctave = firstOctave;
-		for (int i = 0; i < numBlackKeys; ++i) {
-			// no matter what, skip over the "middle" of the white key
-			walker += (Constants.KEY_WIDTH_WHITE / 3);
-			
-			// A,C,D,F,G have sharps, so we need a black key here, which takes up 2/3 the space of a white key, half inside this white key, and half inside the next
-			if (patternPosition == (int)Constants.A_POS || patternPosition == (int)Constants.C_POS || patternPosition == (int)Constants.D_POS ||
-                patternPosition == (int)Constants.F_POS || patternPosition == (int)Constants.G_POS) {
-				
-				// we'll fill in the color for the key
-				// Determine the compare value of this key, so we can check if it is being struck currently.
-				String displayLetter = NoteUtils.getNoteForPosition(patternPosition);
-				double currentCompVal = NoteUtils.generateCompareValue(displayLetter, currentOctave, true, false);
-				if (liveSlice.containsNote(currentCompVal)) {
-					gra.setColor(Constants.KEY_COLOR_HIT);
-				} else {
-					gra.setColor(Constants.KEY_COLOR_BLACK);
-				}
-				startX = walker;
-				gra.fillRect(startX, startY, Constants.KEY_WIDTH_BLACK, Constants.KEY_HEIGHT_BLACK);
-				gra.setColor(Constants.KEY_COLOR_BORDER);
-				gra.drawRect(startX, startY, Constants.KEY_WIDTH_BLACK, Constants.KEY_HEIGHT_BLACK);
-				
-				// move to the next position
-				walker += Constants.KEY_WIDTH_BLACK;
-			} else { //if (patternPosition == (int)Constants.B_POS || patternPosition == (int)Constants.E_POS) { // B, E do not have sharps, so no black key here, skip over the next 2/3rds
-				walker += Constants.KEY_WIDTH_BLACK;
-				--i;
+		new Timer(POSITION_REFRESH_MS, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				followPlayback();
 			}
-			
-			// increment our pattern to the next key
-			++patternPosition;
-			if (patternPosition > Constants.OCTAVE_LENGTH) {
-				patternPosition = 1;
-				++currentOctave;
-			}
-			
+		}).start();
+	}
+	
+	private void togglePause() {
+		if (scheduler.isPaused()) {
+			scheduler.resume();
+			pauseButton.setText("Pause");
+		} else {
+			scheduler.pause();
+			pauseButton.setText("Play");
 		}
 	}
 	
-	@Override
-	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		doDrawing(g);
+	/**
+	 * Moves the slider to where playback is, unless the user is dragging it
+	 */
+	private void followPlayback() {
+		if (positionSlider.getValueIsAdjusting()) {
+			return;
+		}
+		int position = scheduler.getPosition();
+		isFollowingPlayback = true;
+		positionSlider.setValue(position);
+		isFollowingPlayback = false;
+		updatePositionLabel(position);
 	}
 	
-}
+	private void updatePositionLabel(int position) {
+		positionLabel.setText(formatTime(position) + " / " + formatTime(endTime));
+	}
 	
-
-
+	private static String formatTime(int millis) {
+		int seconds = millis / 1000;
+		return (seconds / 60) + ":" + String.format("%02d", seconds % 60);
+	}
+	
+}
@@ -0,0 +1,151 @@
+package Programs;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import DataObjs.FingerPowerModel;
+import DataObjs.MusicSheet;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.FingerPowerSimulator;
+import Processors.FngReader;
+import Processors.FngWriter;
+import Processors.Hand;
+import Processors.ReleaseGapPass;
+import Utils.Constants;
+
+/**
+ * Checks a whole library of songs against a power supply: every song is run through the FingerPowerSimulator, and one line is printed per song
+ * with its peak current, whether it fits the supply budget, and how hot its hottest finger gets. A summary of how many songs fit comes last.
+ *
+ * .alc files are turned into instructions with the given piano properties (with the same release gap pass NoteTransposer uses), and .fng and .fngb files are read as they are.
+ * A directory is checked along with everything under it. Pass "default" instead of a power model file to use the default power model.
+ */
+public class PowerBudgetCheck {
+	private static final String DEFAULT_MODEL = "default";
+
+	/**
+	 * @param args file path to the piano properties file, file path to the power model file (or "default"), the supply budget in mA, then any number of .alc, .fng, or .fngb files or directories
+	 */
+	public static void main(String[] args) {
+		if (args.length < 4) {
+			System.out.println("PowerBudgetCheck#main - usage: {filepath to piano properties file} {filepath to power model file, or default} {supply budget in mA} {.alc, .fng, .fngb files or directories...}");
+			System.out.println("PowerBudgetCheck#main - Please provide every argument. Gracefully exiting.");
+			return;
+		}
+
+		PianoProperties properties = new PianoProperties(args[0]);
+		if (!properties.didLoad()) {
+			System.out.println("PowerBudgetCheck#main - Please fix the reported errors with the properties file and execute the program again. Gracefully exiting.");
+			return;
+		}
+		FingerPowerModel model = args[1].equalsIgnoreCase(DEFAULT_MODEL) ? new FingerPowerModel() : new FingerPowerModel(args[1]);
+		if (!model.didLoad()) {
+			System.out.println("PowerBudgetCheck#main - Please fix the reported errors with the power model file and execute the program again. Gracefully exiting.");
+			return;
+		}
+		int supplyBudgetMa;
+		try {
+			supplyBudgetMa = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			System.out.println("PowerBudgetCheck#main - error - the supply budget is not a number: " + args[2] + ". Gracefully exiting.");
+			return;
+		}
+		if (supplyBudgetMa < 1) {
+			System.out.println("PowerBudgetCheck#main - error - the supply budget must be at least 1mA. Gracefully exiting.");
+			return;
+		}
+
+		List<File> songs = new ArrayList<File>();
+		for (int x = 3; x < args.length; ++x) {
+			addSongs(new File(args[x]), songs);
+		}
+		Collections.sort(songs);
+		if (songs.isEmpty()) {
+			System.out.println("PowerBudgetCheck#main - No .alc, .fng, or .fngb files were found. Gracefully exiting.");
+			return;
+		}
+
+		System.out.println("PowerBudgetCheck#main - checking " + songs.size() + " songs against a " + supplyBudgetMa + "mA supply | " + model);
+		FingerPowerSimulator simulator = new FingerPowerSimulator(model);
+		simulator.setSupplyBudgetMa(supplyBudgetMa);
+		int numFit = 0;
+		int numFailed = 0;
+		int numHot = 0;
+		int worstPeakMa = 0;
+		String worstPeakSong = "";
+		long start = System.nanoTime();
+		for (File song : songs) {
+			if (!simulate(simulator, properties, song)) {
+				System.out.println("PowerBudgetCheck#main - " + song.getPath() + " | could not be simulated");
+				++numFailed;
+				continue;
+			}
+
+			int hottestFinger = 0;
+			for (int finger = 1; finger < simulator.getNumFingers(); ++finger) {
+				if (simulator.getPeakThermalLoad(finger) > simulator.getPeakThermalLoad(hottestFinger)) {
+					hottestFinger = finger;
+				}
+			}
+			boolean fits = simulator.getNumBudgetOverruns() == 0;
+			System.out.println("PowerBudgetCheck#main - " + song.getPath() + " | " + (fits ? "fits" : "OVER BUDGET " + simulator.getNumBudgetOverruns() + " times for " +
+							   simulator.getMsOverBudget() + "ms") + " | peak " + simulator.getPeakCurrentMa() + "mA at " + simulator.getPeakCurrentTime() + "ms | average " +
+							   String.format("%.0f", simulator.getAverageCurrentMa()) + "mA | hottest finger " + hottestFinger + " at " +
+							   String.format("%.2f", simulator.getPeakThermalLoad(hottestFinger)) + " with " + simulator.getNumHotspots() + " hotspots");
+			if (fits) {
+				++numFit;
+			}
+			if (simulator.getNumHotspots() > 0) {
+				++numHot;
+			}
+			if (simulator.getPeakCurrentMa() > worstPeakMa) {
+				worstPeakMa = simulator.getPeakCurrentMa();
+				worstPeakSong = song.getPath();
+			}
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+		System.out.println("PowerBudgetCheck#main - " + numFit + " of " + (songs.size() - numFailed) + " songs fit the " + supplyBudgetMa + "mA budget | " + numHot +
+						   " songs overheat a finger | highest peak " + worstPeakMa + "mA in " + worstPeakSong + " | " + numFailed + " songs could not be simulated | checked in " + elapsedMs + "ms");
+	}
+
+	private static void addSongs(File file, List<File> songs) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					addSongs(child, songs);
+				}
+			}
+		} else if (isSong(file.getName())) {
+			songs.add(file);
+		} else if (!file.exists()) {
+			System.out.println("PowerBudgetCheck#addSongs - warning - no file or directory was found at: " + file.getPath());
+		}
+	}
+
+	private static boolean isSong(String name) {
+		String lower = name.toLowerCase();
+		return lower.endsWith(".alc") || lower.endsWith(".fng") || lower.endsWith(".fngb");
+	}
+
+	private static boolean simulate(FingerPowerSimulator simulator, PianoProperties properties, File song) {
+		if (!song.getName().toLowerCase().endsWith(".alc")) {
+			return simulator.simulate(FngReader.open(song.getPath()));
+		}
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(song.getPath());
+		if (sheet == null) {
+			return false;
+		}
+		Hand hand = new Hand(properties, sheet);
+		if (!hand.didInit()) {
+			return false;
+		}
+		FngWriter fw = new FngWriter();
+		fw.setReleaseGapPass(new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT));
+		return simulator.simulate(fw, hand, sheet);
+	}
+}
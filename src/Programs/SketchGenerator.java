@@ -0,0 +1,68 @@
+package Programs;
+
+import java.io.File;
+
+import DataObjs.MusicSheet;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.ArduinoSketchWriter;
+import Processors.FngWriter;
+import Processors.Hand;
+import Processors.ReleaseGapPass;
+import Utils.Constants;
+
+/**
+ * Given a piano properties file and an .alc file, generates Arduino sketches that play the song on the fingers, ready to compile and upload.
+ * Songs too large for the board's flash are split into several sketches. The estimated flash and ram usage of each is reported, so it's known before flashing whether it fits.
+ */
+public class SketchGenerator {
+
+	/**
+	 * @param args file path to a piano properties file, file path to the .alc file, the directory to write the sketch folders into,
+	 *        and optionally the board to generate for (one of Constants.ARDUINO_BOARD_NAMES, defaults to the first)
+	 */
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.out.println("SketchGenerator#main - usage: {filepath to piano properties file} {filepath to alc file} {directory to write the sketches to} {optional: board, one of UNO or MEGA}");
+			System.out.println("SketchGenerator#main - Please provide a properties file, an .alc file, and an output directory. Gracefully exiting.");
+			return;
+		}
+
+		ArduinoSketchWriter writer = ArduinoSketchWriter.forBoard((args.length > 3) ? args[3] : Constants.ARDUINO_BOARD_NAMES[0]);
+		if (writer == null) {
+			System.out.println("SketchGenerator#main - Please provide a known board. Gracefully exiting.");
+			return;
+		}
+		PianoProperties properties = new PianoProperties(args[0]);
+		if (!properties.didLoad()) {
+			System.out.println("SketchGenerator#main - Please fix the reported errors with the properties file and execute the program again. Gracefully exiting.");
+			return;
+		}
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(args[1]);
+		if (sheet == null) {
+			System.out.println("SketchGenerator#main - Failed to load .alc file. Gracefully exiting.");
+			return;
+		}
+		Hand hand = new Hand(properties, sheet);
+		if (!hand.didInit()) {
+			System.out.println("SketchGenerator#main - Failed to set up the fingers. Gracefully exiting.");
+			return;
+		}
+
+		String songName = new File(args[1]).getName();
+		if (songName.contains(".")) {
+			songName = songName.substring(0, songName.lastIndexOf("."));
+		}
+		// the same release gaps NoteTransposer writes into the .fng file, so the sketches play exactly what it describes
+		FngWriter fngWriter = new FngWriter();
+		ReleaseGapPass releaseGapPass = new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT);
+		fngWriter.setReleaseGapPass(releaseGapPass);
+		if (!writer.writeSketches(hand, sheet, songName, args[2], fngWriter)) {
+			System.out.println("SketchGenerator#main - Failed to write the sketches. Gracefully exiting.");
+			return;
+		}
+		System.out.println("SketchGenerator#main - wrote " + writer.getNumParts() + " sketch" + ((writer.getNumParts() == 1) ? "" : "es") + " to " + args[2]);
+		System.out.print(writer.getReport());
+		System.out.print("SketchGenerator#main - " + releaseGapPass.getReport());
+	}
+}
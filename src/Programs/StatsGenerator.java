@@ -4,8 +4,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.BufferedWriter;
 
-import DataObjs.MusicSheet;
-import Processors.AlcReaderWriter;
 import Utils.AlcStatsUtils;
 
 /**
@@ -32,12 +30,12 @@ public class StatsGenerator {
 				}
 			}
 			try {
-				AlcReaderWriter arw = new AlcReaderWriter();
-				MusicSheet sheet = arw.loadAlcFile(alcFilePath);
 				AlcStatsUtils asu = new AlcStatsUtils();
-
-				asu.generateCompValStats(sheet);
-				String stats = asu.getFullStats(sheet, displayNonHitNotes);
+				String stats = asu.getFullStats(alcFilePath, displayNonHitNotes); // stats only need to read the song, so the lighter-weight columnar form is used where it can be
+				if (stats == null) {
+					System.out.println("StatsGenerator#main - Failed to load .alc file. Gracefully exiting.");
+					return;
+				}
 				
 				System.out.println(stats);
 				BufferedWriter bw = new BufferedWriter(new FileWriter(new File(statsFilePath)));
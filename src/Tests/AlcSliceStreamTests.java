@@ -0,0 +1,180 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.AlcSliceStream;
+import Processors.FngWriter;
+import Processors.Hand;
+import Utils.AlcStatsUtils;
+import Utils.AlcStatsUtils.NoteStats;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class AlcSliceStreamTests {
+
+	private static final String[] PATHS = { ".\\sample musixcml\\for unit tests\\my confession.alc",
+											".\\sample musixcml\\for unit tests\\munashiki.alc",
+											".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc" };
+
+	@Test
+	public void testStreamMatchesLoader() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		for (int x = 0; x < PATHS.length; ++x) {
+			assertStreamMatchesSheet(arw.loadAlcFile(PATHS[x]), new AlcSliceStream(PATHS[x]));
+		}
+	}
+
+	@Test
+	public void testStreamAlcbMatchesLoader() {
+		try {
+			AlcReaderWriter arw = new AlcReaderWriter();
+			MusicSheet sheet = arw.loadAlcFile(PATHS[1]);
+			File alcbFile = File.createTempFile("AlcSliceStreamTests", ".alcb");
+			assertTrue(arw.writeAlcbFile(sheet, alcbFile.getAbsolutePath()));
+
+			assertStreamMatchesSheet(sheet, new AlcSliceStream(alcbFile.getAbsolutePath()));
+			alcbFile.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testStreamStatsMatchSheetStats() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		AlcStatsUtils asu = new AlcStatsUtils();
+		for (int x = 0; x < PATHS.length; ++x) {
+			MusicSheet sheet = arw.loadAlcFile(PATHS[x]);
+			assertTrue(asu.getMaxSimulHits(sheet) == asu.getMaxSimulHits(new AlcSliceStream(PATHS[x])));
+
+			HashMap<Double, NoteStats> sheetStats = asu.generateCompValStats(sheet);
+			HashMap<Double, NoteStats> streamStats = asu.generateCompValStats(new AlcSliceStream(PATHS[x]));
+			assertTrue(streamStats != null);
+			for (double cv = Constants.MIN_THEORETICAL_COMPARE_VALUE; cv <= Constants.MAX_THEORETICAL_COMPARE_VALUE; cv = NoteUtils.getNextNoteCV(cv)) {
+				assertTrue(sheetStats.get(cv).getNumTimesHit() == streamStats.get(cv).getNumTimesHit());
+				assertTrue(sheetStats.get(cv).getTotalDuration() == streamStats.get(cv).getTotalDuration());
+			}
+		}
+	}
+
+	@Test
+	public void testStreamBadNoteCount() {
+		try {
+			File alcFile = File.createTempFile("AlcSliceStreamTests", ".alc");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(alcFile));
+			bw.write("bad note count\n3\n0 34.0 100\n0 36.0 100\n100 34.0 100\n200 35.0 100\n");
+			bw.close();
+
+			AlcSliceStream stream = new AlcSliceStream(alcFile.getAbsolutePath());
+			int numSlices = 0;
+			while (stream.hasNext()) {
+				stream.next();
+				++numSlices;
+			}
+			assertTrue(numSlices == 3);
+			assertFalse(stream.isValid());
+
+			assertTrue(new AlcStatsUtils().getMaxSimulHits(new AlcSliceStream(alcFile.getAbsolutePath())) == -1);
+			assertTrue(new AlcStatsUtils().generateCompValStats(new AlcSliceStream(alcFile.getAbsolutePath())) == null);
+			alcFile.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testStreamOutOfOrder() {
+		try {
+			File alcFile = File.createTempFile("AlcSliceStreamTests", ".alc");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(alcFile));
+			bw.write("out of order\n3\n100 34.0 100\n0 36.0 100\n200 35.0 100\n");
+			bw.close();
+
+			AlcSliceStream stream = new AlcSliceStream(alcFile.getAbsolutePath());
+			while (stream.hasNext()) {
+				stream.next();
+			}
+			assertFalse(stream.isValid());
+			alcFile.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testStreamMissingFile() {
+		AlcSliceStream stream = new AlcSliceStream(".\\sample musixcml\\for unit tests\\does not exist.alc");
+		assertFalse(stream.hasNext());
+		assertFalse(stream.isValid());
+	}
+
+	@Test
+	public void testFngFromStreamMatchesSheet() {
+		try {
+			PianoProperties properties = TestUtils.loadProperties(0, 76);
+
+			AlcReaderWriter arw = new AlcReaderWriter();
+			FngWriter fw = new FngWriter();
+			for (int x = 0; x < PATHS.length; ++x) {
+				MusicSheet sheet = arw.loadAlcFile(PATHS[x]);
+				Hand hand = new Hand(properties, sheet);
+				File sheetFng = File.createTempFile("AlcSliceStreamTests", ".fng");
+				File streamFng = File.createTempFile("AlcSliceStreamTests", ".fng");
+
+				assertTrue(fw.writeFngFromSheet(hand, sheet, sheetFng.getAbsolutePath()));
+				assertTrue(fw.writeFngFromStream(hand, new AlcSliceStream(PATHS[x]), streamFng.getAbsolutePath()));
+				assertTrue(Arrays.equals(Files.readAllBytes(sheetFng.toPath()), Files.readAllBytes(streamFng.toPath())));
+
+				sheetFng.delete();
+				streamFng.delete();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	private void assertStreamMatchesSheet(MusicSheet sheet, AlcSliceStream stream) {
+		assertTrue(sheet != null);
+		assertTrue(sheet.getInfoLine().equals(stream.getInfoLine()));
+
+		int sliceIndex = 0;
+		while (stream.hasNext()) {
+			MusicSlice slice = sheet.getSlice(sliceIndex);
+			MusicSlice streamedSlice = stream.next();
+			assertTrue(slice.getStartTime() == streamedSlice.getStartTime());
+			assertTrue(slice.getNotes().size() == streamedSlice.getNotes().size());
+
+			Iterator<MusicNote> iter = slice.getNotes().iterator();
+			Iterator<MusicNote> streamedIter = streamedSlice.getNotes().iterator();
+			while (iter.hasNext()) {
+				MusicNote note = iter.next();
+				MusicNote streamedNote = streamedIter.next();
+				assertTrue(note.getCompareValue() == streamedNote.getCompareValue());
+				assertTrue(note.getDuration() == streamedNote.getDuration());
+			}
+			++sliceIndex;
+		}
+		assertTrue(sliceIndex == sheet.getNumSlices());
+		assertTrue(stream.isValid());
+	}
+}
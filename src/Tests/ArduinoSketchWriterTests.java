@@ -0,0 +1,189 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.ArduinoSketchWriter;
+import Processors.FngWriter;
+import Processors.Hand;
+import Processors.ReleaseGapPass;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class ArduinoSketchWriterTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\munashiki.alc";
+
+	@Test
+	public void testSingleSketch() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			File outputDir = Files.createTempDirectory("ArduinoSketchWriterTests").toFile();
+			ArduinoSketchWriter writer = ArduinoSketchWriter.forBoard("mega");
+			assertTrue(writer != null && ArduinoSketchWriter.forBoard("not a board") == null);
+			assertTrue(writer.writeSketches(hand, sheet, "muna shiki", outputDir.getAbsolutePath()));
+
+			assertTrue(writer.getNumParts() == 1);
+			assertTrue(writer.getPartFlashEstimate(0) == ArduinoSketchWriter.SKETCH_CODE_BYTES + 77 + writer.getPartDataBytes(0));
+			assertTrue(writer.getNumUnwiredFingers() == 76 - (Constants.ARDUINO_BOARD_NUM_PINS[1] - ArduinoSketchWriter.FIRST_FINGER_PIN));
+			File ino = new File(outputDir, "muna_shiki" + File.separator + "muna_shiki.ino");
+			assertTrue(ino.isFile() && new String(Files.readAllBytes(ino.toPath())).contains("#include \"song_data.h\""));
+			assertTrue(getExpectedInstructions(new FngWriter(), hand, sheet).equals(decodeParts(outputDir, "muna_shiki", 1)));
+			deleteDir(outputDir);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testSplitIntoParts() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			File outputDir = Files.createTempDirectory("ArduinoSketchWriterTests").toFile();
+			int flashBytes = ArduinoSketchWriter.SKETCH_CODE_BYTES + 77 + 2000;
+			ArduinoSketchWriter writer = new ArduinoSketchWriter("TINY", flashBytes, 2048, 80);
+			assertTrue(writer.writeSketches(hand, sheet, "munashiki", outputDir.getAbsolutePath()));
+
+			// every part fits, and together they hold every instruction, in order
+			assertTrue(writer.getNumParts() > 5);
+			int numInstructions = 0;
+			for (int part = 0; part < writer.getNumParts(); ++part) {
+				assertTrue(writer.getPartFlashEstimate(part) <= flashBytes);
+				assertTrue(part == 0 || writer.getPartStartTime(part) > writer.getPartStartTime(part - 1));
+				numInstructions += writer.getPartNumInstructions(part);
+			}
+			List<String> expected = getExpectedInstructions(new FngWriter(), hand, sheet);
+			assertTrue(numInstructions == expected.size());
+			assertTrue(expected.equals(decodeParts(outputDir, "munashiki", writer.getNumParts())));
+			deleteDir(outputDir);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testReleaseGapPassApplied() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			File outputDir = Files.createTempDirectory("ArduinoSketchWriterTests").toFile();
+			FngWriter fw = new FngWriter();
+			fw.setReleaseGapPass(new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT));
+			ArduinoSketchWriter writer = ArduinoSketchWriter.forBoard("mega");
+			assertTrue(writer.writeSketches(hand, sheet, "munashiki", outputDir.getAbsolutePath(), fw));
+
+			// the sketch plays the adjusted instructions the .fng file describes, not the unadjusted ones
+			List<String> expected = getExpectedInstructions(fw, hand, sheet);
+			List<String> decoded = decodeParts(outputDir, "munashiki", writer.getNumParts());
+			assertTrue(expected.equals(decoded));
+			assertFalse(getExpectedInstructions(new FngWriter(), hand, sheet).equals(decoded));
+			deleteDir(outputDir);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testSlidingHandRefused() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(4, 0), sheet);
+			assertTrue(hand.didInit());
+			File outputDir = Files.createTempDirectory("ArduinoSketchWriterTests").toFile();
+			assertFalse(ArduinoSketchWriter.forBoard("mega").writeSketches(hand, sheet, "munashiki", outputDir.getAbsolutePath()));
+			assertTrue(outputDir.list().length == 0);
+			deleteDir(outputDir);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testSongWithNothingToPlayRefused() {
+		try {
+			// the only note is off the low end of the piano, so there isn't a single instruction to put in SONG_DATA
+			MusicSheet sheet = new MusicSheet("nothing to play", 1);
+			sheet.addSlice(TestUtils.newSlice(0, NoteUtils.getCompareValueForKeyIndex(0), 100));
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			File outputDir = Files.createTempDirectory("ArduinoSketchWriterTests").toFile();
+			ArduinoSketchWriter writer = ArduinoSketchWriter.forBoard("mega");
+			assertFalse(writer.writeSketches(hand, sheet, "nothing", outputDir.getAbsolutePath()));
+			assertTrue(writer.getNumParts() == 0 && outputDir.list().length == 0);
+			deleteDir(outputDir);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * @return every instruction in the .fng file the given writer writes for the song, as "{time} {finger} {key index} {action}"
+	 */
+	private List<String> getExpectedInstructions(FngWriter fw, Hand hand, MusicSheet sheet) throws Exception {
+		File fng = File.createTempFile("ArduinoSketchWriterTests", ".fng");
+		assertTrue(fw.writeFngFromSheet(hand, sheet, fng.getAbsolutePath()));
+		List<String> instructions = new ArrayList<String>();
+		for (String line : Files.readAllLines(fng.toPath())) {
+			String[] tokens = line.split(" ");
+			int action = tokens[5].equals(Constants.INSTRUCT_HIT) ? Constants.ACTION_HIT : Constants.ACTION_RELEASE;
+			instructions.add(Integer.parseInt(tokens[0]) + " " + tokens[2] + " " + NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(tokens[4])) + " " + action);
+		}
+		fng.delete();
+		return instructions;
+	}
+
+	/**
+	 * Decodes the SONG_DATA table of every part's song_data.h the same way the sketch does
+	 */
+	private List<String> decodeParts(File outputDir, String baseName, int numParts) throws Exception {
+		List<String> instructions = new ArrayList<String>();
+		for (int part = 1; part <= numParts; ++part) {
+			String sketchName = (numParts == 1) ? baseName : baseName + "_part" + part;
+			String header = new String(Files.readAllBytes(new File(outputDir, sketchName + File.separator + "song_data.h").toPath()));
+			String startLine = header.substring(header.indexOf("#define SONG_START_MS ") + "#define SONG_START_MS ".length());
+			int time = Integer.parseInt(startLine.substring(0, startLine.indexOf("UL")));
+			String tableStart = "SONG_DATA[SONG_DATA_LENGTH] PROGMEM = {";
+			String table = header.substring(header.indexOf(tableStart) + tableStart.length(), header.lastIndexOf("};"));
+			String[] bytes = table.trim().split("[,\\s]+");
+			int index = 0;
+			while (index < bytes.length) {
+				int value = 0;
+				int shift = 0;
+				int b;
+				do {
+					b = Integer.parseInt(bytes[index++].substring(2), 16);
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+				time += value >>> 2;
+				int finger = Integer.parseInt(bytes[index++].substring(2), 16);
+				int keyIndex = Integer.parseInt(bytes[index++].substring(2), 16);
+				instructions.add(time + " " + finger + " " + keyIndex + " " + (value & 0x3));
+			}
+		}
+		return instructions;
+	}
+
+	private void deleteDir(File dir) {
+		File[] files = dir.listFiles();
+		for (int x = 0; files != null && x < files.length; ++x) {
+			deleteDir(files[x]);
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,110 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import Processors.AudioMixer;
+import Processors.SampleBank;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class AudioMixerTests {
+
+	@Test
+	public void testSampleBankLoadsEveryWav() {
+		SampleBank bank = SampleBank.getBank(Constants.VOICE_GRAND);
+		assertNotNull(bank);
+		assertTrue(bank.getNumSamplesLoaded() == 76);
+		assertTrue(bank.getNumFrames(NoteUtils.getKeyIndexForCompareValue(36)) > 0);
+		assertNull(bank.getSamples(-1));
+		assertTrue(bank == SampleBank.getBank("grand")); // shared, not decoded again
+		assertNull(SampleBank.getBank("kazoo"));
+	}
+
+	@Test
+	public void testMixWithoutLine() {
+		AudioMixer mixer = new AudioMixer(SampleBank.getBank(Constants.VOICE_GRAND), AudioMixer.DEFAULT_MAX_VOICES);
+		mixer.mixBuffer();
+		assertTrue(isSilent(mixer.getOutputBuffer()));
+
+		assertTrue(mixer.noteOn(NoteUtils.getKeyIndexForCompareValue(36)));
+		assertTrue(mixer.noteOn(NoteUtils.getKeyIndexForCompareValue(38)));
+		assertTrue(mixer.getNumActiveVoices() == 0); // nothing starts until the next buffer
+		// the start of a .wav can be quiet, so mix a few buffers in
+		boolean heard = false;
+		for (int x = 0; x < 20 && !heard; ++x) {
+			mixer.mixBuffer();
+			heard = !isSilent(mixer.getOutputBuffer());
+		}
+		assertTrue(heard);
+		assertTrue(mixer.getNumActiveVoices() == 2);
+		assertTrue(mixer.getNumVoicesStolen() == 0);
+	}
+
+	@Test
+	public void testVoiceStealingAndRetrigger() {
+		AudioMixer mixer = new AudioMixer(SampleBank.getBank(Constants.VOICE_GRAND), 2);
+		mixer.noteOn(NoteUtils.getKeyIndexForCompareValue(36));
+		mixer.mixBuffer();
+		mixer.noteOn(NoteUtils.getKeyIndexForCompareValue(38));
+		mixer.mixBuffer();
+
+		// re-striking a key that is still sounding restarts its own voice
+		mixer.noteOn(NoteUtils.getKeyIndexForCompareValue(36));
+		mixer.mixBuffer();
+		assertTrue(mixer.getNumActiveVoices() == 2);
+		assertTrue(mixer.getNumVoicesStolen() == 0);
+
+		// a third key has to steal the oldest voice
+		mixer.noteOn(NoteUtils.getKeyIndexForCompareValue(40));
+		mixer.mixBuffer();
+		assertTrue(mixer.getNumActiveVoices() == 2);
+		assertTrue(mixer.getNumVoicesStolen() == 1);
+	}
+
+	@Test
+	public void testNoteOnPartWayThrough() {
+		SampleBank bank = SampleBank.getBank(Constants.VOICE_GRAND);
+		int keyIndex = NoteUtils.getKeyIndexForCompareValue(36);
+		short[] samples = bank.getSamples(keyIndex);
+
+		// starting 100ms in mixes the sample from 100ms in
+		AudioMixer mixer = new AudioMixer(bank, 2);
+		assertTrue(mixer.noteOn(keyIndex, 100));
+		mixer.mixBuffer();
+		byte[] buffer = mixer.getOutputBuffer();
+		int offset = 4410 * SampleBank.CHANNELS;
+		for (int x = 0; x < AudioMixer.BUFFER_FRAMES * SampleBank.CHANNELS; ++x) {
+			short mixed = (short)((buffer[x * 2] & 0xFF) | (buffer[x * 2 + 1] << 8));
+			assertTrue(mixed == samples[offset + x]);
+		}
+
+		// a note struck longer ago than its sample lasts has already finished
+		mixer = new AudioMixer(bank, 2);
+		assertTrue(mixer.noteOn(keyIndex, bank.getNumFrames(keyIndex) * 1000 / 44100 + 10));
+		mixer.mixBuffer();
+		assertTrue(mixer.getNumActiveVoices() == 0 && isSilent(mixer.getOutputBuffer()));
+	}
+
+	@Test
+	public void testNoteOnWithoutSample() {
+		AudioMixer mixer = new AudioMixer(SampleBank.getBank(Constants.VOICE_GRAND), 2);
+		assertFalse(mixer.noteOn(-1));
+		assertFalse(mixer.noteOn(0)); // no .wav files down in octave 0
+		mixer.mixBuffer();
+		assertTrue(mixer.getNumActiveVoices() == 0);
+	}
+
+	private boolean isSilent(byte[] buffer) {
+		for (int x = 0; x < buffer.length; ++x) {
+			if (buffer[x] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,159 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.Test;
+
+import DataObjs.ColumnarMusicSheet;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Utils.AlcStatsUtils;
+
+public class ColumnarMusicSheetTests {
+
+	private static final String[] PATHS = { ".\\sample musixcml\\for unit tests\\my confession.alc",
+											".\\sample musixcml\\for unit tests\\my confession-diffenddur.alc",
+											".\\sample musixcml\\for unit tests\\my confession-diffgcd.alc",
+											".\\sample musixcml\\for unit tests\\munashiki.alc",
+											".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc" };
+
+	@Test
+	public void testColumnsMatchSheet() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		for (int x = 0; x < PATHS.length; ++x) {
+			MusicSheet sheet = arw.loadAlcFile(PATHS[x]);
+			ColumnarMusicSheet columnar = arw.loadAlcFileColumnar(PATHS[x]);
+			assertTrue(columnar != null);
+			assertTrue(sheet.getInfoLine().equals(columnar.getInfoLine()));
+			assertTrue(sheet.getNoteCount() == columnar.getNoteCount());
+			assertTrue(sheet.getNumSlices() == columnar.getNumSlices());
+			assertTrue(sheet.getEndTime() == columnar.getEndTime());
+			assertTrue(sheet.getGCD() == columnar.getGCD());
+
+			for (int s = 0; s < sheet.getNumSlices(); ++s) {
+				MusicSlice slice = sheet.getSlice(s);
+				assertTrue(slice.getStartTime() == columnar.getStartTime(s));
+				int note = columnar.getFirstNote(s);
+				for (int key = slice.nextKeyIndex(0); key != -1; key = slice.nextKeyIndex(key + 1)) {
+					assertTrue(columnar.getKeyIndex(note) == key);
+					assertTrue(columnar.getDuration(note) == slice.getDurationForKey(key));
+					++note;
+				}
+				assertTrue(note == columnar.getEndNote(s));
+			}
+		}
+	}
+
+	@Test
+	public void testFullStatsMatchSheet() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		AlcStatsUtils asu = new AlcStatsUtils();
+		for (int x = 0; x < PATHS.length; ++x) {
+			ColumnarMusicSheet columnar = arw.loadAlcFileColumnar(PATHS[x]);
+			assertTrue(asu.getFullStats(arw.loadAlcFile(PATHS[x]), false).equals(asu.getFullStats(columnar, false)));
+			assertTrue(asu.getFullStats(arw.loadAlcFile(PATHS[x]), true).equals(asu.getFullStats(columnar, true)));
+		}
+	}
+
+	@Test
+	public void testHoldsIgnoreRehitOfHeldKey() {
+		// 34.0 is held from 0 to 1000, so hitting it again at 100 doesn't add a note - the max is the 2 notes hit at 100
+		ColumnarMusicSheet columnar = loadTempAlc("rehit\n4\n0 34.0 1000\n100 34.0 100\n100 36.0 100\n500 35.0 100\n");
+		assertTrue(columnar != null);
+		AlcStatsUtils asu = new AlcStatsUtils();
+		assertTrue(asu.getMaxSimulHits(columnar) == 2);
+		assertTrue(asu.getMaxSimulHitsAndHolds(columnar) == 2);
+	}
+
+	@Test
+	public void testRestsRejected() {
+		assertTrue(loadTempAlc("rest\n2\n0 34.0 100\n100 0.0 100\n") == null);
+	}
+
+	@Test
+	public void testStatsFallBackForRests() {
+		try {
+			File alcFile = File.createTempFile("ColumnarMusicSheetTests", ".alc");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(alcFile));
+			bw.write("rest\n3\n0 34.0 100\n100 0.0 100\n200 36.0 100\n");
+			bw.close();
+
+			// the columns can't hold the rest, so the stats come from the full MusicSheet, the way they always have
+			AlcReaderWriter arw = new AlcReaderWriter();
+			AlcStatsUtils asu = new AlcStatsUtils();
+			String stats = asu.getFullStats(alcFile.getAbsolutePath(), false);
+			assertTrue(arw.loadAlcFileColumnar(alcFile.getAbsolutePath()) == null && arw.didColumnarLoadFindRest());
+			assertTrue(stats != null && stats.equals(asu.getFullStats(arw.loadAlcFile(alcFile.getAbsolutePath()), false)));
+			alcFile.delete();
+			assertTrue(asu.getFullStats(alcFile.getAbsolutePath(), false) == null);
+
+			// songs without rests still go through the columns
+			for (int x = 0; x < PATHS.length; ++x) {
+				assertTrue(asu.getFullStats(PATHS[x], true).equals(asu.getFullStats(arw.loadAlcFileColumnar(PATHS[x]), true)));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testBadNoteCountRejected() {
+		assertTrue(loadTempAlc("bad note count\n3\n0 34.0 100\n100 34.0 100\n") == null);
+	}
+
+	@Test
+	public void testDamagedNoteCountRejected() {
+		// the note count can't be trusted to size the columns, so these fail the integrity check rather than running out of memory
+		assertTrue(loadTempAlc("huge count\n2147483647\n0 34.0 100\n100 36.0 100\n") == null);
+		assertTrue(loadTempAlc("negative count\n-5\n0 34.0 100\n100 36.0 100\n") == null);
+
+		try {
+			File alcFile = File.createTempFile("ColumnarMusicSheetTests", ".alc");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(alcFile));
+			bw.write("huge count\n2147483647\n0 34.0 100\n100 36.0 100\n");
+			bw.close();
+
+			// a song that failed its integrity check isn't loaded a second time as a full MusicSheet
+			AlcReaderWriter arw = new AlcReaderWriter();
+			assertTrue(arw.loadAlcFileColumnar(alcFile.getAbsolutePath()) == null);
+			assertFalse(arw.didColumnarLoadFindRest());
+			assertTrue(new AlcStatsUtils().getFullStats(alcFile.getAbsolutePath(), false) == null);
+			alcFile.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testSingleSliceGCD() {
+		ColumnarMusicSheet columnar = loadTempAlc("single slice\n2\n0 34.0 100\n0 36.0 200\n");
+		assertTrue(columnar != null);
+		assertTrue(columnar.getGCD() == -1);
+		assertTrue(columnar.getEndTime() == 200);
+	}
+
+	private ColumnarMusicSheet loadTempAlc(String contents) {
+		try {
+			File alcFile = File.createTempFile("ColumnarMusicSheetTests", ".alc");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(alcFile));
+			bw.write(contents);
+			bw.close();
+
+			ColumnarMusicSheet columnar = new AlcReaderWriter().loadAlcFileColumnar(alcFile.getAbsolutePath());
+			alcFile.delete();
+			return columnar;
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.FingerConfigSearch;
+import Processors.SlidingFingerPlanner;
+
+public class FingerConfigSearchTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\my confession.alc";
+
+	@Test
+	public void testParallelSearchMatchesPlanner() {
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+		int[] fingerCounts = { 1, 2, 3, 4, 5, 6 };
+		double[] speeds = { 0.01, 0.02 };
+		FingerConfigSearch search = new FingerConfigSearch(sheet, 10, 85, fingerCounts, speeds);
+		assertTrue(search.run(4));
+		assertTrue(search.getNumConfigs() == 12);
+
+		for (int config = 0; config < search.getNumConfigs(); ++config) {
+			assertTrue(search.getFingers(config) == fingerCounts[config / 2] && search.getKeysPerMs(config) == speeds[config % 2]);
+			SlidingFingerPlanner planner = new SlidingFingerPlanner(sheet, search.getFingers(config), 10, 85, search.getKeysPerMs(config));
+			assertTrue(search.getNumUnplayable(config) == planner.getNumUnplayable());
+			assertTrue(search.getLostHoldTime(config) == planner.getLostHoldTime());
+			assertTrue(search.getTravel(config) == planner.getTravel());
+		}
+	}
+
+	@Test
+	public void testFrontier() {
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+		FingerConfigSearch search = new FingerConfigSearch(sheet, 10, 85, new int[] { 1, 2, 3, 4, 5, 6 }, new double[] { 0.01, 0.02 });
+		assertTrue(search.run(3));
+
+		// the cheapest configuration can't be beaten on cost, so it's always on the frontier
+		assertTrue(search.isOnFrontier(0));
+		for (int config = 0; config < search.getNumConfigs(); ++config) {
+			boolean isDominated = false;
+			for (int other = 0; other < search.getNumConfigs(); ++other) {
+				boolean isNoWorse = search.getFingers(other) <= search.getFingers(config) && search.getKeysPerMs(other) <= search.getKeysPerMs(config) &&
+									search.getNumUnplayable(other) <= search.getNumUnplayable(config) && search.getLostHoldTime(other) <= search.getLostHoldTime(config);
+				boolean isSame = search.getFingers(other) == search.getFingers(config) && search.getKeysPerMs(other) == search.getKeysPerMs(config) &&
+								 search.getNumUnplayable(other) == search.getNumUnplayable(config) && search.getLostHoldTime(other) == search.getLostHoldTime(config);
+				isDominated |= isNoWorse && !isSame;
+			}
+			assertTrue(search.isOnFrontier(config) == !isDominated);
+		}
+		assertTrue(search.getReport().split("\n").length == 1 + search.getNumConfigs() + 2 + countFrontier(search));
+	}
+
+	private int countFrontier(FingerConfigSearch search) {
+		int count = 0;
+		for (int config = 0; config < search.getNumConfigs(); ++config) {
+			if (search.isOnFrontier(config)) {
+				++count;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,117 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.Test;
+
+import DataObjs.FingerPowerModel;
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.FingerPowerSimulator;
+import Processors.FngReader;
+import Processors.FngWriter;
+import Processors.Hand;
+import Processors.ReleaseGapPass;
+import Utils.AlcStatsUtils;
+import Utils.Constants;
+
+public class FingerPowerSimulatorTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\munashiki.alc";
+
+	@Test
+	public void testPeakCurrentAndCharge() {
+		// fingers 0 and 1 hit together, and finger 2 hits while their pulses are still going
+		FingerPowerModel model = new FingerPowerModel(1000, 30, 250, 0, 0, 400, 30000);
+		String fng = "000 FINGER 0 CV 20.0 2-HIT\n000 FINGER 1 CV 22.0 2-HIT\n020 FINGER 2 CV 24.0 2-HIT\n" +
+					 "100 FINGER 0 CV 20.0 1-RELEASE\n100 FINGER 1 CV 22.0 1-RELEASE\n200 FINGER 2 CV 24.0 1-RELEASE\n";
+		FingerPowerSimulator simulator = new FingerPowerSimulator(model);
+		simulator.setSupplyBudgetMa(2500);
+		assertTrue(simulate(simulator, fng));
+		assertTrue(simulator.getPeakCurrentMa() == 3000 && simulator.getPeakCurrentTime() == 20);
+		assertTrue(simulator.getEndTime() == 200 && simulator.getNumInstructions() == 6 && simulator.getNumFingers() == 3);
+
+		// 2000mA for 20ms, 3000mA for 10ms, 1500mA for 20ms, 750mA for 50ms, then 250mA for 100ms
+		assertTrue(Math.abs(simulator.getChargeMah() - 162500 / 3600000.0) < 1e-9 && Math.abs(simulator.getAverageCurrentMa() - 812.5) < 1e-9);
+		assertTrue(simulator.getDutyCycle(0) == 0.5 && simulator.getHeldDutyCycle(0) == 0.5 && simulator.getDutyCycle(2) == 0.9 && simulator.getNumHits(2) == 1);
+		assertTrue(simulator.getNumBudgetOverruns() == 1 && simulator.getMsOverBudget() == 10);
+		assertTrue(simulator.getNumHotspots() == 0 && simulator.getReport().contains("peak current 3000mA at 20ms"));
+
+		// the same song against a smaller supply is over budget for the whole first 50ms
+		simulator.setSupplyBudgetMa(1000);
+		assertTrue(simulate(simulator, fng));
+		assertTrue(simulator.getNumBudgetOverruns() == 1 && simulator.getMsOverBudget() == 50);
+	}
+
+	@Test
+	public void testThermalHotspot() {
+		// holding at twice the rated current heads for 4x the rated load: it crosses 1.0 after tau * ln(4/3), and cools back under tau * ln(load) after the release
+		FingerPowerModel model = new FingerPowerModel(800, 0, 800, 0, 0, 400, 1000);
+		FingerPowerSimulator simulator = new FingerPowerSimulator(model);
+		assertTrue(simulate(simulator, "0000 FINGER 0 CV 20.0 2-HIT\n2000 FINGER 0 CV 20.0 1-RELEASE\n5000 FINGER 1 CV 22.0 2-HIT\n5001 FINGER 1 CV 22.0 1-RELEASE\n"));
+		double loadAtRelease = 4 * (1 - Math.exp(-2));
+		int coolTime = 2000 + (int)Math.round(1000 * Math.log(loadAtRelease));
+		assertTrue(simulator.getNumHotspots() == 1 && simulator.getHotspotFinger(0) == 0);
+		assertTrue(simulator.getHotspotStart(0) == (int)Math.round(1000 * Math.log(4.0 / 3)) && simulator.getHotspotEnd(0) == coolTime);
+		assertTrue(Math.abs(simulator.getHotspotPeak(0) - loadAtRelease) < 1e-9 && simulator.getPeakThermalLoadTime(0) == 2000);
+		assertTrue(simulator.getMsOverThermalLimit(0) == coolTime - simulator.getHotspotStart(0) && simulator.getMsOverThermalLimit(1) == 0);
+		assertTrue(simulator.getPeakThermalLoad(1) < 0.01);
+
+		// a damaged file still reports what it got through
+		assertFalse(simulate(simulator, "0000 FINGER 0 CV 20.0 2-HIT\n0100 FINGER 0 CV 20.0 1-RELEASE\n0050 FINGER 1 CV 22.0 2-HIT\n"));
+		assertTrue(simulator.getNumInstructions() == 2);
+	}
+
+	@Test
+	public void testWholeSong() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+
+			// with no pulses and every finger drawing 100mA while held, the peak current counts the most keys ever held at once
+			FingerPowerSimulator simulator = new FingerPowerSimulator(new FingerPowerModel(100, 0, 100, 0, 0, 400, 30000));
+			assertTrue(simulator.simulate(new FngWriter(), hand, sheet));
+			assertTrue(simulator.getPeakCurrentMa() == 100 * new AlcStatsUtils().getMaxSimulHitsAndHolds(sheet));
+
+			// simulating the sheet is the same as simulating the file written from it
+			FngWriter fw = new FngWriter();
+			fw.setReleaseGapPass(new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT));
+			File fng = File.createTempFile("FingerPowerSimulatorTests", ".fng");
+			assertTrue(fw.writeFngFromSheet(hand, sheet, fng.getAbsolutePath()));
+			FingerPowerSimulator fromFile = new FingerPowerSimulator(new FingerPowerModel());
+			assertTrue(fromFile.simulate(new FngReader(fng.getAbsolutePath())));
+			fng.delete();
+
+			fw.setReleaseGapPass(new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT));
+			FingerPowerSimulator fromSheet = new FingerPowerSimulator(new FingerPowerModel());
+			assertTrue(fromSheet.simulate(fw, hand, sheet));
+			assertTrue(fromSheet.getPeakCurrentMa() == fromFile.getPeakCurrentMa() && fromSheet.getChargeMah() == fromFile.getChargeMah());
+			assertTrue(fromSheet.getNumInstructions() == fromFile.getNumInstructions() && fromSheet.getNumHotspots() == fromFile.getNumHotspots());
+			assertTrue(fromSheet.getReport().equals(fromFile.getReport()));
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	private boolean simulate(FingerPowerSimulator simulator, String fng) {
+		try {
+			File fngFile = File.createTempFile("FingerPowerSimulatorTests", ".fng");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(fngFile));
+			bw.write(fng);
+			bw.close();
+			boolean didSimulate = simulator.simulate(new FngReader(fngFile.getAbsolutePath()));
+			fngFile.delete();
+			return didSimulate;
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+			return false;
+		}
+	}
+}
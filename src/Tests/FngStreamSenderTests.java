@@ -0,0 +1,190 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.ArduinoEmulator;
+import Processors.FngReader;
+import Processors.FngStreamSender;
+import Processors.FngWriter;
+import Processors.FngbReader;
+import Processors.Hand;
+import Processors.SerialLink;
+import Utils.Constants;
+
+public class FngStreamSenderTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\munashiki.alc";
+
+	@Test
+	public void testStreamedSongMatchesFile() {
+		try {
+			File fng = File.createTempFile("FngStreamSenderTests", ".fng");
+			File fngb = File.createTempFile("FngStreamSenderTests", ".fngb");
+			writeSong(fng, fngb);
+
+			// the text and binary files hold the same instructions
+			long checksum = ArduinoEmulator.getChecksum(new FngReader(fng.getAbsolutePath()));
+			assertTrue(checksum != -1 && checksum == ArduinoEmulator.getChecksum(FngReader.open(fngb.getAbsolutePath())));
+
+			// with a big enough buffer and a head start, every instruction arrives in time, and is played on time
+			String[] paths = { fng.getAbsolutePath(), fngb.getAbsolutePath() };
+			for (int x = 0; x < paths.length; ++x) {
+				FngStreamSender sender = new FngStreamSender(FngReader.open(paths[x]), 2000, 32);
+				ArduinoEmulator emulator = new ArduinoEmulator(Constants.ARDUINO_BAUD_RATE, 64, 128, 1, 500);
+				assertTrue(emulator.run(sender));
+				assertTrue(sender.isDone() && sender.isSourceValid());
+				assertTrue(emulator.getPlayedChecksum() == checksum);
+				assertTrue(emulator.getNumPlayed() == sender.getNumInstructionsSent());
+				assertTrue(emulator.getNumUnderruns() == 0 && emulator.getWorstLatencyMs() == 0 && emulator.getMinSlackMs() > 0);
+				assertTrue(emulator.getMaxBuffered() <= 128 && emulator.getBytesLost() == 0 && emulator.getNumBadBatches() == 0);
+			}
+			fng.delete();
+			fngb.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testStarvedStreamReportsUnderruns() {
+		try {
+			File fngb = File.createTempFile("FngStreamSenderTests", ".fngb");
+			writeSong(null, fngb);
+			long checksum = ArduinoEmulator.getChecksum(new FngbReader(fngb.getAbsolutePath()));
+
+			// no lookahead and no head start: instructions are only sent once they're due, so they arrive late, but credits still keep them all in order
+			FngStreamSender sender = new FngStreamSender(new FngbReader(fngb.getAbsolutePath()), 0, 32);
+			ArduinoEmulator emulator = new ArduinoEmulator(Constants.ARDUINO_BAUD_RATE, 64, 128, 1, 0);
+			assertTrue(emulator.run(sender));
+			assertTrue(emulator.getNumUnderruns() > 0 && emulator.getWorstLatencyMs() > 0 && emulator.getMinSlackMs() < 0);
+			assertTrue(emulator.getPlayedChecksum() == checksum);
+
+			// a tiny instruction buffer holds the sender back on credits, but never overflows
+			sender = new FngStreamSender(new FngbReader(fngb.getAbsolutePath()), 2000, 32);
+			emulator = new ArduinoEmulator(Constants.ARDUINO_BAUD_RATE, 64, 4, 1, 500);
+			assertTrue(emulator.run(sender));
+			assertTrue(sender.getNumCreditStalls() > 0 && emulator.getMaxBuffered() <= 4);
+			assertTrue(emulator.getNumBadBatches() == 0 && emulator.getPlayedChecksum() == checksum);
+
+			// an arduino that only gets to its serial buffer every 20ms lets it overflow, and what was lost is caught
+			sender = new FngStreamSender(new FngbReader(fngb.getAbsolutePath()), 2000, 32);
+			emulator = new ArduinoEmulator(Constants.ARDUINO_BAUD_RATE, 64, 128, 20, 500);
+			emulator.run(sender);
+			assertTrue(emulator.getBytesLost() > 0 && emulator.getNumBadBatches() > 0);
+			assertFalse(emulator.getPlayedChecksum() == checksum);
+			fngb.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testCorruptedBatchesReportedLost() {
+		try {
+			File fngb = File.createTempFile("FngStreamSenderTests", ".fngb");
+			writeSong(null, fngb);
+			long checksum = ArduinoEmulator.getChecksum(new FngbReader(fngb.getAbsolutePath()));
+
+			// the 10th batch loses its sync byte, has its count damaged, has a key index damaged, or has a delta that never ends
+			for (int corruption = 0; corruption < 4; ++corruption) {
+				final int[] lostBatchCount = new int[1];
+				final int corruptionType = corruption;
+				FngStreamSender sender = new FngStreamSender(new FngbReader(fngb.getAbsolutePath()), 2000, 32) {
+					@Override
+					public void connect(OutputStream toDevice, InputStream fromDevice) {
+						super.connect(new FilterOutputStream(toDevice) {
+							private int numBatches;
+
+							@Override
+							public void write(byte[] b, int off, int len) throws IOException {
+								if (++numBatches != 10) {
+									out.write(b, off, len);
+									return;
+								}
+								byte[] batch = new byte[len];
+								System.arraycopy(b, off, batch, 0, len);
+								lostBatchCount[0] = batch[1] & 0xFF;
+								if (corruptionType == 0) {
+									out.write(batch, 1, len - 1);
+									return;
+								} else if (corruptionType == 1) {
+									batch[1] = 0;
+								} else if (corruptionType == 2) {
+									batch[len - 2] ^= 0x01;
+								} else {
+									for (int x = 6; x < 11; ++x) {
+										batch[x] = (byte)0xFF;
+									}
+								}
+								out.write(batch, 0, len);
+							}
+						}, fromDevice);
+					}
+				};
+				ArduinoEmulator emulator = new ArduinoEmulator(Constants.ARDUINO_BAUD_RATE, 64, 128, 1, 500);
+
+				// the batch's instructions are reported lost, and the credits spent on them come back, so the rest of the song still streams
+				assertTrue(emulator.run(sender));
+				assertFalse(emulator.didStall());
+				assertTrue(sender.isDone() && lostBatchCount[0] > 1);
+				assertTrue(emulator.getNumInstructionsLost() == lostBatchCount[0]);
+				assertTrue(emulator.getNumPlayed() + emulator.getNumInstructionsLost() == sender.getNumInstructionsSent());
+				assertFalse(emulator.getPlayedChecksum() == checksum);
+				assertTrue(corruptionType == 0 || emulator.getNumBadBatches() == 1);
+			}
+			fngb.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testSerialLinkBaudRate() {
+		try {
+			// 1152 bytes at 115200 baud, 10 bits a byte, take 100ms to send
+			SerialLink link = new SerialLink(115200, Constants.SERIAL_BITS_PER_BYTE, 2048);
+			for (int x = 0; x < 1152; ++x) {
+				link.getOutputStream().write(x);
+			}
+			link.advance(99);
+			assertTrue(link.isSending() && link.getInputStream().available() < 1152);
+			link.advance(1);
+			assertTrue(!link.isSending() && link.getInputStream().available() == 1152);
+			for (int x = 0; x < 1152; ++x) {
+				assertTrue(link.getInputStream().read() == (x & 0xFF));
+			}
+			assertTrue(link.getInputStream().read() == -1);
+
+			// a receive buffer that isn't read from loses what doesn't fit
+			SerialLink small = new SerialLink(115200, Constants.SERIAL_BITS_PER_BYTE, 64);
+			for (int x = 0; x < 100; ++x) {
+				small.getOutputStream().write(x);
+			}
+			small.advance(100);
+			assertTrue(small.getInputStream().available() == 64 && small.getBytesLost() == 36 && small.getBytesSent() == 100);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	private void writeSong(File fng, File fngb) {
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+		Hand hand = new Hand(TestUtils.loadProperties(12, 0), sheet);
+		assertTrue(new FngWriter().writeFngFromSheet(hand, sheet, (fng == null) ? null : fng.getAbsolutePath(), fngb.getAbsolutePath()));
+	}
+}
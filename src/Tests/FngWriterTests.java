@@ -0,0 +1,163 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.AlcSliceStream;
+import Processors.FngEventOrder;
+import Processors.FngWriter;
+import Processors.FngbReader;
+import Processors.Hand;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class FngWriterTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\munashiki.alc";
+
+	@Test
+	public void testEventOrderMatchesInstructionOrder() {
+		Hand hand = new Hand(TestUtils.loadProperties(12, 0), new AlcReaderWriter().loadAlcFile(PATH));
+		assertTrue(hand.didInit() && hand.getNumFingers() == 12);
+		FngEventOrder order = new FngEventOrder(hand);
+
+		// events with the same time most of the time, so the fingers and keys decide the order
+		Random random = new Random(7);
+		long[] events = new long[2000];
+		String[] instructions = new String[events.length];
+		for (int x = 0; x < events.length; ++x) {
+			int time = 1000 + random.nextInt(3) * 1000;
+			int finger = 1 + random.nextInt(12);
+			int keyIndex = 10 + random.nextInt(80);
+			String cv = NoteUtils.getCompareValueForKeyIndex(keyIndex) + "";
+			switch (random.nextInt(3)) {
+				case 0:
+					events[x] = order.encodeHit(time, finger, keyIndex);
+					instructions[x] = time + " FINGER " + finger + " CV " + cv + " " + Constants.INSTRUCT_HIT;
+					assertTrue(order.isHit(events[x]) && !order.isRelease(events[x]) && !order.isSlide(events[x]));
+					break;
+				case 1:
+					events[x] = order.encodeRelease(time, finger, keyIndex);
+					instructions[x] = time + " FINGER " + finger + " CV " + cv + " " + Constants.INSTRUCT_RELEASE;
+					assertTrue(order.isRelease(events[x]) && !order.isHit(events[x]));
+					break;
+				default:
+					events[x] = order.encodeSlide(time, finger, keyIndex);
+					instructions[x] = time + " FINGER " + finger + " " + Constants.INSTRUCT_SLIDE + " CV " + cv;
+					assertTrue(order.isSlide(events[x]) && !order.isHit(events[x]) && !order.isRelease(events[x]));
+			}
+			assertTrue(order.getTime(events[x]) == time && order.getFingerSequence(events[x]) == finger && order.getKeyIndex(events[x]) == keyIndex);
+		}
+		for (int x = 1; x < events.length; ++x) {
+			assertTrue(Long.signum(Long.compare(events[x - 1], events[x])) == Integer.signum(instructions[x - 1].compareTo(instructions[x])));
+		}
+	}
+
+	@Test
+	public void testSheetFngMatchesStreamFng() {
+		// 12 sliding fingers, so finger 10 sorts before finger 2, and slides are merged in with the hits and releases
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(12, 0), sheet);
+			assertTrue(hand.getSlidingPlanner() != null && hand.getSlidingPlanner().getNumSlides() > 0);
+
+			FngWriter fw = new FngWriter();
+			File sheetFng = File.createTempFile("FngWriterTests", ".fng");
+			File streamFng = File.createTempFile("FngWriterTests", ".fng");
+			assertTrue(fw.writeFngFromSheet(hand, sheet, sheetFng.getAbsolutePath()));
+			assertTrue(fw.writeFngFromStream(hand, new AlcSliceStream(PATH), streamFng.getAbsolutePath()));
+			assertTrue(Arrays.equals(Files.readAllBytes(sheetFng.toPath()), Files.readAllBytes(streamFng.toPath())));
+			sheetFng.delete();
+			streamFng.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testFngbRoundTrip() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			int[][] fingerSettings = { { 0, 76 }, { 0, 10 }, { 12, 0 } }; // full, limited, sliding
+			FngWriter fw = new FngWriter();
+			for (int x = 0; x < fingerSettings.length; ++x) {
+				Hand hand = new Hand(TestUtils.loadProperties(fingerSettings[x][0], fingerSettings[x][1]), sheet);
+				File fng = File.createTempFile("FngWriterTests", ".fng");
+				File bothFng = File.createTempFile("FngWriterTests", ".fng");
+				File fngb = File.createTempFile("FngWriterTests", ".fngb");
+				File decodedFng = File.createTempFile("FngWriterTests", ".fng");
+
+				// writing the .fngb alongside doesn't change the .fng, and decoding the .fngb gives the .fng back
+				assertTrue(fw.writeFngFromSheet(hand, sheet, fng.getAbsolutePath()));
+				assertTrue(fw.writeFngFromSheet(hand, sheet, bothFng.getAbsolutePath(), fngb.getAbsolutePath()));
+				assertTrue(fw.writeFngFromFngb(fngb.getAbsolutePath(), decodedFng.getAbsolutePath()));
+				byte[] fngBytes = Files.readAllBytes(fng.toPath());
+				assertTrue(Arrays.equals(fngBytes, Files.readAllBytes(bothFng.toPath())));
+				assertTrue(Arrays.equals(fngBytes, Files.readAllBytes(decodedFng.toPath())));
+				assertTrue(fngb.length() * 5 < fng.length());
+
+				FngbReader reader = new FngbReader(fngb.getAbsolutePath());
+				int numInstructions = 0;
+				int prevTime = 0;
+				while (reader.next()) {
+					assertTrue(reader.getTime() >= prevTime && reader.getNumBytes() >= 3);
+					prevTime = reader.getTime();
+					++numInstructions;
+				}
+				assertTrue(reader.isValid());
+				assertTrue(numInstructions == reader.getInstructionCount() && numInstructions == Files.readAllLines(fng.toPath()).size());
+
+				fng.delete();
+				bothFng.delete();
+				fngb.delete();
+				decodedFng.delete();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	@Test
+	public void testDamagedFngb() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			FngWriter fw = new FngWriter();
+			File fngb = File.createTempFile("FngWriterTests", ".fngb");
+			File decodedFng = File.createTempFile("FngWriterTests", ".fng");
+			assertTrue(fw.writeFngFromSheet(hand, sheet, null, fngb.getAbsolutePath()));
+			byte[] bytes = Files.readAllBytes(fngb.toPath());
+
+			// a flipped bit in the instruction data fails the checksum
+			byte[] damaged = Arrays.copyOf(bytes, bytes.length);
+			damaged[damaged.length / 2] ^= 0x10;
+			Files.write(fngb.toPath(), damaged);
+			assertFalse(fw.writeFngFromFngb(fngb.getAbsolutePath(), decodedFng.getAbsolutePath()));
+
+			// so does a file that was cut short
+			Files.write(fngb.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+			assertFalse(fw.writeFngFromFngb(fngb.getAbsolutePath(), decodedFng.getAbsolutePath()));
+
+			// and a file that isn't an .fngb file at all can't be opened
+			assertFalse(fw.writeFngFromFngb(PATH, decodedFng.getAbsolutePath()));
+			assertTrue(new FngbReader(PATH).getNumDigitsForTimestamp() == -1);
+
+			fngb.delete();
+			decodedFng.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+}
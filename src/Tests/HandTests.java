@@ -0,0 +1,85 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import DataObjs.Finger;
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import DataObjs.PianoProperties;
+import Processors.Hand;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class HandTests {
+
+	@Test
+	public void testFullHandLookup() {
+		PianoProperties properties = TestUtils.loadProperties(0, 76);
+		Hand hand = new Hand(properties, newSheet());
+		int minKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MIN_COMP_VALUE)));
+		int maxKeyIndex = NoteUtils.getKeyIndexForCompareValue(Double.parseDouble(properties.getSetting(Constants.SETTINGS_MAX_COMP_VALUE)));
+
+		assertTrue(hand.didInit());
+		assertTrue(hand.getNumFingers() == 76);
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			Finger finger = hand.getFingerForKeyAtTime(keyIndex, 500);
+			if (keyIndex < minKeyIndex || keyIndex > maxKeyIndex) {
+				assertTrue(finger == null);
+			} else {
+				assertTrue(finger != null && finger.getKeyIndexAtTime(500) == keyIndex);
+				assertTrue(finger.getFingerSequence() == keyIndex - minKeyIndex + 1);
+			}
+		}
+		assertTrue(hand.getFingerForKeyAtTime(-1, 0) == null);
+		assertTrue(hand.getFingerForKeyAtTime(Constants.NUM_KEY_INDICES, 0) == null);
+		assertTrue(hand.getFingerForNoteAtTime(20.5, 0) == hand.getFingerForKeyAtTime(NoteUtils.getKeyIndexForCompareValue(20.5), 0));
+	}
+
+	@Test
+	public void testLimitedHandLookup() {
+		Hand hand = new Hand(TestUtils.loadProperties(0, 10), newSheet());
+
+		// only the 3 keys hit in the song get fingers, in order from the left
+		assertTrue(hand.getNumFingers() == 3);
+		assertTrue(hand.getFingerForNoteAtTime(20.0, 0).getFingerSequence() == 1);
+		assertTrue(hand.getFingerForNoteAtTime(20.5, 0).getFingerSequence() == 2);
+		assertTrue(hand.getFingerForNoteAtTime(34.0, 0).getFingerSequence() == 3);
+		assertTrue(hand.getFingerForNoteAtTime(21.0, 0) == null);
+	}
+
+	@Test
+	public void testFingerTimeline() {
+		Finger finger = new Finger(1, 10.0);
+		assertTrue(finger.getCompValAtTime(0) == 10.0 && finger.getCompValAtTime(5000) == 10.0);
+
+		finger.slide(1000, 12.0);
+		finger.slide(3000, 8.5);
+		finger.slide(2000, 11.0); // out of order still lands between the other two
+		finger.slide(3000, 9.0); // replaces the slide at 3000
+
+		assertTrue(finger.getNumPositions() == 4);
+		assertTrue(finger.getCompValAtTime(-5) == 10.0);
+		assertTrue(finger.getCompValAtTime(999) == 10.0);
+		assertTrue(finger.getCompValAtTime(1000) == 12.0);
+		assertTrue(finger.getCompValAtTime(1999) == 12.0);
+		assertTrue(finger.getCompValAtTime(2000) == 11.0);
+		assertTrue(finger.getCompValAtTime(3000) == 9.0);
+		assertTrue(finger.getKeyIndexAtTime(100000) == NoteUtils.getKeyIndexForCompareValue(9.0));
+		assertTrue(finger.getPositionTime(2) == 2000 && finger.getPositionKeyIndex(2) == NoteUtils.getKeyIndexForCompareValue(11.0));
+	}
+
+	private MusicSheet newSheet() {
+		MusicSheet sheet = new MusicSheet("hand", 2);
+		MusicSlice slice = new MusicSlice(0);
+		slice.addMusicNote(new MusicNote(20.0, 100));
+		slice.addMusicNote(new MusicNote(34.0, 100));
+		sheet.addSlice(slice);
+		slice = new MusicSlice(100);
+		slice.addMusicNote(new MusicNote(20.5, 100));
+		sheet.addSlice(slice);
+		return sheet;
+	}
+}
@@ -0,0 +1,127 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Processors.KeyboardFrameRenderer;
+import Processors.KeyboardLayout;
+import Processors.PlaybackSchedule;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class KeyboardFrameRendererTests {
+
+	@Test
+	public void testLayout() {
+		// 88 key piano, A0 to C8
+		KeyboardLayout layout = new KeyboardLayout(52, 36, "A", 0);
+		assertTrue(layout.getNumKeys() == 88);
+		assertTrue(layout.getKeyIndex(0) == NoteUtils.getKeyIndexForCompareValue(NoteUtils.generateCompareValue("A", 0, false, false)));
+		assertTrue(layout.getKeyIndex(51) == NoteUtils.getKeyIndexForCompareValue(NoteUtils.generateCompareValue("C", 8, false, false)));
+		assertTrue(layout.getKeyIndex(52) == NoteUtils.getKeyIndexForCompareValue(NoteUtils.generateCompareValue("A", 0, true, false)));
+		assertTrue(layout.getKeyboardWidth() == 52 * Constants.KEY_WIDTH_WHITE + 1);
+		assertTrue(layout.getKeyboardHeight() == Constants.KEY_HEIGHT_WHITE + 1);
+
+		// A#0 straddles A0 and B0, and no black key comes after B0
+		assertTrue(layout.isBlackKey(52) && !layout.isBlackKey(51));
+		assertTrue(layout.doKeysOverlap(0, 52) && layout.doKeysOverlap(1, 52));
+		assertFalse(layout.doKeysOverlap(2, 52));
+		assertTrue(layout.getKeyIndex(53) == NoteUtils.getKeyIndexForCompareValue(NoteUtils.generateCompareValue("C", 1, true, false)));
+	}
+
+	@Test
+	public void testHitKeysAreDrawn() {
+		KeyboardLayout layout = new KeyboardLayout(52, 36, "A", 0);
+		MusicSheet sheet = new MusicSheet("hit", 1);
+		MusicSlice slice = new MusicSlice(100);
+		slice.addMusicNote(new MusicNote(NoteUtils.generateCompareValue("A", 0, false, false), 100));
+		slice.addMusicNote(new MusicNote(NoteUtils.generateCompareValue("A", 0, true, false), 100));
+		sheet.addSlice(slice);
+		KeyboardFrameRenderer renderer = new KeyboardFrameRenderer(layout, new PlaybackSchedule(sheet));
+		BufferedImage image = renderer.getImage();
+		int whiteKeyX = 2; // left of A0, where A#0 doesn't cover it
+		int blackKeyX = layout.getX(52) + layout.getWidth(52) / 2;
+
+		assertTrue(renderer.renderFrame(0) == 88);
+		assertTrue(image.getRGB(whiteKeyX, 150) == Constants.KEY_COLOR_WHITE.getRGB());
+		assertTrue(image.getRGB(blackKeyX, 50) == Constants.KEY_COLOR_BLACK.getRGB());
+
+		// A0 and A#0 go down, and only those 2 keys are redrawn
+		assertTrue(renderer.renderFrame(150) == 2);
+		assertTrue(image.getRGB(whiteKeyX, 150) == Constants.KEY_COLOR_HIT.getRGB());
+		assertTrue(image.getRGB(blackKeyX, 50) == Constants.KEY_COLOR_HIT.getRGB());
+		// only the area of the 2 keys needs to be repainted
+		Rectangle dirty = renderer.getDirtyBounds();
+		assertTrue(dirty.x == 0 && dirty.y == 0 && dirty.height == Constants.KEY_HEIGHT_WHITE + 1);
+		assertTrue(dirty.width == layout.getX(52) + Constants.KEY_WIDTH_BLACK + 1);
+		assertTrue(renderer.renderFrame(160) == 0);
+		assertTrue(renderer.getDirtyBounds() == null);
+
+		assertTrue(renderer.renderFrame(200) == 2);
+		assertTrue(image.getRGB(whiteKeyX, 150) == Constants.KEY_COLOR_WHITE.getRGB());
+
+		// A0 goes down on its own - A#0 sits on top of it, so it is put back too
+		sheet = new MusicSheet("white only", 1);
+		slice = new MusicSlice(100);
+		slice.addMusicNote(new MusicNote(NoteUtils.generateCompareValue("A", 0, false, false), 100));
+		sheet.addSlice(slice);
+		renderer = new KeyboardFrameRenderer(layout, new PlaybackSchedule(sheet));
+		renderer.renderFrame(0);
+		assertTrue(renderer.renderFrame(150) == 2);
+		assertTrue(renderer.getImage().getRGB(blackKeyX, 50) == Constants.KEY_COLOR_BLACK.getRGB());
+	}
+
+	@Test
+	public void testChangedKeysMatchFullRedraw() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFile(".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc");
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		KeyboardLayout layout = new KeyboardLayout(45, 31, "E", 1);
+		KeyboardFrameRenderer incremental = new KeyboardFrameRenderer(layout, schedule);
+		KeyboardFrameRenderer full = new KeyboardFrameRenderer(layout, schedule);
+		int width = layout.getKeyboardWidth();
+		int height = layout.getKeyboardHeight();
+		int fps = 30;
+
+		for (int frame = 0; frame < incremental.getNumFrames(fps); ++frame) {
+			int time = KeyboardFrameRenderer.getFrameTime(frame, fps);
+			incremental.renderFrame(time);
+			full.renderFullFrame(time);
+			int[] incrementalPixels = incremental.getImage().getRGB(0, 0, width, height, null, 0, width);
+			int[] fullPixels = full.getImage().getRGB(0, 0, width, height, null, 0, width);
+			assertTrue(Arrays.equals(incrementalPixels, fullPixels));
+		}
+		assertTrue(incremental.getNumKeysDrawn() < full.getNumKeysDrawn());
+	}
+
+	@Test
+	public void testRgbStream() {
+		MusicSheet sheet = new MusicSheet("rgb", 1);
+		MusicSlice slice = new MusicSlice(0);
+		slice.addMusicNote(new MusicNote(36, 1000));
+		sheet.addSlice(slice);
+		KeyboardLayout layout = new KeyboardLayout(14, 10, "C", 4);
+		KeyboardFrameRenderer renderer = new KeyboardFrameRenderer(layout, new PlaybackSchedule(sheet));
+		assertTrue(renderer.getNumFrames(10) == 11);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(renderer.renderRgbStream(out, 10));
+		int frameBytes = layout.getKeyboardWidth() * layout.getKeyboardHeight() * 3;
+		assertTrue(out.size() == frameBytes * 11);
+
+		// the first pixel of every frame is the left border of the first key
+		byte[] bytes = out.toByteArray();
+		assertTrue(bytes[0] == 0 && bytes[1] == 0 && bytes[2] == 0);
+	}
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import DataObjs.MusicNote;
 import Utils.Constants;
+import Utils.NoteUtils;
 
 public class MusicNoteTests {
 
@@ -572,4 +573,14 @@ public class MusicNoteTests {
 		assertTrue(note.getCompareValue() == other.getCompareValue()); // this will cover isSharp / isFlat
 	}
 	
+	@Test
+	public void testCompareValueCtorMatchesLetterCtor() {
+		// the compareValue constructor looks the note up by key index, so every key should come out identical to building it from its letter / octave / sharp
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			MusicNote fromCompVal = new MusicNote(NoteUtils.getCompareValueForKeyIndex(keyIndex), 100);
+			MusicNote fromLetter = new MusicNote(NoteUtils.getNoteForKeyIndex(keyIndex), NoteUtils.getOctaveForKeyIndex(keyIndex), 100, NoteUtils.isSharpKeyIndex(keyIndex), false);
+			assertTrue(fromCompVal.toString().equals(fromLetter.toString()));
+			assertTrue(fromCompVal.getKeyIndex() == keyIndex);
+		}
+	}
 }
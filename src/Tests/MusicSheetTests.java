@@ -1,13 +1,19 @@
 package Tests;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+
 import org.junit.Test;
 
 import DataObjs.MusicNote;
 import DataObjs.MusicSheet;
 import DataObjs.MusicSlice;
 import Processors.AlcReaderWriter;
+import Utils.PolyphonyProfile;
 
 public class MusicSheetTests {
 	
@@ -134,4 +140,250 @@ public class MusicSheetTests {
 		assertTrue(sheet.getSlices().getFirst().getStartTime() == other.getSlices().getFirst().getStartTime());
 		assertTrue(sheet.getSlices().getFirst().getNotes().first().getCompareValue() == other.getSlices().getFirst().getNotes().first().getCompareValue());
 	}
+	
+	// Slice access tests
+	
+	@Test
+	public void testSliceIndexAccess() {
+		MusicSheet sheet = new MusicSheet("Dummy info", 3);
+		for (int x = 0; x < 3; ++x) {
+			MusicSlice slice = new MusicSlice(x * 100);
+			slice.addMusicNote(new MusicNote("A", 1, 100, false, false));
+			sheet.addSlice(slice);
+		}
+		
+		assertTrue(sheet.getNumSlices() == 3);
+		assertTrue(sheet.getSlice(0).getStartTime() == 0);
+		assertTrue(sheet.getSlice(2).getStartTime() == 200);
+		assertTrue(sheet.getSlice(1) == sheet.getSlices().get(1));
+		assertTrue(sheet.getSlices().getLast() == sheet.getSlice(2) && sheet.getSlices().pollFirst() == sheet.getSlice(0));
+		assertTrue(sheet.getNumSlices() == 3); // getSlices hands out a copy of the order, so taking slices out of it leaves the sheet alone
+		
+		int expectedStartTime = 0;
+		Iterator<MusicSlice> iter = sheet.sliceIterator();
+		while (iter.hasNext()) {
+			assertTrue(iter.next().getStartTime() == expectedStartTime);
+			expectedStartTime += 100;
+		}
+		assertTrue(expectedStartTime == 300);
+	}
+	
+	// Memory-mapped loader tests
+	
+	@Test
+	public void testMappedLoadMatchesReader() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		String[] paths = { ".\\sample musixcml\\for unit tests\\my confession.alc",
+						   ".\\sample musixcml\\for unit tests\\munashiki.alc",
+						   ".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc" };
+		
+		for (int x = 0; x < paths.length; ++x) {
+			MusicSheet sheet = arw.loadAlcFile(paths[x]);
+			MusicSheet mappedSheet = arw.loadAlcFileMapped(paths[x]);
+			assertTrue(sheet != null);
+			assertTrue(mappedSheet != null);
+			assertTrue(sheet.getInfoLine().equals(mappedSheet.getInfoLine()));
+			assertTrue(sheet.getNoteCount() == mappedSheet.getNoteCount());
+			assertTrue(sheet.getNumSlices() == mappedSheet.getNumSlices());
+			
+			for (int y = 0; y < sheet.getNumSlices(); ++y) {
+				MusicSlice slice = sheet.getSlice(y);
+				MusicSlice mappedSlice = mappedSheet.getSlice(y);
+				assertTrue(slice.getStartTime() == mappedSlice.getStartTime());
+				assertTrue(slice.getNotes().size() == mappedSlice.getNotes().size());
+				
+				Iterator<MusicNote> iter = slice.getNotes().iterator();
+				Iterator<MusicNote> mappedIter = mappedSlice.getNotes().iterator();
+				while (iter.hasNext()) {
+					MusicNote note = iter.next();
+					MusicNote mappedNote = mappedIter.next();
+					assertTrue(note.getCompareValue() == mappedNote.getCompareValue());
+					assertTrue(note.getDuration() == mappedNote.getDuration());
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testMappedLoadMissingFile() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFileMapped(".\\sample musixcml\\for unit tests\\does not exist.alc");
+		assertTrue(sheet == null);
+	}
+	
+	// Binary .alcb format tests
+	
+	@Test
+	public void testAlcbRoundTrip() {
+		try {
+			AlcReaderWriter arw = new AlcReaderWriter();
+			MusicSheet sheet = arw.loadAlcFile(".\\sample musixcml\\for unit tests\\munashiki.alc");
+			File alcbFile = File.createTempFile("MusicSheetTests", ".alcb");
+			
+			assertTrue(arw.writeAlcbFile(sheet, alcbFile.getAbsolutePath()));
+			assertTrue(arw.isAlcbFile(alcbFile.getAbsolutePath()));
+			assertFalse(arw.isAlcbFile(".\\sample musixcml\\for unit tests\\munashiki.alc"));
+			
+			// loadAlcFile should detect the binary format on its own
+			MusicSheet binarySheet = arw.loadAlcFile(alcbFile.getAbsolutePath());
+			alcbFile.delete();
+			
+			assertTrue(binarySheet != null);
+			assertTrue(sheet.getInfoLine().equals(binarySheet.getInfoLine()));
+			assertTrue(sheet.getNoteCount() == binarySheet.getNoteCount());
+			assertTrue(sheet.getEndTime() == binarySheet.getEndTime());
+			assertTrue(sheet.getGCD() == binarySheet.getGCD());
+			assertTrue(sheet.getNumSlices() == binarySheet.getNumSlices());
+			for (int x = 0; x < sheet.getNumSlices(); ++x) {
+				assertTrue(sheet.getSlice(x).getStartTime() == binarySheet.getSlice(x).getStartTime());
+				assertTrue(sheet.getSlice(x).getNotes().size() == binarySheet.getSlice(x).getNotes().size());
+				assertTrue(sheet.getSlice(x).getNotes().last().getCompareValue() == binarySheet.getSlice(x).getNotes().last().getCompareValue());
+				assertTrue(sheet.getSlice(x).getNotes().last().getDuration() == binarySheet.getSlice(x).getNotes().last().getDuration());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+	
+	@Test
+	public void testAlcbDurationDeltas() {
+		try {
+			// a 3 note chord, a shorter 2 note chord, then a longer note. durations are stored against the previous note's, so the repeats cost a single byte
+			MusicSheet sheet = new MusicSheet("deltas", 6);
+			MusicSlice slice = TestUtils.newSlice(0, 34, 1000);
+			slice.addMusicNote(new MusicNote(36, 1000));
+			slice.addMusicNote(new MusicNote(38, 1000));
+			sheet.addSlice(slice);
+			slice = TestUtils.newSlice(1000, 34, 500);
+			slice.addMusicNote(new MusicNote(36, 500));
+			sheet.addSlice(slice);
+			sheet.addSlice(TestUtils.newSlice(1500, 34, 2000));
+			
+			AlcReaderWriter arw = new AlcReaderWriter();
+			File alcbFile = File.createTempFile("MusicSheetTests", ".alcb");
+			assertTrue(arw.writeAlcbFile(sheet, alcbFile.getAbsolutePath()));
+			// header (magic, version, info line length and text, note count, checksum), then 8 bytes of start times, 6 key indices, and 9 bytes of durations
+			assertTrue(alcbFile.length() == 4 + 1 + 4 + 6 + 4 + 4 + 8 + 6 + 9);
+			
+			MusicSheet binarySheet = arw.loadAlcFile(alcbFile.getAbsolutePath());
+			alcbFile.delete();
+			assertTrue(binarySheet != null && binarySheet.getNumSlices() == 3);
+			for (int x = 0; x < sheet.getNumSlices(); ++x) {
+				Iterator<MusicNote> iter = sheet.getSlice(x).getNotes().iterator();
+				Iterator<MusicNote> binaryIter = binarySheet.getSlice(x).getNotes().iterator();
+				while (iter.hasNext()) {
+					MusicNote note = iter.next();
+					MusicNote binaryNote = binaryIter.next();
+					assertTrue(note.getCompareValue() == binaryNote.getCompareValue() && note.getDuration() == binaryNote.getDuration());
+				}
+				assertFalse(binaryIter.hasNext());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+	
+	@Test
+		public void testAlcbDamagedChecksum() {
+		try {
+			AlcReaderWriter arw = new AlcReaderWriter();
+			MusicSheet sheet = arw.loadAlcFile(".\\sample musixcml\\for unit tests\\my confession.alc");
+			File alcbFile = File.createTempFile("MusicSheetTests", ".alcb");
+			assertTrue(arw.writeAlcbFile(sheet, alcbFile.getAbsolutePath()));
+			
+			// flip a bit in the last byte of note data
+			RandomAccessFile raf = new RandomAccessFile(alcbFile, "rw");
+			raf.seek(raf.length() - 1);
+			int lastByte = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(lastByte ^ 0x01);
+			raf.close();
+			
+			MusicSheet damagedSheet = arw.loadAlcFile(alcbFile.getAbsolutePath());
+			alcbFile.delete();
+			assertTrue(damagedSheet == null);
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+	
+	// Cached value tests
+	
+	@Test
+	public void testCachedValuesFollowAddSlice() {
+		MusicSheet sheet = new MusicSheet("cached values", 3);
+		MusicSlice slice = new MusicSlice(0);
+		slice.addNote(40, 1000);
+		sheet.addSlice(slice);
+		assertTrue(sheet.getEndTime() == 1000);
+		assertTrue(sheet.getMaxSimulHits() == 1);
+		assertTrue(sheet.getMaxSimulHitsAndHolds() == 1);
+		
+		slice = new MusicSlice(300);
+		slice.addNote(40, 100);
+		slice.addNote(44, 100);
+		sheet.addSlice(slice);
+		assertTrue(sheet.getGCD() == 300);
+		assertTrue(sheet.getEndTime() == 1000);
+		assertTrue(sheet.getMaxSimulHits() == 2);
+		assertTrue(sheet.getMaxSimulHitsAndHolds() == 2); // 40 is still held from 0, so hitting it again holds nothing new
+		
+		slice = new MusicSlice(750);
+		slice.addNote(40, 500);
+		sheet.addSlice(slice);
+		assertTrue(sheet.getGCD() == 150);
+		assertTrue(sheet.getEndTime() == 1250);
+		assertTrue(sheet.getMaxSimulHits() == 2);
+		assertTrue(sheet.getMaxSimulHitsAndHolds() == 2);
+		
+		// kept up to date as the slices are added, it matches a full sweep of the song
+		String[] paths = { ".\\sample musixcml\\for unit tests\\my confession.alc",
+						   ".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc" };
+		for (int x = 0; x < paths.length; ++x) {
+			sheet = new AlcReaderWriter().loadAlcFile(paths[x]);
+			int maxSimulHitsAndHolds = sheet.getMaxSimulHitsAndHolds();
+			sheet.invalidateCachedValues();
+			assertTrue(maxSimulHitsAndHolds == new PolyphonyProfile(sheet).getMaxNotes() && maxSimulHitsAndHolds == sheet.getMaxSimulHitsAndHolds());
+		}
+	}
+	
+	@Test
+	public void testCachedValuesInvalidatedBySliceChanges() {
+		MusicSheet sheet = new MusicSheet("cached values", 3);
+		MusicSlice first = new MusicSlice(0);
+		first.addNote(40, 100);
+		sheet.addSlice(first);
+		MusicSlice second = new MusicSlice(200);
+		second.addNote(40, 100);
+		sheet.addSlice(second);
+		assertTrue(sheet.getGCD() == 200);
+		assertTrue(sheet.getEndTime() == 300);
+		
+		// changes made by the slices themselves
+		second.applyBpmMultipler(2);
+		assertTrue(sheet.getGCD() == 400);
+		assertTrue(sheet.getEndTime() == 600);
+		second.setStartTime(300);
+		assertTrue(sheet.getGCD() == 300);
+		first.addNote(41, 100);
+		assertTrue(sheet.getMaxSimulHits() == 2);
+		
+		// changes made through MusicNotes handed out by the slices
+		Iterator<MusicNote> iter = first.getNotes().iterator();
+		iter.next().setDuration(5000);
+		assertTrue(sheet.getEndTime() == 5000);
+		assertTrue(sheet.getMaxSimulHitsAndHolds() == 2);
+		
+		// slices taken out through the sheet's iterator
+		Iterator<MusicSlice> sliceIter = sheet.sliceIterator();
+		sliceIter.next();
+		sliceIter.remove();
+		assertTrue(sheet.getNumSlices() == 1);
+		assertTrue(sheet.getEndTime() == 500);
+		assertTrue(sheet.getMaxSimulHits() == 1);
+		assertTrue(sheet.getMaxSimulHitsAndHolds() == 1);
+	}
 }
@@ -3,10 +3,14 @@ package Tests;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Iterator;
+
 import org.junit.Test;
 
 import DataObjs.MusicNote;
 import DataObjs.MusicSlice;
+import Utils.Constants;
+import Utils.NoteUtils;
 
 public class MusicSliceTests {
 
@@ -113,4 +117,119 @@ public class MusicSliceTests {
 		assertTrue(slice.getStartTime() == other.getStartTime());
 		assertTrue(other.containsNote(note.getCompareValue()));
 	}
+	
+	// Tests on the compact (key bitmask) form of MusicSlice, and switching over to MusicNotes
+	
+	@Test
+	public void testAddNoteRejectsDuplicate() {
+		MusicSlice slice = new MusicSlice(0);
+		assertTrue(slice.addNote(40, 100));
+		assertFalse(slice.addNote(40, 200));
+		assertTrue(slice.getNumNotes() == 1);
+		assertTrue(slice.getDurationForKey(40) == 100);
+	}
+	
+	@Test
+	public void testKeyIterationIsOrdered() {
+		// keys added out of order, spread across all three words of the mask
+		int[] keys = { 131, 5, 64, 63, 0, 100 };
+		MusicSlice slice = new MusicSlice(0);
+		for (int x = 0; x < keys.length; ++x) {
+			assertTrue(slice.addNote(keys[x], 10 + keys[x]));
+		}
+	
+		int[] expected = { 0, 5, 63, 64, 100, 131 };
+		int count = 0;
+		for (int key = slice.nextKeyIndex(0); key != -1; key = slice.nextKeyIndex(key + 1)) {
+			assertTrue(key == expected[count]);
+			assertTrue(slice.getDurationForKey(key) == 10 + key);
+			++count;
+		}
+		assertTrue(count == expected.length);
+		assertTrue(slice.getLongestDuration() == 141);
+	}
+	
+	@Test
+	public void testContainsNote() {
+		MusicSlice slice = new MusicSlice(0);
+		slice.addNote(NoteUtils.getKeyIndexForCompareValue(29.5), 100);
+		assertTrue(slice.containsNote(29.5));
+		assertFalse(slice.containsNote(30));
+		assertTrue(slice.containsKey(NoteUtils.getKeyIndexForCompareValue(29.5)));
+	}
+	
+	@Test
+	public void testGetNotesMatchesCompactForm() {
+		MusicSlice slice = new MusicSlice(50);
+		slice.addNote(NoteUtils.getKeyIndexForCompareValue(36), 300);
+		slice.addNote(NoteUtils.getKeyIndexForCompareValue(20.5), 100);
+		slice.addNote(NoteUtils.getKeyIndexForCompareValue(34), 200);
+	
+		Iterator<MusicNote> iter = slice.getNotes().iterator();
+		MusicNote note = iter.next();
+		assertTrue(note.getCompareValue() == 20.5 && note.getDuration() == 100);
+		note = iter.next();
+		assertTrue(note.getCompareValue() == 34 && note.getDuration() == 200);
+		note = iter.next();
+		assertTrue(note.getCompareValue() == 36 && note.getDuration() == 300);
+		assertFalse(iter.hasNext());
+	
+		// once switched over, changes made through the MusicNotes are what the slice reports
+		slice.getNotes().first().setDuration(1000);
+		assertTrue(slice.getDurationForKey(NoteUtils.getKeyIndexForCompareValue(20.5)) == 1000);
+		assertTrue(slice.getLongestDuration() == 1000);
+	}
+	
+	@Test
+	public void testAddMusicNoteKeepsObject() {
+		// the feigner relies on getting the same MusicNote objects back out that it put in
+		MusicSlice slice = new MusicSlice(0);
+		MusicNote note = new MusicNote(34, 100);
+		assertTrue(slice.addMusicNote(note));
+		assertFalse(slice.addMusicNote(new MusicNote(34, 200)));
+		assertTrue(slice.getNotes().first() == note);
+	}
+	
+	@Test
+	public void testHasOnlyKeys() {
+		MusicSlice slice = new MusicSlice(0);
+		slice.addNote(10, 100);
+		assertTrue(slice.hasOnlyKeys());
+		slice.getNotes();
+		assertTrue(slice.hasOnlyKeys());
+	
+		// a rest has no key, so the key iteration doesn't see it
+		slice.addMusicNote(new MusicNote(Constants.REST_COMP_VALUE, 100));
+		assertFalse(slice.hasOnlyKeys());
+		assertTrue(slice.nextKeyIndex(0) == 10 && slice.nextKeyIndex(11) == -1);
+	}
+	
+	@Test
+	public void testHasSameKeys() {
+		MusicSlice slice = new MusicSlice(0);
+		slice.addNote(10, 100);
+		slice.addNote(70, 100);
+		MusicSlice other = new MusicSlice(500);
+		other.addNote(70, 300);
+		other.addMusicNote(new MusicNote(NoteUtils.getCompareValueForKeyIndex(10), 200));
+		assertTrue(slice.hasSameKeys(other));
+	
+		other.addNote(71, 100);
+		assertFalse(slice.hasSameKeys(other));
+	}
+	
+	@Test
+	public void testBpmMultiplierCompact() {
+		MusicSlice slice = new MusicSlice(10);
+		slice.addNote(10, 100);
+		slice.addNote(20, 150);
+		assertTrue(slice.applyBpmMultipler(3));
+		assertTrue(slice.getStartTime() == 30);
+		assertTrue(slice.getDurationForKey(10) == 300);
+		assertTrue(slice.getDurationForKey(20) == 450);
+	
+		MusicSlice copy = new MusicSlice(slice);
+		assertTrue(copy.hasSameKeys(slice));
+		assertTrue(copy.getDurationForKey(20) == 450);
+	}
 }
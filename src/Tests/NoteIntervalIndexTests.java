@@ -0,0 +1,109 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import DataObjs.ColumnarMusicSheet;
+import DataObjs.MusicSheet;
+import Processors.AlcReaderWriter;
+import Processors.PlaybackSchedule;
+import Utils.Constants;
+import Utils.NoteIntervalIndex;
+import Utils.NoteUtils;
+
+public class NoteIntervalIndexTests {
+
+	@Test
+	public void testHeldNotes() {
+		// 34 held 0-1000, 36 hit 200-400, 34 re-hit at 600 while still held (holds nothing), 34 hit again at 1000 as it is released
+		MusicSheet sheet = new MusicSheet("intervals", 4);
+		sheet.addSlice(TestUtils.newSlice(0, 34, 1000));
+		sheet.addSlice(TestUtils.newSlice(200, 36, 200));
+		sheet.addSlice(TestUtils.newSlice(600, 34, 5000));
+		sheet.addSlice(TestUtils.newSlice(1000, 34, 100));
+		NoteIntervalIndex index = new NoteIntervalIndex(sheet);
+		int[] notes = new int[Constants.NUM_KEY_INDICES];
+
+		assertTrue(index.getNumNotes() == 4);
+		assertTrue(index.getNoteEnd(2) == 600 && index.getNoteDuration(2) == 5000);
+		assertTrue(index.getHeldNotes(-1, notes) == 0);
+		assertTrue(index.getHeldNotes(0, notes) == 1 && notes[0] == 0);
+		assertTrue(index.getHeldNotes(300, notes) == 2 && notes[0] == 0 && notes[1] == 1);
+		assertTrue(index.getHeldNotes(400, notes) == 1);
+		assertTrue(index.getHeldNotes(700, notes) == 1 && notes[0] == 0);
+		assertTrue(index.getHeldNotes(1000, notes) == 1 && notes[0] == 3);
+		assertTrue(index.getHeldNotes(1100, notes) == 0);
+		assertTrue(index.getEndTime() == 1100);
+
+		long[] keyMask = new long[3];
+		int key34 = NoteUtils.getKeyIndexForCompareValue(34);
+		assertTrue(index.getHeldKeys(300, keyMask) == 2);
+		assertTrue((keyMask[key34 >>> 6] & (1L << (key34 & 63))) != 0);
+
+		assertTrue(index.getNumNotesStartingIn(0, 600) == 2);
+		assertTrue(index.getNumNotesStartingIn(200, 1001) == 3);
+		assertTrue(index.getNumNotesStartingIn(601, 1000) == 0);
+
+		// the re-hit at 600 doesn't change anything
+		assertTrue(index.getNextChangeAfter(-5) == 0);
+		assertTrue(index.getNextChangeAfter(0) == 200);
+		assertTrue(index.getNextChangeAfter(400) == 1000);
+		assertTrue(index.getNextChangeAfter(1000) == 1100);
+		assertTrue(index.getNextChangeAfter(1100) == -1);
+	}
+
+	@Test
+	public void testMatchesPlaybackSchedule() {
+		// the schedule and the index follow the same rules, so the same keys should be held at every point in the song
+		AlcReaderWriter arw = new AlcReaderWriter();
+		String path = ".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc";
+		MusicSheet sheet = arw.loadAlcFile(path);
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		NoteIntervalIndex index = new NoteIntervalIndex(sheet);
+		NoteIntervalIndex columnarIndex = new NoteIntervalIndex(arw.loadAlcFileColumnar(path));
+		assertTrue(index.getNumNotes() == sheet.getNoteCount());
+		assertTrue(columnarIndex.getNumNotes() == index.getNumNotes());
+		assertTrue(index.getEndTime() == sheet.getEndTime());
+
+		long[] keyMask = new long[3];
+		long[] columnarKeyMask = new long[3];
+		for (int time = -10; time <= sheet.getEndTime() + 10; time += 7) {
+			int event = schedule.getEventAtTime(time);
+			int numHeld = index.getHeldKeys(time, keyMask);
+			assertTrue(columnarIndex.getHeldKeys(time, columnarKeyMask) == numHeld);
+			int expectedHeld = 0;
+			for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+				boolean isHeld = (keyMask[keyIndex >>> 6] & (1L << (keyIndex & 63))) != 0;
+				assertTrue(isHeld == schedule.isKeyDown(event, keyIndex));
+				assertTrue(columnarKeyMask[keyIndex >>> 6] == keyMask[keyIndex >>> 6]);
+				if (isHeld) {
+					++expectedHeld;
+				}
+			}
+			assertTrue(numHeld == expectedHeld);
+
+			// the next change is always the next event that changes which keys are down (or later, for a key released and struck at the same time)
+			int nextChange = index.getNextChangeAfter(time);
+			int nextEvent = event + 1;
+			while (nextEvent < schedule.getNumEvents() && !schedule.didKeysChange(nextEvent)) {
+				++nextEvent;
+			}
+			if (nextEvent < schedule.getNumEvents()) {
+				assertTrue(nextChange != -1 && nextChange <= schedule.getEventTime(nextEvent));
+			}
+		}
+	}
+
+	@Test
+	public void testColumnarSheet() {
+		ColumnarMusicSheet sheet = new ColumnarMusicSheet("columnar", new int[] { 0, 100 }, new int[] { 0, 2, 3 },
+														  new short[] { 20, 30, 20 }, new int[] { 50, 200, 50 });
+		NoteIntervalIndex index = new NoteIntervalIndex(sheet);
+		int[] notes = new int[Constants.NUM_KEY_INDICES];
+		assertTrue(index.getNumNotes() == 3);
+		assertTrue(index.getHeldNotes(120, notes) == 2);
+		assertTrue(index.getHeldNotes(160, notes) == 1 && index.getNoteKey(notes[0]) == 30);
+		assertTrue(index.getEndTime() == 200);
+	}
+}
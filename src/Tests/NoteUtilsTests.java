@@ -1011,4 +1011,50 @@ public class NoteUtilsTests {
 		assertTrue(isValid);
 	}
 	
+	
+	// Key index tests
+	
+	@Test
+	public void testKeyIndexFirstKey() {
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(Constants.MIN_THEORETICAL_COMPARE_VALUE) == 0);
+		assertTrue(NoteUtils.getCompareValueForKeyIndex(0) == Constants.MIN_THEORETICAL_COMPARE_VALUE);
+	}
+	
+	@Test
+	public void testKeyIndexLastKey() {
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(Constants.MAX_THEORETICAL_COMPARE_VALUE) == Constants.NUM_KEY_INDICES - 1);
+		assertTrue(NoteUtils.getCompareValueForKeyIndex(Constants.NUM_KEY_INDICES - 1) == Constants.MAX_THEORETICAL_COMPARE_VALUE);
+	}
+	
+	@Test
+	public void testKeyIndexSharpAndOctave() {
+		// C sharp on octave 4 = 1.5 + 28 = 29.5, key index (4*12) + 1 = 49
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(29.5) == 49);
+		assertTrue(NoteUtils.getCompareValueForKeyIndex(49) == 29.5);
+		// B on octave 0 = 7, C on octave 1 = 8, which should be neighboring key indices
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(7) == 11);
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(8) == 12);
+	}
+	
+	@Test
+	public void testKeyIndexInvalid() {
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(Constants.REST_COMP_VALUE) == -1);
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(3.5) == -1); // E sharp
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(7.5) == -1); // B sharp
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(2.25) == -1);
+		assertTrue(NoteUtils.getKeyIndexForCompareValue(78) == -1);
+		assertTrue(NoteUtils.getCompareValueForKeyIndex(-1) == -1);
+		assertTrue(NoteUtils.getCompareValueForKeyIndex(Constants.NUM_KEY_INDICES) == -1);
+	}
+	
+	@Test
+	public void testKeyIndexRoundTrip() {
+		// every key index should be one getNextNoteCV step away from the previous one
+		double compVal = Constants.MIN_THEORETICAL_COMPARE_VALUE;
+		for (int x = 0; x < Constants.NUM_KEY_INDICES; ++x) {
+			assertTrue(NoteUtils.getKeyIndexForCompareValue(compVal) == x);
+			assertTrue(NoteUtils.getCompareValueForKeyIndex(x) == compVal);
+			compVal = NoteUtils.getNextNoteCV(compVal);
+		}
+	}
 }
@@ -0,0 +1,242 @@
+package Tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Processors.PlaybackListener;
+import Processors.PlaybackSchedule;
+import Processors.PlaybackScheduler;
+import Utils.NoteUtils;
+import Utils.PolyphonyProfile;
+
+public class PlaybackScheduleTests {
+
+	@Test
+	public void testEventsForPressesAndReleases() {
+		// 34 held 0-1000, 36 hit 200-400, 38 hit 200-300 and again at 600-700, 34 re-hit at 600 while still held (no change)
+		MusicSheet sheet = new MusicSheet("schedule", 5);
+		sheet.addSlice(TestUtils.newSlice(0, 34, 1000));
+		MusicSlice slice = TestUtils.newSlice(200, 36, 200);
+		slice.addMusicNote(new MusicNote(38, 100));
+		sheet.addSlice(slice);
+		slice = TestUtils.newSlice(600, 38, 100);
+		slice.addMusicNote(new MusicNote(34, 5000));
+		sheet.addSlice(slice);
+
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		int[] expectedTimes = { 0, 200, 300, 400, 600, 700, 1000 };
+		int[] expectedSlices = { 0, 1, -1, -1, 2, -1, -1 };
+		assertTrue(schedule.getNumEvents() == expectedTimes.length);
+		for (int x = 0; x < expectedTimes.length; ++x) {
+			assertTrue(schedule.getEventTime(x) == expectedTimes[x]);
+			assertTrue(schedule.getSliceIndex(x) == expectedSlices[x]);
+			assertTrue(schedule.didKeysChange(x));
+		}
+
+		int key34 = NoteUtils.getKeyIndexForCompareValue(34);
+		int key38 = NoteUtils.getKeyIndexForCompareValue(38);
+		assertTrue(schedule.isKeyDown(1, key34) && schedule.isKeyDown(1, key38));
+		assertFalse(schedule.isKeyDown(2, key38));
+		assertTrue(schedule.isKeyDown(4, key38));
+		assertFalse(schedule.isKeyDown(6, key34));
+		assertFalse(schedule.isKeyDown(-1, key34));
+
+		assertTrue(schedule.getEventAtTime(-5) == -1);
+		assertTrue(schedule.getEventAtTime(250) == 1);
+		assertTrue(schedule.getEventAtTime(300) == 2);
+		assertTrue(schedule.getEventAtTime(5000) == 6);
+	}
+
+	@Test
+	public void testStrikeWithoutKeyChange() {
+		// re-hitting a held key still strikes the slice (so it can be heard), but doesn't change what is displayed
+		MusicSheet sheet = new MusicSheet("rehit", 2);
+		sheet.addSlice(TestUtils.newSlice(0, 34, 1000));
+		sheet.addSlice(TestUtils.newSlice(100, 34, 100));
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		assertTrue(schedule.getNumEvents() == 3);
+		assertTrue(schedule.getSliceIndex(1) == 1);
+		assertFalse(schedule.didKeysChange(1));
+		assertTrue(schedule.getEventTime(2) == 1000);
+	}
+
+	@Test
+	public void testKeyCountsMatchPolyphonyProfile() {
+		// the schedule and the profile follow the same rules, so the number of keys down should agree at every event
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFile(".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc");
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		PolyphonyProfile profile = new PolyphonyProfile(sheet);
+		for (int event = 0; event < schedule.getNumEvents(); ++event) {
+			int keysDown = 0;
+			for (int keyIndex = 0; keyIndex < 132; ++keyIndex) {
+				if (schedule.isKeyDown(event, keyIndex)) {
+					++keysDown;
+				}
+			}
+			assertTrue(keysDown == profile.getNotesAtTime(schedule.getEventTime(event)));
+		}
+		assertTrue(schedule.getEventTime(schedule.getNumEvents()-1) == sheet.getEndTime());
+	}
+
+	@Test
+	public void testSchedulerPlaysEveryEventInOrder() {
+		MusicSheet sheet = new MusicSheet("scheduler", 3);
+		sheet.addSlice(TestUtils.newSlice(0, 34, 10));
+		sheet.addSlice(TestUtils.newSlice(15, 36, 10));
+		sheet.addSlice(TestUtils.newSlice(30, 38, 5));
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+
+		final ArrayList<Integer> played = new ArrayList<Integer>();
+		final long[] elapsed = new long[1];
+		final long startNanos = System.nanoTime();
+		PlaybackScheduler scheduler = new PlaybackScheduler(schedule, new PlaybackListener() {
+			@Override
+			public void playbackEvent(PlaybackSchedule schedule, int event) {
+				played.add(event);
+			}
+
+			@Override
+			public void playbackSeeked(PlaybackSchedule schedule, int event, int time, long requestNanos) {
+			}
+
+			@Override
+			public void playbackFinished(PlaybackScheduler scheduler) {
+				elapsed[0] = System.nanoTime() - startNanos;
+			}
+		});
+		assertTrue(scheduler.start());
+		assertFalse(scheduler.start());
+		assertTrue(scheduler.waitForFinish());
+
+		assertTrue(played.size() == schedule.getNumEvents());
+		for (int x = 0; x < played.size(); ++x) {
+			assertTrue(played.get(x) == x);
+			assertTrue(scheduler.getJitterNanos(x) >= 0);
+		}
+		assertTrue(scheduler.getNumEventsPlayed() == schedule.getNumEvents());
+		assertTrue(elapsed[0] >= 35 * 1000000L); // events are never played early
+	}
+
+	@Test
+	public void testSeek() throws Exception {
+		// a slice every 100ms from 0 to 900, each released 50ms later
+		MusicSheet sheet = new MusicSheet("seek", 10);
+		for (int x = 0; x < 10; ++x) {
+			sheet.addSlice(TestUtils.newSlice(x * 100, 34 + x, 50));
+		}
+		final PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		final ArrayList<Integer> played = new ArrayList<Integer>();
+		final ArrayList<Integer> seeks = new ArrayList<Integer>();
+		final ArrayList<Integer> seekTimes = new ArrayList<Integer>();
+		PlaybackScheduler scheduler = new PlaybackScheduler(schedule, new PlaybackListener() {
+			@Override
+			public void playbackEvent(PlaybackSchedule schedule, int event) {
+				synchronized (played) {
+					played.add(event);
+				}
+			}
+
+			@Override
+			public void playbackSeeked(PlaybackSchedule schedule, int event, int time, long requestNanos) {
+				synchronized (played) {
+					seeks.add(event);
+					seekTimes.add(time);
+					assertTrue(requestNanos != 0 && requestNanos <= System.nanoTime());
+					played.add(-1);
+				}
+			}
+
+			@Override
+			public void playbackFinished(PlaybackScheduler scheduler) {
+			}
+		});
+		scheduler.setHoldAtEnd(true);
+
+		// start at 800ms: the event at 800 is the first played, and the one before it (the release at 750) is what is in effect
+		int event800 = schedule.getEventAtTime(800);
+		scheduler.seek(800);
+		assertTrue(scheduler.getPosition() == 800);
+		assertTrue(scheduler.start());
+		waitForEvents(played, 2 + (schedule.getNumEvents() - event800));
+		assertTrue(seeks.get(0) == event800 - 1);
+		assertTrue(played.get(1) == event800);
+		assertTrue(played.get(played.size()-1) == schedule.getNumEvents() - 1);
+
+		// held at the end, so it can still be seeked back into the song - halfway between two events this time
+		int seekAt;
+		synchronized (played) {
+			seekAt = played.size();
+		}
+		scheduler.seek(420);
+		waitForEvents(played, seekAt + 2);
+		scheduler.stop();
+		assertTrue(scheduler.waitForFinish());
+		assertTrue(seeks.get(1) == schedule.getEventAtTime(420));
+		assertTrue(played.get(seekAt) == -1);
+		assertTrue(played.get(seekAt + 1) == schedule.getEventAtTime(420) + 1);
+		assertTrue(scheduler.getNumSeeks() == 2 && seekTimes.get(0) == 800 && seekTimes.get(1) == 420);
+		assertTrue(scheduler.getMaxSeekNanos() >= scheduler.getMeanSeekNanos());
+	}
+
+	@Test
+	public void testPauseAndSpeed() throws Exception {
+		MusicSheet sheet = new MusicSheet("speed", 5);
+		for (int x = 0; x < 5; ++x) {
+			sheet.addSlice(TestUtils.newSlice(x * 100, 34, 100));
+		}
+		PlaybackSchedule schedule = new PlaybackSchedule(sheet);
+		PlaybackScheduler scheduler = new PlaybackScheduler(schedule, new PlaybackListener() {
+			@Override
+			public void playbackEvent(PlaybackSchedule schedule, int event) {
+			}
+
+			@Override
+			public void playbackSeeked(PlaybackSchedule schedule, int event, int time, long requestNanos) {
+			}
+
+			@Override
+			public void playbackFinished(PlaybackScheduler scheduler) {
+			}
+		});
+		assertFalse(scheduler.setSpeed(0.1));
+		assertFalse(scheduler.setSpeed(5));
+
+		// nothing is played while paused
+		scheduler.pause();
+		assertTrue(scheduler.start());
+		Thread.sleep(150);
+		assertTrue(scheduler.getNumEventsPlayed() == 0);
+		assertTrue(scheduler.getPosition() == 0);
+
+		// 500ms of song at 4x speed takes 125ms
+		assertTrue(scheduler.setSpeed(4));
+		long start = System.nanoTime();
+		scheduler.resume();
+		assertTrue(scheduler.waitForFinish());
+		long elapsed = System.nanoTime() - start;
+		assertTrue(scheduler.getNumEventsPlayed() == schedule.getNumEvents());
+		assertTrue(elapsed >= 124 * 1000000L);
+		assertTrue(elapsed < 450 * 1000000L);
+	}
+
+	private void waitForEvents(ArrayList<Integer> played, int count) throws Exception {
+		long giveUp = System.nanoTime() + 5000 * 1000000L;
+		while (System.nanoTime() < giveUp) {
+			synchronized (played) {
+				if (played.size() >= count) {
+					return;
+				}
+			}
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import DataObjs.ColumnarMusicSheet;
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Utils.AlcStatsUtils;
+import Utils.PolyphonyProfile;
+
+public class PolyphonyProfileTests {
+
+	private static final String[] PATHS = { ".\\sample musixcml\\for unit tests\\my confession.alc",
+											".\\sample musixcml\\for unit tests\\my confession-diffenddur.alc",
+											".\\sample musixcml\\for unit tests\\my confession-diffgcd.alc",
+											".\\sample musixcml\\for unit tests\\munashiki.alc",
+											".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc" };
+
+	@Test
+	public void testMatchesGcdSteppingOnSampleSongs() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		AlcStatsUtils asu = new AlcStatsUtils();
+		for (int x = 0; x < PATHS.length; ++x) {
+			int expected = gcdSteppingMaxSimulHitsAndHolds(arw.loadAlcFile(PATHS[x]));
+			assertTrue(asu.getMaxSimulHitsAndHolds(arw.loadAlcFile(PATHS[x])) == expected);
+			assertTrue(asu.getMaxSimulHitsAndHolds(arw.loadAlcFileColumnar(PATHS[x])) == expected);
+		}
+	}
+
+	@Test
+	public void testProfileMatchesGcdSteppingAtEveryStep() {
+		// the profile has to agree with the PianoFeigner's view of the song at every step, not just at the peak
+		AlcReaderWriter arw = new AlcReaderWriter();
+		for (int x = 0; x < PATHS.length; ++x) {
+			MusicSheet sheet = arw.loadAlcFile(PATHS[x]);
+			PolyphonyProfile profile = new PolyphonyProfile(sheet);
+			int[] notesPerStep = gcdSteppingNotesPerStep(sheet);
+			int gcd = sheet.getGCD();
+			for (int step = 0; step < notesPerStep.length; ++step) {
+				assertTrue(profile.getNotesAtTime(step * gcd) == notesPerStep[step]);
+			}
+		}
+	}
+
+	@Test
+	public void testProfileAndPeaks() {
+		// 34 held 0-1000, 36 hit 200-400, 38 hit 200-300 and again at 600-700, 34 re-hit at 600 while still held (ignored)
+		MusicSheet sheet = new MusicSheet("profile", 5);
+		sheet.addSlice(TestUtils.newSlice(0, 34, 1000));
+		MusicSlice slice = TestUtils.newSlice(200, 36, 200);
+		slice.addMusicNote(new MusicNote(38, 100));
+		sheet.addSlice(slice);
+		slice = TestUtils.newSlice(600, 38, 100);
+		slice.addMusicNote(new MusicNote(34, 5000));
+		sheet.addSlice(slice);
+
+		PolyphonyProfile profile = new PolyphonyProfile(sheet);
+		int[] expectedTimes = { 0, 200, 300, 400, 600, 700, 1000 };
+		int[] expectedNotes = { 1, 3, 2, 1, 2, 1, 0 };
+		assertTrue(profile.getNumChanges() == expectedTimes.length);
+		for (int x = 0; x < expectedTimes.length; ++x) {
+			assertTrue(profile.getChangeTime(x) == expectedTimes[x]);
+			assertTrue(profile.getNotesAt(x) == expectedNotes[x]);
+		}
+
+		assertTrue(profile.getMaxNotes() == 3);
+		assertTrue(profile.getNumPeaks() == 1);
+		assertTrue(profile.getPeakStart(0) == 200);
+		assertTrue(profile.getPeakEnd(0) == 300);
+
+		assertTrue(profile.getNotesAtTime(-1) == 0);
+		assertTrue(profile.getNotesAtTime(250) == 3);
+		assertTrue(profile.getNotesAtTime(300) == 2);
+		assertTrue(profile.getNotesAtTime(1000) == 0);
+	}
+
+	@Test
+	public void testReleaseAndRehitAtSameTime() {
+		// a key released at the same time it is hit again counts once, and leaves no gap in the profile
+		MusicSheet sheet = new MusicSheet("rehit", 2);
+		sheet.addSlice(TestUtils.newSlice(0, 34, 100));
+		sheet.addSlice(TestUtils.newSlice(100, 34, 100));
+		PolyphonyProfile profile = new PolyphonyProfile(sheet);
+		assertTrue(profile.getNumChanges() == 2);
+		assertTrue(profile.getNotesAt(0) == 1);
+		assertTrue(profile.getChangeTime(1) == 200);
+		assertTrue(profile.getNumPeaks() == 1);
+		assertTrue(profile.getPeakEnd(0) == 200);
+	}
+
+	@Test
+	public void testEmptySheet() {
+		PolyphonyProfile profile = new PolyphonyProfile(new MusicSheet("empty", 0));
+		assertTrue(profile.getMaxNotes() == 0);
+		assertTrue(profile.getNumChanges() == 0);
+		assertTrue(profile.getNumPeaks() == 0);
+		assertTrue(profile.getNotesAtTime(0) == 0);
+	}
+
+	@Test
+	public void testColumnarMatchesSheet() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		for (int x = 0; x < PATHS.length; ++x) {
+			PolyphonyProfile profile = new PolyphonyProfile(arw.loadAlcFile(PATHS[x]));
+			ColumnarMusicSheet columnar = arw.loadAlcFileColumnar(PATHS[x]);
+			PolyphonyProfile columnarProfile = new PolyphonyProfile(columnar);
+			assertTrue(profile.getNumChanges() == columnarProfile.getNumChanges());
+			for (int change = 0; change < profile.getNumChanges(); ++change) {
+				assertTrue(profile.getChangeTime(change) == columnarProfile.getChangeTime(change));
+				assertTrue(profile.getNotesAt(change) == columnarProfile.getNotesAt(change));
+			}
+			assertTrue(profile.getNumPeaks() == columnarProfile.getNumPeaks());
+		}
+	}
+
+	private int gcdSteppingMaxSimulHitsAndHolds(MusicSheet sheet) {
+		int maxNotes = 0;
+		int[] notesPerStep = gcdSteppingNotesPerStep(sheet);
+		for (int step = 0; step < notesPerStep.length; ++step) {
+			maxNotes = Math.max(maxNotes, notesPerStep[step]);
+		}
+		return maxNotes;
+	}
+
+	/**
+	 * The original AlcStatsUtils#getMaxSimulHitsAndHolds algorithm (walking the song one GCD interval at a time, the same way the PianoFeigner plays it),
+	 * kept as a reference for the sweep to be checked against. Returns the number of notes down at every step, up until the last slice is hit.
+	 */
+	private int[] gcdSteppingNotesPerStep(MusicSheet sheet) {
+		int delay = sheet.getGCD();
+		int numSteps = sheet.getSlice(sheet.getNumSlices()-1).getStartTime() / delay + 1;
+		int[] notesPerStep = new int[numSteps];
+		MusicSlice liveSlice = new MusicSlice(0);
+		int sliceIndex = 0;
+		int rollingTime = 0;
+
+		for (int step = 0; step < numSteps; ++step) {
+			MusicSlice currentSlice = sheet.getSlice(sliceIndex);
+			if (currentSlice.getStartTime() != rollingTime) {
+				currentSlice = new MusicSlice(rollingTime);
+			} else {
+				++sliceIndex;
+			}
+
+			MusicSlice newSlice = new MusicSlice(rollingTime);
+			Iterator<MusicNote> iter = liveSlice.getNotes().iterator();
+			while (iter.hasNext()) {
+				MusicNote note = iter.next();
+				note.feignerDecreaseRemainingDuration(delay);
+				if (note.feignerGetRemainingDuration() > 0) {
+					newSlice.getNotes().add(note);
+				}
+			}
+			iter = currentSlice.getNotes().iterator();
+			while (iter.hasNext()) {
+				MusicNote note = iter.next();
+				note.feignerInitRemainingDuration();
+				newSlice.addMusicNote(note);
+			}
+			liveSlice = newSlice;
+
+			notesPerStep[step] = liveSlice.getNotes().size();
+			rollingTime += delay;
+		}
+		return notesPerStep;
+	}
+}
@@ -0,0 +1,164 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Processors.AlcSliceStream;
+import Processors.FngWriter;
+import Processors.Hand;
+import Processors.ReleaseGapPass;
+import Utils.Constants;
+
+public class ReleaseGapPassTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\munashiki.alc";
+
+	@Test
+	public void testReleaseMovesAheadOfRehit() {
+		// cv 20.0 is released and hit again at 200 (and 500, which is already far enough apart), and cv 22.0 is hit 20ms after a 20ms note
+		MusicSheet sheet = new MusicSheet("rehit", 5);
+		addNote(sheet, 0, 20.0, 200);
+		addNote(sheet, 0, 22.0, 20);
+		addNote(sheet, 40, 22.0, 100);
+		addNote(sheet, 200, 20.0, 200);
+		addNote(sheet, 500, 20.0, 100);
+		ReleaseGapPass pass = new ReleaseGapPass(50, 10, ReleaseGapPass.OVERLAP_SPLIT);
+		List<String> lines = writeFng(sheet, pass);
+
+		assertTrue(lines.contains("150 FINGER 18 CV 20.0 1-RELEASE") && !lines.contains("200 FINGER 18 CV 20.0 1-RELEASE"));
+		assertTrue(lines.contains("200 FINGER 18 CV 20.0 2-HIT") && lines.contains("400 FINGER 18 CV 20.0 1-RELEASE"));
+		assertTrue(lines.contains("500 FINGER 18 CV 20.0 2-HIT"));
+		// the short note can only be cut down to the shortest hold, so its gap comes up short (and is reported)
+		assertTrue(lines.contains("010 FINGER 21 CV 22.0 1-RELEASE") && lines.contains("040 FINGER 21 CV 22.0 2-HIT"));
+		assertTrue(pass.getNumAdjustments(ReleaseGapPass.ADJUST_RELEASE_MOVED) == 2 && pass.getNumAdjustments(ReleaseGapPass.ADJUST_GAP_TOO_SHORT) == 1);
+		assertTrue(pass.getNumAdjustments() == 3 && pass.getReport().contains("release moved from 200 to 150"));
+		assertTrue(isInOrder(lines));
+	}
+
+	@Test
+	public void testOverlappingHolds() {
+		// like munashiki.alc's cv 34.0 - hit for 600, then hit again 400 in for 200, while it's still held
+		MusicSheet sheet = new MusicSheet("overlap", 2);
+		addNote(sheet, 0, 34.0, 600);
+		addNote(sheet, 400, 34.0, 200);
+
+		ReleaseGapPass split = new ReleaseGapPass(50, 10, ReleaseGapPass.OVERLAP_SPLIT);
+		List<String> lines = writeFng(sheet, split);
+		assertTrue(lines.size() == 4 && isInOrder(lines));
+		assertTrue(lines.get(0).equals("000 FINGER 42 CV 34.0 2-HIT") && lines.get(1).equals("350 FINGER 42 CV 34.0 1-RELEASE"));
+		assertTrue(lines.get(2).equals("400 FINGER 42 CV 34.0 2-HIT") && lines.get(3).equals("600 FINGER 42 CV 34.0 1-RELEASE"));
+		assertTrue(split.getNumAdjustments() == 1 && split.getAdjustmentType(0) == ReleaseGapPass.ADJUST_HOLD_SPLIT && split.getAdjustmentToTime(0) == 350);
+
+		ReleaseGapPass merge = new ReleaseGapPass(50, 10, ReleaseGapPass.OVERLAP_MERGE);
+		lines = writeFng(sheet, merge);
+		assertTrue(lines.size() == 2 && lines.get(0).equals("000 FINGER 42 CV 34.0 2-HIT") && lines.get(1).equals("600 FINGER 42 CV 34.0 1-RELEASE"));
+		assertTrue(merge.getNumAdjustments() == 1 && merge.getAdjustmentType(0) == ReleaseGapPass.ADJUST_HOLD_MERGED && merge.getAdjustmentTime(0) == 400);
+	}
+
+	@Test
+	public void testWholeSong() {
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+		List<String> original = writeFng(sheet, null);
+		ReleaseGapPass pass = new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT);
+		List<String> lines = writeFng(sheet, pass);
+		assertTrue(isInOrder(lines) && lines.size() == original.size()); // the two overlapping holds trade a duplicate release for one ahead of the re-hit
+		assertTrue(pass.getNumAdjustments(ReleaseGapPass.ADJUST_HOLD_SPLIT) == 2 && pass.getNumAdjustments(ReleaseGapPass.ADJUST_GAP_TOO_SHORT) == 0);
+
+		// every hit is still there, at its original time, and every finger is released at least the gap before it's hit again
+		List<String> originalHits = new ArrayList<String>();
+		for (String line : original) {
+			if (line.endsWith(Constants.INSTRUCT_HIT)) {
+				originalHits.add(line);
+			}
+		}
+		List<String> hits = new ArrayList<String>();
+		HashMap<String, Integer> releasedAt = new HashMap<String, Integer>();
+		HashMap<String, Boolean> isHeld = new HashMap<String, Boolean>();
+		int numMoved = 0;
+		for (String line : lines) {
+			String[] tokens = line.split(" ");
+			int time = Integer.parseInt(tokens[0]);
+			String finger = tokens[2];
+			if (line.endsWith(Constants.INSTRUCT_HIT)) {
+				hits.add(line);
+				assertTrue(!Boolean.TRUE.equals(isHeld.get(finger)));
+				assertTrue(!releasedAt.containsKey(finger) || time - releasedAt.get(finger) >= Constants.DEFAULT_RELEASE_GAP_MS);
+				isHeld.put(finger, true);
+			} else {
+				assertTrue(Boolean.TRUE.equals(isHeld.get(finger)));
+				isHeld.put(finger, false);
+				releasedAt.put(finger, time);
+				if (!original.contains(line)) {
+					++numMoved;
+				}
+			}
+		}
+		assertTrue(hits.equals(originalHits));
+		assertTrue(numMoved == pass.getNumAdjustments(ReleaseGapPass.ADJUST_RELEASE_MOVED) + pass.getNumAdjustments(ReleaseGapPass.ADJUST_HOLD_SPLIT));
+	}
+
+	@Test
+	public void testStreamMatchesSheet() {
+		try {
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			ReleaseGapPass pass = new ReleaseGapPass(Constants.DEFAULT_RELEASE_GAP_MS, Constants.DEFAULT_MIN_HOLD_MS, ReleaseGapPass.OVERLAP_SPLIT);
+			List<String> sheetLines = writeFng(sheet, pass);
+			int numAdjustments = pass.getNumAdjustments();
+			assertTrue(numAdjustments > 0);
+
+			// streaming the song applies the same pass, with the same adjustments
+			FngWriter fw = new FngWriter();
+			fw.setReleaseGapPass(pass);
+			File fng = File.createTempFile("ReleaseGapPassTests", ".fng");
+			assertTrue(fw.writeFngFromStream(hand, new AlcSliceStream(PATH), fng.getAbsolutePath()));
+			assertTrue(Files.readAllLines(fng.toPath()).equals(sheetLines));
+			assertTrue(pass.getNumAdjustments() == numAdjustments);
+			fng.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	private void addNote(MusicSheet sheet, int startTime, double compareValue, int duration) {
+		MusicSlice slice = new MusicSlice(startTime);
+		slice.addMusicNote(new MusicNote(compareValue, duration));
+		sheet.addSlice(slice);
+	}
+
+	private List<String> writeFng(MusicSheet sheet, ReleaseGapPass pass) {
+		try {
+			Hand hand = new Hand(TestUtils.loadProperties(0, 76), sheet);
+			FngWriter fw = new FngWriter();
+			fw.setReleaseGapPass(pass);
+			File fng = File.createTempFile("ReleaseGapPassTests", ".fng");
+			assertTrue(fw.writeFngFromSheet(hand, sheet, fng.getAbsolutePath()));
+			List<String> lines = Files.readAllLines(fng.toPath());
+			fng.delete();
+			return lines;
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+			return null;
+		}
+	}
+
+	private boolean isInOrder(List<String> lines) {
+		List<String> sorted = new ArrayList<String>(lines);
+		Collections.sort(sorted);
+		return sorted.equals(lines);
+	}
+}
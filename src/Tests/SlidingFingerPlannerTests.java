@@ -0,0 +1,194 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import DataObjs.PianoProperties;
+import Processors.AlcReaderWriter;
+import Processors.AlcSliceStream;
+import Processors.FngWriter;
+import Processors.Hand;
+import Processors.SlidingFingerPlanner;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class SlidingFingerPlannerTests {
+
+	private static final String PATH = ".\\sample musixcml\\for unit tests\\my confession.alc";
+
+	@Test
+	public void testEnoughFingersPlaysEverything() {
+		// two keys far apart, struck over and over: one finger stays on each
+		MusicSheet sheet = new MusicSheet("sliding", 20);
+		for (int x = 0; x < 10; ++x) {
+			sheet.addSlice(newSlice(x * 100, new int[] { 30, 60 }, 100));
+		}
+		SlidingFingerPlanner planner = new SlidingFingerPlanner(sheet, 2, 20, 80, 0.01);
+
+		assertTrue(planner.getNumUnplayable() == 0);
+		assertTrue(planner.getLostHoldTime() == 0);
+		assertTrue(planner.getTravel() == 0 && planner.getNumSlides() == 0);
+		assertTrue(planner.getStartKeyIndex(0) == 30 && planner.getStartKeyIndex(1) == 60);
+		for (int note = 0; note < planner.getNumNotes(); ++note) {
+			assertTrue(planner.getNoteFinger(note) == ((planner.getNoteKey(note) == 30) ? 0 : 1));
+			assertTrue(planner.getNoteRelease(note) == planner.getNoteStart(note) + 100);
+		}
+	}
+
+	@Test
+	public void testLostHoldAndUnplayable() {
+		// one finger: held on 30 from 0, needed on 32 at 500 (2 keys takes 200ms, so it lets go at 300),
+		// then a chord it can only hit one key of, then a key off the end of the piano
+		MusicSheet sheet = new MusicSheet("sliding", 5);
+		sheet.addSlice(newSlice(0, new int[] { 30 }, 1000));
+		sheet.addSlice(newSlice(500, new int[] { 32 }, 100));
+		sheet.addSlice(newSlice(2000, new int[] { 32, 33 }, 100));
+		sheet.addSlice(newSlice(3000, new int[] { 90 }, 100));
+		SlidingFingerPlanner planner = new SlidingFingerPlanner(sheet, 1, 20, 80, 0.01);
+
+		assertTrue(planner.getNumSlides() == 1);
+		assertTrue(planner.getSlideDepartTime(0) == 300 && planner.getSlideArriveTime(0) == 500);
+		assertTrue(planner.getSlideFromKey(0) == 30 && planner.getSlideToKey(0) == 32);
+		assertTrue(planner.getNoteRelease(0) == 300);
+		assertTrue(planner.getLostHoldTime() == 700);
+		assertTrue(planner.getTravel() == 2);
+		assertTrue(planner.getNumUnplayable() == 2);
+		assertTrue(planner.getNoteFinger(planner.getNoteAt(2000, 32)) == 0);
+		assertTrue(planner.getNoteFinger(planner.getNoteAt(2000, 33)) == -1);
+		assertTrue(planner.getNoteFinger(planner.getNoteAt(3000, 90)) == -1);
+		assertTrue(planner.getNoteAt(2000, 34) == -1);
+	}
+
+	@Test
+	public void testPlanFollowsTheRules() {
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+		double keysPerMs = 0.02;
+		for (int numFingers = 1; numFingers <= 6; ++numFingers) {
+			SlidingFingerPlanner planner = new SlidingFingerPlanner(sheet, numFingers, 10, 85, keysPerMs);
+			assertTrue(planner.getNumUnplayable() < planner.getNumNotes());
+
+			for (int slide = 0; slide < planner.getNumSlides(); ++slide) {
+				int distance = Math.abs(planner.getSlideToKey(slide) - planner.getSlideFromKey(slide));
+				assertTrue(planner.getSlideDepartTime(slide) >= 0);
+				assertTrue(planner.getSlideArriveTime(slide) - planner.getSlideDepartTime(slide) >= distance / keysPerMs - 0.0001);
+				assertTrue(slide == 0 || planner.getSlideDepartTime(slide) >= planner.getSlideDepartTime(slide - 1));
+			}
+
+			for (int note = 0; note < planner.getNumNotes(); ++note) {
+				int finger = planner.getNoteFinger(note);
+				if (finger == -1) {
+					continue;
+				}
+				// the finger is over the key when the note is struck, and doesn't slide away until it lets go
+				assertTrue(getPosition(planner, finger, planner.getNoteStart(note)) == planner.getNoteKey(note));
+				assertTrue(planner.getNoteRelease(note) > planner.getNoteStart(note));
+				for (int slide = 0; slide < planner.getNumSlides(); ++slide) {
+					int depart = planner.getSlideDepartTime(slide);
+					assertTrue(planner.getSlideFinger(slide) != finger || depart < planner.getNoteStart(note) || depart >= planner.getNoteRelease(note));
+				}
+			}
+
+			// fingers never cross (or share a key), checked every millisecond a finger is sliding
+			for (int slide = 0; slide < planner.getNumSlides(); ++slide) {
+				for (int time = planner.getSlideDepartTime(slide); time <= planner.getSlideArriveTime(slide); ++time) {
+					for (int finger = 1; finger < numFingers; ++finger) {
+						assertTrue(getPosition(planner, finger - 1, time) < getPosition(planner, finger, time));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMoreFingersNeverPlayWorse() {
+		// the beam on its own plays this song worse with 12 fingers than with 11
+		MusicSheet sheet = new AlcReaderWriter().loadAlcFile(".\\sample musixcml\\for unit tests\\munashiki.alc");
+		int lastUnplayable = Integer.MAX_VALUE;
+		for (int numFingers = 1; numFingers <= 12; ++numFingers) {
+			SlidingFingerPlanner planner = new SlidingFingerPlanner(sheet, numFingers, 10, 85, 0.01);
+			assertTrue(planner.getNumUnplayable() <= lastUnplayable);
+			lastUnplayable = planner.getNumUnplayable();
+		}
+	}
+
+	@Test
+	public void testSlidingFngFromStreamMatchesSheet() {
+		try {
+			PianoProperties properties = TestUtils.loadProperties(4, 0);
+
+			MusicSheet sheet = new AlcReaderWriter().loadAlcFile(PATH);
+			Hand hand = new Hand(properties, sheet);
+			assertTrue(hand.didInit());
+			assertTrue(hand.getNumFingers() == 4);
+			SlidingFingerPlanner planner = hand.getSlidingPlanner();
+			assertTrue(planner != null && planner.getNumSlides() > 0);
+
+			// the fingers record the plan, so they're over each note they hit when it is hit
+			for (int note = 0; note < planner.getNumNotes(); ++note) {
+				if (planner.getNoteFinger(note) != -1) {
+					assertTrue(hand.getFingerForKeyAtTime(planner.getNoteKey(note), planner.getNoteStart(note)).getKeyIndexAtTime(planner.getNoteStart(note)) == planner.getNoteKey(note));
+				}
+			}
+
+			FngWriter fw = new FngWriter();
+			File sheetFng = File.createTempFile("SlidingFingerPlannerTests", ".fng");
+			File streamFng = File.createTempFile("SlidingFingerPlannerTests", ".fng");
+			assertTrue(fw.writeFngFromSheet(hand, sheet, sheetFng.getAbsolutePath()));
+			assertTrue(fw.writeFngFromStream(hand, new AlcSliceStream(PATH), streamFng.getAbsolutePath()));
+			assertTrue(Arrays.equals(Files.readAllBytes(sheetFng.toPath()), Files.readAllBytes(streamFng.toPath())));
+
+			List<String> lines = Files.readAllLines(sheetFng.toPath());
+			int numSlides = 0;
+			for (int x = 0; x < lines.size(); ++x) {
+				if (lines.get(x).contains(" " + Constants.INSTRUCT_SLIDE + " ")) {
+					++numSlides;
+				}
+			}
+			assertTrue(numSlides == planner.getNumSlides());
+			assertTrue(lines.size() == numSlides + 2 * (planner.getNumNotes() - planner.getNumUnplayable()));
+
+			sheetFng.delete();
+			streamFng.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+		}
+	}
+
+	/**
+	 * Where the finger is at the time, sliding at full speed into each new key just as it is needed there
+	 */
+	private double getPosition(SlidingFingerPlanner planner, int finger, int time) {
+		double position = planner.getStartKeyIndex(finger);
+		for (int slide = 0; slide < planner.getNumSlides(); ++slide) {
+			if (planner.getSlideFinger(slide) != finger || planner.getSlideDepartTime(slide) > time) {
+				continue;
+			}
+			if (planner.getSlideArriveTime(slide) <= time) {
+				position = planner.getSlideToKey(slide);
+			} else {
+				double remaining = (planner.getSlideArriveTime(slide) - time) * planner.getKeysPerMs();
+				int direction = (planner.getSlideToKey(slide) > planner.getSlideFromKey(slide)) ? 1 : -1;
+				position = planner.getSlideToKey(slide) - direction * Math.min(remaining, Math.abs(planner.getSlideToKey(slide) - planner.getSlideFromKey(slide)));
+			}
+		}
+		return position;
+	}
+
+	private MusicSlice newSlice(int startTime, int[] keyIndices, int duration) {
+		MusicSlice slice = new MusicSlice(startTime);
+		for (int x = 0; x < keyIndices.length; ++x) {
+			slice.addMusicNote(new MusicNote(NoteUtils.getCompareValueForKeyIndex(keyIndices[x]), duration));
+		}
+		return slice;
+	}
+}
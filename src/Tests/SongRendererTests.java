@@ -0,0 +1,93 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Processors.SampleBank;
+import Processors.SongRenderer;
+import Utils.Constants;
+import Utils.NoteUtils;
+
+public class SongRendererTests {
+
+	@Test
+	public void testNotesStopAfterTheirDuration() {
+		SampleBank bank = SampleBank.getBank(Constants.VOICE_GRAND);
+		MusicSheet sheet = new MusicSheet("short note", 1);
+		MusicSlice slice = new MusicSlice(0);
+		slice.addMusicNote(new MusicNote(36, 100));
+		sheet.addSlice(slice);
+
+		// the .wav file is much longer than 100ms, so the note is cut off at 100ms and faded out
+		SongRenderer renderer = new SongRenderer(sheet, bank);
+		int expectedFrames = (int)(SampleBank.SAMPLE_RATE * (100 + SongRenderer.FADE_MS) / 1000);
+		assertTrue(bank.getNumFrames(NoteUtils.getKeyIndexForCompareValue(36)) > expectedFrames);
+		assertTrue(renderer.getNumFrames() == expectedFrames);
+		assertTrue(renderer.getNumSegments() == 1);
+	}
+
+	@Test
+	public void testRestrikeCutsOffEarlierNote() {
+		SampleBank bank = SampleBank.getBank(Constants.VOICE_GRAND);
+		MusicSheet sheet = new MusicSheet("restrike", 2);
+		MusicSlice slice = new MusicSlice(0);
+		slice.addMusicNote(new MusicNote(36, 5000));
+		sheet.addSlice(slice);
+		slice = new MusicSlice(100);
+		slice.addMusicNote(new MusicNote(36, 100));
+		sheet.addSlice(slice);
+
+		// the first strike would run 5 seconds, but the second strike takes over at 100ms and only lasts 100ms itself
+		SongRenderer renderer = new SongRenderer(sheet, bank);
+		assertTrue(renderer.getNumNotes() == 2);
+		assertTrue(renderer.getNumFrames() == (int)(SampleBank.SAMPLE_RATE * (200 + SongRenderer.FADE_MS) / 1000));
+	}
+
+	@Test
+	public void testParallelRenderMatchesSingleThread() {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		MusicSheet sheet = arw.loadAlcFile(".\\sample musixcml\\for unit tests\\munashiki-moreholds.alc");
+		SongRenderer renderer = new SongRenderer(sheet, SampleBank.getBank(Constants.VOICE_GRAND));
+		assertTrue(renderer.getNumSegments() > 4);
+
+		ByteArrayOutputStream single = new ByteArrayOutputStream();
+		assertTrue(renderer.render(single, 1));
+		ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		assertTrue(renderer.render(parallel, 4));
+		assertTrue(single.size() == renderer.getNumFrames() * SampleBank.CHANNELS * 2);
+		assertTrue(Arrays.equals(single.toByteArray(), parallel.toByteArray()));
+	}
+
+	@Test
+	public void testWavFileReadsBack() throws Exception {
+		MusicSheet sheet = new MusicSheet("wav", 1);
+		MusicSlice slice = new MusicSlice(50);
+		slice.addMusicNote(new MusicNote(36, 300));
+		slice.addMusicNote(new MusicNote(40, 200));
+		sheet.addSlice(slice);
+		SongRenderer renderer = new SongRenderer(sheet, SampleBank.getBank(Constants.VOICE_GRAND));
+
+		File wavFile = File.createTempFile("SongRendererTests", ".wav");
+		try {
+			assertTrue(renderer.writeWavFile(wavFile.getAbsolutePath(), 2));
+			AudioInputStream audioIn = AudioSystem.getAudioInputStream(wavFile);
+			assertTrue(audioIn.getFormat().matches(SampleBank.FORMAT));
+			assertTrue(audioIn.getFrameLength() == renderer.getNumFrames());
+			audioIn.close();
+		} finally {
+			wavFile.delete();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package Tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+
+import DataObjs.MusicNote;
+import DataObjs.MusicSlice;
+import DataObjs.PianoProperties;
+
+/**
+ * Fixtures shared by the unit tests
+ */
+public class TestUtils {
+
+	/**
+	 * Loads the properties of the standard 76 key piano (E1 to G7) used by the unit tests
+	 * @param numSlidingFingers number of sliding fingers the hand should have
+	 * @param numStaticFingers number of static fingers the hand should have
+	 * @return the loaded properties (the calling test fails if they don't load)
+	 */
+	public static PianoProperties loadProperties(int numSlidingFingers, int numStaticFingers) {
+		try {
+			File propertiesFile = File.createTempFile("TestUtils", ".txt");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(propertiesFile));
+			bw.write("TOTAL_NUM_KEYS [76]\nFIRST_NOTE [E]\nFIRST_OCTAVE [1]\nVOICE [GRAND]\nNUM_SLIDING_FINGERS [" + numSlidingFingers + "]\nNUM_STATIC_FINGERS [" +
+					 numStaticFingers + "]\nDISPLAY_PIANO_LETTERS [0]\n");
+			bw.close();
+			PianoProperties properties = new PianoProperties(propertiesFile.getAbsolutePath());
+			propertiesFile.delete();
+			assertTrue(properties.didLoad());
+			return properties;
+		} catch (Exception e) {
+			e.printStackTrace();
+			assertTrue(false);
+			return null;
+		}
+	}
+
+	/**
+	 * @param startTime time the slice starts at
+	 * @param compareValue compare value of the slice's only note
+	 * @param duration duration of the slice's only note
+	 * @return a slice holding a single note
+	 */
+	public static MusicSlice newSlice(int startTime, double compareValue, int duration) {
+		MusicSlice slice = new MusicSlice(startTime);
+		slice.addMusicNote(new MusicNote(compareValue, duration));
+		return slice;
+	}
+}
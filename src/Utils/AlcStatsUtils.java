@@ -5,17 +5,15 @@ import java.io.File;
 import java.io.FileWriter;
 import java.text.DecimalFormat;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.TreeSet;
 
-import DataObjs.MusicNote;
+import DataObjs.ColumnarMusicSheet;
 import DataObjs.MusicSheet;
 import DataObjs.MusicSlice;
+import Processors.AlcReaderWriter;
+import Processors.AlcSliceStream;
 
 public class AlcStatsUtils {
 	DecimalFormat decFmt;
-	MusicSlice liveSlice; // ripped from PianoFeigner and used solely for determining the max hits and holds that occur simultaneously
 	
 	public AlcStatsUtils() {
 		decFmt = new DecimalFormat("###.##");
@@ -27,6 +25,7 @@ public class AlcStatsUtils {
 		private int totalDuration;
 		
 		public NoteStats(double compareValue) {
+			this.compareValue = compareValue;
 			numTimesHit = 0;
 			totalDuration = 0;
 		}
@@ -75,6 +74,33 @@ public class AlcStatsUtils {
 		return wasSuccessful;
 	}
 	
+	/**
+	 * Loads the .alc (or .alcb) file at the given path, and returns a String containing the full detailed statistics for it.
+	 * The song is read into the lighter-weight ColumnarMusicSheet, unless it contains rests (which can't be stored as key indices in the columns),
+	 * in which case it is read into a full MusicSheet instead. Both produce the same stats.
+	 * @param alcFilePath filepath to the .alc or .alcb file to generate stats for
+	 * @param displayNonHitNotes if true, then stats will be printed out for compareValues that were never hit
+	 * @return A string containing all generated stats for the song, or null if the file couldn't be loaded
+	 */
+	public String getFullStats(String alcFilePath, boolean displayNonHitNotes) {
+		AlcReaderWriter arw = new AlcReaderWriter();
+		ColumnarMusicSheet columnarSheet = arw.loadAlcFileColumnar(alcFilePath);
+		if (columnarSheet != null) {
+			return getFullStats(columnarSheet, displayNonHitNotes);
+		}
+		if (!arw.didColumnarLoadFindRest()) {
+			return null; // the load already reported why it failed, and the full loader would just fail the same way
+		}
+		
+		System.out.println("AlcStatsUtils#getFullStats - the song could not be loaded into columns, so it will be loaded as a full MusicSheet instead: " + alcFilePath);
+		MusicSheet sheet = arw.loadAlcFile(alcFilePath);
+		if (sheet == null) {
+			System.out.println("AlcStatsUtils#getFullStats - error - failed to load the song at: " + alcFilePath);
+			return null;
+		}
+		return getFullStats(sheet, displayNonHitNotes);
+	}
+	
 	/**
 	 * Given a MusicSheet, will returning a String containing the full detailed statistics for it
 	 * @param sheet MusicSheet to generate stats for
@@ -82,6 +108,25 @@ public class AlcStatsUtils {
 	 * @return A string containing all generated stats for the MusicSheet
 	 */
 	public String getFullStats(MusicSheet sheet, boolean displayNonHitNotes) {
+		return formatFullStats(sheet.getInfoLine(), sheet.getNoteCount(), sheet.getEndTime(), sheet.getGCD(), getMaxSimulHits(sheet), getMaxSimulHitsAndHolds(sheet),
+							   generateKeyIndexStats(sheet), displayNonHitNotes);
+	}
+	
+	/**
+	 * Columnar version of getFullStats. Produces exactly the same output as getFullStats does for a MusicSheet of the same song.
+	 * @param sheet ColumnarMusicSheet to generate stats for
+	 * @param displayNonHitNotes if true, then stats will be printed out for compareValues that were never hit
+	 * @return A string containing all generated stats for the ColumnarMusicSheet
+	 */
+	public String getFullStats(ColumnarMusicSheet sheet, boolean displayNonHitNotes) {
+		return formatFullStats(sheet.getInfoLine(), sheet.getNoteCount(), sheet.getEndTime(), sheet.getGCD(), getMaxSimulHits(sheet), getMaxSimulHitsAndHolds(sheet),
+							   generateKeyIndexStats(sheet), displayNonHitNotes);
+	}
+	
+	/**
+	 * Builds the full stats String out of the already-computed values, so that every sheet representation reports its stats identically
+	 */
+	private String formatFullStats(String infoLine, int noteCount, int endTime, int gcd, int maxSimulHits, int maxSimulHitsAndHolds, NoteStats[] keyStats, boolean displayNonHitNotes) {
 		String results = "";
 		String noteResults = ""; // we build the notes' stats out in a separate string, that is appended to the headed (results) after we've processed all of the notes.
 								 // this is because we need time to count up total unique compare value hits and so on
@@ -91,17 +136,17 @@ public class AlcStatsUtils {
 		double lowestCompValHit = -1;
 		double highestCompValHit = -1;
 		
-		results += sheet.getInfoLine() + "\n";
-		results += "Note count: " + sheet.getNoteCount() + "\n"; // we don't need to total the NoteStats' getNumTimesHit() because it should equal this value already
-		results += "Runtime: " + sheet.getEndTime() + "ms\n";
-		results += "Time interval length (GCD): " + sheet.getGCD() + "ms\n";
-		results += "Max simultaneous note hits: " + getMaxSimulHits(sheet) + "\n";
-		results += "Max simultaneous note hits and holds: " + getMaxSimulHitsAndHolds(sheet) + "\n";
+		results += infoLine + "\n";
+		results += "Note count: " + noteCount + "\n"; // we don't need to total the NoteStats' getNumTimesHit() because it should equal this value already
+		results += "Runtime: " + endTime + "ms\n";
+		results += "Time interval length (GCD): " + gcd + "ms\n";
+		results += "Max simultaneous note hits: " + maxSimulHits + "\n";
+		results += "Max simultaneous note hits and holds: " + maxSimulHitsAndHolds + "\n";
 		
 		// Note: this for-loop explicitly skips compareValue 0, as there should not be any rest notes in an .alc file as robotic fingers can't take any action to hit them.
-		HashMap<Double, NoteStats> compValStats = generateCompValStats(sheet);
-		for (double x = Constants.MIN_THEORETICAL_COMPARE_VALUE; x <= Constants.MAX_THEORETICAL_COMPARE_VALUE; x = NoteUtils.getNextNoteCV(x)) {
-			NoteStats stats = compValStats.get(x);
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			double x = NoteUtils.getCompareValueForKeyIndex(keyIndex);
+			NoteStats stats = keyStats[keyIndex];
 			
 			if (stats.getNumTimesHit() != 0) {
 				++totalUniqueHits;
@@ -115,11 +160,10 @@ public class AlcStatsUtils {
 			
 			// if the note was hit, OR if the note was never hit but the flag is set to display non-hit notes anyway, then display stats for the note
 			if (stats.getNumTimesHit() != 0 || (stats.getNumTimesHit() == 0 && displayNonHitNotes)) {
-				MusicNote tempNote = new MusicNote(x, 1); // placeholder duration, we just want to grab the letter and octave
-				double percentHit = ((double)stats.getNumTimesHit() / (double)sheet.getNoteCount()) * 100;
+				double percentHit = ((double)stats.getNumTimesHit() / (double)noteCount) * 100;
 				
-				noteResults += "CompareValue " + x + " " + tempNote.getNote() + tempNote.getOctave();
-				if (x % 1.0 == 0.5) {
+				noteResults += "CompareValue " + x + " " + NoteUtils.getNoteForKeyIndex(keyIndex) + NoteUtils.getOctaveForKeyIndex(keyIndex);
+				if (NoteUtils.isSharpKeyIndex(keyIndex)) {
 					noteResults += " sharp";
 					++totalUniqueSharpsHit;
 				} else {
@@ -144,31 +188,105 @@ public class AlcStatsUtils {
 	/**
 	 * Returns a HashMap with keys representing compareValues, pointing to NoteStats objects as values.
 	 * A NoteStats object contains the statistics for a given compareValue (how many times they were hit, ...)
+	 * This is a convenience wrapper around generateKeyIndexStats, which is what should be used in any hot loops.
 	 * 
 	 * @return HashMap<Double,NoteStats> mapping stats objects to compareValues
 	 */
 	public HashMap<Double, NoteStats> generateCompValStats(MusicSheet sheet) {
-		HashMap<Double, NoteStats> compValStats = new HashMap<Double, NoteStats>();
+		return toCompValStats(generateKeyIndexStats(sheet));
+	}
+	
+	/**
+	 * Streaming version of generateCompValStats, for songs too large to load into a MusicSheet.
+	 * Consumes every slice in the stream, so the stream can't be reused afterwards.
+	 * 
+	 * @param stream AlcSliceStream that has not been read from yet
+	 * @return HashMap<Double,NoteStats> mapping stats objects to compareValues, or null if the stream failed its integrity checks
+	 */
+	public HashMap<Double, NoteStats> generateCompValStats(AlcSliceStream stream) {
+		NoteStats[] keyStats = generateKeyIndexStats(stream);
+		return (keyStats == null) ? null : toCompValStats(keyStats);
+	}
+	
+	/**
+	 * Returns an array of NoteStats indexed by half-step key index (see NoteUtils#getKeyIndexForCompareValue), with an entry for every key in the theoretical range.
+	 * A NoteStats object contains the statistics for a given key (how many times it was hit, ...)
+	 * 
+	 * @return NoteStats[] of length Constants.NUM_KEY_INDICES
+	 */
+	public NoteStats[] generateKeyIndexStats(MusicSheet sheet) {
+		NoteStats[] keyStats = createEmptyKeyIndexStats();
 		
-		// Populate the list with notes for every minimum / maximum compare value. We can exclude ranges later *if desired* (as in, out of range of piano, never hit, ...)
-		for (double x = Constants.MIN_THEORETICAL_COMPARE_VALUE; x <= Constants.MAX_THEORETICAL_COMPARE_VALUE; x = NoteUtils.getNextNoteCV(x)) {
-			NoteStats ns = new NoteStats(x);
-			compValStats.put(x, ns);
+		// Iterate through every slice's notes so we can see how many times notes were hit and for how long
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			addSliceToKeyIndexStats(keyStats, sheet.getSlice(x));
 		}
 		
-		// Iterate through every slice's notes so we can see how many times notes were hit and for how long
-		LinkedList<MusicSlice> slices = sheet.getSlices();
-		for (int x = 0; x < slices.size(); ++x) {
-			MusicSlice slice = slices.get(x);
-			TreeSet<MusicNote> notes = slice.getNotes();
-			Iterator<MusicNote> iter = notes.iterator();
-			while (iter.hasNext()) {
-				MusicNote note = iter.next();
-				NoteStats targetStats = compValStats.get(note.getCompareValue());
-				targetStats.hitNote(note.getDuration()); // this will both increment the hit counter, and add the duration to the total duration
-			}
+		return keyStats;
+	}
+	
+	/**
+	 * Streaming version of generateKeyIndexStats. Consumes every slice in the stream, so the stream can't be reused afterwards.
+	 * 
+	 * @param stream AlcSliceStream that has not been read from yet
+	 * @return NoteStats[] of length Constants.NUM_KEY_INDICES, or null if the stream failed its integrity checks
+	 */
+	public NoteStats[] generateKeyIndexStats(AlcSliceStream stream) {
+		NoteStats[] keyStats = createEmptyKeyIndexStats();
+		
+		while (stream.hasNext()) {
+			addSliceToKeyIndexStats(keyStats, stream.next());
 		}
 		
+		if (!stream.isValid()) {
+			System.out.println("AlcStatsUtils#generateKeyIndexStats - error - the streamed file failed its integrity checks. No stats will be returned.");
+			return null;
+		}
+		return keyStats;
+	}
+	
+	/**
+	 * Columnar version of generateKeyIndexStats - a single pass over the key and duration columns.
+	 * 
+	 * @param sheet ColumnarMusicSheet to generate stats for
+	 * @return NoteStats[] of length Constants.NUM_KEY_INDICES
+	 */
+	public NoteStats[] generateKeyIndexStats(ColumnarMusicSheet sheet) {
+		NoteStats[] keyStats = createEmptyKeyIndexStats();
+		
+		int numNotes = sheet.getNoteCount();
+		for (int note = 0; note < numNotes; ++note) {
+			keyStats[sheet.getKeyIndex(note)].hitNote(sheet.getDuration(note));
+		}
+		
+		return keyStats;
+	}
+	
+	/**
+	 * Populate the list with notes for every minimum / maximum compare value. We can exclude ranges later *if desired* (as in, out of range of piano, never hit, ...)
+	 */
+	private NoteStats[] createEmptyKeyIndexStats() {
+		NoteStats[] keyStats = new NoteStats[Constants.NUM_KEY_INDICES];
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			keyStats[keyIndex] = new NoteStats(NoteUtils.getCompareValueForKeyIndex(keyIndex));
+		}
+		return keyStats;
+	}
+	
+	/**
+	 * Records a hit for every note in the slice. Rests (which shouldn't be in an .alc file) are never hit, so they are skipped.
+	 */
+	private void addSliceToKeyIndexStats(NoteStats[] keyStats, MusicSlice slice) {
+		for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+			keyStats[keyIndex].hitNote(slice.getDurationForKey(keyIndex)); // this will both increment the hit counter, and add the duration to the total duration
+		}
+	}
+	
+	private HashMap<Double, NoteStats> toCompValStats(NoteStats[] keyStats) {
+		HashMap<Double, NoteStats> compValStats = new HashMap<Double, NoteStats>();
+		for (int keyIndex = 0; keyIndex < keyStats.length; ++keyIndex) {
+			compValStats.put(NoteUtils.getCompareValueForKeyIndex(keyIndex), keyStats[keyIndex]);
+		}
 		return compValStats;
 	}
 	
@@ -180,15 +298,47 @@ public class AlcStatsUtils {
 	 * @return
 	 */
 	public int getMaxSimulHits(MusicSheet sheet) {
+		// Since this is coming from an .alc file, there shouldn't be any rests, so the sheet's count of the most notes in any one slice can be used as-is.
+		// While legacy .alc files used to have rests, any old .alc files I've had have since been regenerated without them.
+		return sheet.getMaxSimulHits();
+	}
+	
+	/**
+	 * Streaming version of getMaxSimulHits, for songs too large to load into a MusicSheet.
+	 * Consumes every slice in the stream, so the stream can't be reused afterwards.
+	 * 
+	 * @param stream AlcSliceStream that has not been read from yet
+	 * @return the max number of notes hit in any one slice, or -1 if the stream failed its integrity checks
+	 */
+	public int getMaxSimulHits(AlcSliceStream stream) {
 		int maxNotes = 0;
 		
-		// Just walk through each slice and keep track of the highest count of notes in an individual slice
-		LinkedList<MusicSlice> slices = sheet.getSlices();
-		for (int x = 0; x < slices.size(); ++x) {
-			
-			// Since this is coming from an .alc file, there shouldn't be any rests, so we can safely just get the size() of the collection.
-			// While legacy .alc files used to have rests, any old .alc files I've had have since been regenerated without them.
-			int notesHit = slices.get(x).getNotes().size();
+		while (stream.hasNext()) {
+			int notesHit = stream.next().getNumNotes();
+			if (notesHit > maxNotes) {
+				maxNotes = notesHit;
+			}
+		}
+		
+		if (!stream.isValid()) {
+			System.out.println("AlcStatsUtils#getMaxSimulHits - error - the streamed file failed its integrity checks. No stats will be returned.");
+			return -1;
+		}
+		return maxNotes;
+	}
+	
+	/**
+	 * Columnar version of getMaxSimulHits. The note count of each slice is just the gap between its offset and the next slice's.
+	 * 
+	 * @param sheet ColumnarMusicSheet to check
+	 * @return the max number of notes hit in any one slice
+	 */
+	public int getMaxSimulHits(ColumnarMusicSheet sheet) {
+		int maxNotes = 0;
+		
+		int numSlices = sheet.getNumSlices();
+		for (int slice = 0; slice < numSlices; ++slice) {
+			int notesHit = sheet.getEndNote(slice) - sheet.getFirstNote(slice);
 			if (notesHit > maxNotes) {
 				maxNotes = notesHit;
 			}
@@ -209,80 +359,25 @@ public class AlcStatsUtils {
 	 * However, if we need to continue supplying power to fingers to keep them holding down a note, and not just to toggle their current position, then we'd in fact need to power 8 fingers.
 	 * 
 	 * Thus, both getMaxSimulHits and getMaxSimulHitsAndHolds both exist.
+	 * The FingerPowerSimulator goes a step further, and works out the current actually drawn for a given model of finger (see FingerPowerModel).
 	 * 
 	 * @param sheet
 	 * @return
 	 */
 	public int getMaxSimulHitsAndHolds(MusicSheet sheet) {
-		int maxNotes = 0;
-		
-		liveSlice = new MusicSlice(0);
-		int sliceIndex = 0;
-		int rollingTime = 0;
-		
-		int delay = sheet.getGCD();
-		
-		// This is going to get ugly.
-		// Basically, we're going to walk through the song using the GCD, and keep track of notes' durations, to see how many holds and hits occur simultaneously.
-		// Almost all of this code is ripped straight from the PianoFeigner's code to play the song, minus the waits and sound files.
-
-		LinkedList<MusicSlice> slices = sheet.getSlices();
-		while (sliceIndex < slices.size()) {
-			MusicSlice currentSlice = slices.get(sliceIndex);
-			
-			if (currentSlice.getStartTime() != rollingTime) {
-				// while this is the next MusicSlice we need to play, it is NOT time to play it yet. so do nothing and wait for the next loop.
-				// we'll send an empty MusicSlice, so the LiveSlice will update as needed and remove expired Notes from the collection.
-				setHitNotes(new MusicSlice(rollingTime), delay, rollingTime);
-			} else {
-				++sliceIndex;
-				setHitNotes(currentSlice, delay, rollingTime);
-			}
-			
-			int currentNotes = liveSlice.getNotes().size();
-			if (currentNotes > maxNotes) {
-				maxNotes = currentNotes;
-			}
-			
-			rollingTime += delay;
-		}
-		
-		return maxNotes;
+		// This used to walk through the song one GCD interval at a time, replaying it the same way the PianoFeigner does.
+		// The sheet now keeps it up to date as slices are added, holding notes the same way the PolyphonyProfile's sweep does, so this is a lookup.
+		return sheet.getMaxSimulHitsAndHolds();
 	}
 	
 	/**
-	 * Note: this is largely ripped STRAIGHT from the PianoFeigner
-	 * See PianoFeigner#setHitNotes for more details.
+	 * Columnar version of getMaxSimulHitsAndHolds
+	 * 
+	 * @param sheet ColumnarMusicSheet to check
+	 * @return the max number of notes being hit or held at any one time
 	 */
-	private void setHitNotes(MusicSlice currentSlice, int duration, int startTime) {
-		MusicSlice newSlice = new MusicSlice(startTime); // this will store the new notes to display in the gui
-		
-		// check for expired previous notes
-		if (liveSlice.getNotes() != null) {
-			Iterator<MusicNote> iter = liveSlice.getNotes().iterator();
-			while (iter.hasNext()) {
-				MusicNote note = iter.next();
-				note.feignerDecreaseRemainingDuration(duration);
-				if (note.feignerGetRemainingDuration() > 0) {
-					// only notes that have remaining duration can be kept
-					//newSlice.addMusicNote(note); // we don't check the returned success boolean flag, because we take no action if it were to fail as a duplicate
-					
-					newSlice.getNotes().add(note);
-					// We are doing getNotes().add() instead of calling MusicSlice#addMusicNote(), because the liveSlice will log duplicates if they exist
-					// and I don't want those interfering with the rest of the statistics reporting.
-				}
-			}
-		}
-		
-		// add the new notes to display as hit
-		Iterator<MusicNote> iter = currentSlice.getNotes().iterator();
-		while (iter.hasNext()) {
-			MusicNote note = iter.next();
-			note.feignerInitRemainingDuration();
-			newSlice.addMusicNote(note);
-		}
-		
-		liveSlice = newSlice;
+	public int getMaxSimulHitsAndHolds(ColumnarMusicSheet sheet) {
+		return new PolyphonyProfile(new NoteIntervalIndex(sheet)).getMaxNotes();
 	}
 	
 	
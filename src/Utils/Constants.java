@@ -38,6 +38,10 @@ public class Constants {
 	
 	// the length of an octave (in white keys)
 	final public static int OCTAVE_LENGTH = 7;
+	// the length of an octave (in half-steps, white and black keys)
+	final public static int SEMITONES_PER_OCTAVE = 12;
+	// the number of half-step key indices from C on octave 0 through B on octave 10 (see NoteUtils#getKeyIndexForCompareValue)
+	final public static int NUM_KEY_INDICES = 132;
 	
 	// string representations of each note
 	final public static String NOTE_C = "C"; // start of an octave
@@ -132,6 +136,8 @@ public class Constants {
 	public static final String STR_FINGER_IMPL_GUI_ONLY = "GUI ONLY IMPLEMENTATION";
 	public static final int FINGER_IMPL_UNSUPPORTED = -1;
 	public static final String STR_FINGER_IMPL_UNSUPPORTED = "UNSUPPORTED IMPLEMENTATION";
+	// how fast sliding fingers can move, in keys (key indices) per millisecond. From the "piano bot notes" estimate of ~0.10 seconds to slide over to an adjacent key
+	public static final double SLIDING_FINGER_KEYS_PER_MS = 0.01;
 	
 	// AlcAlterer options
 	public static final String BPM_OPTION = "BPM";
@@ -143,6 +149,13 @@ public class Constants {
 	public static final String MINIMIZE_OPTION = "MINIMIZE";
 	public static final String WIGGLE_OPTION = "WIGGLE";
 	
+	// AlcReaderWriter constants
+	// .alcb (binary .alc) files start with these magic bytes, followed by the format version
+	public static final byte[] ALCB_MAGIC = { 'A', 'L', 'C', 'B' };
+	public static final int ALCB_VERSION = 1;
+	// key index byte used to store a rest note in an .alcb file (rests shouldn't be in .alc files anymore, but legacy files may have them)
+	public static final int ALCB_REST_KEY_INDEX = 0xFF;
+	
 	// FngWriter constants
 	// directions
 	public static final int DIR_BACKWARD = 1;
@@ -150,5 +163,59 @@ public class Constants {
 	// instructions (the number before the command is an order of operation, that is, releasing a note takes priority over pressing it
 	public static final String INSTRUCT_RELEASE = "1-RELEASE";
 	public static final String INSTRUCT_HIT = "2-HIT";
+	// sliding instructions come after a finger's release / hit instructions at the same timestamp (the finger lets go of its key before it slides)
+	public static final String INSTRUCT_SLIDE = "SLIDE";
+	// instruction action codes, used when instructions are handled as primitive events (and stored in the low bits of each .fngb instruction's time delta)
+	public static final int ACTION_RELEASE = 0;
+	public static final int ACTION_HIT = 1;
+	public static final int ACTION_SLIDE = 2;
+	// ReleaseGapPass defaults: the least time a finger gets between releasing a key and hitting it again, and the least a key is held when its release is moved earlier
+	public static final int DEFAULT_RELEASE_GAP_MS = 50;
+	public static final int DEFAULT_MIN_HOLD_MS = 10;
+	// .fngb (binary .fng) files start with these magic bytes, followed by the format version
+	public static final byte[] FNGB_MAGIC = { 'F', 'N', 'G', 'B' };
+	public static final int FNGB_VERSION = 1;
+	// the serial link to the arduino, and the bits it takes to send each byte over it (8 data bits, plus a start and a stop bit)
+	public static final int ARDUINO_BAUD_RATE = 115200;
+	public static final int SERIAL_BITS_PER_BYTE = 10;
+	
+	// ArduinoSketchWriter constants
+	// boards a sketch can be generated for: flash available to the sketch (after the bootloader), ram, and number of digital pins
+	public static final String[] ARDUINO_BOARD_NAMES = { "UNO", "MEGA" };
+	public static final int[] ARDUINO_BOARD_FLASH_BYTES = { 32256, 253952 };
+	public static final int[] ARDUINO_BOARD_RAM_BYTES = { 2048, 8192 };
+	public static final int[] ARDUINO_BOARD_NUM_PINS = { 20, 70 };
+	
+	// FngStreamSender constants
+	// a batch of instructions streamed to the arduino: sync byte, number of instructions (1 byte), time of the first instruction (4 bytes),
+	// the instructions in the .fngb encoding (each time delta is from the instruction before it, starting from the batch's time), then a checksum byte (xor of every byte after the sync byte)
+	public static final int STREAM_BATCH_SYNC = 0xA5;
+	public static final int STREAM_MAX_BATCH_SIZE = 255;
+	// credits sent back by the arduino: sync byte, then the number of instruction slots it has freed up (1 byte)
+	public static final int STREAM_CREDIT_SYNC = 0xC3;
+	// bytes an instruction takes up in the arduino's instruction buffer: 4 byte time, finger, key index, action
+	public static final int STREAM_SLOT_BYTES = 7;
+	
+	// FingerPowerModel constants
+	// settings in a power model file, in the same "SETTING [value]" form as the piano properties file. Any left out keep their defaults.
+	public static final String POWER_HIT_CURRENT_MA = "HIT_CURRENT_MA";
+	public static final String POWER_HIT_PULSE_MS = "HIT_PULSE_MS";
+	public static final String POWER_HOLD_CURRENT_MA = "HOLD_CURRENT_MA";
+	public static final String POWER_RELEASE_CURRENT_MA = "RELEASE_CURRENT_MA";
+	public static final String POWER_RELEASE_PULSE_MS = "RELEASE_PULSE_MS";
+	public static final String POWER_SLIDE_CURRENT_MA = "SLIDE_CURRENT_MA";
+	public static final String POWER_SLIDE_PULSE_MS = "SLIDE_PULSE_MS";
+	public static final String POWER_RATED_CURRENT_MA = "RATED_CURRENT_MA";
+	public static final String POWER_THERMAL_TIME_CONSTANT_MS = "THERMAL_TIME_CONSTANT_MS";
+	// defaults, for a small 12v push solenoid that is pulled in at full current, then held at a lower (pwm) current. Placeholders until the fingers' hardware is picked.
+	public static final int DEFAULT_HIT_CURRENT_MA = 1000;
+	public static final int DEFAULT_HIT_PULSE_MS = 30;
+	public static final int DEFAULT_HOLD_CURRENT_MA = 250;
+	public static final int DEFAULT_RELEASE_CURRENT_MA = 0;
+	public static final int DEFAULT_RELEASE_PULSE_MS = 0;
+	public static final int DEFAULT_SLIDE_CURRENT_MA = 0;
+	public static final int DEFAULT_SLIDE_PULSE_MS = 0;
+	public static final int DEFAULT_RATED_CURRENT_MA = 400;
+	public static final int DEFAULT_THERMAL_TIME_CONSTANT_MS = 30000;
 	
 }
@@ -0,0 +1,270 @@
+package Utils;
+
+import java.util.Arrays;
+
+import DataObjs.ColumnarMusicSheet;
+import DataObjs.MusicSheet;
+import DataObjs.MusicSlice;
+
+/**
+ * Every note in a song as an interval of time (start, end, key), indexed so that "what is sounding at time t" can be answered directly for any t,
+ * without stepping through the song from the beginning. This is what seeking (jumping to any point in a song) needs.
+ *
+ * Notes are held the same way the PianoFeigner holds them (and the same way PlaybackSchedule and PolyphonyProfile treat them):
+ * a note is held from its slice's start time until its duration runs out, and hitting a key that is still being held doesn't change anything.
+ * A strike like that is still in the index (it is still a note starting at that time), but it holds nothing - its end is the same as its start.
+ * Rests aren't key presses, so they're left out.
+ *
+ * Queries:
+ * - which notes are held at a time: O(log n + k) for k held notes, using an interval tree laid over the notes sorted by start time
+ *   (node = middle of a range of notes, holding the latest end time of any note in its range, so whole ranges that ended before the time are skipped)
+ * - which notes start within a window of time: O(log n) binary search, since the notes are sorted by start time
+ * - the next time any key is pressed or released after a time: O(log n) binary search over every press and release time
+ *
+ * The index never changes once it is built, so it is safe to read from multiple threads.
+ * The PianoFeigner uses it to find the notes still sounding at a point that playback jumps to, and the PolyphonyProfile (and so the stats) sweeps over its intervals.
+ */
+public class NoteIntervalIndex {
+	private int[] noteStarts; // sorted
+	private int[] noteEnds; // when the note stops being held. the same as its start if it didn't hold anything
+	private int[] noteDurations; // the note's duration as written in the song
+	private int[] noteKeys;
+	private int numNotes;
+	private int[] maxEnds; // the interval tree - latest end time of any note in the range that the note at this index is the middle of
+	private int[] changeTimes; // every distinct press and release time, sorted
+	private int endTime;
+
+	/**
+	 * Builds the index for a MusicSheet
+	 * @param sheet MusicSheet to index
+	 */
+	public NoteIntervalIndex(MusicSheet sheet) {
+		startBuild(sheet.getNoteCount());
+		int[] heldUntil = new int[Constants.NUM_KEY_INDICES];
+		for (int x = 0; x < sheet.getNumSlices(); ++x) {
+			MusicSlice slice = sheet.getSlice(x);
+			for (int keyIndex = slice.nextKeyIndex(0); keyIndex != -1; keyIndex = slice.nextKeyIndex(keyIndex + 1)) {
+				addNote(slice.getStartTime(), slice.getDurationForKey(keyIndex), keyIndex, heldUntil);
+			}
+		}
+		finishBuild();
+	}
+
+	/**
+	 * Builds the index for a ColumnarMusicSheet
+	 * @param sheet ColumnarMusicSheet to index
+	 */
+	public NoteIntervalIndex(ColumnarMusicSheet sheet) {
+		startBuild(sheet.getNoteCount());
+		int[] heldUntil = new int[Constants.NUM_KEY_INDICES];
+		for (int slice = 0; slice < sheet.getNumSlices(); ++slice) {
+			for (int note = sheet.getFirstNote(slice); note < sheet.getEndNote(slice); ++note) {
+				addNote(sheet.getStartTime(slice), sheet.getDuration(note), sheet.getKeyIndex(note), heldUntil);
+			}
+		}
+		finishBuild();
+	}
+
+	private void startBuild(int noteCount) {
+		noteStarts = new int[noteCount];
+		noteEnds = new int[noteCount];
+		noteDurations = new int[noteCount];
+		noteKeys = new int[noteCount];
+		numNotes = 0;
+	}
+
+	/**
+	 * Notes have to be added in start time order (which slices already are)
+	 */
+	private void addNote(int startTime, int duration, int keyIndex, int[] heldUntil) {
+		if (numNotes == noteStarts.length) {
+			int capacity = Math.max(numNotes * 2, 16);
+			noteStarts = Arrays.copyOf(noteStarts, capacity);
+			noteEnds = Arrays.copyOf(noteEnds, capacity);
+			noteDurations = Arrays.copyOf(noteDurations, capacity);
+			noteKeys = Arrays.copyOf(noteKeys, capacity);
+		}
+		// a key released at the same time it is struck again is struck again (releases happen first)
+		int end = (startTime < heldUntil[keyIndex]) ? startTime : startTime + duration;
+		heldUntil[keyIndex] = Math.max(heldUntil[keyIndex], end);
+		noteStarts[numNotes] = startTime;
+		noteEnds[numNotes] = end;
+		noteDurations[numNotes] = duration;
+		noteKeys[numNotes] = keyIndex;
+		++numNotes;
+	}
+
+	private void finishBuild() {
+		noteStarts = Arrays.copyOf(noteStarts, numNotes);
+		noteEnds = Arrays.copyOf(noteEnds, numNotes);
+		noteDurations = Arrays.copyOf(noteDurations, numNotes);
+		noteKeys = Arrays.copyOf(noteKeys, numNotes);
+
+		maxEnds = new int[numNotes];
+		buildTree(0, numNotes);
+
+		// every press and release of a note that actually held its key
+		changeTimes = new int[numNotes * 2];
+		int numTimes = 0;
+		endTime = 0;
+		for (int note = 0; note < numNotes; ++note) {
+			if (noteEnds[note] > noteStarts[note]) {
+				changeTimes[numTimes++] = noteStarts[note];
+				changeTimes[numTimes++] = noteEnds[note];
+				endTime = Math.max(endTime, noteEnds[note]);
+			}
+		}
+		Arrays.sort(changeTimes, 0, numTimes);
+		int numDistinct = 0;
+		for (int x = 0; x < numTimes; ++x) {
+			if (numDistinct == 0 || changeTimes[x] != changeTimes[numDistinct - 1]) {
+				changeTimes[numDistinct++] = changeTimes[x];
+			}
+		}
+		changeTimes = Arrays.copyOf(changeTimes, numDistinct);
+	}
+
+	/**
+	 * @return the latest end time of any note in [low, high)
+	 */
+	private int buildTree(int low, int high) {
+		if (low >= high) {
+			return Integer.MIN_VALUE;
+		}
+		int mid = (low + high) >>> 1;
+		maxEnds[mid] = Math.max(noteEnds[mid], Math.max(buildTree(low, mid), buildTree(mid + 1, high)));
+		return maxEnds[mid];
+	}
+
+	/**
+	 * Finds every note being held at the given time (pressed at or before it, and released after it)
+	 * @param time time in milliseconds from the start of the song
+	 * @param notes filled in with the index of every note being held, in start time order. Only one note can hold a key at a time,
+	 *              so it never needs to be longer than Constants.NUM_KEY_INDICES
+	 * @return the number of notes being held
+	 */
+	public int getHeldNotes(int time, int[] notes) {
+		return findHeld(0, numNotes, time, notes, 0);
+	}
+
+	private int findHeld(int low, int high, int time, int[] notes, int count) {
+		if (low >= high) {
+			return count;
+		}
+		int mid = (low + high) >>> 1;
+		if (maxEnds[mid] <= time) {
+			return count; // everything in this range was released by the time
+		}
+		count = findHeld(low, mid, time, notes, count);
+		if (noteStarts[mid] > time) {
+			return count; // everything after mid starts after the time
+		}
+		if (noteEnds[mid] > time) {
+			notes[count++] = mid;
+		}
+		return findHeld(mid + 1, high, time, notes, count);
+	}
+
+	/**
+	 * @param time time in milliseconds from the start of the song
+	 * @param keyMask filled in with a bit for every key being held at the time, indexed by key index (bit keyIndex % 64 of keyMask[keyIndex / 64]).
+	 *                Must have room for Constants.NUM_KEY_INDICES bits.
+	 * @return the number of keys being held
+	 */
+	public int getHeldKeys(int time, long[] keyMask) {
+		Arrays.fill(keyMask, 0);
+		int[] notes = new int[Constants.NUM_KEY_INDICES];
+		int count = getHeldNotes(time, notes);
+		for (int x = 0; x < count; ++x) {
+			keyMask[noteKeys[notes[x]] >>> 6] |= 1L << (noteKeys[notes[x]] & 63);
+		}
+		return count;
+	}
+
+	/**
+	 * @param time time in milliseconds from the start of the song
+	 * @return the index of the first note that starts at or after the time, or getNumNotes() if none do.
+	 *         Notes starting within a window of time are every note from here up to getFirstNoteAtOrAfter(end of the window).
+	 */
+	public int getFirstNoteAtOrAfter(int time) {
+		int low = 0;
+		int high = numNotes;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (noteStarts[mid] < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param from start of the window, in milliseconds from the start of the song (inclusive)
+	 * @param to end of the window, in milliseconds from the start of the song (exclusive)
+	 * @return the number of notes struck within the window
+	 */
+	public int getNumNotesStartingIn(int from, int to) {
+		if (to <= from) {
+			return 0;
+		}
+		return getFirstNoteAtOrAfter(to) - getFirstNoteAtOrAfter(from);
+	}
+
+	/**
+	 * @param time time in milliseconds from the start of the song
+	 * @return the next time after the given time that any key is pressed or released, or -1 if nothing changes after it
+	 */
+	public int getNextChangeAfter(int time) {
+		int pos = Arrays.binarySearch(changeTimes, time);
+		pos = (pos < 0) ? -pos - 1 : pos + 1;
+		return (pos < changeTimes.length) ? changeTimes[pos] : -1;
+	}
+
+	/**
+	 * @return the number of notes in the index
+	 */
+	public int getNumNotes() {
+		return numNotes;
+	}
+
+	/**
+	 * @param note index of the note (notes are sorted by start time, then by key index)
+	 * @return the time the note is struck at
+	 */
+	public int getNoteStart(int note) {
+		return noteStarts[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return the time the note stops being held. The same as its start time if its key was already being held when it was struck.
+	 */
+	public int getNoteEnd(int note) {
+		return noteEnds[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return the note's duration, as written in the song
+	 */
+	public int getNoteDuration(int note) {
+		return noteDurations[note];
+	}
+
+	/**
+	 * @param note index of the note
+	 * @return the note's key index
+	 */
+	public int getNoteKey(int note) {
+		return noteKeys[note];
+	}
+
+	/**
+	 * @return the time the last held note is released
+	 */
+	public int getEndTime() {
+		return endTime;
+	}
+}
@@ -1,5 +1,7 @@
 package Utils;
 
+import java.util.Arrays;
+
 import DataObjs.PianoProperties;
 
 public class NoteUtils {
@@ -208,6 +210,12 @@ public class NoteUtils {
 	public static double getNextNoteCV(double compareVal) {
 		double nextCompVal = -1;
 		
+		// any valid key below the theoretical max can just step to the next key index
+		int keyIndex = getKeyIndexForCompareValue(compareVal);
+		if (keyIndex != -1 && keyIndex + 1 < Constants.NUM_KEY_INDICES) {
+			return KEY_INDEX_TO_COMPARE_VALUE[keyIndex + 1];
+		}
+		
 		// since generating the compare value simply follows a pattern of seeing what letter note we're on and what the next letter note is,
 		// we don't really need to do bounds checking on the input value other than making sure it isn't negative / 0
 		if (compareVal <= Constants.REST_COMP_VALUE) {
@@ -251,6 +259,12 @@ public class NoteUtils {
 	public static double getPrevNoteCV(double compareVal) {
 		double prevCompVal = -1;
 		
+		// any valid key above the theoretical min can just step to the previous key index
+		int keyIndex = getKeyIndexForCompareValue(compareVal);
+		if (keyIndex > 0) {
+			return KEY_INDEX_TO_COMPARE_VALUE[keyIndex - 1];
+		}
+		
 		// ensure we have a valid compareValue to work with (larger than the theoretical minimum key)
 		if (compareVal <= Constants.MIN_THEORETICAL_COMPARE_VALUE) {
 			System.out.println("NoteUtils#getNextNoteCV - error - invalid compare value supplied to generate the previous note from. Value is too low. Supplied compareVal: " + compareVal);
@@ -366,4 +380,81 @@ public class NoteUtils {
 
 		return result;
 	}
+	
+	/**
+	 * Given a compareValue, returns its half-step key index: (octave * 12) + the note's half-step position within the octave (C=0, C sharp=1, D=2, ... B=11).
+	 * This lines up with MIDI note numbering (shifted down one octave, since our octaves start at 0), so every piano key maps to a unique small integer,
+	 * which is handy for compact storage (such as a single byte in an .alcb file).
+	 * Flats don't need special handling - a D flat has the same compareValue as a C sharp, so they share a key index.
+	 * @param compareVal the compareValue to convert
+	 * @return the half-step key index (0 for C on octave 0, up to 131 for B on octave 10), or -1 if the compareValue is a rest or invalid (such as an E sharp)
+	 */
+	public static int getKeyIndexForCompareValue(double compareVal) {
+		// double the compareValue so every half-step is a whole number. anything that still isn't a whole number is not a valid key.
+		double doubled = compareVal * 2;
+		int doubledIndex = (int)doubled;
+		if (doubledIndex != doubled || doubledIndex < 0 || doubledIndex >= DOUBLED_COMPARE_VALUE_TO_KEY_INDEX.length) {
+			return -1;
+		}
+		return DOUBLED_COMPARE_VALUE_TO_KEY_INDEX[doubledIndex];
+	}
+	
+	/**
+	 * The opposite of getKeyIndexForCompareValue - converts a half-step key index back into a compareValue.
+	 * @param keyIndex the half-step key index (0 for C on octave 0, up to 131 for B on octave 10)
+	 * @return the compareValue for the key index, or -1 if the key index is out of range
+	 */
+	public static double getCompareValueForKeyIndex(int keyIndex) {
+		if (keyIndex < 0 || keyIndex >= Constants.NUM_KEY_INDICES) {
+			return -1;
+		}
+		return KEY_INDEX_TO_COMPARE_VALUE[keyIndex];
+	}
+	
+	/**
+	 * @param keyIndex a valid half-step key index (0 to 131)
+	 * @return the note letter (C,D,E,F,G,A,B) of the key. Sharps return the letter they are a sharp of (so C sharp returns C).
+	 */
+	public static String getNoteForKeyIndex(int keyIndex) {
+		return SEMITONE_TO_NOTE[keyIndex % Constants.SEMITONES_PER_OCTAVE];
+	}
+	
+	/**
+	 * @param keyIndex a valid half-step key index (0 to 131)
+	 * @return the octave (0-10) the key is in
+	 */
+	public static int getOctaveForKeyIndex(int keyIndex) {
+		return keyIndex / Constants.SEMITONES_PER_OCTAVE;
+	}
+	
+	/**
+	 * @param keyIndex a valid half-step key index (0 to 131)
+	 * @return true if the key is a sharp (a black key), false otherwise
+	 */
+	public static boolean isSharpKeyIndex(int keyIndex) {
+		return SEMITONE_IS_SHARP[keyIndex % Constants.SEMITONES_PER_OCTAVE];
+	}
+	
+	// Lookups from a note's half-step position within an octave (C=0, C sharp=1, ... B=11) to its compareValue position, note letter, and whether it is a sharp
+	private static final double[] SEMITONE_TO_OCTAVE_POSITION = { Constants.C_POS, Constants.C_SHARP_POS, Constants.D_POS, Constants.D_SHARP_POS, Constants.E_POS,
+																  Constants.F_POS, Constants.F_SHARP_POS, Constants.G_POS, Constants.G_SHARP_POS, Constants.A_POS,
+																  Constants.A_SHARP_POS, Constants.B_POS };
+	private static final String[] SEMITONE_TO_NOTE = { Constants.NOTE_C, Constants.NOTE_C, Constants.NOTE_D, Constants.NOTE_D, Constants.NOTE_E,
+													   Constants.NOTE_F, Constants.NOTE_F, Constants.NOTE_G, Constants.NOTE_G, Constants.NOTE_A,
+													   Constants.NOTE_A, Constants.NOTE_B };
+	private static final boolean[] SEMITONE_IS_SHARP = { false, true, false, true, false, false, true, false, true, false, true, false };
+	
+	// Full-range lookup tables, built once from the per-octave tables above, so converting in either direction is a single array access.
+	// DOUBLED_COMPARE_VALUE_TO_KEY_INDEX is indexed by (compareValue * 2), and holds -1 for rests and keys that don't exist (E sharp, B sharp).
+	private static final double[] KEY_INDEX_TO_COMPARE_VALUE = new double[Constants.NUM_KEY_INDICES];
+	private static final int[] DOUBLED_COMPARE_VALUE_TO_KEY_INDEX = new int[(int)(Constants.MAX_THEORETICAL_COMPARE_VALUE * 2) + 1];
+	static {
+		Arrays.fill(DOUBLED_COMPARE_VALUE_TO_KEY_INDEX, -1);
+		for (int keyIndex = 0; keyIndex < Constants.NUM_KEY_INDICES; ++keyIndex) {
+			int octave = keyIndex / Constants.SEMITONES_PER_OCTAVE;
+			double compareVal = SEMITONE_TO_OCTAVE_POSITION[keyIndex % Constants.SEMITONES_PER_OCTAVE] + (octave * Constants.OCTAVE_LENGTH);
+			KEY_INDEX_TO_COMPARE_VALUE[keyIndex] = compareVal;
+			DOUBLED_COMPARE_VALUE_TO_KEY_INDEX[(int)(compareVal * 2)] = keyIndex;
+		}
+	}
 }
@@ -0,0 +1,257 @@
+package Utils;
+
+import java.util.Arrays;
+
+import DataObjs.ColumnarMusicSheet;
+import DataObjs.MusicSheet;
+
+/**
+ * How many notes are being hit or held at every point in a song, found by sweeping over the notes' press and release times in order
+ * (rather than stepping through the song one GCD interval at a time, which can be millions of steps for a song with a 1ms GCD).
+ *
+ * The profile is a list of "changes": from getChangeTime(x) up until getChangeTime(x+1), getNotesAt(x) notes are down.
+ * The last change is always to 0 notes, at the time the song ends. Consecutive changes never have the same number of notes.
+ * The windows of time where the most notes are down at once (the peaks) are also recorded.
+ *
+ * Notes are treated the same way the PianoFeigner treats them: a note is held from its slice's start time until its duration runs out,
+ * and hitting a key that is still being held has no effect - the key stays down until the original note's duration is up.
+ * Rests aren't key presses, so they're ignored.
+ * That is worked out by the NoteIntervalIndex the profile is built from, so the rule only lives in one place: the profile just sweeps over the index's intervals.
+ *
+ * Presses come from the index in start time order, and releases come off of a min-heap, so the sweep takes O(n log n) for n notes.
+ * Nothing is allocated per note or per point in time, besides growing the arrays the results are stored in.
+ */
+public class PolyphonyProfile {
+	private static final int INITIAL_CAPACITY = 64;
+
+	// results
+	private int[] changeTimes;
+	private int[] changeNotes;
+	private int numChanges;
+	private int maxNotes;
+	private int[] peakStarts;
+	private int[] peakEnds;
+
+	// sweep state
+	private int[] releaseHeap; // min-heap of the release times of every note currently down
+	private int heapSize;
+
+	/**
+	 * Builds the profile for a MusicSheet
+	 * @param sheet MusicSheet to profile
+	 */
+	public PolyphonyProfile(MusicSheet sheet) {
+		this(new NoteIntervalIndex(sheet));
+	}
+
+	/**
+	 * Builds the profile for a ColumnarMusicSheet
+	 * @param sheet ColumnarMusicSheet to profile
+	 */
+	public PolyphonyProfile(ColumnarMusicSheet sheet) {
+		this(new NoteIntervalIndex(sheet));
+	}
+
+	/**
+	 * Builds the profile from a song's NoteIntervalIndex (such as one that was already built for seeking)
+	 * @param index index of the song's notes
+	 */
+	public PolyphonyProfile(NoteIntervalIndex index) {
+		startSweep(index.getNumNotes());
+		int numNotes = index.getNumNotes();
+		int note = 0;
+		while (note < numNotes) {
+			int startTime = index.getNoteStart(note);
+			releaseUntil(startTime);
+			for (; note < numNotes && index.getNoteStart(note) == startTime; ++note) {
+				// a strike of a key that was still being held doesn't hold anything (its end is its start)
+				if (index.getNoteEnd(note) > startTime) {
+					pushRelease(index.getNoteEnd(note));
+				}
+			}
+			recordChange(startTime);
+		}
+		finishSweep();
+	}
+
+	private void startSweep(int noteCountHint) {
+		int capacity = Math.max(noteCountHint, INITIAL_CAPACITY);
+		changeTimes = new int[capacity];
+		changeNotes = new int[capacity];
+		numChanges = 0;
+		maxNotes = 0;
+		releaseHeap = new int[capacity];
+		heapSize = 0;
+	}
+
+	/**
+	 * Releases every note whose duration is up by the given time, recording a change at each release time before it.
+	 * Notes released exactly at the given time are released before anything new is pressed at that time.
+	 */
+	private void releaseUntil(int time) {
+		while (heapSize > 0 && releaseHeap[0] <= time) {
+			int releaseTime = popRelease();
+			while (heapSize > 0 && releaseHeap[0] == releaseTime) {
+				popRelease();
+			}
+			if (releaseTime < time) {
+				recordChange(releaseTime);
+			}
+		}
+	}
+
+	/**
+	 * Adds a change to the profile for the number of notes currently down (the size of the heap), merging it with the previous change if possible
+	 */
+	private void recordChange(int time) {
+		if (numChanges > 0 && changeTimes[numChanges-1] == time) {
+			--numChanges; // a later event at the same time replaces the earlier one
+		}
+		if (numChanges > 0 && changeNotes[numChanges-1] == heapSize) {
+			return; // no change from what was already down
+		}
+		if (numChanges == changeTimes.length) {
+			changeTimes = Arrays.copyOf(changeTimes, numChanges * 2);
+			changeNotes = Arrays.copyOf(changeNotes, numChanges * 2);
+		}
+		changeTimes[numChanges] = time;
+		changeNotes[numChanges] = heapSize;
+		++numChanges;
+		if (heapSize > maxNotes) {
+			maxNotes = heapSize;
+		}
+	}
+
+	/**
+	 * Releases everything still down once the last slice has been pressed, trims the results, and finds the peaks
+	 */
+	private void finishSweep() {
+		releaseUntil(Integer.MAX_VALUE);
+		changeTimes = Arrays.copyOf(changeTimes, numChanges);
+		changeNotes = Arrays.copyOf(changeNotes, numChanges);
+		releaseHeap = null;
+
+		int numPeaks = 0;
+		for (int x = 0; x < numChanges; ++x) {
+			if (changeNotes[x] == maxNotes && maxNotes > 0) {
+				++numPeaks;
+			}
+		}
+		peakStarts = new int[numPeaks];
+		peakEnds = new int[numPeaks];
+		int peak = 0;
+		for (int x = 0; x < numChanges; ++x) {
+			if (changeNotes[x] == maxNotes && maxNotes > 0) {
+				peakStarts[peak] = changeTimes[x];
+				peakEnds[peak] = changeTimes[x+1]; // the last change is always to 0 notes, so a peak is never the last change
+				++peak;
+			}
+		}
+	}
+
+	private void pushRelease(int releaseTime) {
+		if (heapSize == releaseHeap.length) {
+			releaseHeap = Arrays.copyOf(releaseHeap, heapSize * 2);
+		}
+		int pos = heapSize++;
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (releaseHeap[parent] <= releaseTime) {
+				break;
+			}
+			releaseHeap[pos] = releaseHeap[parent];
+			pos = parent;
+		}
+		releaseHeap[pos] = releaseTime;
+	}
+
+	private int popRelease() {
+		int earliest = releaseHeap[0];
+		int last = releaseHeap[--heapSize];
+		int pos = 0;
+		while (true) {
+			int child = pos * 2 + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && releaseHeap[child + 1] < releaseHeap[child]) {
+				++child;
+			}
+			if (releaseHeap[child] >= last) {
+				break;
+			}
+			releaseHeap[pos] = releaseHeap[child];
+			pos = child;
+		}
+		if (heapSize > 0) {
+			releaseHeap[pos] = last;
+		}
+		return earliest;
+	}
+
+	/**
+	 * @return the most notes that are ever hit or held at the same time
+	 */
+	public int getMaxNotes() {
+		return maxNotes;
+	}
+
+	/**
+	 * @return the number of changes in the profile
+	 */
+	public int getNumChanges() {
+		return numChanges;
+	}
+
+	/**
+	 * @param change index of the change
+	 * @return the time (in milliseconds) of the change
+	 */
+	public int getChangeTime(int change) {
+		return changeTimes[change];
+	}
+
+	/**
+	 * @param change index of the change
+	 * @return the number of notes down from the change's time until the next change
+	 */
+	public int getNotesAt(int change) {
+		return changeNotes[change];
+	}
+
+	/**
+	 * Looks up the number of notes down at any point in the song, via a binary search over the changes
+	 * @param time time in milliseconds
+	 * @return the number of notes down at the given time (0 before the first slice and from the end of the song on)
+	 */
+	public int getNotesAtTime(int time) {
+		int change = Arrays.binarySearch(changeTimes, time);
+		if (change < 0) {
+			change = -change - 2; // the change before the insertion point
+		}
+		return (change < 0) ? 0 : changeNotes[change];
+	}
+
+	/**
+	 * @return the number of separate windows of time where getMaxNotes() notes are down
+	 */
+	public int getNumPeaks() {
+		return peakStarts.length;
+	}
+
+	/**
+	 * @param peak index of the peak
+	 * @return the time (in milliseconds) that the peak starts at
+	 */
+	public int getPeakStart(int peak) {
+		return peakStarts[peak];
+	}
+
+	/**
+	 * @param peak index of the peak
+	 * @return the time (in milliseconds) that the peak ends at (the first point in time with fewer notes down)
+	 */
+	public int getPeakEnd(int peak) {
+		return peakEnds[peak];
+	}
+}